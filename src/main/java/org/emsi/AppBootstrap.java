@@ -0,0 +1,165 @@
+package org.emsi;
+
+import org.emsi.dao.HibernateUtil;
+import org.emsi.search.Autocomplete;
+import org.emsi.search.SearchIndex;
+import org.emsi.service.AuthService;
+import org.emsi.service.FileStorageService;
+import org.emsi.ui.FxmlPreloader;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Amorçage de l'application en arrière-plan
+ *
+ * Pendant que l'écran de connexion est affiché, lance en parallèle :
+ * - la construction de la SessionFactory (pool, migrations, mappings)
+ * - la création du répertoire de stockage (FileStorageService)
+ * - le préchargement des vues FXML des tableaux de bord
+ * - puis, une fois la base prête, la vérification des utilisateurs par défaut
+ *   et la construction de l'index de recherche
+ *
+ * La durée de chaque étape et le temps de démarrage à froid (depuis le
+ * lancement de la JVM) sont mesurés.
+ */
+public class AppBootstrap {
+
+    // Vues ouvertes juste après la connexion
+    private static final String[] PRELOADED_VIEWS = {
+            "/fxml/admin_dashboard.fxml",
+            "/fxml/user_dashboard.fxml",
+            "/fxml/advanced_search_dialog.fxml",
+            "/fxml/lom_view_dialog.fxml",
+            "/fxml/lom_editor_dialog.fxml"
+    };
+
+    private final ExecutorService executor;
+    private final Map<String, Long> phaseMillis = new ConcurrentHashMap<>();
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private volatile long loginShownMillis = -1;
+    private volatile long coldStartMillis = -1;
+    private CompletableFuture<Void> backend;
+
+    public AppBootstrap() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "Startup-" + counter.incrementAndGet());
+            t.setDaemon(true); // N'empêche pas l'arrêt de la JVM
+            return t;
+        });
+    }
+
+    /**
+     * Lancer les tâches de démarrage
+     *
+     * @return future complétée quand la base est prête et les utilisateurs
+     *         par défaut vérifiés (l'accès aux données est alors possible)
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (backend != null) {
+            return backend;
+        }
+
+        CompletableFuture<Void> database = timed("sessionFactory",
+                HibernateUtil.startAsync(executor).thenApply(sf -> null))
+                .thenRunAsync(timed("defaultUsers", () -> AuthService.getInstance().initDefaultUsers()), executor);
+
+        CompletableFuture<Void> storage = CompletableFuture.runAsync(
+                timed("fileStorage", FileStorageService::getInstance), executor);
+
+        CompletableFuture<Void> views = CompletableFuture.runAsync(
+                timed("fxmlPreload", () -> FxmlPreloader.preload(PRELOADED_VIEWS)), executor);
+
+        // Index de recherche ouvert (ou construit) une fois la base prête, sans bloquer la connexion,
+        // puis l'autocomplétion (construite en arrière-plan à partir de l'index)
+        CompletableFuture<Void> searchIndex = database.thenRunAsync(
+                timed("searchIndex", () -> SearchIndex.getInstance().open()), executor)
+                .thenRun(() -> Autocomplete.getInstance().open());
+
+        // Le stockage, les vues et l'index ne bloquent pas l'accès aux données
+        CompletableFuture.allOf(database, storage, views, searchIndex).whenComplete((v, e) -> {
+            coldStartMillis = System.currentTimeMillis() - jvmStartMillis;
+            report(e);
+            executor.shutdown();
+        });
+
+        backend = database;
+        return backend;
+    }
+
+    /**
+     * Noter l'affichage de l'écran de connexion
+     */
+    public void loginShown() {
+        loginShownMillis = System.currentTimeMillis() - jvmStartMillis;
+    }
+
+    /**
+     * Temps de démarrage à froid en ms : du lancement de la JVM à la fin
+     * de toutes les tâches de démarrage (-1 si en cours)
+     */
+    public long getColdStartMillis() {
+        return coldStartMillis;
+    }
+
+    /**
+     * Délai entre le lancement de la JVM et l'affichage de la connexion
+     */
+    public long getLoginShownMillis() {
+        return loginShownMillis;
+    }
+
+    /**
+     * Durée de chaque étape de démarrage en ms
+     */
+    public Map<String, Long> getPhaseMillis() {
+        return Map.copyOf(phaseMillis);
+    }
+
+    /**
+     * Arrêter les tâches encore en cours
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Runnable timed(String phase, Runnable task) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                phaseMillis.put(phase, (System.nanoTime() - start) / 1_000_000);
+            }
+        };
+    }
+
+    private CompletableFuture<Void> timed(String phase, CompletableFuture<Void> future) {
+        long start = System.nanoTime();
+        return future.whenComplete((v, e) -> phaseMillis.put(phase, (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private void report(Throwable error) {
+        StringBuilder sb = new StringBuilder("⏱️ Démarrage à froid: ").append(coldStartMillis).append(" ms");
+        if (loginShownMillis >= 0) {
+            sb.append(" (connexion affichée à ").append(loginShownMillis).append(" ms)");
+        }
+        phaseMillis.forEach((phase, millis) -> sb.append("\n   ").append(phase).append(": ").append(millis).append(" ms"));
+        if (error != null) {
+            sb.append("\n   ⚠️ échec: ").append(error.getMessage());
+        }
+        System.out.println(sb);
+    }
+}
@@ -1,18 +1,23 @@
 package org.emsi;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import org.emsi.dao.HibernateUtil;
+import org.emsi.search.Autocomplete;
+import org.emsi.search.SearchIndex;
 import org.emsi.service.AuthService;
 import org.emsi.ui.AdminDashboard;
+import org.emsi.ui.FxmlPreloader;
 import org.emsi.ui.UserDashboard;
 import org.emsi.ui.controllers.LoginController;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Application principale JavaFX
@@ -22,22 +27,35 @@ public class MainApp extends Application {
 
     private Stage primaryStage;
     private AuthService authService;
+    private AppBootstrap bootstrap;
 
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
         this.authService = AuthService.getInstance();
 
-        // Initialiser les utilisateurs par défaut
-        try {
-            authService.initDefaultUsers();
-        } catch (Exception e) {
-            showError("Erreur de connexion à la base de données",
-                    "Assurez-vous que MySQL est démarré via Docker.\n" + e.getMessage());
-        }
+        // Base de données, stockage et vues préparés en arrière-plan
+        bootstrap = new AppBootstrap();
+        bootstrap.start().whenComplete((v, e) -> {
+            if (e != null) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                Platform.runLater(() -> showError("Erreur de connexion à la base de données",
+                        "Assurez-vous que MySQL est démarré via Docker.\n" + cause.getMessage()));
+            }
+        });
 
-        // Afficher l'écran de connexion
+        // Afficher l'écran de connexion sans attendre la base
         showLoginScreen();
+        bootstrap.loginShown();
+    }
+
+    /**
+     * Attendre que l'accès aux données soit possible
+     *
+     * @return future complétée une fois la base prête
+     */
+    public CompletableFuture<Void> whenBackendReady() {
+        return bootstrap.start();
     }
 
     /**
@@ -46,7 +64,7 @@ public class MainApp extends Application {
     public void showLoginScreen() {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/login.fxml"));
-            Parent root = loader.load();
+            Parent root = FxmlPreloader.load(loader);
 
             LoginController controller = loader.getController();
             controller.setMainApp(this);
@@ -126,6 +144,12 @@ public class MainApp extends Application {
 
     @Override
     public void stop() {
+        if (bootstrap != null) {
+            bootstrap.shutdown();
+        }
+        Autocomplete.getInstance().close();
+        // Écrire les derniers changements de l'index de recherche
+        SearchIndex.getInstance().close();
         // Fermer la SessionFactory Hibernate
         HibernateUtil.shutdown();
         System.out.println("Application fermée");
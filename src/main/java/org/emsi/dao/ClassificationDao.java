@@ -28,7 +28,7 @@ public class ClassificationDao extends GenericDao<Classification, Long> {
      * Trouver les classifications d'une ressource LOM
      */
     public List<Classification> findByLomSchemaId(Long lomSchemaId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT c FROM Classification c " +
                     "LEFT JOIN FETCH c.taxonPaths " +
                     "WHERE c.lomSchema.id = :lomSchemaId";
@@ -48,14 +48,16 @@ public class ClassificationDao extends GenericDao<Classification, Long> {
 
     /**
      * Obtenir toutes les classifications avec leurs taxons
+     *
+     * Trois requêtes (classifications, chemins, taxons) via
+     * fetch="subselect" au lieu d'une double jointure cartésienne.
      */
     public List<Classification> findAllWithTaxons() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "SELECT DISTINCT c FROM Classification c " +
-                    "LEFT JOIN FETCH c.taxonPaths tp " +
-                    "LEFT JOIN FETCH tp.taxons";
-            Query<Classification> query = session.createQuery(hql, Classification.class);
-            return query.list();
+        try (Session session = openReadSession()) {
+            Query<Classification> query = session.createQuery("FROM Classification", Classification.class);
+            List<Classification> classifications = query.list();
+            FetchPlan.initializeTaxonomy(classifications);
+            return classifications;
         }
     }
 }
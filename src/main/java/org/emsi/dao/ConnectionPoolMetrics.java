@@ -0,0 +1,113 @@
+package org.emsi.dao;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques du pool de connexions HikariCP
+ *
+ * Collecte la latence d'acquisition des connexions (moyenne, max), le nombre
+ * de timeouts et expose l'état courant du pool (actives, inactives, threads
+ * en attente) pour dimensionner le pool face aux executors de
+ * BatchImportService et DbExecutor.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0L);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile HikariPoolMXBean poolBean;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * Associer le MXBean du pool (disponible une fois le pool démarré)
+     */
+    void bind(HikariPoolMXBean poolBean) {
+        this.poolBean = poolBean;
+    }
+
+    /**
+     * Obtenir un instantané des métriques du pool
+     */
+    public Snapshot snapshot() {
+        HikariPoolMXBean bean = poolBean;
+        long count = acquisitions.sum();
+        return new Snapshot(
+                bean != null ? bean.getActiveConnections() : 0,
+                bean != null ? bean.getIdleConnections() : 0,
+                bean != null ? bean.getThreadsAwaitingConnection() : 0,
+                bean != null ? bean.getTotalConnections() : 0,
+                count,
+                count > 0 ? acquireNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1) : 0.0,
+                maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                count > 0 ? usageMillis.sum() / (double) count : 0.0,
+                timeouts.sum());
+    }
+
+    /**
+     * Instantané immuable de l'état du pool
+     */
+    public static class Snapshot {
+        public final int active;
+        public final int idle;
+        public final int waiting;
+        public final int total;
+        public final long acquisitions;
+        public final double avgAcquireMillis;
+        public final double maxAcquireMillis;
+        public final double avgUsageMillis;
+        public final long timeouts;
+
+        Snapshot(int active, int idle, int waiting, int total, long acquisitions,
+                double avgAcquireMillis, double maxAcquireMillis, double avgUsageMillis, long timeouts) {
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.total = total;
+            this.acquisitions = acquisitions;
+            this.avgAcquireMillis = avgAcquireMillis;
+            this.maxAcquireMillis = maxAcquireMillis;
+            this.avgUsageMillis = avgUsageMillis;
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Pool{actives=%d, inactives=%d, en attente=%d, total=%d, acquisitions=%d, "
+                            + "acquisition moy=%.2f ms, max=%.2f ms, usage moy=%.2f ms, timeouts=%d}",
+                    active, idle, waiting, total, acquisitions,
+                    avgAcquireMillis, maxAcquireMillis, avgUsageMillis, timeouts);
+        }
+    }
+}
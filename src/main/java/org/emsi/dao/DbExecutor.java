@@ -0,0 +1,183 @@
+package org.emsi.dao;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Executor unique des accès base de données asynchrones
+ *
+ * Autant de threads que de connexions dans le pool HikariCP : une tâche
+ * asynchrone n'attend jamais une connexion, et le nombre de requêtes
+ * simultanées est borné en un seul point (au lieu d'un executor par
+ * service et du ForkJoinPool commun). La file est limitée à
+ * QUEUE_PER_CONNECTION tâches par connexion (lom.db.queue_per_connection) ;
+ * au-delà, la tâche est refusée et son CompletableFuture échoue avec
+ * RejectedExecutionException au lieu d'accumuler de la latence.
+ *
+ * <pre>
+ * lomSchemaDao.findByIdAsync(id)
+ *         .thenAccept(lom -> Platform.runLater(() -> afficher(lom)));
+ * </pre>
+ *
+ * La tolérance de retard du réplica et la session (ReadRouter) du thread
+ * appelant sont reprises par la tâche. Une unité de travail (UnitOfWork)
+ * n'est pas partagée : la tâche ouvre ses propres sessions.
+ */
+public final class DbExecutor {
+
+    // Taille par défaut de la file par connexion du pool
+    private static final int QUEUE_PER_CONNECTION = 8;
+
+    private static volatile ThreadPoolExecutor executor;
+
+    private static final LongAdder submitted = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+
+    private DbExecutor() {
+    }
+
+    /**
+     * Exécuter work sur un thread base de données
+     *
+     * @return un CompletableFuture complété par le résultat, ou en échec si
+     *         work lève une exception ou si la file est pleine
+     */
+    public static <R> CompletableFuture<R> submit(Supplier<R> work) {
+        Duration tolerance = ReadRouter.currentStaleness();
+        Object session = ReadRouter.currentSession();
+        CompletableFuture<R> future = new CompletableFuture<>();
+        submitted.increment();
+        try {
+            executor().execute(() -> {
+                if (future.isDone()) {
+                    return; // annulé pendant l'attente en file
+                }
+                try {
+                    R result = ReadRouter.withSession(session, () -> tolerance != null
+                            ? ReadRouter.withStaleness(tolerance, work)
+                            : work.get());
+                    future.complete(result);
+                } catch (Throwable e) {
+                    failed.increment();
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            System.err.println("⚠️ File BDD pleine (" + getQueueCapacity() + " tâches), requête refusée");
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public static CompletableFuture<Void> run(Runnable work) {
+        return submit(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Créer l'executor à la première utilisation (le pool de connexions doit
+     * être démarré pour connaître sa taille)
+     */
+    private static ThreadPoolExecutor executor() {
+        ThreadPoolExecutor current = executor;
+        if (current == null) {
+            synchronized (DbExecutor.class) {
+                current = executor;
+                if (current == null) {
+                    int threads = HibernateUtil.getMaxPoolSize();
+                    int perConnection = Integer.getInteger("lom.db.queue_per_connection", QUEUE_PER_CONNECTION);
+                    AtomicInteger counter = new AtomicInteger();
+                    current = new ThreadPoolExecutor(
+                            threads,
+                            threads,
+                            30L,
+                            TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(threads * Math.max(1, perConnection)),
+                            r -> {
+                                Thread t = new Thread(r, "DB-Worker-" + counter.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            },
+                            new ThreadPoolExecutor.AbortPolicy());
+                    current.allowCoreThreadTimeOut(true);
+                    executor = current;
+                    System.out.println("🧵 Executor BDD: " + threads + " threads, file de "
+                            + current.getQueue().remainingCapacity() + " tâches");
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Tâches en cours d'exécution
+     */
+    public static int getActiveCount() {
+        ThreadPoolExecutor current = executor;
+        return current != null ? current.getActiveCount() : 0;
+    }
+
+    /**
+     * Tâches en attente dans la file
+     */
+    public static int getQueuedCount() {
+        ThreadPoolExecutor current = executor;
+        return current != null ? current.getQueue().size() : 0;
+    }
+
+    public static int getQueueCapacity() {
+        ThreadPoolExecutor current = executor;
+        return current != null ? current.getQueue().size() + current.getQueue().remainingCapacity() : 0;
+    }
+
+    public static long getCompletedCount() {
+        ThreadPoolExecutor current = executor;
+        return current != null ? current.getCompletedTaskCount() : 0;
+    }
+
+    public static long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Tâches refusées car la file était pleine
+     */
+    public static long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public static long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Arrêter l'executor en laissant finir les tâches en cours
+     */
+    static void shutdown() {
+        ThreadPoolExecutor current = executor;
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(30, TimeUnit.SECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+}
@@ -0,0 +1,29 @@
+package org.emsi.dao;
+
+/**
+ * Modification validée d'une entité suivie par EntityChangeListener
+ *
+ * - RESOURCE    : ressource créée, modifiée ou supprimée (id de LomSchema,
+ *                 y compris pour un changement de General ou Educational)
+ * - TAG         : tag créé ou modifié (ses liens ont pu changer) ; name est
+ *                 son nom, previousName l'ancien nom s'il a été renommé
+ * - TAG_DELETED : tag supprimé
+ */
+public record EntityChange(Type type, Long id, String name, String previousName) {
+
+    public enum Type {
+        RESOURCE, TAG, TAG_DELETED
+    }
+
+    public static EntityChange resource(Long resourceId) {
+        return new EntityChange(Type.RESOURCE, resourceId, null, null);
+    }
+
+    public static EntityChange tag(Long tagId, String name, String previousName) {
+        return new EntityChange(Type.TAG, tagId, name, previousName);
+    }
+
+    public static EntityChange tagDeleted(Long tagId, String name) {
+        return new EntityChange(Type.TAG_DELETED, tagId, name, null);
+    }
+}
@@ -0,0 +1,179 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Educational;
+import org.emsi.entities.General;
+import org.emsi.entities.LomSchema;
+import org.emsi.entities.Tag;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Écouteur Hibernate des modifications validées de LomSchema, General,
+ * Educational et Tag
+ *
+ * Enregistré par HibernateUtil sur la SessionFactory du primaire. Les
+ * événements post-commit ne sont émis qu'après la validation de la
+ * transaction (jamais pour une transaction annulée) ; chacun est traduit en
+ * EntityChange et transmis aux abonnés (SearchIndex), sur le thread qui a
+ * validé la transaction : un abonné doit donc seulement mettre le
+ * changement en file.
+ *
+ * Les instructions BULK DML (HQL/SQL UPDATE ou DELETE) ne passent pas par
+ * les événements : les DAO qui en exécutent sur ces tables publient
+ * eux-mêmes leurs changements (publish).
+ */
+public final class EntityChangeListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final List<Consumer<EntityChange>> subscribers = new CopyOnWriteArrayList<>();
+
+    private EntityChangeListener() {
+    }
+
+    /**
+     * Enregistrer l'écouteur sur une SessionFactory
+     */
+    static void register(SessionFactory sessionFactory) {
+        EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        EntityChangeListener listener = new EntityChangeListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    /**
+     * S'abonner aux modifications validées
+     */
+    public static void subscribe(Consumer<EntityChange> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public static void unsubscribe(Consumer<EntityChange> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Publier un changement (événements Hibernate ou BULK DML validé)
+     */
+    static void publish(EntityChange change) {
+        for (Consumer<EntityChange> subscriber : subscribers) {
+            try {
+                subscriber.accept(change);
+            } catch (RuntimeException e) {
+                // Un abonné défaillant ne doit pas faire échouer la transaction déjà validée
+                System.err.println("⚠️ Abonné aux modifications en erreur: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Tag tag) {
+            publish(EntityChange.tag(tag.getId(), tag.getName(), null));
+        } else {
+            publishResource(entity);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Tag tag) {
+            publish(EntityChange.tag(tag.getId(), tag.getName(), previousName(event)));
+        } else {
+            publishResource(entity);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Tag tag) {
+            publish(EntityChange.tagDeleted(tag.getId(), tag.getName()));
+        } else {
+            publishResource(entity);
+        }
+    }
+
+    private static void publishResource(Object entity) {
+        Long resourceId = null;
+        if (entity instanceof LomSchema lom) {
+            resourceId = lom.getId();
+        } else if (entity instanceof General general && general.getLomSchema() != null) {
+            resourceId = general.getLomSchema().getId();
+        } else if (entity instanceof Educational educational && educational.getLomSchema() != null) {
+            resourceId = educational.getLomSchema().getId();
+        }
+        if (resourceId != null) {
+            publish(EntityChange.resource(resourceId));
+        }
+    }
+
+    /**
+     * Ancien nom d'un tag renommé (null si inchangé ou inconnu : un tag
+     * détaché réattaché par update() n'a pas d'état précédent)
+     */
+    private static String previousName(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return null;
+        }
+        String[] properties = event.getPersister().getPropertyNames();
+        for (int i = 0; i < properties.length; i++) {
+            if ("name".equals(properties[i])) {
+                Object previous = oldState[i];
+                Object current = event.getState()[i];
+                return previous != null && !previous.equals(current) ? previous.toString() : null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == LomSchema.class || type == General.class
+                || type == Educational.class || type == Tag.class;
+    }
+
+    // Ancien nom, encore abstrait dans Hibernate 5.6 : délègue au nouveau
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Transaction annulée : rien à publier
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Transaction annulée : rien à publier
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // Transaction annulée : rien à publier
+    }
+}
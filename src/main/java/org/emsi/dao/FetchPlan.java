@@ -0,0 +1,112 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Classification;
+import org.emsi.entities.LomSchema;
+import org.emsi.entities.MetaMetadata;
+import org.emsi.entities.Requirement;
+import org.emsi.entities.TaxonPath;
+import org.emsi.entities.Technical;
+import org.hibernate.Hibernate;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Plans de chargement d'un LomSchema
+ *
+ * Les catégories à cardinalité 1 (general, lifecycle, ...) sont toujours
+ * jointes à la requête racine : une ligne SQL par ressource. Les
+ * collections ne sont jamais jointes (produit cartésien) ; elles sont
+ * initialisées ensuite, une requête par collection grâce à batch-size
+ * (jusqu'à 25 propriétaires par requête) ou fetch="subselect" dans les
+ * mappings. Le nombre de requêtes est borné par le plan et le nombre de
+ * lignes est linéaire dans les données.
+ *
+ * - SUMMARY : catégories à cardinalité 1 seulement (listes, recherche,
+ *             export XML)
+ * - DETAIL  : + contributeurs du cycle de vie et annotations (consultation,
+ *             édition)
+ * - EXPORT  : graphe LOM complet (identifiants, exigences techniques,
+ *             relations, classifications et taxons)
+ */
+public enum FetchPlan {
+
+    SUMMARY(lom -> {
+    }),
+
+    DETAIL(lom -> {
+        if (lom.getLifecycle() != null) {
+            Hibernate.initialize(lom.getLifecycle().getContributes());
+        }
+        Hibernate.initialize(lom.getAnnotations());
+    }),
+
+    EXPORT(lom -> {
+        DETAIL.apply(lom);
+        if (lom.getGeneral() != null) {
+            Hibernate.initialize(lom.getGeneral().getIdentifiers());
+        }
+        MetaMetadata meta = lom.getMetaMetadata();
+        if (meta != null) {
+            Hibernate.initialize(meta.getIdentifiers());
+            Hibernate.initialize(meta.getContributes());
+        }
+        Technical technical = lom.getTechnical();
+        if (technical != null) {
+            Hibernate.initialize(technical.getRequirements());
+            for (Requirement requirement : technical.getRequirements()) {
+                Hibernate.initialize(requirement.getOrComposites());
+            }
+        }
+        Hibernate.initialize(lom.getRelations());
+        initializeTaxonomy(lom.getClassifications());
+    });
+
+    /**
+     * Jointures des catégories à cardinalité 1 (alias de la racine : ls)
+     */
+    public static final String TO_ONE_JOINS =
+            "LEFT JOIN FETCH ls.general " +
+            "LEFT JOIN FETCH ls.lifecycle " +
+            "LEFT JOIN FETCH ls.metaMetadata " +
+            "LEFT JOIN FETCH ls.technical " +
+            "LEFT JOIN FETCH ls.educational " +
+            "LEFT JOIN FETCH ls.rights ";
+
+    private final Consumer<LomSchema> initializer;
+
+    FetchPlan(Consumer<LomSchema> initializer) {
+        this.initializer = initializer;
+    }
+
+    /**
+     * Initialiser les collections du plan (session encore ouverte)
+     */
+    public void apply(LomSchema lom) {
+        if (lom != null) {
+            initializer.accept(lom);
+        }
+    }
+
+    /**
+     * Initialiser les collections du plan pour plusieurs ressources : les
+     * chargements sont regroupés par batch-size
+     */
+    public void apply(Collection<LomSchema> loms) {
+        loms.forEach(this::apply);
+    }
+
+    /**
+     * Classifications, chemins et taxons : une requête par niveau
+     * (fetch="subselect") quel que soit le nombre de classifications
+     */
+    static void initializeTaxonomy(Collection<Classification> classifications) {
+        Hibernate.initialize(classifications);
+        for (Classification classification : classifications) {
+            Hibernate.initialize(classification.getTaxonPaths());
+            for (TaxonPath path : classification.getTaxonPaths()) {
+                Hibernate.initialize(path.getTaxons());
+            }
+        }
+    }
+}
@@ -1,24 +1,96 @@
 package org.emsi.dao;
 
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.StaleStateException;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import javax.persistence.OptimisticLockException;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * DAO générique avec les opérations CRUD de base
  * 
+ * En mode lecture seule, les lectures utilisent des sessions sans
+ * snapshot de dirty-checking (setDefaultReadOnly) et sans flush
+ * automatique (FlushMode.MANUAL) : adapté aux listes, statistiques et
+ * exports dont les entités ne sont jamais modifiées. Ces lectures sont
+ * routées vers le réplica s'il existe (voir ReadRouter) ; les écritures
+ * vont toujours au primaire.
+ * 
+ * Appelées dans une unité de travail (UnitOfWork), les méthodes partagent
+ * sa session et sa transaction au lieu d'ouvrir les leurs.
+ * 
+ * Les variantes *Async exécutent la même opération sur DbExecutor (une
+ * tâche par connexion du pool) et rendent un CompletableFuture.
+ * 
  * @param <T>  Type de l'entité
  * @param <ID> Type de l'identifiant
  */
 public class GenericDao<T, ID extends Serializable> {
 
+    // Nombre de lignes lues par aller-retour JDBC lors d'un parcours en flux
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    // Valeurs au plus par liste IN : les listes plus longues sont découpées
+    // (MySQL accepte au plus 65 535 paramètres par requête)
+    public static final int IN_LIST_CHUNK = 1_000;
+
+    // Attente entre deux tentatives après un conflit de version
+    private static final long BACKOFF_BASE_MILLIS = 20;
+    private static final long BACKOFF_MAX_MILLIS = 1_000;
+
     private final Class<T> entityClass;
+    private final boolean readOnly;
 
     public GenericDao(Class<T> entityClass) {
+        this(entityClass, false);
+    }
+
+    /**
+     * @param readOnly true pour que les lectures chargent des entités en
+     *                 lecture seule (non suivies par le dirty-checking)
+     */
+    public GenericDao(Class<T> entityClass, boolean readOnly) {
         this.entityClass = entityClass;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Indique si ce DAO effectue ses lectures en mode lecture seule
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Ouvrir une session pour une lecture (lecture seule, éventuellement
+     * sur le réplica, si le DAO l'est)
+     */
+    protected Session openReadSession() {
+        if (readOnly) {
+            return HibernateUtil.openReadSession();
+        }
+        return HibernateUtil.openSession();
     }
 
     /**
@@ -27,7 +99,7 @@ public class GenericDao<T, ID extends Serializable> {
     public ID save(T entity) {
         Transaction transaction = null;
         ID id = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             @SuppressWarnings("unchecked")
             ID tempId = (ID) session.save(entity);
@@ -47,7 +119,7 @@ public class GenericDao<T, ID extends Serializable> {
      */
     public void update(T entity) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.update(entity);
             transaction.commit();
@@ -59,12 +131,171 @@ public class GenericDao<T, ID extends Serializable> {
         }
     }
 
+    /**
+     * Modifier une entité chargée dans la transaction (dirty-checking)
+     *
+     * Contrairement à update(), seules les entités effectivement modifiées
+     * par changes sont écrites au commit.
+     *
+     * @return l'entité modifiée, ou null si introuvable ou en cas d'échec
+     *         (rollback)
+     */
+    public T modify(ID id, Consumer<? super T> changes) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            T entity = session.get(entityClass, id);
+            if (entity == null) {
+                transaction.rollback();
+                return null;
+            }
+            changes.accept(entity);
+            transaction.commit();
+            return entity;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Modifier une entité versionnée en rejouant les modifications si une
+     * écriture concurrente a changé sa version (verrouillage optimiste)
+     *
+     * Chaque tentative recharge l'entité dans une nouvelle transaction et
+     * réapplique changes : changes ne doit dépendre que de l'entité reçue.
+     * Entre deux tentatives, attente croissante et aléatoire (backOff).
+     * Dans une unité de travail, une seule tentative est faite.
+     *
+     * @return l'entité modifiée, ou null si introuvable, en cas d'échec ou
+     *         si le conflit persiste après maxAttempts tentatives
+     */
+    public T modifyWithRetry(ID id, Consumer<? super T> changes, int maxAttempts) {
+        // Dans une unité de travail, la session est inutilisable après un conflit
+        int attempts = UnitOfWork.isActive() ? 1 : maxAttempts;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            Transaction transaction = null;
+            try (Session session = HibernateUtil.openSession()) {
+                transaction = session.beginTransaction();
+                T entity = session.get(entityClass, id);
+                if (entity == null) {
+                    transaction.rollback();
+                    return null;
+                }
+                changes.accept(entity);
+                transaction.commit();
+                return entity;
+            } catch (Exception e) {
+                if (transaction != null && transaction.isActive()) {
+                    transaction.rollback();
+                }
+                if (!isOptimisticLockFailure(e)) {
+                    e.printStackTrace();
+                    return null;
+                }
+                System.out.println("🔁 Conflit de version sur " + entityClass.getSimpleName() + " #" + id
+                        + " (tentative " + attempt + "/" + attempts + ")");
+                if (attempt < attempts) {
+                    backOff(attempt);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Modifier une entité versionnée si elle n'a pas changé depuis sa
+     * lecture par l'appelant
+     *
+     * L'entité est relue dans la transaction ; si unchanged la refuse
+     * (version différente de celle lue), rien n'est écrit. Une seule
+     * tentative : à réserver aux modifications non commutatives (valeurs
+     * saisies sur une version donnée), qui ne doivent pas être rejouées
+     * sur la version d'un autre écrivain (voir modifyWithRetry).
+     *
+     * @return l'entité modifiée, ou null si introuvable
+     * @throws StaleObjectStateException si l'entité a été modifiée depuis
+     *                                   sa lecture (conflit, rien n'est
+     *                                   écrit) ; les autres échecs sont
+     *                                   propagés
+     */
+    public T modifyIfUnchanged(ID id, Predicate<? super T> unchanged, Consumer<? super T> changes) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            T entity = session.get(entityClass, id);
+            if (entity == null) {
+                transaction.rollback();
+                return null;
+            }
+            if (!unchanged.test(entity)) {
+                throw new StaleObjectStateException(entityClass.getName(), id);
+            }
+            changes.accept(entity);
+            transaction.commit();
+            return entity;
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Découper les valeurs d'une liste IN en lots de IN_LIST_CHUNK (une
+     * requête par lot)
+     */
+    protected static <V> List<List<V>> inListChunks(Collection<V> values) {
+        List<V> all = new ArrayList<>(values);
+        List<List<V>> chunks = new ArrayList<>((all.size() + IN_LIST_CHUNK - 1) / IN_LIST_CHUNK);
+        for (int from = 0; from < all.size(); from += IN_LIST_CHUNK) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + IN_LIST_CHUNK)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Indique si une exception provient d'un conflit de version
+     * (StaleStateException ou OptimisticLockException JPA)
+     */
+    public static boolean isOptimisticLockFailure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof StaleStateException || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Attendre avant une nouvelle tentative après un conflit de version
+     *
+     * Attente exponentielle (BACKOFF_BASE_MILLIS x 2^(attempt-1), plafonnée
+     * à BACKOFF_MAX_MILLIS) tirée au hasard entre 1 ms et ce plafond : les
+     * écrivains en conflit ne se retrouvent pas sur la même ligne au même
+     * instant.
+     *
+     * @param attempt numéro de la tentative qui vient d'échouer (à partir de 1)
+     */
+    public static void backOff(int attempt) {
+        long ceiling = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt - 1, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Sauvegarder ou mettre à jour une entité
      */
     public void saveOrUpdate(T entity) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.saveOrUpdate(entity);
             transaction.commit();
@@ -81,7 +312,7 @@ public class GenericDao<T, ID extends Serializable> {
      */
     public void delete(T entity) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.delete(entity);
             transaction.commit();
@@ -93,6 +324,54 @@ public class GenericDao<T, ID extends Serializable> {
         }
     }
 
+    /**
+     * Mettre à jour une entité versionnée détachée
+     *
+     * @return true si écrite, false si sa version a changé depuis sa
+     *         lecture (conflit, rien n'est écrit)
+     */
+    public boolean updateIfUnchanged(T entity) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            session.update(entity);
+            transaction.commit();
+            return true;
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            if (isOptimisticLockFailure(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Supprimer une entité versionnée lue auparavant
+     *
+     * @return true si supprimée, false si sa version a changé depuis sa
+     *         lecture (conflit, rien n'est supprimé)
+     */
+    public boolean deleteIfUnchanged(T entity) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            session.delete(entity);
+            transaction.commit();
+            return true;
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            if (isOptimisticLockFailure(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     /**
      * Supprimer par ID
      */
@@ -103,11 +382,196 @@ public class GenericDao<T, ID extends Serializable> {
         }
     }
 
+    /**
+     * Sauvegarder plusieurs entités dans une seule session/transaction
+     * (batch JDBC, taille de lot = hibernate.jdbc.batch_size)
+     *
+     * @return identifiants générés, ou liste vide en cas d'échec (rollback)
+     */
+    public List<ID> saveAll(Collection<? extends T> entities) {
+        return saveAll(entities, HibernateUtil.getBatchSize());
+    }
+
+    /**
+     * Sauvegarder plusieurs entités avec une taille de lot explicite
+     */
+    public List<ID> saveAll(Collection<? extends T> entities, int batchSize) {
+        Transaction transaction = null;
+        List<ID> ids = new ArrayList<>(entities.size());
+        try (Session session = HibernateUtil.openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            transaction = session.beginTransaction();
+            int count = 0;
+            for (T entity : entities) {
+                @SuppressWarnings("unchecked")
+                ID id = (ID) session.save(entity);
+                ids.add(id);
+                // FLUSH + CLEAR périodique: envoie le lot et libère le contexte
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            ids.clear();
+        }
+        return ids;
+    }
+
+    /**
+     * Mettre à jour plusieurs entités dans une seule session/transaction
+     *
+     * @return true si la transaction a été validée
+     */
+    public boolean updateAll(Collection<? extends T> entities) {
+        return updateAll(entities, HibernateUtil.getBatchSize());
+    }
+
+    /**
+     * Mettre à jour plusieurs entités avec une taille de lot explicite
+     */
+    public boolean updateAll(Collection<? extends T> entities, int batchSize) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            transaction = session.beginTransaction();
+            int count = 0;
+            for (T entity : entities) {
+                session.update(entity);
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+            return true;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Supprimer plusieurs entités dans une seule session/transaction
+     *
+     * @return true si la transaction a été validée
+     */
+    public boolean deleteAll(Collection<? extends T> entities) {
+        return deleteAll(entities, HibernateUtil.getBatchSize());
+    }
+
+    /**
+     * Supprimer plusieurs entités avec une taille de lot explicite
+     */
+    public boolean deleteAll(Collection<? extends T> entities, int batchSize) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            transaction = session.beginTransaction();
+            int count = 0;
+            for (T entity : entities) {
+                session.delete(entity);
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+            return true;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * BULK DML: Supprimer en une instruction les entités vérifiant une
+     * condition HQL (paramètres positionnels ?0, ?1...)
+     *
+     * N'applique ni les cascades ni le cache de second niveau : à réserver
+     * aux entités sans dépendances cascadées.
+     *
+     * @return nombre de lignes supprimées (0 en cas d'échec, rollback)
+     */
+    public int deleteWhere(String condition, Object... params) {
+        return executeUpdate("DELETE FROM " + entityClass.getSimpleName() + " WHERE " + condition, params);
+    }
+
+    /**
+     * BULK DML: Mettre à jour en une instruction les entités vérifiant une
+     * condition HQL
+     *
+     * @param assignments clause SET (ex: "viewCount = 0")
+     * @return nombre de lignes modifiées (0 en cas d'échec, rollback)
+     */
+    public int updateWhere(String assignments, String condition, Object... params) {
+        return executeUpdate("UPDATE " + entityClass.getSimpleName() + " SET " + assignments
+                + " WHERE " + condition, params);
+    }
+
+    /**
+     * Exécuter une instruction HQL UPDATE/DELETE dans sa propre transaction
+     */
+    protected int executeUpdate(String hql, Object... params) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            Query<?> query = session.createQuery(hql);
+            for (int i = 0; i < params.length; i++) {
+                query.setParameter(i, params[i]);
+            }
+            int affected = query.executeUpdate();
+            transaction.commit();
+            return affected;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Exécuter une instruction SQL native (tables sans entité, ex: tables de
+     * jointure) dans sa propre transaction. Paramètres JDBC "?" (base 1).
+     */
+    protected int executeNativeUpdate(String sql, Object... params) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            Query<?> query = session.createNativeQuery(sql);
+            for (int i = 0; i < params.length; i++) {
+                query.setParameter(i + 1, params[i]);
+            }
+            int affected = query.executeUpdate();
+            transaction.commit();
+            return affected;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
     /**
      * Trouver par ID
      */
     public T findById(ID id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             return session.get(entityClass, id);
         }
     }
@@ -116,17 +580,34 @@ public class GenericDao<T, ID extends Serializable> {
      * Trouver toutes les entités
      */
     public List<T> findAll() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             Query<T> query = session.createQuery("FROM " + entityClass.getSimpleName(), entityClass);
             return query.list();
         }
     }
 
+    /**
+     * Parcourir toutes les entités en flux (mémoire constante)
+     *
+     * Le Stream retourné doit être fermé (try-with-resources) pour libérer
+     * le curseur et la session.
+     */
+    public Stream<T> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Parcourir toutes les entités en flux avec une taille de fetch explicite
+     */
+    public Stream<T> streamAll(int fetchSize) {
+        return stream("FROM " + entityClass.getSimpleName(), fetchSize);
+    }
+
     /**
      * Compter le nombre d'entités
      */
     public long count() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             Query<Long> query = session.createQuery("SELECT COUNT(*) FROM " + entityClass.getSimpleName(), Long.class);
             return query.uniqueResult();
         }
@@ -136,7 +617,7 @@ public class GenericDao<T, ID extends Serializable> {
      * Rechercher avec une requête HQL personnalisée
      */
     protected List<T> findByQuery(String hql, Object... params) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             Query<T> query = session.createQuery(hql, entityClass);
             for (int i = 0; i < params.length; i++) {
                 query.setParameter(i, params[i]);
@@ -145,11 +626,106 @@ public class GenericDao<T, ID extends Serializable> {
         }
     }
 
+    // =========================================================================
+    // VARIANTES ASYNCHRONES (DbExecutor)
+    // =========================================================================
+
+    /**
+     * Exécuter un appel DAO sur l'executor BDD partagé
+     */
+    protected <R> CompletableFuture<R> async(Supplier<R> call) {
+        return DbExecutor.submit(call);
+    }
+
+    public CompletableFuture<T> findByIdAsync(ID id) {
+        return async(() -> findById(id));
+    }
+
+    /**
+     * STREAM: Parcourir le résultat d'une requête HQL sans le matérialiser
+     *
+     * S'appuie sur un ScrollableResults FORWARD_ONLY : les lignes sont lues
+     * par paquets de fetchSize et la session est vidée (clear) tous les
+     * fetchSize éléments, ce qui détache les entités déjà émises. Seules
+     * les associations chargées par la requête restent accessibles sur ces
+     * entités.
+     *
+     * La session et le curseur sont fermés avec le Stream : l'appelant doit
+     * le fermer (try-with-resources).
+     */
+    protected Stream<T> stream(String hql, int fetchSize, Object... params) {
+        return stream(hql, entityClass, fetchSize, params);
+    }
+
+    /**
+     * STREAM: Parcourir en flux le résultat d'une requête HQL d'un autre
+     * type que l'entité (projection SELECT new ...)
+     */
+    protected <R> Stream<R> stream(String hql, Class<R> resultType, int fetchSize, Object... params) {
+        int chunk = Math.max(1, fetchSize);
+        // Session propre au flux, même dans une unité de travail (clear périodique)
+        Session session = HibernateUtil.newReadSession();
+        try {
+            Query<R> query = session.createQuery(hql, resultType);
+            for (int i = 0; i < params.length; i++) {
+                query.setParameter(i, params[i]);
+            }
+            query.setFetchSize(chunk);
+            query.setReadOnly(true);
+            query.setCacheMode(CacheMode.IGNORE);
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+            Iterator<R> iterator = new Iterator<>() {
+                private boolean fetched;
+                private boolean hasRow;
+                private long count;
+
+                @Override
+                public boolean hasNext() {
+                    if (!fetched) {
+                        // CLEAR périodique: libère les entités des paquets précédents
+                        if (count > 0 && count % chunk == 0) {
+                            session.clear();
+                        }
+                        hasRow = results.next();
+                        fetched = true;
+                    }
+                    return hasRow;
+                }
+
+                @Override
+                public R next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    fetched = false;
+                    count++;
+                    return resultType.cast(results.get(0));
+                }
+            };
+
+            return StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(iterator,
+                            Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        // La session (et sa connexion) est rendue même si la fermeture du curseur échoue
+                        try {
+                            results.close();
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
     /**
      * Rechercher un résultat unique avec une requête HQL
      */
     protected T findSingleByQuery(String hql, Object... params) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             Query<T> query = session.createQuery(hql, entityClass);
             for (int i = 0; i < params.length; i++) {
                 query.setParameter(i, params[i]);
@@ -1,48 +1,397 @@
 package org.emsi.dao;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
 /**
  * Classe utilitaire pour la gestion de la SessionFactory Hibernate
  * Pattern Singleton pour garantir une unique instance
+ *
+ * La SessionFactory s'appuie sur un pool HikariCP configuré via les
+ * propriétés hibernate.hikari.* de hibernate.cfg.xml (surchargeables par
+ * -D au lancement). Le schéma est mis à jour par SchemaMigrator avant la
+ * construction de la SessionFactory.
+ *
+ * L'amorçage n'est plus fait dans un initialiseur statique : startAsync()
+ * le lance sur un thread d'arrière-plan (au démarrage de MainApp) et
+ * getSessionFactory() attend sa fin si nécessaire. Le thread JavaFX n'est
+ * donc plus bloqué par la lecture des mappings et les migrations.
+ *
+ * Les modifications validées des entités indexées sont publiées par
+ * EntityChangeListener, enregistré sur la SessionFactory du primaire.
+ *
+ * Si lom.replica.url est renseigné, une seconde SessionFactory en lecture
+ * seule pointe vers le réplica ; ReadRouter choisit la base de chaque
+ * lecture (voir openReadSession).
  */
 public class HibernateUtil {
-    private static SessionFactory sessionFactory;
+    private static volatile SessionFactory sessionFactory;
+    private static volatile HikariDataSource dataSource;
+    private static volatile SessionFactory replicaSessionFactory;
+    private static volatile HikariDataSource replicaDataSource;
+    private static CompletableFuture<SessionFactory> bootstrap;
+    private static volatile long bootstrapMillis = -1;
+    private static final ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+    private static volatile QueryMetrics queryMetrics;
+
+    // Taille de lot JDBC par défaut si hibernate.jdbc.batch_size est absent
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static int batchSize = DEFAULT_BATCH_SIZE;
+
+    // Préfixe des propriétés du pool de connexions
+    private static final String POOL_PREFIX = "hibernate.hikari.";
+
+    // Profilage SQL (remplace show_sql) : seuil de journalisation des requêtes lentes
+    private static final String PROFILING_ENABLED = "lom.sql.profiling";
+    private static final String SLOW_QUERY_MILLIS = "lom.sql.slow_query_ms";
+    private static final int DEFAULT_SLOW_QUERY_MILLIS = 200;
+
+    // Réplica en lecture (désactivé si l'URL est vide)
+    private static final String REPLICA_PREFIX = "lom.replica.";
+    private static final int DEFAULT_REPLICA_MAX_LAG_MILLIS = 1_000;
+    private static final int DEFAULT_REPLICA_STALENESS_MILLIS = 250;
+
+    /**
+     * Lancer la construction de la SessionFactory sur l'executor fourni
+     * (sans effet si elle est déjà lancée)
+     *
+     * @return future complétée avec la SessionFactory
+     */
+    public static synchronized CompletableFuture<SessionFactory> startAsync(Executor executor) {
+        if (bootstrap == null) {
+            bootstrap = CompletableFuture.supplyAsync(HibernateUtil::buildSessionFactory, executor);
+        }
+        return bootstrap;
+    }
 
-    static {
+    /**
+     * Construire la SessionFactory (pool, migrations, mappings)
+     */
+    private static SessionFactory buildSessionFactory() {
+        long start = System.nanoTime();
         try {
             // Charger la configuration depuis hibernate.cfg.xml
             Configuration configuration = new Configuration();
             configuration.configure("hibernate.cfg.xml");
+            batchSize = Math.max(1,
+                    parseInt(configuration.getProperty(AvailableSettings.STATEMENT_BATCH_SIZE), DEFAULT_BATCH_SIZE));
+
+            // Pool de connexions HikariCP fourni à Hibernate comme DataSource
+            dataSource = createDataSource(configuration);
+
+            // Schéma géré par les migrations versionnées (plus de hbm2ddl update)
+            new SchemaMigrator(dataSource).migrate();
+
+            // Générateur d'identifiants au-dessus des ids existants avant toute insertion
+            IdGeneratorSeeder.seed(dataSource);
+
+            // Instructions de Hibernate mesurées via une DataSource instrumentée
+            queryMetrics = new QueryMetrics(setting(configuration, SLOW_QUERY_MILLIS, DEFAULT_SLOW_QUERY_MILLIS));
+            boolean profiling = Boolean.parseBoolean(
+                    System.getProperty(PROFILING_ENABLED, configuration.getProperties().getProperty(PROFILING_ENABLED, "true")));
+            configuration.getProperties().put(AvailableSettings.DATASOURCE,
+                    profiling ? new ProfilingDataSource(dataSource, queryMetrics) : dataSource);
+
+            // Écritures sur le primaire suivies pour la lecture de ses propres écritures
+            configuration.getProperties().put(AvailableSettings.STATEMENT_INSPECTOR, new ReadRouter.WriteTracker());
 
             // Construire la SessionFactory
             sessionFactory = configuration.buildSessionFactory();
 
-            System.out.println("✅ SessionFactory Hibernate initialisée avec succès");
+            // Modifications validées de LomSchema, General, Educational et Tag (index de recherche)
+            EntityChangeListener.register(sessionFactory);
+            startReplica(profiling);
+            bootstrapMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("✅ SessionFactory Hibernate initialisée avec succès (" + bootstrapMillis + " ms)");
+            return sessionFactory;
         } catch (Exception e) {
             System.err.println("❌ Erreur lors de l'initialisation de SessionFactory: " + e.getMessage());
             e.printStackTrace();
-            throw new ExceptionInInitializerError(e);
+            if (dataSource != null) {
+                dataSource.close();
+            }
+            throw new IllegalStateException("Initialisation de la SessionFactory impossible", e);
         }
     }
 
+    /**
+     * Construire la SessionFactory du réplica si lom.replica.url est défini
+     *
+     * Un réplica indisponible n'empêche pas le démarrage : les lectures
+     * restent alors sur le primaire.
+     */
+    private static void startReplica(boolean profiling) {
+        Configuration configuration = new Configuration();
+        configuration.configure("hibernate.cfg.xml");
+        String url = replicaProperty(configuration, "url", "");
+        if (url.isBlank()) {
+            return;
+        }
+        ReadRouter.configure(
+                setting(configuration, REPLICA_PREFIX + "max_lag_ms", DEFAULT_REPLICA_MAX_LAG_MILLIS),
+                setting(configuration, REPLICA_PREFIX + "default_staleness_ms", DEFAULT_REPLICA_STALENESS_MILLIS));
+
+        configuration.setProperty(AvailableSettings.DRIVER,
+                replicaProperty(configuration, "driver_class", configuration.getProperty(AvailableSettings.DRIVER)));
+        configuration.setProperty(AvailableSettings.URL, url);
+        configuration.setProperty(AvailableSettings.USER,
+                replicaProperty(configuration, "username", configuration.getProperty(AvailableSettings.USER)));
+        configuration.setProperty(AvailableSettings.PASS,
+                replicaProperty(configuration, "password", configuration.getProperty(AvailableSettings.PASS)));
+        String dialect = replicaProperty(configuration, "dialect", null);
+        if (dialect != null) {
+            configuration.setProperty(AvailableSettings.DIALECT, dialect);
+        }
+
+        try {
+            replicaDataSource = createDataSource(configuration, "LOM-Replica-Pool", true);
+            configuration.getProperties().put(AvailableSettings.DATASOURCE,
+                    profiling ? new ProfilingDataSource(replicaDataSource, queryMetrics) : replicaDataSource);
+            replicaSessionFactory = configuration.buildSessionFactory();
+            System.out.println("✅ Réplica en lecture connecté: " + url);
+        } catch (Exception e) {
+            System.err.println("⚠️ Réplica indisponible, lectures sur le primaire: " + e.getMessage());
+            if (replicaDataSource != null) {
+                replicaDataSource.close();
+                replicaDataSource = null;
+            }
+        }
+    }
+
+    /**
+     * Lire une propriété du réplica: -Dlom.replica.X prioritaire sur le
+     * fichier de configuration
+     */
+    private static String replicaProperty(Configuration configuration, String name, String defaultValue) {
+        String key = REPLICA_PREFIX + name;
+        String value = System.getProperty(key, configuration.getProperty(key));
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Créer le pool HikariCP à partir des propriétés de connexion Hibernate
+     */
+    private static HikariDataSource createDataSource(Configuration configuration) {
+        return createDataSource(configuration, "LOM-Pool", false);
+    }
+
+    private static boolean isMySql(String jdbcUrl) {
+        return jdbcUrl != null && jdbcUrl.startsWith("jdbc:mysql:");
+    }
+
+    private static HikariDataSource createDataSource(Configuration configuration, String poolName, boolean readOnly) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setReadOnly(readOnly);
+        config.setDriverClassName(configuration.getProperty(AvailableSettings.DRIVER));
+        config.setJdbcUrl(configuration.getProperty(AvailableSettings.URL));
+        config.setUsername(configuration.getProperty(AvailableSettings.USER));
+        config.setPassword(configuration.getProperty(AvailableSettings.PASS));
+
+        config.setMinimumIdle(poolSetting(configuration, "minimumIdle", 2));
+        config.setMaximumPoolSize(poolSetting(configuration, "maximumPoolSize", 10));
+        config.setIdleTimeout(poolSetting(configuration, "idleTimeout", 300_000));
+        config.setConnectionTimeout(poolSetting(configuration, "connectionTimeout", 10_000));
+        config.setValidationTimeout(poolSetting(configuration, "validationTimeout", 3_000));
+        config.setMaxLifetime(poolSetting(configuration, "maxLifetime", 1_800_000));
+        config.setLeakDetectionThreshold(poolSetting(configuration, "leakDetectionThreshold", 0));
+
+        // Propriétés du driver MySQL (encodage, cache des requêtes préparées),
+        // inconnues des autres drivers (ex: réplica H2 de test)
+        if (isMySql(config.getJdbcUrl())) {
+            config.addDataSourceProperty("characterEncoding", "UTF-8");
+            config.addDataSourceProperty("useUnicode", "true");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            // Curseur serveur quand un fetchSize est fixé (parcours en flux)
+            config.addDataSourceProperty("useCursorFetch", "true");
+        }
+
+        if (readOnly) {
+            HikariDataSource pool = new HikariDataSource(config);
+            System.out.println("✅ Pool " + poolName + " démarré (max=" + config.getMaximumPoolSize() + ")");
+            return pool;
+        }
+        config.setMetricsTrackerFactory(poolMetrics);
+
+        HikariDataSource pool = new HikariDataSource(config);
+        poolMetrics.bind(pool.getHikariPoolMXBean());
+        System.out.println("✅ Pool de connexions démarré (max=" + config.getMaximumPoolSize() + ")");
+        return pool;
+    }
+
+    /**
+     * Lire une propriété du pool: -Dhibernate.hikari.X prioritaire sur le
+     * fichier de configuration
+     */
+    private static int poolSetting(Configuration configuration, String name, int defaultValue) {
+        return setting(configuration, POOL_PREFIX + name, defaultValue);
+    }
+
+    /**
+     * Lire une propriété entière: -Dkey prioritaire sur le fichier de
+     * configuration
+     */
+    private static int setting(Configuration configuration, String key, int defaultValue) {
+        String value = System.getProperty(key, configuration.getProperty(key));
+        return parseInt(value, defaultValue);
+    }
+
     /**
      * Obtenir la SessionFactory
-     * 
+     *
      * @return SessionFactory unique
      */
     public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+        SessionFactory factory = sessionFactory;
+        if (factory != null) {
+            return factory;
+        }
+        // Amorçage pas encore lancé (hors MainApp) : construction synchrone
+        CompletableFuture<SessionFactory> future = startAsync(Runnable::run);
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Ouvrir une session sur le primaire : la session partagée si une
+     * unité de travail est en cours (voir UnitOfWork), sinon une nouvelle
+     */
+    public static Session openSession() {
+        Session shared = UnitOfWork.currentSession();
+        return shared != null ? shared : getSessionFactory().openSession();
+    }
+
+    /**
+     * Ouvrir une session de lecture seule, sur le réplica si ReadRouter
+     * l'autorise (tolérance de retard, écriture récente), sinon sur le
+     * primaire. Dans une unité de travail, la session partagée est rendue.
+     */
+    public static Session openReadSession() {
+        Session shared = UnitOfWork.currentSession();
+        return shared != null ? shared : newReadSession();
+    }
+
+    /**
+     * Ouvrir une nouvelle session de lecture seule, hors unité de travail
+     */
+    static Session newReadSession() {
+        SessionFactory primary = getSessionFactory();
+        SessionFactory replica = replicaSessionFactory;
+        Session session = replica != null && ReadRouter.routeToReplica()
+                ? replica.openSession()
+                : primary.openSession();
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        return session;
+    }
+
+    /**
+     * Indiquer si un réplica en lecture est configuré et disponible
+     */
+    public static boolean hasReplica() {
+        getSessionFactory();
+        return replicaSessionFactory != null;
+    }
+
+    /**
+     * Indiquer si la SessionFactory est prête (sans attendre)
+     */
+    public static boolean isReady() {
+        return sessionFactory != null;
+    }
+
+    /**
+     * Durée de construction de la SessionFactory en ms (-1 si pas encore
+     * construite)
+     */
+    public static long getBootstrapMillis() {
+        return bootstrapMillis;
+    }
+
+    /**
+     * Obtenir la taille de lot JDBC configurée (hibernate.jdbc.batch_size)
+     *
+     * @return nombre d'entités à regrouper avant flush/clear
+     */
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Obtenir la taille maximale du pool de connexions
+     */
+    public static int getMaxPoolSize() {
+        getSessionFactory();
+        return dataSource.getMaximumPoolSize();
+    }
+
+    /**
+     * Obtenir les métriques du pool (actives, inactives, en attente, latence
+     * d'acquisition)
+     */
+    public static ConnectionPoolMetrics.Snapshot getPoolMetrics() {
+        return poolMetrics.snapshot();
+    }
+
+    /**
+     * Obtenir les métriques des requêtes SQL (latence, lignes, appelant,
+     * requêtes lentes)
+     */
+    public static QueryMetrics getQueryMetrics() {
+        getSessionFactory();
+        return queryMetrics;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed >= 0 ? parsed : defaultValue;
+        } catch (RuntimeException e) {
+            return defaultValue;
+        }
     }
 
     /**
      * Fermer la SessionFactory
      */
     public static void shutdown() {
+        // Terminer les requêtes asynchrones avant de fermer les pools
+        DbExecutor.shutdown();
+        if (replicaSessionFactory != null && !replicaSessionFactory.isClosed()) {
+            replicaSessionFactory.close();
+        }
+        if (replicaDataSource != null && !replicaDataSource.isClosed()) {
+            replicaDataSource.close();
+        }
         if (sessionFactory != null && !sessionFactory.isClosed()) {
             sessionFactory.close();
             System.out.println("SessionFactory fermée");
         }
+        if (queryMetrics != null && queryMetrics.getStatementCount() > 0) {
+            System.out.println("📊 Requêtes SQL les plus coûteuses:");
+            queryMetrics.getTopStatements(5).forEach(stats -> System.out.println("   " + stats));
+        }
+        if (dataSource != null && !dataSource.isClosed()) {
+            System.out.println("📊 " + getPoolMetrics());
+            dataSource.close();
+        }
     }
 }
@@ -0,0 +1,51 @@
+package org.emsi.dao;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Placement des segments du générateur d'identifiants au-dessus des ids
+ * existants
+ *
+ * Les entités à générateur enhanced-table (pooled-lo) lisent leur prochain
+ * bloc dans lom_id_generator. Un segment en retard sur MAX(id) de sa table
+ * (base créée en AUTO_INCREMENT, lignes insérées hors de l'application,
+ * générateur initialisé par une version antérieure) donnerait des ids déjà
+ * pris. Exécuté à chaque démarrage, après les migrations (V1 crée la
+ * table, V2 fait le premier placement) et avant toute insertion : un
+ * segment n'est jamais abaissé (GREATEST), l'opération est donc sans
+ * effet sur une base à jour.
+ */
+final class IdGeneratorSeeder {
+
+    private static final String TABLE = "lom_id_generator";
+
+    // Segments des mappings enhanced-table (segment_value = nom de la table)
+    private static final List<String> SEGMENTS = List.of(
+            "lom_schema",
+            "lom_general",
+            "lom_lifecycle",
+            "lom_meta_metadata",
+            "lom_technical",
+            "lom_educational",
+            "lom_rights",
+            "lom_view_history",
+            "lom_rating");
+
+    private IdGeneratorSeeder() {
+    }
+
+    static void seed(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            for (String segment : SEGMENTS) {
+                statement.executeUpdate("INSERT INTO " + TABLE + " (sequence_name, next_val) "
+                        + "SELECT '" + segment + "', COALESCE(MAX(id), 0) + 1 FROM " + segment + " "
+                        + "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))");
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Educational;
+import org.emsi.entities.General;
+import org.emsi.entities.LomSchema;
+
+import java.util.Date;
+
+/**
+ * Projection d'une ressource LOM pour l'index de recherche
+ *
+ * Le texte indexé (titre, mots-clés, description) et les colonnes de
+ * filtrage (facettes langue, difficulté, type d'interactivité et type de
+ * ressource), lus par expression constructeur HQL sans charger le graphe
+ * LomSchema.
+ */
+public record LomDocument(Long id, String title, String keyword, String description,
+        String language, Integer difficulty, String interactivityType, String learningResourceType,
+        Date createdAt) {
+
+    /**
+     * Expression HQL du constructeur (alias ls, g, e)
+     */
+    static final String SELECT = "SELECT new org.emsi.dao.LomDocument("
+            + "ls.id, ls.resourceTitle, g.keyword, g.description, g.language, e.difficulty, "
+            + "e.interactivityType, e.learningResourceType, ls.createdAt) ";
+
+    /**
+     * Construire le document d'une entité déjà chargée
+     */
+    public static LomDocument of(LomSchema lom) {
+        General general = lom.getGeneral();
+        Educational educational = lom.getEducational();
+        return new LomDocument(
+                lom.getId(),
+                lom.getResourceTitle(),
+                general != null ? general.getKeyword() : null,
+                general != null ? general.getDescription() : null,
+                general != null ? general.getLanguage() : null,
+                educational != null ? educational.getDifficulty() : null,
+                educational != null ? educational.getInteractivityType() : null,
+                educational != null ? educational.getLearningResourceType() : null,
+                lom.getCreatedAt());
+    }
+
+    /**
+     * Résumé affiché dans les listes de résultats
+     */
+    public LomSummary summary() {
+        return new LomSummary(id, title, language, difficulty, createdAt);
+    }
+}
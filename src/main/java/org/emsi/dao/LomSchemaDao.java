@@ -2,9 +2,18 @@ package org.emsi.dao;
 
 import org.emsi.entities.LomSchema;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * DAO pour l'entité LomSchema
@@ -16,13 +25,21 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
         super(LomSchema.class);
     }
 
+    /**
+     * @param readOnly true pour des lectures sans dirty-checking (recherche,
+     *                 statistiques, export)
+     */
+    public LomSchemaDao(boolean readOnly) {
+        super(LomSchema.class, readOnly);
+    }
+
     /**
      * Obtenir toutes les ressources avec leurs relations principales (Optimisation
      * N+1)
      */
     @Override
     public List<LomSchema> findAll() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT DISTINCT ls FROM LomSchema ls " +
                     "LEFT JOIN FETCH ls.general " +
                     "LEFT JOIN FETCH ls.educational " +
@@ -36,6 +53,484 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
         }
     }
 
+    /**
+     * Parcourir tout le catalogue en flux avec les catégories à cardinalité
+     * 1 chargées dans la même requête (pas de N+1 par ligne)
+     */
+    @Override
+    public Stream<LomSchema> streamAll(int fetchSize) {
+        String hql = "SELECT ls FROM LomSchema ls " +
+                "LEFT JOIN FETCH ls.general " +
+                "LEFT JOIN FETCH ls.educational " +
+                "LEFT JOIN FETCH ls.technical " +
+                "LEFT JOIN FETCH ls.rights " +
+                "LEFT JOIN FETCH ls.lifecycle " +
+                "LEFT JOIN FETCH ls.metaMetadata " +
+                "ORDER BY ls.id";
+        return stream(hql, fetchSize);
+    }
+
+    /**
+     * PROJECTION: Parcourir en flux le texte indexable de tout le catalogue
+     * (construction de l'index de recherche), par ordre d'identifiant
+     */
+    public Stream<LomDocument> streamDocuments() {
+        String hql = LomDocument.SELECT +
+                "FROM LomSchema ls " +
+                "LEFT JOIN ls.general g " +
+                "LEFT JOIN ls.educational e " +
+                "ORDER BY ls.id";
+        return stream(hql, LomDocument.class, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * PROJECTION: Parcourir en flux les identifiants de tout le catalogue,
+     * par ordre croissant (réconciliation de l'index de recherche)
+     */
+    public Stream<Long> streamIds() {
+        return stream("SELECT ls.id FROM LomSchema ls ORDER BY ls.id", Long.class, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * PROJECTION: Texte indexable de quelques ressources (mise à jour
+     * incrémentale de l'index de recherche)
+     */
+    public List<LomDocument> findDocuments(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Session session = openReadSession()) {
+            String hql = LomDocument.SELECT +
+                    "FROM LomSchema ls " +
+                    "LEFT JOIN ls.general g " +
+                    "LEFT JOIN ls.educational e " +
+                    "WHERE ls.id IN (:ids)";
+            List<LomDocument> documents = new ArrayList<>(ids.size());
+            for (List<Long> chunk : inListChunks(ids)) {
+                Query<LomDocument> query = session.createQuery(hql, LomDocument.class);
+                query.setParameterList("ids", chunk);
+                documents.addAll(query.list());
+            }
+            return documents;
+        }
+    }
+
+    /**
+     * PROJECTION: Popularité de chaque ressource consultée ou mise en
+     * favori : total des consultations plus nombre de favoris
+     * (pondération de l'autocomplétion)
+     */
+    public Map<Long, Long> findPopularity() {
+        try (Session session = openReadSession()) {
+            Map<Long, Long> popularity = new HashMap<>();
+            String views = "SELECT v.resource.id, SUM(v.viewCount) FROM ViewHistory v GROUP BY v.resource.id";
+            for (Object[] row : session.createQuery(views, Object[].class).list()) {
+                popularity.merge((Long) row[0], ((Number) row[1]).longValue(), Long::sum);
+            }
+            String favorites = "SELECT f.resource.id, COUNT(f) FROM Favorite f GROUP BY f.resource.id";
+            for (Object[] row : session.createQuery(favorites, Object[].class).list()) {
+                popularity.merge((Long) row[0], ((Number) row[1]).longValue(), Long::sum);
+            }
+            return popularity;
+        }
+    }
+
+    /**
+     * Clés de tri supportées par la pagination keyset
+     *
+     * Les valeurs nulles sont ramenées à une valeur neutre (COALESCE) pour
+     * que la comparaison (clé, id) reste un ordre total. Chaque couple
+     * (expression, départage) a son index fonctionnel (V3, V5) : la langue
+     * et la difficulté sont départagées par l'id de leur catégorie, égal à
+     * celui de la ressource (jointure one-to-one sur la clé primaire), pour
+     * que l'ordre soit lu dans l'index de la seule table de la catégorie.
+     */
+    public enum SortKey {
+        TITLE("COALESCE(ls.resourceTitle, '')", "ls.id",
+                s -> s.title() != null ? s.title() : ""),
+        CREATED_AT("COALESCE(ls.createdAt, CAST('1970-01-01 00:00:00' AS timestamp))", "ls.id",
+                s -> orNoDate(s.createdAt())),
+        LANGUAGE("COALESCE(g.language, '')", "g.id",
+                s -> s.language() != null ? s.language() : ""),
+        DIFFICULTY("COALESCE(e.difficulty, 0)", "e.id",
+                s -> s.difficulty() != null ? s.difficulty() : 0);
+
+        /**
+         * Date neutre des ressources sans date de création, la même que
+         * celle de l'expression CREATED_AT : 1970-01-01 00:00:00 UTC, le
+         * driver lisant et écrivant les DATETIME en UTC (serverTimezone=UTC
+         * de l'URL JDBC) quel que soit le fuseau de la JVM
+         */
+        public static final Date NO_DATE = new Date(0);
+
+        private static Date orNoDate(Date date) {
+            return date != null ? date : NO_DATE;
+        }
+
+        private final String expression;
+        private final String tieBreaker;
+        private final Function<LomSummary, Object> extractor;
+
+        SortKey(String expression, String tieBreaker, Function<LomSummary, Object> extractor) {
+            this.expression = expression;
+            this.tieBreaker = tieBreaker;
+            this.extractor = extractor;
+        }
+
+        /**
+         * Curseur positionné sur un résumé (page suivante après lui)
+         */
+        public Page.Cursor cursorOf(LomSummary summary) {
+            Object value = extractor.apply(summary);
+            // java.sql.Timestamp -> Date pour une comparaison HQL homogène
+            if (value instanceof Date) {
+                value = new Date(((Date) value).getTime());
+            }
+            return new Page.Cursor(value, summary.id());
+        }
+
+        /**
+         * Clause WHERE keyset (si curseur) et ORDER BY (clé, id)
+         */
+        String seekClause(boolean descending, boolean hasCursor, boolean hasWhere) {
+            String cmp = descending ? "<" : ">";
+            String dir = descending ? "DESC" : "ASC";
+            StringBuilder clause = new StringBuilder();
+            if (hasCursor) {
+                clause.append(hasWhere ? "AND (" : "WHERE (");
+                clause.append(expression).append(' ').append(cmp).append(" :sortValue ");
+                clause.append("OR (").append(expression).append(" = :sortValue AND ").append(tieBreaker)
+                        .append(' ').append(cmp).append(" :lastId)) ");
+            }
+            clause.append("ORDER BY ").append(expression).append(' ').append(dir)
+                    .append(", ").append(tieBreaker).append(' ').append(dir);
+            return clause.toString();
+        }
+
+        /**
+         * Jointures des catégories General (alias g) et Educational (alias
+         * e) : la catégorie portant la clé est en jointure interne, pour que
+         * MySQL puisse la lire en premier dans l'ordre de son index (toute
+         * ressource a ses catégories, voir LomService.buildResource)
+         */
+        String categoryJoins(boolean fetch) {
+            String mode = fetch ? "JOIN FETCH " : "JOIN ";
+            return (this == LANGUAGE ? "" : "LEFT ") + mode + "ls.general g "
+                    + (this == DIFFICULTY ? "" : "LEFT ") + mode + "ls.educational e ";
+        }
+    }
+
+    /**
+     * PAGINATION KEYSET: Obtenir une page de ressources triée par (clé, id)
+     *
+     * Les relations one-to-one (non lazy) sont chargées par jointure pour
+     * éviter les N+1 ; aucune collection n'est jointe, donc une ligne SQL
+     * par ressource.
+     *
+     * @param sortKey    clé de tri
+     * @param descending ordre décroissant
+     * @param after      curseur de la page précédente (null pour la première)
+     * @param pageSize   nombre de ressources par page
+     */
+    public Page<LomSchema> findPage(SortKey sortKey, boolean descending, Page.Cursor after, int pageSize) {
+        try (Session session = openReadSession()) {
+            String hql = "SELECT ls FROM LomSchema ls " +
+                    sortKey.categoryJoins(true) +
+                    "LEFT JOIN FETCH ls.technical " +
+                    "LEFT JOIN FETCH ls.rights " +
+                    "LEFT JOIN FETCH ls.lifecycle " +
+                    "LEFT JOIN FETCH ls.metaMetadata " +
+                    sortKey.seekClause(descending, after != null, false);
+            Query<LomSchema> query = session.createQuery(hql, LomSchema.class);
+            List<LomSchema> rows = seek(query, after, pageSize);
+
+            boolean hasNext = rows.size() > pageSize;
+            List<LomSchema> items = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+            Page.Cursor next = hasNext ? sortKey.cursorOf(LomSummary.of(items.get(items.size() - 1))) : null;
+            return new Page<>(items, next);
+        }
+    }
+
+    /**
+     * PAGINATION KEYSET + PROJECTION: Page de résumés pour les vues en liste
+     */
+    public Page<LomSummary> findSummaryPage(SortKey sortKey, boolean descending, Page.Cursor after, int pageSize) {
+        try (Session session = openReadSession()) {
+            String hql = LomSummary.SELECT +
+                    "FROM LomSchema ls " +
+                    sortKey.categoryJoins(false) +
+                    sortKey.seekClause(descending, after != null, false);
+            Query<LomSummary> query = session.createQuery(hql, LomSummary.class);
+            List<LomSummary> rows = seek(query, after, pageSize);
+
+            boolean hasNext = rows.size() > pageSize;
+            List<LomSummary> items = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+            Page.Cursor next = hasNext ? sortKey.cursorOf(items.get(items.size() - 1)) : null;
+            return new Page<>(items, next);
+        }
+    }
+
+    private <R> List<R> seek(Query<R> query, Page.Cursor after, int pageSize) {
+        if (after != null) {
+            query.setParameter("sortValue", after.getSortValue());
+            query.setParameter("lastId", after.getId());
+        }
+        // Une ligne de plus pour savoir s'il existe une page suivante
+        query.setMaxResults(pageSize + 1);
+        return query.list();
+    }
+
+    /**
+     * PROJECTION: Résumés de toutes les ressources (titre, langue,
+     * difficulté, date) sans charger les entités
+     */
+    public List<LomSummary> findAllSummaries() {
+        try (Session session = openReadSession()) {
+            String hql = LomSummary.SELECT +
+                    "FROM LomSchema ls " +
+                    "LEFT JOIN ls.general g " +
+                    "LEFT JOIN ls.educational e " +
+                    "ORDER BY ls.resourceTitle";
+            return session.createQuery(hql, LomSummary.class).list();
+        }
+    }
+
+    /**
+     * PROJECTION: Résumés de quelques ressources (résultats de recherche
+     * en cache), dans un ordre quelconque ; une requête par IN_LIST_CHUNK
+     * identifiants
+     */
+    public List<LomSummary> findSummaries(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Session session = openReadSession()) {
+            String hql = LomSummary.SELECT +
+                    "FROM LomSchema ls " +
+                    "LEFT JOIN ls.general g " +
+                    "LEFT JOIN ls.educational e " +
+                    "WHERE ls.id IN (:ids)";
+            List<LomSummary> summaries = new ArrayList<>(ids.size());
+            for (List<Long> chunk : inListChunks(ids)) {
+                Query<LomSummary> query = session.createQuery(hql, LomSummary.class);
+                query.setParameterList("ids", chunk);
+                summaries.addAll(query.list());
+            }
+            return summaries;
+        }
+    }
+
+    /**
+     * PROJECTION: Recherche multicritères (titre OU mot-clé) ET filtres,
+     * même sémantique que {@link #searchByCriteria}
+     */
+    public List<LomSummary> searchSummariesByCriteria(String queryStr, String language, Integer difficulty) {
+        try (Session session = openReadSession()) {
+            StringBuilder hql = new StringBuilder(LomSummary.SELECT);
+            hql.append("FROM LomSchema ls ");
+            hql.append("LEFT JOIN ls.general g ");
+            hql.append("LEFT JOIN ls.educational e ");
+            hql.append("WHERE 1=1 ");
+
+            if (queryStr != null && !queryStr.trim().isEmpty()) {
+                hql.append("AND (ls.resourceTitle LIKE :query OR g.keyword LIKE :query) ");
+            }
+            if (language != null && !language.isEmpty()) {
+                hql.append("AND g.language = :language ");
+            }
+            if (difficulty != null) {
+                hql.append("AND e.difficulty = :difficulty ");
+            }
+            hql.append("ORDER BY ls.resourceTitle");
+
+            Query<LomSummary> query = session.createQuery(hql.toString(), LomSummary.class);
+
+            if (queryStr != null && !queryStr.trim().isEmpty()) {
+                query.setParameter("query", "%" + queryStr + "%");
+            }
+            if (language != null && !language.isEmpty()) {
+                query.setParameter("language", language);
+            }
+            if (difficulty != null) {
+                query.setParameter("difficulty", difficulty);
+            }
+
+            return query.list();
+        }
+    }
+
+    /**
+     * PROJECTION: Recherche avancée (texte dans titre/mots-clés/description,
+     * langue, plage de difficulté, types d'interactivité et de ressource en
+     * OU, tags en OU)
+     *
+     * @param text          texte recherché (null ou vide = pas de filtre)
+     * @param exactTitle    true pour une égalité stricte sur le titre
+     * @param language      langue (null = toutes)
+     * @param minDifficulty difficulté minimum (les ressources sans difficulté
+     *                      sont conservées)
+     * @param maxDifficulty difficulté maximum
+     * @param interactivityTypes    types d'interactivité (vide = tous)
+     * @param learningResourceTypes types de ressource (vide = tous)
+     * @param tagNames      noms de tags (au moins un doit correspondre)
+     */
+    public List<LomSummary> searchSummaries(String text, boolean exactTitle, String language,
+            int minDifficulty, int maxDifficulty, Collection<String> interactivityTypes,
+            Collection<String> learningResourceTypes, Collection<String> tagNames) {
+        SearchFilter filter = new SearchFilter(text, exactTitle, language, minDifficulty, maxDifficulty,
+                interactivityTypes, learningResourceTypes, tagNames);
+        try (Session session = openReadSession()) {
+            Query<LomSummary> query = session.createQuery(LomSummary.SELECT + filter.fromWhere(), LomSummary.class);
+            filter.bind(query);
+            return query.list();
+        }
+    }
+
+    /**
+     * PAGINATION KEYSET + PROJECTION: Page de la recherche avancée triée
+     * par (clé, id)
+     *
+     * Tri et limite faits par la base (ORDER BY ... LIMIT pageSize + 1) :
+     * seule la page est lue et triée, quel que soit le nombre de
+     * correspondances. Les pages suivantes repartent du curseur de la
+     * dernière ligne ; chaque clé a un index fonctionnel sur son
+     * expression et son départage (V3, V5) qui sert directement l'ordre.
+     *
+     * @param after    curseur de la page précédente (null pour la première)
+     * @param pageSize nombre de résumés par page
+     */
+    public Page<LomSummary> searchSummaryPage(String text, boolean exactTitle, String language,
+            int minDifficulty, int maxDifficulty, Collection<String> interactivityTypes,
+            Collection<String> learningResourceTypes, Collection<String> tagNames,
+            SortKey sortKey, boolean descending, Page.Cursor after, int pageSize) {
+        SearchFilter filter = new SearchFilter(text, exactTitle, language, minDifficulty, maxDifficulty,
+                interactivityTypes, learningResourceTypes, tagNames);
+        try (Session session = openReadSession()) {
+            String hql = LomSummary.SELECT + filter.fromWhere(sortKey.categoryJoins(false))
+                    + sortKey.seekClause(descending, after != null, true);
+            Query<LomSummary> query = session.createQuery(hql, LomSummary.class);
+            filter.bind(query);
+            List<LomSummary> rows = seek(query, after, pageSize);
+
+            boolean hasNext = rows.size() > pageSize;
+            List<LomSummary> items = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+            Page.Cursor next = hasNext ? sortKey.cursorOf(items.get(items.size() - 1)) : null;
+            return new Page<>(items, next);
+        }
+    }
+
+    /**
+     * Nombre de résultats de la recherche avancée (mêmes filtres que
+     * {@link #searchSummaries})
+     */
+    public long countSearchSummaries(String text, boolean exactTitle, String language,
+            int minDifficulty, int maxDifficulty, Collection<String> interactivityTypes,
+            Collection<String> learningResourceTypes, Collection<String> tagNames) {
+        SearchFilter filter = new SearchFilter(text, exactTitle, language, minDifficulty, maxDifficulty,
+                interactivityTypes, learningResourceTypes, tagNames);
+        try (Session session = openReadSession()) {
+            Query<Long> query = session.createQuery("SELECT COUNT(ls.id) " + filter.fromWhere(), Long.class);
+            filter.bind(query);
+            return query.uniqueResult();
+        }
+    }
+
+    /**
+     * Filtres de la recherche avancée : clause FROM ... WHERE (alias ls, g,
+     * e) et valeurs de ses paramètres
+     */
+    private static final class SearchFilter {
+        private final String text;
+        private final boolean exactTitle;
+        private final String language;
+        private final int minDifficulty;
+        private final int maxDifficulty;
+        private final Collection<String> interactivityTypes;
+        private final Collection<String> learningResourceTypes;
+        private final Collection<String> tagNames;
+
+        SearchFilter(String text, boolean exactTitle, String language, int minDifficulty, int maxDifficulty,
+                     Collection<String> interactivityTypes, Collection<String> learningResourceTypes,
+                     Collection<String> tagNames) {
+            this.text = text != null && !text.isEmpty() ? text : null;
+            this.exactTitle = exactTitle;
+            this.language = language;
+            this.minDifficulty = minDifficulty;
+            this.maxDifficulty = maxDifficulty;
+            this.interactivityTypes = interactivityTypes != null && !interactivityTypes.isEmpty()
+                    ? interactivityTypes : null;
+            this.learningResourceTypes = learningResourceTypes != null && !learningResourceTypes.isEmpty()
+                    ? learningResourceTypes : null;
+            this.tagNames = tagNames != null && !tagNames.isEmpty() ? tagNames : null;
+        }
+
+        String fromWhere() {
+            return fromWhere("LEFT JOIN ls.general g LEFT JOIN ls.educational e ");
+        }
+
+        /**
+         * @param categoryJoins jointures des alias g et e (voir
+         *                      SortKey.categoryJoins)
+         */
+        String fromWhere(String categoryJoins) {
+            StringBuilder hql = new StringBuilder();
+            hql.append("FROM LomSchema ls ");
+            hql.append(categoryJoins);
+            hql.append("WHERE (e.difficulty IS NULL OR e.difficulty BETWEEN :minDifficulty AND :maxDifficulty) ");
+
+            if (text != null && exactTitle) {
+                hql.append("AND LOWER(ls.resourceTitle) = :text ");
+            } else if (text != null) {
+                hql.append("AND (LOWER(ls.resourceTitle) LIKE :text ");
+                hql.append("OR LOWER(g.keyword) LIKE :text ");
+                hql.append("OR LOWER(g.description) LIKE :text) ");
+            }
+            if (language != null) {
+                hql.append("AND g.language = :language ");
+            }
+            if (interactivityTypes != null) {
+                hql.append("AND e.interactivityType IN (:interactivityTypes) ");
+            }
+            if (learningResourceTypes != null) {
+                hql.append("AND e.learningResourceType IN (:learningResourceTypes) ");
+            }
+            if (tagNames != null) {
+                hql.append("AND ls.id IN (SELECT r.id FROM Tag t JOIN t.resources r WHERE t.name IN (:tagNames)) ");
+            }
+            return hql.toString();
+        }
+
+        void bind(Query<?> query) {
+            query.setParameter("minDifficulty", minDifficulty);
+            query.setParameter("maxDifficulty", maxDifficulty);
+            if (text != null) {
+                String lower = text.toLowerCase();
+                query.setParameter("text", exactTitle ? lower : "%" + lower + "%");
+            }
+            if (language != null) {
+                query.setParameter("language", language);
+            }
+            if (interactivityTypes != null) {
+                query.setParameterList("interactivityTypes", interactivityTypes);
+            }
+            if (learningResourceTypes != null) {
+                query.setParameterList("learningResourceTypes", learningResourceTypes);
+            }
+            if (tagNames != null) {
+                query.setParameterList("tagNames", tagNames);
+            }
+        }
+    }
+
+    /**
+     * PAGINATION KEYSET + PROJECTION: Page de résumés sur l'executor BDD
+     * (voir {@link #findSummaryPage})
+     */
+    public CompletableFuture<Page<LomSummary>> findSummaryPageAsync(SortKey sortKey, boolean descending,
+            Page.Cursor after, int pageSize) {
+        return async(() -> findSummaryPage(sortKey, descending, after, pageSize));
+    }
+
     /**
      * Rechercher par titre
      */
@@ -48,7 +543,7 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
      * Rechercher par mot-clé (dans General)
      */
     public List<LomSchema> findByKeyword(String keyword) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT DISTINCT ls FROM LomSchema ls " +
                     "LEFT JOIN FETCH ls.general g " +
                     "WHERE g.keyword LIKE :keyword";
@@ -62,7 +557,7 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
      * Rechercher par langue
      */
     public List<LomSchema> findByLanguage(String language) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT ls FROM LomSchema ls " +
                     "LEFT JOIN FETCH ls.general g " +
                     "WHERE g.language = :language";
@@ -76,7 +571,7 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
      * Rechercher par difficulté
      */
     public List<LomSchema> findByDifficulty(Integer difficulty) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT ls FROM LomSchema ls " +
                     "LEFT JOIN FETCH ls.educational e " +
                     "WHERE e.difficulty = :difficulty";
@@ -90,7 +585,7 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
      * Recherche multicritères
      */
     public List<LomSchema> search(String title, String keyword, String language, Integer difficulty) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             StringBuilder hql = new StringBuilder("SELECT DISTINCT ls FROM LomSchema ls ");
             hql.append("LEFT JOIN FETCH ls.general g ");
             hql.append("LEFT JOIN FETCH ls.educational e ");
@@ -133,7 +628,7 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
      * reste)
      */
     public List<LomSchema> searchByCriteria(String queryStr, String language, Integer difficulty) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             StringBuilder hql = new StringBuilder("SELECT DISTINCT ls FROM LomSchema ls ");
             hql.append("LEFT JOIN FETCH ls.general g ");
             hql.append("LEFT JOIN FETCH ls.educational e ");
@@ -166,23 +661,99 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
     }
 
     /**
-     * Charger un LomSchema avec toutes ses relations
+     * Charger un LomSchema avec ses relations pour la consultation
+     * (plan DETAIL)
      */
     public LomSchema findByIdWithRelations(Long id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        return findById(id, FetchPlan.DETAIL);
+    }
+
+    /**
+     * Charger un LomSchema selon un plan de chargement
+     *
+     * Une requête pour la ressource et ses catégories à cardinalité 1, puis
+     * une requête par collection du plan (pas de produit cartésien).
+     */
+    public LomSchema findById(Long id, FetchPlan plan) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT ls FROM LomSchema ls " +
-                    "LEFT JOIN FETCH ls.general " +
-                    "LEFT JOIN FETCH ls.lifecycle l " +
-                    "LEFT JOIN FETCH l.contributes " +
-                    "LEFT JOIN FETCH ls.metaMetadata " +
-                    "LEFT JOIN FETCH ls.technical " +
-                    "LEFT JOIN FETCH ls.educational " +
-                    "LEFT JOIN FETCH ls.rights " +
-                    "LEFT JOIN FETCH ls.annotations " +
+                    FetchPlan.TO_ONE_JOINS +
                     "WHERE ls.id = :id";
             Query<LomSchema> query = session.createQuery(hql, LomSchema.class);
             query.setParameter("id", id);
-            return query.uniqueResult();
+            LomSchema lom = query.uniqueResult();
+            plan.apply(lom);
+            return lom;
+        }
+    }
+
+    /**
+     * Charger plusieurs LomSchema selon un plan de chargement : les
+     * collections sont chargées par lots (batch-size) pour toutes les
+     * ressources ; une requête par IN_LIST_CHUNK identifiants
+     */
+    public List<LomSchema> findByIds(Collection<Long> ids, FetchPlan plan) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Session session = openReadSession()) {
+            String hql = "SELECT ls FROM LomSchema ls " +
+                    FetchPlan.TO_ONE_JOINS +
+                    "WHERE ls.id IN (:ids)";
+            List<LomSchema> loms = new ArrayList<>(ids.size());
+            for (List<Long> chunk : inListChunks(ids)) {
+                Query<LomSchema> query = session.createQuery(hql, LomSchema.class);
+                query.setParameterList("ids", chunk);
+                loms.addAll(query.list());
+            }
+            plan.apply(loms);
+            return loms;
+        }
+    }
+
+    public CompletableFuture<LomSchema> findByIdAsync(Long id, FetchPlan plan) {
+        return async(() -> findById(id, plan));
+    }
+
+    public CompletableFuture<List<LomSchema>> findByIdsAsync(Collection<Long> ids, FetchPlan plan) {
+        return async(() -> findByIds(ids, plan));
+    }
+
+    /**
+     * Supprimer une ressource et les lignes qui la référencent
+     *
+     * BULK DML: favoris, historique, notes et liens de tags (non cascadés
+     * depuis LomSchema) sont supprimés en une instruction par table ; le
+     * graphe LOM lui-même est supprimé par Hibernate pour appliquer les
+     * cascades. Le tout dans une seule transaction.
+     *
+     * @return true si la ressource a été supprimée
+     */
+    public boolean deleteWithReferences(Long id) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            session.createNativeQuery("DELETE FROM lom_tag_resources WHERE lom_schema_id = ?")
+                    .setParameter(1, id)
+                    .executeUpdate();
+            for (String entity : List.of("Favorite", "ViewHistory", "Rating")) {
+                session.createQuery("DELETE FROM " + entity + " WHERE resource.id = ?0")
+                        .setParameter(0, id)
+                        .executeUpdate();
+            }
+
+            LomSchema lom = session.get(LomSchema.class, id);
+            if (lom != null) {
+                session.delete(lom);
+            }
+            transaction.commit();
+            return lom != null;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -190,7 +761,7 @@ public class LomSchemaDao extends GenericDao<LomSchema, Long> {
      * Trouver les ressources récentes
      */
     public List<LomSchema> findRecent(int limit) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "FROM LomSchema ORDER BY createdAt DESC";
             Query<LomSchema> query = session.createQuery(hql, LomSchema.class);
             query.setMaxResults(limit);
@@ -0,0 +1,39 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Educational;
+import org.emsi.entities.LomSchema;
+
+import java.util.Date;
+
+/**
+ * Projection légère d'une ressource LOM pour les vues en liste
+ *
+ * Chargée par expression constructeur HQL (SELECT new ...) : seules les
+ * colonnes affichées sont lues, sans hydrater le graphe LomSchema ni
+ * créer d'entités gérées. Le graphe complet n'est chargé
+ * (findByIdWithRelations) qu'à l'ouverture d'une ressource.
+ */
+public record LomSummary(Long id, String title, String language, Integer difficulty, Date createdAt) {
+
+    /**
+     * Expression HQL du constructeur (alias ls, g, e)
+     */
+    static final String SELECT = "SELECT new org.emsi.dao.LomSummary("
+            + "ls.id, ls.resourceTitle, g.language, e.difficulty, ls.createdAt) ";
+
+    /**
+     * Construire un résumé à partir d'une entité déjà chargée
+     */
+    public static LomSummary of(LomSchema lom) {
+        return new LomSummary(
+                lom.getId(),
+                lom.getResourceTitle(),
+                lom.getGeneral() != null ? lom.getGeneral().getLanguage() : null,
+                lom.getEducational() != null ? lom.getEducational().getDifficulty() : null,
+                lom.getCreatedAt());
+    }
+
+    public String difficultyLabel() {
+        return Educational.difficultyLabel(difficulty);
+    }
+}
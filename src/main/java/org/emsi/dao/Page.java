@@ -0,0 +1,60 @@
+package org.emsi.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page de résultats obtenue par pagination keyset (seek)
+ *
+ * Au lieu d'un OFFSET, la page suivante est demandée à partir du curseur
+ * de la dernière ligne (valeur de tri, id) : le coût d'une page reste
+ * constant quelle que soit sa position dans le catalogue.
+ *
+ * @param <T> Type des éléments
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final Cursor nextCursor;
+
+    public Page(List<T> items, Cursor nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Curseur à passer pour obtenir la page suivante (null si dernière page)
+     */
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Position keyset : valeur de la clé de tri et id de la dernière ligne
+     */
+    public static class Cursor {
+        private final Object sortValue;
+        private final Long id;
+
+        public Cursor(Object sortValue, Long id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+
+        public Object getSortValue() {
+            return sortValue;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}
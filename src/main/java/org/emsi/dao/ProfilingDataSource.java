@@ -0,0 +1,258 @@
+package org.emsi.dao;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * DataSource instrumentée : mesure chaque instruction JDBC exécutée par
+ * Hibernate et la transmet à QueryMetrics
+ *
+ * Connexions, instructions et ResultSet sont enveloppés par des proxies
+ * dynamiques. La latence mesurée est celle de l'appel execute*(). Une
+ * mise à jour est enregistrée dès la fin de l'exécution ; pour une
+ * requête, le nombre de lignes est compté pendant le parcours du
+ * ResultSet et l'exécution est enregistrée à la fermeture du ResultSet,
+ * de l'instruction (fermeture implicite du ResultSet) ou à l'exécution
+ * suivante sur la même instruction.
+ */
+public class ProfilingDataSource implements DataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+            "executeBatch", "executeLargeBatch");
+
+    private final DataSource delegate;
+    private final QueryMetrics metrics;
+
+    public ProfilingDataSource(DataSource delegate, QueryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(delegate.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                ProfilingDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return wrapStatement((Statement) result, PreparedStatement.class, (String) args[0]);
+                        case "prepareCall":
+                            return wrapStatement((Statement) result, CallableStatement.class, (String) args[0]);
+                        case "createStatement":
+                            return wrapStatement((Statement) result, Statement.class, null);
+                        default:
+                            return result;
+                    }
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, Class<? extends Statement> type, String preparedSql) {
+        InvocationHandler handler = new InvocationHandler() {
+            // Dernière instruction ajoutée par addBatch(String) sur un Statement simple
+            private String batchSql;
+            // Requête dont le ResultSet est encore ouvert (enregistrée à sa fin)
+            private Execution pending;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("addBatch".equals(name) && args != null && args.length == 1) {
+                    batchSql = (String) args[0];
+                }
+                if ("close".equals(name)) {
+                    // ResultSet fermé implicitement avec l'instruction
+                    finishPending();
+                    return ProfilingDataSource.invoke(statement, method, args);
+                }
+                if ("getResultSet".equals(name)) {
+                    Object result = ProfilingDataSource.invoke(statement, method, args);
+                    return result instanceof ResultSet && pending != null
+                            ? wrapResultSet((ResultSet) result, pending)
+                            : result;
+                }
+                if (!EXECUTE_METHODS.contains(name)) {
+                    return ProfilingDataSource.invoke(statement, method, args);
+                }
+
+                // Une nouvelle exécution ferme le ResultSet de la précédente
+                finishPending();
+                String sql = preparedSql;
+                if (sql == null) {
+                    sql = args != null && args.length > 0 && args[0] instanceof String
+                            ? (String) args[0]
+                            : batchSql;
+                }
+                String caller = QueryMetrics.callerOf();
+                long start = System.nanoTime();
+                Object result = ProfilingDataSource.invoke(statement, method, args);
+                long elapsed = System.nanoTime() - start;
+
+                if (result instanceof ResultSet) {
+                    // Enregistré à la fermeture du ResultSet ou de l'instruction, avec le nombre de lignes lues
+                    pending = new Execution(sql, caller, elapsed);
+                    return wrapResultSet((ResultSet) result, pending);
+                }
+                if ("execute".equals(name)) {
+                    if (Boolean.TRUE.equals(result)) {
+                        // ResultSet lu ensuite par getResultSet()
+                        pending = new Execution(sql, caller, elapsed);
+                    } else {
+                        metrics.record(sql, caller, elapsed, statement.getUpdateCount());
+                    }
+                    return result;
+                }
+                metrics.record(sql, caller, elapsed, affectedRows(result));
+                return result;
+            }
+
+            private void finishPending() {
+                if (pending != null) {
+                    pending.finish();
+                    pending = null;
+                }
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(
+                ProfilingDataSource.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    /**
+     * Exécution d'une requête : enregistrée une seule fois, quand son
+     * ResultSet est fermé (explicitement ou avec l'instruction) ou quand
+     * l'instruction est réexécutée
+     */
+    private final class Execution {
+        private final String sql;
+        private final String caller;
+        private final long elapsed;
+        private long rows;
+        private boolean recorded;
+
+        Execution(String sql, String caller, long elapsed) {
+            this.sql = sql;
+            this.caller = caller;
+            this.elapsed = elapsed;
+        }
+
+        void finish() {
+            if (!recorded) {
+                recorded = true;
+                metrics.record(sql, caller, elapsed, rows);
+            }
+        }
+    }
+
+    private ResultSet wrapResultSet(ResultSet resultSet, Execution execution) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = ProfilingDataSource.invoke(resultSet, method, args);
+            switch (method.getName()) {
+                case "next":
+                    if (Boolean.TRUE.equals(result)) {
+                        execution.rows++;
+                    }
+                    break;
+                case "close":
+                    execution.finish();
+                    break;
+                default:
+                    break;
+            }
+            return result;
+        };
+        return (ResultSet) Proxy.newProxyInstance(
+                ProfilingDataSource.class.getClassLoader(), new Class<?>[] { ResultSet.class }, handler);
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        long total = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return -1;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Délégation des autres méthodes de DataSource
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
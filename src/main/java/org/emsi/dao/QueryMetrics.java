@@ -0,0 +1,265 @@
+package org.emsi.dao;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Métriques des requêtes SQL (remplace show_sql)
+ *
+ * Chaque instruction exécutée via ProfilingDataSource est rattachée à sa
+ * "forme" (SQL normalisé) : nombre d'exécutions, latence (histogramme),
+ * lignes lues/modifiées et méthode DAO appelante. Seules les requêtes au
+ * dessus du seuil configuré sont journalisées.
+ */
+public class QueryMetrics {
+
+    // Bornes supérieures des classes de l'histogramme de latence (ms)
+    static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000 };
+
+    // Au-delà, les nouvelles formes sont regroupées pour borner la mémoire
+    private static final int MAX_SHAPES = 1000;
+    private static final String OTHER_SHAPE = "(autres requêtes)";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final String DAO_PACKAGE = "org.emsi.dao.";
+
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final LongAdder slowQueries = new LongAdder();
+    private volatile long slowThresholdNanos;
+
+    public QueryMetrics(long slowThresholdMillis) {
+        setSlowThresholdMillis(slowThresholdMillis);
+    }
+
+    public void setSlowThresholdMillis(long millis) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    /**
+     * Enregistrer une exécution
+     *
+     * @param rows lignes lues ou modifiées (-1 si inconnu)
+     */
+    void record(String sql, String caller, long elapsedNanos, long rows) {
+        String shape = shapeOf(sql);
+        StatementStats stats = statements.get(shape);
+        if (stats == null) {
+            if (statements.size() >= MAX_SHAPES) {
+                shape = OTHER_SHAPE;
+            }
+            stats = statements.computeIfAbsent(shape, StatementStats::new);
+        }
+        stats.record(caller, elapsedNanos, rows);
+
+        if (elapsedNanos >= slowThresholdNanos) {
+            slowQueries.increment();
+            System.err.printf("🐢 Requête lente: %.1f ms, %s lignes [%s] %s%n",
+                    elapsedNanos / 1_000_000.0, rows >= 0 ? rows : "?", caller, shape);
+        }
+    }
+
+    /**
+     * Méthode DAO à l'origine de l'instruction (point d'entrée dans la
+     * couche DAO, ex: LomSchemaDao.findByTitle plutôt que
+     * GenericDao.findByQuery)
+     */
+    static String callerOf() {
+        Optional<StackWalker.StackFrame> entry = STACK_WALKER.walk(frames -> {
+            StackWalker.StackFrame last = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                boolean dao = className.startsWith(DAO_PACKAGE)
+                        && !className.startsWith(DAO_PACKAGE + "ProfilingDataSource")
+                        && !className.startsWith(DAO_PACKAGE + "QueryMetrics");
+                if (dao) {
+                    last = frame;
+                } else if (last != null) {
+                    break;
+                }
+            }
+            return Optional.ofNullable(last);
+        });
+        return entry
+                .map(f -> f.getClassName().substring(DAO_PACKAGE.length()) + "." + f.getMethodName())
+                .orElse("hors DAO");
+    }
+
+    /**
+     * Normaliser une instruction : espaces compactés, listes IN (?, ?, ...)
+     * ramenées à (?)
+     */
+    static String shapeOf(String sql) {
+        if (sql == null) {
+            return "(inconnue)";
+        }
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("(?)");
+    }
+
+    /**
+     * Formes d'instructions triées par temps total décroissant
+     */
+    public List<StatementStats> getTopStatements(int limit) {
+        return statements.values().stream()
+                .sorted(Comparator.comparingLong(StatementStats::getTotalNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Formes d'instructions triées par latence maximale décroissante
+     */
+    public List<StatementStats> getSlowestStatements(int limit) {
+        return statements.values().stream()
+                .sorted(Comparator.comparingLong(StatementStats::getMaxNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public long getSlowQueryCount() {
+        return slowQueries.sum();
+    }
+
+    public long getStatementCount() {
+        return statements.values().stream().mapToLong(StatementStats::getCount).sum();
+    }
+
+    public void reset() {
+        statements.clear();
+        slowQueries.reset();
+    }
+
+    /**
+     * Statistiques d'une forme d'instruction
+     */
+    public static class StatementStats {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+        private final Map<String, LongAdder> callers = new ConcurrentHashMap<>();
+
+        StatementStats(String shape) {
+            this.shape = shape;
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void record(String caller, long elapsedNanos, long rowCount) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            histogram[bucketOf(elapsedNanos)].increment();
+            callers.computeIfAbsent(caller, c -> new LongAdder()).increment();
+        }
+
+        private static int bucketOf(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                if (millis < BUCKET_BOUNDS_MILLIS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_MILLIS.length;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public double getAverageMillis() {
+            long n = getCount();
+            return n > 0 ? getTotalNanos() / (double) n / 1_000_000.0 : 0.0;
+        }
+
+        /**
+         * Nombre d'exécutions par classe de latence (dernière classe : au
+         * delà de la plus grande borne)
+         */
+        public long[] getHistogram() {
+            long[] values = new long[histogram.length];
+            for (int i = 0; i < histogram.length; i++) {
+                values[i] = histogram[i].sum();
+            }
+            return values;
+        }
+
+        /**
+         * Percentile approché (borne supérieure de la classe), en ms
+         */
+        public long getPercentileMillis(double percentile) {
+            long[] values = getHistogram();
+            long total = 0;
+            for (long v : values) {
+                total += v;
+            }
+            long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < values.length; i++) {
+                seen += values[i];
+                if (seen >= target && seen > 0) {
+                    return i < BUCKET_BOUNDS_MILLIS.length
+                            ? BUCKET_BOUNDS_MILLIS[i]
+                            : TimeUnit.NANOSECONDS.toMillis(getMaxNanos());
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Méthodes DAO appelantes et nombre d'appels
+         */
+        public Map<String, Long> getCallers() {
+            return callers.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum()));
+        }
+
+        @Override
+        public String toString() {
+            String mainCaller = getCallers().entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse("-");
+            return String.format("%d x, total=%.1f ms, moy=%.2f ms, p95<=%d ms, max=%.1f ms, lignes=%d [%s] %s",
+                    getCount(), getTotalNanos() / 1_000_000.0, getAverageMillis(),
+                    getPercentileMillis(0.95), getMaxNanos() / 1_000_000.0, getRows(), mainCaller, shape);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.emsi.dao;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Routage des lectures entre la base primaire et le réplica
+ *
+ * Les lectures en lecture seule (DAO readOnly, HibernateUtil.openReadSession)
+ * vont au réplica quand il est configuré, les écritures toujours au primaire.
+ *
+ * Le réplica peut avoir jusqu'à maxLag de retard (lom.replica.max_lag_ms).
+ * Une lecture tolérant moins de retard que maxLag est renvoyée au primaire
+ * si la même session a écrit dans cette fenêtre (lecture de ses propres
+ * écritures, ex: favori ajouté puis liste rechargée) ; les écritures des
+ * autres sessions ne changent pas son routage. La session est celle fixée
+ * par withSession sur le thread (transmise aux tâches de DbExecutor), à
+ * défaut celle de sessionResolver (utilisateur connecté). La tolérance se
+ * règle par appel :
+ *
+ * <pre>
+ * ReadRouter.withStaleness(Duration.ofMinutes(5), () -> statisticsService.countResourcesByLanguage());
+ * ReadRouter.fromPrimary(() -> favoriteService.getUserFavorites(user));
+ * </pre>
+ */
+public final class ReadRouter {
+
+    private static final ThreadLocal<Duration> staleness = new ThreadLocal<>();
+    private static final ThreadLocal<Object> session = new ThreadLocal<>();
+
+    // Écritures faites hors de toute session (tâches de fond)
+    private static final Object NO_SESSION = new Object();
+
+    // Sessions suivies au-delà desquelles les écritures trop anciennes sont oubliées
+    private static final int PRUNE_THRESHOLD = 1_000;
+
+    private static volatile long maxLagMillis = 1_000;
+    private static volatile long defaultStalenessMillis = 250;
+    private static volatile Supplier<Object> sessionResolver = () -> null;
+
+    // Dernière écriture de chaque session (millisecondes)
+    private static final ConcurrentHashMap<Object, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private static final LongAdder replicaReads = new LongAdder();
+    private static final LongAdder primaryReads = new LongAdder();
+    private static final LongAdder readYourWrites = new LongAdder();
+
+    private ReadRouter() {
+    }
+
+    /**
+     * Exécuter des lectures en acceptant au plus tolerance de retard
+     */
+    public static <R> R withStaleness(Duration tolerance, Supplier<R> call) {
+        Duration previous = staleness.get();
+        staleness.set(tolerance);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                staleness.remove();
+            } else {
+                staleness.set(previous);
+            }
+        }
+    }
+
+    public static void withStaleness(Duration tolerance, Runnable call) {
+        withStaleness(tolerance, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Exécuter des lectures sur le primaire (aucun retard toléré)
+     */
+    public static <R> R fromPrimary(Supplier<R> call) {
+        return withStaleness(Duration.ZERO, call);
+    }
+
+    /**
+     * Tolérance en vigueur sur ce thread (null : tolérance par défaut),
+     * transmise aux tâches de DbExecutor
+     */
+    static Duration currentStaleness() {
+        return staleness.get();
+    }
+
+    /**
+     * Exécuter des lectures et écritures pour une session donnée (clé
+     * quelconque : utilisateur, fenêtre...) : ses lectures suivent ses
+     * propres écritures
+     */
+    public static <R> R withSession(Object key, Supplier<R> call) {
+        Object previous = session.get();
+        session.set(key);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                session.remove();
+            } else {
+                session.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Session par défaut des threads sans withSession (ex: utilisateur
+     * connecté, fixé par AuthService)
+     */
+    public static void setSessionResolver(Supplier<Object> resolver) {
+        sessionResolver = resolver != null ? resolver : () -> null;
+    }
+
+    /**
+     * Session de ce thread, transmise aux tâches de DbExecutor
+     */
+    static Object currentSession() {
+        Object key = session.get();
+        if (key == null) {
+            key = sessionResolver.get();
+        }
+        return key != null ? key : NO_SESSION;
+    }
+
+    /**
+     * Choisir la base d'une lecture
+     *
+     * @return true si la lecture peut aller au réplica
+     */
+    static boolean routeToReplica() {
+        Duration scoped = staleness.get();
+        long tolerance = scoped != null ? scoped.toMillis() : defaultStalenessMillis;
+        if (tolerance <= 0) {
+            primaryReads.increment();
+            return false;
+        }
+        Long lastWrite = lastWrites.get(currentSession());
+        if (tolerance < maxLagMillis && lastWrite != null && System.currentTimeMillis() - lastWrite < maxLagMillis) {
+            // Écriture récente peut-être pas encore répliquée
+            readYourWrites.increment();
+            primaryReads.increment();
+            return false;
+        }
+        replicaReads.increment();
+        return true;
+    }
+
+    /**
+     * Noter une écriture sur le primaire pour la session courante
+     */
+    static void recordWrite() {
+        long now = System.currentTimeMillis();
+        lastWrites.put(currentSession(), now);
+        if (lastWrites.size() > PRUNE_THRESHOLD) {
+            // Écritures déjà répliquées : plus d'effet sur le routage
+            lastWrites.values().removeIf(millis -> now - millis >= maxLagMillis);
+        }
+    }
+
+    static void configure(long maxLag, long defaultStaleness) {
+        maxLagMillis = Math.max(0, maxLag);
+        defaultStalenessMillis = Math.max(0, defaultStaleness);
+    }
+
+    public static long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public static long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    /**
+     * Lectures renvoyées au primaire à cause d'une écriture récente
+     */
+    public static long getReadYourWritesFallbacks() {
+        return readYourWrites.sum();
+    }
+
+    /**
+     * Détecte les instructions d'écriture envoyées au primaire (entités,
+     * HQL bulk et SQL natif confondus)
+     */
+    static class WriteTracker implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            String head = sql.stripLeading();
+            int end = Math.min(head.length(), 7);
+            String verb = head.substring(0, end).toLowerCase(Locale.ROOT);
+            if (verb.startsWith("insert") || verb.startsWith("update") || verb.startsWith("delete")) {
+                recordWrite();
+            }
+            return sql;
+        }
+    }
+}
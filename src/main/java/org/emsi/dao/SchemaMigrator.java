@@ -0,0 +1,220 @@
+package org.emsi.dao;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Migrations de schéma versionnées, appliquées au démarrage
+ *
+ * Remplace hbm2ddl.auto=update : les scripts db/migration/V{n}__{description}.sql
+ * sont exécutés une seule fois, dans l'ordre, et enregistrés dans la table
+ * lom_schema_version (version, script, checksum). Un script déjà appliqué
+ * dont le contenu a changé bloque le démarrage.
+ *
+ * Un verrou MySQL (GET_LOCK) évite que deux instances migrent en même temps.
+ */
+public class SchemaMigrator {
+
+    private static final String LOCATION = "db/migration/";
+
+    // Scripts dans l'ordre d'application (ajouter les nouveaux à la fin)
+    private static final List<String> MIGRATIONS = List.of(
+            "V1__baseline_schema.sql",
+            "V2__seed_id_generators.sql",
+            "V3__hot_path_indexes.sql",
+            "V4__optimistic_lock_versions.sql",
+            "V5__keyset_sort_indexes.sql");
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final String HISTORY_TABLE = "lom_schema_version";
+    private static final String LOCK_NAME = "lom_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final DataSource dataSource;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Appliquer les migrations en attente
+     *
+     * @return nombre de migrations appliquées
+     */
+    public int migrate() throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            acquireLock(connection);
+            try {
+                createHistoryTable(connection);
+                Map<Integer, Long> applied = loadAppliedVersions(connection);
+
+                int count = 0;
+                for (String script : MIGRATIONS) {
+                    Matcher matcher = SCRIPT_NAME.matcher(script);
+                    if (!matcher.matches()) {
+                        throw new IllegalStateException("Nom de migration invalide: " + script);
+                    }
+                    int version = Integer.parseInt(matcher.group(1));
+                    String description = matcher.group(2).replace('_', ' ');
+                    String sql = readScript(script);
+                    long checksum = checksum(sql);
+
+                    Long appliedChecksum = applied.get(version);
+                    if (appliedChecksum != null) {
+                        if (appliedChecksum != checksum) {
+                            throw new IllegalStateException("Migration V" + version
+                                    + " modifiée après application (checksum différent): " + script);
+                        }
+                        continue;
+                    }
+
+                    long start = System.currentTimeMillis();
+                    apply(connection, sql);
+                    long elapsed = System.currentTimeMillis() - start;
+                    record(connection, version, description, script, checksum, elapsed);
+                    System.out.println("✅ Migration V" + version + " appliquée: " + description
+                            + " (" + elapsed + " ms)");
+                    count++;
+                }
+                return count;
+            } finally {
+                releaseLock(connection);
+            }
+        }
+    }
+
+    private void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Verrou de migration indisponible: " + LOCK_NAME);
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "script VARCHAR(200) NOT NULL, "
+                    + "checksum BIGINT NOT NULL, "
+                    + "installed_on DATETIME NOT NULL, "
+                    + "execution_ms BIGINT NOT NULL"
+                    + ") ENGINE=InnoDB");
+        }
+    }
+
+    private Map<Integer, Long> loadAppliedVersions(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Exécuter les instructions d'un script
+     *
+     * MySQL valide implicitement chaque DDL : une migration interrompue
+     * n'est pas enregistrée et doit être corrigée manuellement.
+     */
+    private void apply(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String stmt : splitStatements(sql)) {
+                statement.execute(stmt);
+            }
+        }
+    }
+
+    private void record(Connection connection, int version, String description, String script,
+            long checksum, long elapsed) throws SQLException {
+        String insert = "INSERT INTO " + HISTORY_TABLE
+                + " (version, description, script, checksum, installed_on, execution_ms) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(insert)) {
+            ps.setInt(1, version);
+            ps.setString(2, description);
+            ps.setString(3, script);
+            ps.setLong(4, checksum);
+            ps.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            ps.setLong(6, elapsed);
+            ps.executeUpdate();
+        }
+    }
+
+    private String readScript(String script) throws IOException {
+        InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + script);
+        if (in == null) {
+            throw new IOException("Migration introuvable: " + LOCATION + script);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder sql = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sql.append(line).append('\n');
+            }
+            return sql.toString();
+        }
+    }
+
+    /**
+     * Découper un script en instructions (fin de ligne ';', commentaires --
+     * ignorés)
+     */
+    static List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : sql.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String stmt = current.toString().trim();
+                statements.add(stmt.substring(0, stmt.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
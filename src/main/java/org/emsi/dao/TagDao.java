@@ -2,9 +2,16 @@ package org.emsi.dao;
 
 import org.emsi.entities.Tag;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO pour l'entité Tag
@@ -19,7 +26,7 @@ public class TagDao extends GenericDao<Tag, Long> {
      * Trouver un tag par nom
      */
     public Tag findByName(String name) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "FROM Tag WHERE name = :name";
             Query<Tag> query = session.createQuery(hql, Tag.class);
             query.setParameter("name", name);
@@ -31,7 +38,7 @@ public class TagDao extends GenericDao<Tag, Long> {
      * Rechercher des tags par nom (LIKE)
      */
     public List<Tag> searchByName(String keyword) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             String hql = "SELECT DISTINCT t FROM Tag t LEFT JOIN FETCH t.resources WHERE t.name LIKE :keyword ORDER BY t.name";
             Query<Tag> query = session.createQuery(hql, Tag.class);
             query.setParameter("keyword", "%" + keyword + "%");
@@ -44,7 +51,7 @@ public class TagDao extends GenericDao<Tag, Long> {
      */
     @Override
     public List<Tag> findAll() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openReadSession()) {
             // Utilisation de LEFT JOIN FETCH pour charger les ressources (évite
             // LazyInitException dans l'UI)
             String hql = "SELECT DISTINCT t FROM Tag t LEFT JOIN FETCH t.resources ORDER BY t.name";
@@ -53,6 +60,125 @@ public class TagDao extends GenericDao<Tag, Long> {
         }
     }
 
+    /**
+     * PROJECTION: Noms des tags de chaque ressource, sans charger les
+     * entités (index de recherche)
+     */
+    public Map<Long, Set<String>> findTagNamesByResource() {
+        try (Session session = openReadSession()) {
+            String hql = "SELECT r.id, t.name FROM Tag t JOIN t.resources r";
+            Map<Long, Set<String>> tagNames = new HashMap<>();
+            for (Object[] row : session.createQuery(hql, Object[].class).list()) {
+                tagNames.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+            }
+            return tagNames;
+        }
+    }
+
+    /**
+     * Noms des tags de quelques ressources (id de ressource -> noms)
+     */
+    public Map<Long, Set<String>> findTagNamesByResources(Collection<Long> resourceIds) {
+        Map<Long, Set<String>> tagNames = new HashMap<>();
+        if (resourceIds.isEmpty()) {
+            return tagNames;
+        }
+        try (Session session = openReadSession()) {
+            String hql = "SELECT r.id, t.name FROM Tag t JOIN t.resources r WHERE r.id IN (:ids)";
+            for (List<Long> chunk : inListChunks(resourceIds)) {
+                Query<Object[]> query = session.createQuery(hql, Object[].class);
+                query.setParameterList("ids", chunk);
+                for (Object[] row : query.list()) {
+                    tagNames.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+                }
+            }
+            return tagNames;
+        }
+    }
+
+    /**
+     * PROJECTION: Ressources de chaque tag, tags sans ressource compris
+     * (nom -> identifiants ; autocomplétion)
+     */
+    public Map<String, List<Long>> findResourceIdsByTagName() {
+        try (Session session = openReadSession()) {
+            String hql = "SELECT t.name, r.id FROM Tag t LEFT JOIN t.resources r";
+            Map<String, List<Long>> resourceIds = new HashMap<>();
+            for (Object[] row : session.createQuery(hql, Object[].class).list()) {
+                List<Long> ids = resourceIds.computeIfAbsent((String) row[0], name -> new ArrayList<>());
+                if (row[1] != null) {
+                    ids.add((Long) row[1]);
+                }
+            }
+            return resourceIds;
+        }
+    }
+
+    /**
+     * Identifiants des ressources portant un tag
+     */
+    public List<Long> findResourceIds(Long tagId) {
+        try (Session session = openReadSession()) {
+            String hql = "SELECT r.id FROM Tag t JOIN t.resources r WHERE t.id = :tagId";
+            return session.createQuery(hql, Long.class)
+                    .setParameter("tagId", tagId)
+                    .list();
+        }
+    }
+
+    /**
+     * BULK DML: Retirer le lien tag/ressource en une instruction
+     *
+     * Évite de réattacher le tag et de réécrire toute sa collection
+     * resources.
+     *
+     * @return nombre de liens supprimés
+     */
+    public int unlinkResource(Long tagId, Long resourceId) {
+        int unlinked = executeNativeUpdate(
+                "DELETE FROM lom_tag_resources WHERE tag_id = ? AND lom_schema_id = ?",
+                tagId, resourceId);
+        if (unlinked > 0) {
+            // Hors événements Hibernate : changement publié explicitement
+            EntityChangeListener.publish(EntityChange.resource(resourceId));
+        }
+        return unlinked;
+    }
+
+    /**
+     * BULK DML: Supprimer un tag et ses liens en une transaction, sans
+     * charger le tag ni sa collection
+     *
+     * @return true si le tag a été supprimé
+     */
+    public boolean deleteWithLinks(Long tagId) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            // Ressources à réindexer, lues avant la suppression des liens
+            List<Long> resourceIds = session.createQuery(
+                            "SELECT r.id FROM Tag t JOIN t.resources r WHERE t.id = ?0", Long.class)
+                    .setParameter(0, tagId)
+                    .list();
+            session.createNativeQuery("DELETE FROM lom_tag_resources WHERE tag_id = ?")
+                    .setParameter(1, tagId)
+                    .executeUpdate();
+            int deleted = session.createQuery("DELETE FROM Tag WHERE id = ?0")
+                    .setParameter(0, tagId)
+                    .executeUpdate();
+            transaction.commit();
+            // Hors événements Hibernate : changements publiés explicitement
+            resourceIds.forEach(id -> EntityChangeListener.publish(EntityChange.resource(id)));
+            return deleted > 0;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Vérifier si un tag existe
      */
@@ -0,0 +1,168 @@
+package org.emsi.dao;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.TransactionException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+/**
+ * Unité de travail : une session et une transaction partagées par tous les
+ * appels DAO d'une opération logique (sur le thread courant)
+ *
+ * <pre>
+ * LomSchema lom = UnitOfWork.call(() -> {
+ *     LomSchema resource = lomService.getResourceById(id);
+ *     viewHistoryService.recordView(user, resource);
+ *     return resource;
+ * });
+ * </pre>
+ *
+ * Pendant l'opération, HibernateUtil.openSession() et openReadSession()
+ * rendent la session partagée : une seule connexion est empruntée et une
+ * entité déjà chargée est servie par le contexte de persistance (cache de
+ * premier niveau). Les DAO gardent leur code habituel ; sur la session
+ * partagée :
+ * - close() et clear() sont sans effet
+ * - commit() d'une transaction DAO envoie les écritures (flush), la
+ *   validation réelle a lieu à la fin de l'unité de travail
+ * - rollback() marque l'unité de travail pour annulation : elle est
+ *   annulée à la fin et call() lève TransactionException au lieu de
+ *   rendre le résultat de work
+ * - les réglages lecture seule / flush manuel sont ignorés
+ *
+ * Les unités de travail imbriquées rejoignent celle en cours. Les parcours
+ * en flux (GenericDao.stream) gardent leur propre session.
+ */
+public final class UnitOfWork {
+
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private final Session session;
+    private final Transaction transaction;
+    private final Session sharedSession;
+    private final Transaction sharedTransaction;
+    private boolean rollbackOnly;
+
+    private UnitOfWork() {
+        this.session = HibernateUtil.getSessionFactory().openSession();
+        this.transaction = session.beginTransaction();
+        this.sharedTransaction = (Transaction) Proxy.newProxyInstance(
+                UnitOfWork.class.getClassLoader(),
+                new Class<?>[] { Transaction.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "begin":
+                            return null;
+                        case "commit":
+                            session.flush();
+                            return null;
+                        case "rollback":
+                        case "markRollbackOnly":
+                        case "setRollbackOnly":
+                            rollbackOnly = true;
+                            return null;
+                        default:
+                            return invoke(transaction, method, args);
+                    }
+                });
+        this.sharedSession = (Session) Proxy.newProxyInstance(
+                UnitOfWork.class.getClassLoader(),
+                new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                        case "clear":
+                        case "setDefaultReadOnly":
+                        case "setHibernateFlushMode":
+                        case "setFlushMode":
+                            return null;
+                        case "beginTransaction":
+                        case "getTransaction":
+                            return sharedTransaction;
+                        default:
+                            return invoke(session, method, args);
+                    }
+                });
+    }
+
+    /**
+     * Exécuter work dans une unité de travail (nouvelle ou en cours)
+     *
+     * La transaction est validée à la sortie de l'unité la plus externe,
+     * ou annulée si work lève une exception ou si un DAO a fait un
+     * rollback.
+     *
+     * @return le résultat de work, une fois la transaction validée
+     * @throws TransactionException si un DAO a fait un rollback (rien n'a
+     *                              été enregistré)
+     */
+    public static <R> R call(Supplier<R> work) {
+        UnitOfWork active = current.get();
+        if (active != null) {
+            return work.get();
+        }
+
+        UnitOfWork unit = new UnitOfWork();
+        current.set(unit);
+        try {
+            R result = work.get();
+            unit.finish();
+            return result;
+        } catch (RuntimeException | Error e) {
+            unit.rollback();
+            throw e;
+        } finally {
+            current.remove();
+            unit.session.close();
+        }
+    }
+
+    public static void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Indique si une unité de travail est ouverte sur ce thread
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Session partagée de l'unité de travail en cours, ou null
+     */
+    static Session currentSession() {
+        UnitOfWork unit = current.get();
+        return unit != null ? unit.sharedSession : null;
+    }
+
+    private void finish() {
+        if (rollbackOnly) {
+            System.err.println("⚠️ Unité de travail annulée après l'échec d'une opération");
+            rollback();
+            throw new TransactionException("Unité de travail annulée après l'échec d'une opération");
+        }
+        transaction.commit();
+    }
+
+    private void rollback() {
+        if (transaction.isActive()) {
+            transaction.rollback();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
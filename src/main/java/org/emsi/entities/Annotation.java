@@ -11,6 +11,7 @@ public class Annotation implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String entity; // Auteur de l'annotation (CharacterString) - format vCard
     private Date date; // Date de l'annotation (DateTime)
     private String description; // Contenu de l'annotation (LangString)
@@ -37,6 +38,14 @@ public class Annotation implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getEntity() {
         return entity;
     }
@@ -13,6 +13,7 @@ public class Classification implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String purpose; // Objectif (State: discipline, idea, prerequisite, educational objective,
                             // accessibility restrictions, educational level, skill level, security level,
                             // competency)
@@ -41,6 +42,14 @@ public class Classification implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getPurpose() {
         return purpose;
     }
@@ -10,6 +10,7 @@ public class Educational implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String interactivityType; // Type d'interactivité (State: active, expositive, mixed)
     private String learningResourceType; // Type de ressource (State: exercise, simulation, questionnaire, diagram,
                                          // figure, graph, index, slide, table, narrative text, exam, experiment,
@@ -39,6 +40,14 @@ public class Educational implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getInteractivityType() {
         return interactivityType;
     }
@@ -137,6 +146,13 @@ public class Educational implements Serializable {
 
     // Méthodes utilitaires pour affichage
     public String getDifficultyLabel() {
+        return difficultyLabel(difficulty);
+    }
+
+    /**
+     * Libellé d'un niveau de difficulté (1-5)
+     */
+    public static String difficultyLabel(Integer difficulty) {
         if (difficulty == null)
             return "Non défini";
         switch (difficulty) {
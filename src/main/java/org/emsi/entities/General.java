@@ -12,6 +12,7 @@ public class General implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String title;           // Titre (LangString)
     private String language;        // Langue (CharacterString)
     private String description;     // Description (LangString)
@@ -42,6 +43,14 @@ public class General implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -12,6 +12,7 @@ public class Lifecycle implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String version; // Version (LangString)
     private String status; // Statut (State: draft, final, revised, unavailable)
 
@@ -38,6 +39,14 @@ public class Lifecycle implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getVersion() {
         return version;
     }
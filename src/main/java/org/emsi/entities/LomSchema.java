@@ -13,6 +13,7 @@ public class LomSchema implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String resourceTitle; // Titre simplifié pour affichage
     private String resourceUrl; // URL ou chemin du fichier
     private java.util.Date createdAt;
@@ -54,6 +55,14 @@ public class LomSchema implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getResourceTitle() {
         return resourceTitle;
     }
@@ -12,6 +12,7 @@ public class MetaMetadata implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String metadataSchema; // Schéma de métadonnées (CharacterString) - ex: "LOMv1.0"
     private String language; // Langue des métadonnées
 
@@ -37,6 +38,14 @@ public class MetaMetadata implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getMetadataSchema() {
         return metadataSchema;
     }
@@ -10,6 +10,7 @@ public class Relation implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String kind; // Type de relation (State: ispartof, haspart, isversionof, hasversion,
                          // isformatof, hasformat, references, isreferencedby, isbasedon, isbasisfor,
                          // requires, isrequiredby)
@@ -36,6 +37,14 @@ public class Relation implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getKind() {
         return kind;
     }
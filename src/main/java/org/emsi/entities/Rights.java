@@ -10,6 +10,7 @@ public class Rights implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String cost; // Coût (State: yes, no)
     private String copyrightAndOtherRestrictions; // Droits d'auteur et restrictions (State: yes, no)
     private String description; // Description des conditions d'utilisation (LangString)
@@ -34,6 +35,14 @@ public class Rights implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getCost() {
         return cost;
     }
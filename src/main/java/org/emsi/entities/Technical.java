@@ -12,6 +12,7 @@ public class Technical implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    private Integer lockVersion; // Version (verrouillage optimiste)
     private String format; // Format (CharacterString) - MIME type
     private String size; // Taille (CharacterString) - en octets
     private String location; // Localisation (CharacterString) - URL
@@ -37,6 +38,14 @@ public class Technical implements Serializable {
         this.id = id;
     }
 
+    public Integer getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Integer lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public String getFormat() {
         return format;
     }
@@ -126,6 +126,7 @@ public class LomException extends RuntimeException {
         RESOURCE_DELETE_FAILED(203, "Échec de suppression"),
         RESOURCE_CREATION_FAILED(204, "Échec de création"),
         RESOURCE_INVALID_ID(205, "ID de ressource invalide"),
+        RESOURCE_CONFLICT(206, "Ressource modifiée entre-temps"),
 
         // Erreurs de fichiers (3xx)
         FILE_NOT_FOUND(300, "Fichier non trouvé"),
@@ -0,0 +1,102 @@
+package org.emsi.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Analyse du texte indexé et des requêtes (français / anglais)
+ *
+ * - minuscules et suppression des accents ("Élève" -> "eleve")
+ * - découpage sur tout caractère non alphanumérique (les élisions
+ *   "l'algèbre" donnent "algebre")
+ * - suppression des mots vides français et anglais
+ * - racinisation minimale : pluriels en -s, -x et -aux ("réseaux" ->
+ *   "reseau", "networks" -> "network")
+ *
+ * La même analyse est appliquée aux documents et aux requêtes.
+ */
+public final class Analyzer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    // Les termes plus longs (URL, identifiants) sont tronqués
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // Français
+            "au", "aux", "avec", "ce", "ces", "cette", "dans", "de", "des", "du", "elle", "en", "et",
+            "est", "il", "ils", "je", "la", "le", "les", "leur", "lui", "ma", "mais", "me", "mes",
+            "ne", "nos", "notre", "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "sa",
+            "se", "ses", "son", "sont", "sur", "ta", "te", "tes", "ton", "tu", "un", "une", "vos",
+            "votre", "vous",
+            // Anglais
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "into", "is",
+            "it", "its", "of", "or", "that", "the", "their", "this", "to", "was", "were",
+            "will", "with");
+
+    private Analyzer() {
+    }
+
+    /**
+     * Minuscules, ligatures développées et accents supprimés
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT)
+                .replace("œ", "oe")
+                .replace("æ", "ae")
+                .replace("ß", "ss");
+        return MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Termes indexables d'un texte, dans l'ordre (doublons conservés pour
+     * compter les fréquences)
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            if (token.length() > MAX_TERM_LENGTH) {
+                token = token.substring(0, MAX_TERM_LENGTH);
+            }
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    /**
+     * Racinisation minimale : ramener les pluriels au singulier
+     */
+    static String stem(String term) {
+        int length = term.length();
+        if (length <= 3 || Character.isDigit(term.charAt(length - 1))) {
+            return term;
+        }
+        if (term.endsWith("eaux")) {
+            return term.substring(0, length - 1); // reseaux -> reseau
+        }
+        if (term.endsWith("aux") && length > 4) {
+            return term.substring(0, length - 3) + "al"; // journaux -> journal
+        }
+        if (term.endsWith("eux") || term.endsWith("oux")) {
+            return term.substring(0, length - 1); // jeux -> jeu
+        }
+        if (term.endsWith("s") && !term.endsWith("ss") && !term.endsWith("us") && !term.endsWith("is")) {
+            return term.substring(0, length - 1); // exercices -> exercice
+        }
+        return term;
+    }
+}
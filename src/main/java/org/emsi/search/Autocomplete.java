@@ -0,0 +1,232 @@
+package org.emsi.search;
+
+import org.emsi.dao.EntityChangeListener;
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.TagDao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Autocomplétion des champs de recherche : titres des ressources,
+ * mots-clés (General.keyword éclaté sur les virgules) et noms de tags
+ *
+ * Chaque source est une CompletionIndex immuable, pondérée par la
+ * popularité : une ressource pèse 1 plus ses consultations et ses
+ * favoris ; un mot-clé ou un tag, la somme du poids de ses ressources.
+ * Titres et mots-clés sont lus dans l'index de recherche (sans requête
+ * SQL sur le catalogue), les tags et la popularité en base.
+ *
+ * Les structures sont reconstruites en arrière-plan (thread
+ * Autocomplete-Builder) et remplacées d'un bloc : après une modification
+ * validée (le temps que l'index l'applique), au plus une fois par
+ * intervalle minimal, et au moins toutes les REBUILD_MILLIS pour suivre
+ * la popularité. L'intervalle minimal grandit avec la durée de la
+ * dernière construction (BUILD_SHARE), pour qu'un flot de modifications
+ * sur un grand catalogue n'occupe pas le thread en continu. Les documents
+ * sont lus dans un instantané de l'index, sans bloquer son thread
+ * d'écriture. Une complétion ne prend aucun verrou.
+ *
+ * Configuration (propriétés système) :
+ * - lom.autocomplete.refresh_ms     : intervalle de vérification (défaut 5000)
+ * - lom.autocomplete.min_rebuild_ms : intervalle minimal entre deux
+ *                                     constructions (défaut 30000)
+ */
+public class Autocomplete {
+
+    /**
+     * Origine d'une suggestion
+     */
+    public enum Source {
+        TITLE, KEYWORD, TAG
+    }
+
+    /**
+     * Suggestion : texte à placer dans le champ de recherche
+     */
+    public record Suggestion(String text, Source source) {
+    }
+
+    private static Autocomplete instance;
+
+    public static final int MAX_SUGGESTIONS = CompletionIndex.MAX_K;
+
+    private static final Pattern KEYWORD_SEPARATORS = Pattern.compile("[,;]");
+
+    private static final long REFRESH_MILLIS = Long.getLong("lom.autocomplete.refresh_ms", 5000L);
+
+    // Délai laissé à l'index pour appliquer une modification
+    private static final long SETTLE_MILLIS = 2000;
+
+    // Âge maximum des poids de popularité
+    private static final long REBUILD_MILLIS = 10 * 60_000L;
+
+    // Intervalle minimal entre deux constructions dues à des modifications
+    private static final long MIN_REBUILD_MILLIS = Long.getLong("lom.autocomplete.min_rebuild_ms", 30_000L);
+
+    // Intervalle minimal d'au moins BUILD_SHARE fois la durée de construction
+    private static final int BUILD_SHARE = 10;
+
+    private final LomSchemaDao lomSchemaDao;
+    private final TagDao tagDao;
+    private final SearchIndex searchIndex;
+
+    private volatile Map<Source, CompletionIndex> completions = Map.of();
+    private volatile long lastChange;
+    private long builtForChange = -1;
+    private long builtAt;
+    private long buildMillis;
+    private ScheduledExecutorService builder;
+
+    private Autocomplete() {
+        this.lomSchemaDao = new LomSchemaDao(true);
+        this.tagDao = new TagDao();
+        this.searchIndex = SearchIndex.getInstance();
+    }
+
+    public static synchronized Autocomplete getInstance() {
+        if (instance == null) {
+            instance = new Autocomplete();
+        }
+        return instance;
+    }
+
+    /**
+     * Démarrer la construction en arrière-plan (après l'ouverture de
+     * l'index de recherche)
+     */
+    public synchronized void open() {
+        if (builder != null) {
+            return;
+        }
+        EntityChangeListener.subscribe(change -> lastChange = System.currentTimeMillis());
+        builder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Autocomplete-Builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        builder.scheduleWithFixedDelay(this::refresh, 0, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (builder != null) {
+            builder.shutdownNow();
+            builder = null;
+        }
+    }
+
+    /**
+     * Les meilleures suggestions commençant par le préfixe (casse et
+     * accents ignorés), toutes sources confondues
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggest(prefix, limit, EnumSet.allOf(Source.class));
+    }
+
+    /**
+     * Les meilleures suggestions des sources données, par poids décroissant
+     * (au plus MAX_SUGGESTIONS ; vide tant que rien n'est construit)
+     */
+    public List<Suggestion> suggest(String prefix, int limit, Set<Source> sources) {
+        int k = Math.min(limit, MAX_SUGGESTIONS);
+        Map<Source, CompletionIndex> current = completions;
+        List<Ranked> candidates = new ArrayList<>();
+        for (Source source : sources) {
+            CompletionIndex index = current.get(source);
+            if (index == null) {
+                continue;
+            }
+            for (CompletionIndex.Completion completion : index.complete(prefix, k)) {
+                candidates.add(new Ranked(new Suggestion(completion.text(), source), completion.weight()));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Ranked::weight).reversed());
+
+        // Un même texte venant de plusieurs sources n'est proposé qu'une fois
+        List<Suggestion> suggestions = new ArrayList<>(k);
+        Set<String> seen = new HashSet<>();
+        for (Ranked candidate : candidates) {
+            if (suggestions.size() == k) {
+                break;
+            }
+            if (seen.add(CompletionIndex.normalize(candidate.suggestion().text()))) {
+                suggestions.add(candidate.suggestion());
+            }
+        }
+        return suggestions;
+    }
+
+    private record Ranked(Suggestion suggestion, long weight) {
+    }
+
+    /**
+     * Tâche périodique : reconstruire si une modification a été validée
+     * (et laissée à l'index le temps de l'appliquer) et que l'intervalle
+     * minimal est écoulé, ou si les poids sont trop anciens
+     */
+    private void refresh() {
+        long changed = lastChange;
+        long now = System.currentTimeMillis();
+        long minInterval = Math.max(MIN_REBUILD_MILLIS, BUILD_SHARE * buildMillis);
+        boolean modified = changed != builtForChange && now - changed >= SETTLE_MILLIS
+                && now - builtAt >= minInterval;
+        if (!searchIndex.isReady() || (!modified && now - builtAt < REBUILD_MILLIS)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            build();
+            buildMillis = (System.nanoTime() - start) / 1_000_000;
+            builtForChange = changed;
+            builtAt = now;
+        } catch (RuntimeException e) {
+            System.err.println("❌ Construction de l'autocomplétion impossible: " + e.getMessage());
+        }
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        Map<Long, Long> popularity = lomSchemaDao.findPopularity();
+        Map<String, List<Long>> tags = tagDao.findResourceIdsByTagName();
+
+        CompletionIndex.Builder titles = new CompletionIndex.Builder();
+        CompletionIndex.Builder keywords = new CompletionIndex.Builder();
+        searchIndex.forEachDocument(document -> {
+            long weight = 1 + popularity.getOrDefault(document.id(), 0L);
+            titles.add(document.title(), weight);
+            if (document.keyword() != null) {
+                for (String keyword : KEYWORD_SEPARATORS.split(document.keyword())) {
+                    keywords.add(keyword, weight);
+                }
+            }
+        });
+
+        CompletionIndex.Builder tagNames = new CompletionIndex.Builder();
+        tags.forEach((name, resourceIds) -> {
+            long weight = 0;
+            for (Long id : resourceIds) {
+                weight += 1 + popularity.getOrDefault(id, 0L);
+            }
+            tagNames.add(name, weight);
+        });
+
+        Map<Source, CompletionIndex> built = new EnumMap<>(Source.class);
+        built.put(Source.TITLE, titles.build());
+        built.put(Source.KEYWORD, keywords.build());
+        built.put(Source.TAG, tagNames.build());
+        completions = built;
+        System.out.println("🔤 Autocomplétion construite: " + built.get(Source.TITLE).size() + " titres, "
+                + built.get(Source.KEYWORD).size() + " mots-clés, " + built.get(Source.TAG).size()
+                + " tags en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,85 @@
+package org.emsi.search;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Score de pertinence BM25 avec pondération par champ
+ *
+ * Pour chaque terme de la requête et chaque champ :
+ * boost(champ) * idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * longueur / longueurMoyenne))
+ *
+ * Un terme trouvé dans le titre pèse plus que dans les mots-clés, qui
+ * pèsent plus que dans la description.
+ */
+final class Bm25 {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double TITLE_BOOST = 3.0;
+    private static final double KEYWORD_BOOST = 2.0;
+    private static final double DESCRIPTION_BOOST = 1.0;
+
+    private Bm25() {
+    }
+
+    /**
+     * Scores des documents de hits (indexés par numéro de document global)
+     *
+     * Chaque clause de la requête est un terme et ses variantes pondérées
+     * (recherche tolérante, mots commencés) ; le score d'une variante est
+     * multiplié par son poids, et les scores des variantes d'une clause
+     * s'additionnent.
+     *
+     * Les statistiques (nombre de documents, fréquence des termes, longueur
+     * moyenne des champs) portent sur tous les segments de l'index.
+     */
+    static float[] score(SegmentedIndex index, List<Map<String, Float>> clauses, BitSet hits) {
+        float[] scores = new float[index.maxDoc()];
+        int documentCount = Math.max(1, index.size());
+        List<Segment> segments = index.segments();
+        for (Segment.Field field : Segment.Field.values()) {
+            double boost = boost(field);
+            double averageLength = Math.max(1e-6, index.averageFieldLength(field));
+            for (Map<String, Float> clause : clauses) {
+                for (Map.Entry<String, Float> variant : clause.entrySet()) {
+                    String term = variant.getKey();
+                    int df = index.docFreq(field, term);
+                    if (df == 0) {
+                        continue;
+                    }
+                    double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+                    double weight = variant.getValue() * idf;
+                    for (int s = 0; s < segments.size(); s++) {
+                        Segment segment = segments.get(s);
+                        PostingsList postings = segment.postings(field, term);
+                        if (postings == null) {
+                            continue;
+                        }
+                        int base = index.base(s);
+                        for (int i = 0; i < postings.size(); i++) {
+                            int doc = postings.doc(i);
+                            if (!hits.get(base + doc)) {
+                                continue;
+                            }
+                            int tf = postings.freq(i);
+                            double norm = K1 * (1 - B + B * segment.fieldLength(field, doc) / averageLength);
+                            scores[base + doc] += (float) (boost * weight * tf * (K1 + 1) / (tf + norm));
+                        }
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static double boost(Segment.Field field) {
+        return switch (field) {
+            case TITLE -> TITLE_BOOST;
+            case KEYWORD -> KEYWORD_BOOST;
+            case DESCRIPTION -> DESCRIPTION_BOOST;
+        };
+    }
+}
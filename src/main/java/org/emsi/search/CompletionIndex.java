@@ -0,0 +1,272 @@
+package org.emsi.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Structure de complétion par préfixe, immuable, avec les MAX_K meilleures
+ * complétions (par poids) précalculées pour chaque préfixe
+ *
+ * Les clés (textes normalisés : minuscules, sans accents) sont triées dans
+ * un tableau : les clés commençant par un préfixe forment un intervalle
+ * [lo, hi). Les intervalles distincts sont ceux des nœuds d'un arbre
+ * radix (au plus 2n), et chaque nœud garde ses MAX_K meilleures entrées,
+ * calculées une fois à la construction en fusionnant celles de ses
+ * enfants. Une complétion coûte deux dichotomies sur les clés et une sur
+ * les nœuds, quel que soit le nombre de clés du préfixe.
+ *
+ * Construite par Builder ; lectures concurrentes sans verrou.
+ */
+final class CompletionIndex {
+
+    /**
+     * Complétions précalculées par préfixe
+     */
+    static final int MAX_K = 10;
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    /**
+     * Complétion : texte affiché et poids
+     */
+    record Completion(String text, long weight) {
+    }
+
+    private final String[] keys;
+    private final String[] texts;
+    private final long[] weights;
+
+    // Nœuds triés (clé : lo << 32 | ~hi), et leurs meilleures entrées
+    // (topLengths[n] indices à partir de topStarts[n] dans top)
+    private final long[] nodes;
+    private final int[] topStarts;
+    private final int[] topLengths;
+    private final int[] top;
+
+    private CompletionIndex(String[] keys, String[] texts, long[] weights,
+                            long[] nodes, int[] topStarts, int[] topLengths, int[] top) {
+        this.keys = keys;
+        this.texts = texts;
+        this.weights = weights;
+        this.nodes = nodes;
+        this.topStarts = topStarts;
+        this.topLengths = topLengths;
+        this.top = top;
+    }
+
+    static CompletionIndex empty() {
+        return new Builder().build();
+    }
+
+    /**
+     * Clé d'un texte : minuscules, sans accents, espaces réduits
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return SPACES.matcher(Analyzer.fold(text).trim()).replaceAll(" ");
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Les k meilleures complétions d'un préfixe (k au plus MAX_K), par
+     * poids décroissant
+     */
+    List<Completion> complete(String prefix, int k) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || keys.length == 0) {
+            return List.of();
+        }
+        int lo = lowerBound(key);
+        int hi = lowerBound(key + Character.MAX_VALUE);
+        if (lo >= hi) {
+            return List.of();
+        }
+        int node = Arrays.binarySearch(nodes, nodeKey(lo, hi));
+        if (node < 0) {
+            return List.of();
+        }
+        int end = topStarts[node] + Math.min(k, topLengths[node]);
+        List<Completion> completions = new ArrayList<>(end - topStarts[node]);
+        for (int i = topStarts[node]; i < end; i++) {
+            completions.add(new Completion(texts[top[i]], weights[top[i]]));
+        }
+        return completions;
+    }
+
+    /**
+     * Clé d'un nœud : un parent précède ses descendants (ordre préfixe du
+     * parcours de construction)
+     */
+    private static long nodeKey(int lo, int hi) {
+        return ((long) lo << 32) | (~hi & 0xFFFFFFFFL);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Construction : textes et poids, puis build()
+     *
+     * Les textes de même clé sont regroupés : leurs poids s'additionnent et
+     * le texte affiché est celui de l'ajout le plus lourd.
+     */
+    static final class Builder {
+
+        private static final class Entry {
+            private String text;
+            private long best;
+            private long weight;
+        }
+
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        Builder add(String text, long weight) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return this;
+            }
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+            if (entry.text == null || weight > entry.best) {
+                entry.text = text.trim();
+                entry.best = weight;
+            }
+            entry.weight += weight;
+            return this;
+        }
+
+        CompletionIndex build() {
+            String[] keys = entries.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            String[] texts = new String[keys.length];
+            long[] weights = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                Entry entry = entries.get(keys[i]);
+                texts[i] = entry.text;
+                weights[i] = entry.weight;
+            }
+
+            // Au plus 2n nœuds (arbre radix de n clés)
+            Nodes nodes = new Nodes(Math.max(1, 2 * keys.length));
+            if (keys.length > 0) {
+                nodes.build(keys, weights, 0, keys.length, commonPrefix(keys[0], keys[keys.length - 1]));
+            }
+            return new CompletionIndex(keys, texts, weights,
+                    Arrays.copyOf(nodes.keys, nodes.count),
+                    Arrays.copyOf(nodes.topStarts, nodes.count),
+                    Arrays.copyOf(nodes.topLengths, nodes.count),
+                    Arrays.copyOf(nodes.top, nodes.topSize));
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Nœuds en construction, numérotés dans l'ordre préfixe (donc par
+         * clé croissante) ; leurs meilleures entrées sont calculées au
+         * retour des enfants
+         */
+        private static final class Nodes {
+            private final long[] keys;
+            private final int[] topStarts;
+            private final int[] topLengths;
+            private int[] top;
+            private int count;
+            private int topSize;
+
+            Nodes(int capacity) {
+                keys = new long[capacity];
+                topStarts = new int[capacity];
+                topLengths = new int[capacity];
+                top = new int[Math.min(capacity * MAX_K, 1 << 16)];
+            }
+
+            /**
+             * Nœud des clés [lo, hi), de préfixe commun keys[lo][0, depth) :
+             * une éventuelle clé terminale (égale au préfixe, la première),
+             * puis un enfant par caractère suivant
+             *
+             * @return numéro du nœud
+             */
+            int build(String[] words, long[] weights, int lo, int hi, int depth) {
+                int node = count++;
+                keys[node] = nodeKey(lo, hi);
+
+                // Listes triées à fusionner : la clé terminale, puis les enfants
+                List<int[]> lists = new ArrayList<>();
+                int i = lo;
+                if (words[lo].length() == depth) {
+                    lists.add(new int[]{lo});
+                    i++;
+                }
+                while (i < hi) {
+                    char c = words[i].charAt(depth);
+                    int j = i + 1;
+                    while (j < hi && words[j].charAt(depth) == c) {
+                        j++;
+                    }
+                    int child = build(words, weights, i, j, commonPrefix(words[i], words[j - 1]));
+                    lists.add(Arrays.copyOfRange(top, topStarts[child], topStarts[child] + topLengths[child]));
+                    i = j;
+                }
+
+                // Fusion des MAX_K meilleures : poids décroissant, puis ordre des clés
+                int total = 0;
+                for (int[] list : lists) {
+                    total += list.length;
+                }
+                int length = Math.min(MAX_K, total);
+                if (topSize + length > top.length) {
+                    top = Arrays.copyOf(top, Math.max(top.length * 2, topSize + length));
+                }
+                int[] heads = new int[lists.size()];
+                for (int n = 0; n < length; n++) {
+                    int bestList = -1;
+                    int best = -1;
+                    for (int l = 0; l < lists.size(); l++) {
+                        if (heads[l] == lists.get(l).length) {
+                            continue;
+                        }
+                        int entry = lists.get(l)[heads[l]];
+                        if (best < 0 || weights[entry] > weights[best]
+                                || (weights[entry] == weights[best] && entry < best)) {
+                            best = entry;
+                            bestList = l;
+                        }
+                    }
+                    heads[bestList]++;
+                    top[topSize + n] = best;
+                }
+                topStarts[node] = topSize;
+                topLengths[node] = length;
+                topSize += length;
+                return node;
+            }
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+import org.emsi.dao.LomSummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Segment immuable de l'index, lu par projection mémoire (mmap)
+ *
+ * Le fichier (écrit par SegmentWriter) contient, pour des documents triés
+ * par identifiant de ressource :
+ * - les colonnes identifiant, date de création et difficulté
+ * - les champs stockés titre, mots-clés et description (UTF-8)
+ * - par champ texte : la longueur de chaque document, le dictionnaire trié
+ *   des termes et les postings (document, fréquence)
+ * - par facette : le dictionnaire trié des valeurs, le numéro de valeur de
+ *   chaque document (facettes mono-valuées) et l'ensemble des documents de
+ *   chaque valeur, en liste triée ou en liste à bits (voir DocSet)
+ *
+ * Rien n'est chargé dans le tas à l'ouverture, hormis l'en-tête, les
+ * valeurs des facettes mono-valuées et les bits des documents vivants :
+ * les données restent dans le cache de pages du système et sont lues à la
+ * demande (dichotomie dans les dictionnaires). Un fichier fait au plus
+ * 2 Go (taille d'un ByteBuffer).
+ */
+final class DiskSegment extends Segment {
+
+    static final int MAGIC = 0x4C4F4D53; // "LOMS"
+    static final int VERSION = 2;
+
+    // Emplacements de la table des sections de l'en-tête
+    static final int IDS = 0;
+    static final int CREATED = 1;
+    static final int DIFFICULTY = 2;
+    static final int STORED_OFFSETS = 3;
+    static final int STORED_DATA = 4;
+    static final int FIELD_LENGTHS = 5; // + ordinal du champ
+    static final int TERMS = 8; // + ordinal du champ
+    static final int POSTINGS = 11; // + ordinal du champ
+    static final int POSTINGS_STARTS = 14; // + ordinal du champ
+    static final int TOTAL_LENGTHS = 17;
+    static final int FACET_VALUES = 18; // + FACET_SECTIONS * ordinal de la facette
+    static final int FACET_ORDS = 19; // idem
+    static final int FACET_DOCS = 20; // idem
+    static final int FACET_STARTS = 21; // idem
+    static final int FACET_SECTIONS = 4;
+    static final int SECTIONS = FACET_VALUES + FACET_SECTIONS * Facet.values().length;
+
+    static final int HEADER_SIZE = 16 + 8 * SECTIONS;
+    static final int STORED_FIELDS = 3; // titre, mots-clés, description
+    static final byte NO_DIFFICULTY = Byte.MIN_VALUE;
+    static final long NO_DATE = Long.MIN_VALUE;
+
+    // Représentation d'un ensemble de documents de facette
+    static final int SORTED_DOCS = 0;
+    static final int BITMAP = 1;
+
+    private final String name;
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int docCount;
+    private final int[] sections = new int[SECTIONS];
+    private final ByteTable[] terms = new ByteTable[Field.values().length];
+    private final ByteTable[] facetValues = new ByteTable[Facet.values().length];
+    // Valeurs des facettes mono-valuées, par numéro (null pour TAG)
+    private final String[][] facetNames = new String[Facet.values().length][];
+    private final long[] totalLengths = new long[Field.values().length];
+
+    // Génération du fichier de suppressions commité (0 : aucun)
+    private int deleteGeneration;
+
+    private DiskSegment(String name, Path file, ByteBuffer buffer, BitSet live) {
+        super(live);
+        this.name = name;
+        this.file = file;
+        this.buffer = buffer;
+        this.docCount = buffer.getInt(8);
+        for (int i = 0; i < SECTIONS; i++) {
+            sections[i] = (int) buffer.getLong(16 + 8 * i);
+        }
+
+        for (Field field : Field.values()) {
+            terms[field.ordinal()] = new ByteTable(buffer, sections[TERMS + field.ordinal()]);
+            totalLengths[field.ordinal()] = buffer.getLong(sections[TOTAL_LENGTHS] + 8 * field.ordinal());
+        }
+        for (Facet facet : Facet.values()) {
+            ByteTable values = new ByteTable(buffer, sections[facetSection(FACET_VALUES, facet)]);
+            facetValues[facet.ordinal()] = values;
+            if (!facet.isMultiValued()) {
+                String[] names = new String[values.count];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = values.get(i);
+                }
+                facetNames[facet.ordinal()] = names;
+            }
+        }
+    }
+
+    /**
+     * Emplacement d'une section de facette dans l'en-tête
+     */
+    static int facetSection(int section, Facet facet) {
+        return section + FACET_SECTIONS * facet.ordinal();
+    }
+
+    /**
+     * Ouvrir un segment
+     *
+     * @param live documents vivants (null : tous)
+     */
+    static DiskSegment open(String name, Path file, BitSet live) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < HEADER_SIZE) {
+                throw new IOException("Segment invalide: " + file);
+            }
+            // Le mapping reste valide après la fermeture du canal
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Format de segment inconnu: " + file);
+            }
+            int docCount = buffer.getInt(8);
+            BitSet docs = live;
+            if (docs == null) {
+                docs = new BitSet(docCount);
+                docs.set(0, docCount);
+            }
+            return new DiskSegment(name, file, buffer, docs);
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int getDeleteGeneration() {
+        return deleteGeneration;
+    }
+
+    void setDeleteGeneration(int deleteGeneration) {
+        this.deleteGeneration = deleteGeneration;
+    }
+
+    /**
+     * Taille du fichier en octets
+     */
+    long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    @Override
+    int maxDoc() {
+        return docCount;
+    }
+
+    @Override
+    long resourceId(int doc) {
+        return buffer.getLong(sections[IDS] + 8 * doc);
+    }
+
+    @Override
+    int findDoc(long resourceId) {
+        int low = 0;
+        int high = docCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = resourceId(mid);
+            if (value < resourceId) {
+                low = mid + 1;
+            } else if (value > resourceId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    LomDocument document(int doc) {
+        return new LomDocument(resourceId(doc), title(doc), stored(doc, 1), stored(doc, 2),
+                language(doc), difficulty(doc), facetValue(Facet.INTERACTIVITY_TYPE, doc),
+                facetValue(Facet.LEARNING_RESOURCE_TYPE, doc), createdAt(doc));
+    }
+
+    @Override
+    LomSummary summary(int doc) {
+        return new LomSummary(resourceId(doc), title(doc), language(doc), difficulty(doc), createdAt(doc));
+    }
+
+    @Override
+    String language(int doc) {
+        return facetValue(Facet.LANGUAGE, doc);
+    }
+
+    /**
+     * Valeur d'une facette mono-valuée pour un document (null si absente)
+     */
+    private String facetValue(Facet facet, int doc) {
+        int ord = buffer.getInt(sections[facetSection(FACET_ORDS, facet)] + 4 * doc);
+        return ord >= 0 ? facetNames[facet.ordinal()][ord] : null;
+    }
+
+    @Override
+    Integer difficulty(int doc) {
+        byte value = buffer.get(sections[DIFFICULTY] + doc);
+        return value != NO_DIFFICULTY ? Integer.valueOf(value) : null;
+    }
+
+    @Override
+    String title(int doc) {
+        return stored(doc, 0);
+    }
+
+    @Override
+    Date createdAt(int doc) {
+        long value = buffer.getLong(sections[CREATED] + 8 * doc);
+        return value != NO_DATE ? new Date(value) : null;
+    }
+
+    private String stored(int doc, int field) {
+        int index = doc * STORED_FIELDS + field;
+        int start = buffer.getInt(sections[STORED_OFFSETS] + 4 * index);
+        int end = buffer.getInt(sections[STORED_OFFSETS] + 4 * (index + 1));
+        if (end == start) {
+            return null;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(sections[STORED_DATA] + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    PostingsList postings(Field field, String term) {
+        int index = terms[field.ordinal()].find(term);
+        if (index < 0) {
+            return null;
+        }
+        return postingsAt(sections[POSTINGS + field.ordinal()], sections[POSTINGS_STARTS + field.ordinal()], index);
+    }
+
+    @Override
+    Iterable<String> terms(Field field) {
+        return terms[field.ordinal()];
+    }
+
+    @Override
+    int termCount(Field field) {
+        return terms[field.ordinal()].size();
+    }
+
+    @Override
+    String term(Field field, int ord) {
+        return terms[field.ordinal()].get(ord);
+    }
+
+    @Override
+    int fieldLength(Field field, int doc) {
+        return buffer.getInt(sections[FIELD_LENGTHS + field.ordinal()] + 4 * doc);
+    }
+
+    @Override
+    long totalFieldLength(Field field) {
+        return totalLengths[field.ordinal()];
+    }
+
+    @Override
+    DocSet facetDocs(Facet facet, String value) {
+        int index = facetValues[facet.ordinal()].find(value);
+        if (index < 0) {
+            return null;
+        }
+        int starts = sections[facetSection(FACET_STARTS, facet)];
+        int position = sections[facetSection(FACET_DOCS, facet)] + buffer.getInt(starts + 4 * index);
+        int cardinality = buffer.getInt(position);
+        if (buffer.getInt(position + 4) == BITMAP) {
+            return new MappedBitmap(buffer, position + 8, cardinality, (docCount + 63) / 64);
+        }
+        return new MappedDocs(buffer, position + 8, cardinality);
+    }
+
+    @Override
+    Iterable<String> facetValues(Facet facet) {
+        return facetValues[facet.ordinal()];
+    }
+
+    private PostingsList postingsAt(int data, int starts, int index) {
+        int start = buffer.getInt(starts + 4 * index);
+        int end = buffer.getInt(starts + 4 * (index + 1));
+        return new MappedPostings(buffer, data + 8 * start, end - start);
+    }
+
+    /**
+     * Postings lues directement dans le fichier projeté
+     */
+    private static final class MappedPostings implements PostingsList {
+        private final ByteBuffer buffer;
+        private final int position;
+        private final int size;
+
+        MappedPostings(ByteBuffer buffer, int position, int size) {
+            this.buffer = buffer;
+            this.position = position;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int doc(int index) {
+            return buffer.getInt(position + 8 * index);
+        }
+
+        @Override
+        public int freq(int index) {
+            return buffer.getInt(position + 8 * index + 4);
+        }
+    }
+
+    /**
+     * Ensemble creux de documents : numéros triés
+     */
+    private static final class MappedDocs implements DocSet {
+        private final ByteBuffer buffer;
+        private final int position;
+        private final int size;
+
+        MappedDocs(ByteBuffer buffer, int position, int size) {
+            this.buffer = buffer;
+            this.position = position;
+            this.size = size;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(int doc) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int value = buffer.getInt(position + 4 * mid);
+                if (value < doc) {
+                    low = mid + 1;
+                } else if (value > doc) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void addTo(BitSet bits, int base) {
+            for (int i = 0; i < size; i++) {
+                bits.set(base + buffer.getInt(position + 4 * i));
+            }
+        }
+
+        @Override
+        public int intersectionCount(long[] words) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = buffer.getInt(position + 4 * i);
+                int word = doc >>> 6;
+                if (word >= words.length) {
+                    break;
+                }
+                if ((words[word] & (1L << doc)) != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Ensemble dense de documents : liste à bits (mots de 64 bits, bit de
+     * poids faible = plus petit document, comme BitSet)
+     */
+    private static final class MappedBitmap implements DocSet {
+        private final ByteBuffer buffer;
+        private final int position;
+        private final int cardinality;
+        private final int wordCount;
+
+        MappedBitmap(ByteBuffer buffer, int position, int cardinality, int wordCount) {
+            this.buffer = buffer;
+            this.position = position;
+            this.cardinality = cardinality;
+            this.wordCount = wordCount;
+        }
+
+        private long word(int index) {
+            return buffer.getLong(position + 8 * index);
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public boolean contains(int doc) {
+            int index = doc >>> 6;
+            return index < wordCount && (word(index) & (1L << doc)) != 0;
+        }
+
+        @Override
+        public void addTo(BitSet bits, int base) {
+            for (int i = 0; i < wordCount; i++) {
+                long word = word(i);
+                while (word != 0) {
+                    bits.set(base + 64 * i + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        public int intersectionCount(long[] words) {
+            int count = 0;
+            for (int i = 0; i < Math.min(wordCount, words.length); i++) {
+                count += Long.bitCount(word(i) & words[i]);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Dictionnaire trié de chaînes UTF-8 (ordre des octets non signés) :
+     * nombre d'entrées, décalages de fin, octets
+     */
+    static final class ByteTable implements Iterable<String> {
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int offsets;
+        private final int data;
+
+        ByteTable(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.count = buffer.getInt(position);
+            this.offsets = position + 4;
+            this.data = offsets + 4 * (count + 1);
+        }
+
+        int size() {
+            return count;
+        }
+
+        String get(int index) {
+            int start = buffer.getInt(offsets + 4 * index);
+            int end = buffer.getInt(offsets + 4 * (index + 1));
+            byte[] bytes = new byte[end - start];
+            buffer.get(data + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Position d'une chaîne (dichotomie), -1 si absente
+         */
+        int find(String value) {
+            byte[] key = value.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(mid, key);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int index, byte[] key) {
+            int start = data + buffer.getInt(offsets + 4 * index);
+            int length = data + buffer.getInt(offsets + 4 * (index + 1)) - start;
+            int common = Math.min(length, key.length);
+            for (int i = 0; i < common; i++) {
+                int cmp = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(length, key.length);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < count;
+                }
+
+                @Override
+                public String next() {
+                    if (next >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(next++);
+                }
+            };
+        }
+    }
+}
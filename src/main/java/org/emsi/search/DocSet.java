@@ -0,0 +1,34 @@
+package org.emsi.search;
+
+import java.util.BitSet;
+
+/**
+ * Ensemble de documents d'une valeur de facette, en lecture
+ *
+ * Sur disque, chaque ensemble est stocké dans la plus compacte de deux
+ * représentations (comme les conteneurs Roaring) : une liste triée de
+ * numéros (4 octets par document) s'il est creux, une liste à bits
+ * (maxDoc / 8 octets) s'il porte plus d'un document sur 32.
+ *
+ * Implémenté en mémoire (MemorySegment) et sur disque (DiskSegment).
+ */
+interface DocSet {
+
+    /**
+     * Nombre de documents (supprimés compris)
+     */
+    int cardinality();
+
+    boolean contains(int doc);
+
+    /**
+     * Ajouter les documents à la liste à bits, décalés de base (union)
+     */
+    void addTo(BitSet bits, int base);
+
+    /**
+     * Nombre de documents de l'ensemble présents dans la liste à bits
+     * donnée par ses mots (BitSet.toLongArray)
+     */
+    int intersectionCount(long[] words);
+}
@@ -0,0 +1,41 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+
+/**
+ * Facettes de filtrage de l'index de recherche
+ *
+ * Chaque segment garde, pour chaque valeur d'une facette, l'ensemble
+ * compressé (DocSet) des documents qui la portent : les filtres de la
+ * recherche avancée deviennent des unions (valeurs d'une même facette)
+ * et des intersections (facettes différentes) de ces ensembles, et les
+ * compteurs affichés par le dialogue sont calculés sur les mêmes
+ * ensembles.
+ *
+ * Toutes les facettes sont mono-valuées, sauf TAG.
+ */
+public enum Facet {
+    LANGUAGE,
+    DIFFICULTY,
+    INTERACTIVITY_TYPE,
+    LEARNING_RESOURCE_TYPE,
+    TAG;
+
+    boolean isMultiValued() {
+        return this == TAG;
+    }
+
+    /**
+     * Valeur d'un document pour une facette mono-valuée (null si absente)
+     */
+    String valueOf(LomDocument document) {
+        String value = switch (this) {
+            case LANGUAGE -> document.language();
+            case DIFFICULTY -> document.difficulty() != null ? document.difficulty().toString() : null;
+            case INTERACTIVITY_TYPE -> document.interactivityType();
+            case LEARNING_RESOURCE_TYPE -> document.learningResourceType();
+            case TAG -> throw new IllegalStateException("Facette multi-valuée: " + this);
+        };
+        return value != null && !value.isEmpty() ? value : null;
+    }
+}
@@ -0,0 +1,40 @@
+package org.emsi.search;
+
+import java.util.Map;
+
+/**
+ * Compteurs de facettes d'une recherche : pour chaque facette, le nombre
+ * de résultats par valeur (valeurs absentes : 0)
+ *
+ * Les compteurs d'une facette ignorent le filtre posé sur cette même
+ * facette (mais pas les autres) : ils indiquent combien de résultats
+ * donnerait la sélection de chaque valeur.
+ */
+public record FacetCounts(Map<Facet, Map<String, Integer>> counts) {
+
+    public FacetCounts {
+        counts = Map.copyOf(counts);
+    }
+
+    /**
+     * Aucun compteur (index pas encore prêt)
+     */
+    public static FacetCounts empty() {
+        return new FacetCounts(Map.of());
+    }
+
+    public boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    /**
+     * Compteurs d'une facette, par valeur (valeurs croissantes)
+     */
+    public Map<String, Integer> get(Facet facet) {
+        return counts.getOrDefault(facet, Map.of());
+    }
+
+    public int count(Facet facet, String value) {
+        return get(facet).getOrDefault(value, 0);
+    }
+}
@@ -0,0 +1,154 @@
+package org.emsi.search;
+
+import java.util.Map;
+
+/**
+ * Recherche tolérante aux fautes de frappe : termes d'un dictionnaire à
+ * distance d'édition bornée d'un terme de requête
+ *
+ * Distance de Damerau-Levenshtein restreinte : insertion, suppression,
+ * substitution et inversion de deux lettres voisines ("algorithem" ->
+ * "algorithme") comptent chacune pour une édition. Le nombre d'éditions
+ * tolérées dépend de la longueur du terme (maxEdits).
+ *
+ * Le dictionnaire trié d'un segment est parcouru comme un arbre des
+ * préfixes : une ligne de la matrice de distance par caractère, partagée
+ * par tous les termes de même préfixe. Dès qu'une ligne dépasse la
+ * distance tolérée, aucun terme de ce préfixe ne peut convenir et ils
+ * sont tous sautés d'un coup (recherche galopante). Seule une petite
+ * partie du dictionnaire est lue, sans structure supplémentaire.
+ */
+final class FuzzyTerms {
+
+    /**
+     * Variantes retenues au plus par terme de requête (les plus proches)
+     */
+    static final int MAX_EXPANSIONS = 32;
+
+    private FuzzyTerms() {
+    }
+
+    /**
+     * Éditions tolérées : aucune pour les termes courts ou contenant des
+     * chiffres (années, versions), une jusqu'à 7 lettres, deux au-delà
+     */
+    static int maxEdits(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.isDigit(term.charAt(i))) {
+                return 0;
+            }
+        }
+        if (term.length() < 4) {
+            return 0;
+        }
+        return term.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Poids d'une variante dans le score : 1 pour le terme exact, moindre
+     * à chaque édition, pour que les correspondances exactes passent devant
+     */
+    static float weight(int edits) {
+        return 1f / (1 + edits);
+    }
+
+    /**
+     * Ajouter les termes du champ à au plus maxEdits éditions du terme
+     * (avec leur distance, la plus petite si déjà présents)
+     */
+    static void collect(Segment segment, Segment.Field field, String query, int maxEdits,
+                        Map<String, Integer> matches) {
+        int count = segment.termCount(field);
+        int m = query.length();
+        // Un terme plus long que m + maxEdits est toujours trop loin
+        int[][] rows = new int[m + maxEdits + 2][m + 1];
+        for (int j = 0; j <= m; j++) {
+            rows[0][j] = j;
+        }
+
+        String previous = "";
+        int valid = 0; // lignes 0..valid calculées pour le préfixe de previous
+        int ord = 0;
+        while (ord < count) {
+            String term = segment.term(field, ord);
+            int depth = Math.min(valid, commonPrefix(previous, term));
+            int pruned = -1;
+            for (int k = depth + 1; k <= term.length(); k++) {
+                if (k >= rows.length || !computeRow(rows, k, term, query, maxEdits)) {
+                    pruned = k;
+                    break;
+                }
+            }
+            previous = term;
+            if (pruned >= 0) {
+                // Aucun terme de préfixe term[0, pruned) ne convient
+                valid = pruned - 1;
+                ord = skip(segment, field, term.substring(0, pruned), ord + 1, count);
+                continue;
+            }
+            valid = term.length();
+            int distance = rows[term.length()][m];
+            if (distance <= maxEdits) {
+                matches.merge(term, distance, Math::min);
+            }
+            ord++;
+        }
+    }
+
+    /**
+     * Calculer la ligne k (préfixe term[0, k)) à partir des précédentes
+     *
+     * @return false si toute la ligne dépasse maxEdits
+     */
+    private static boolean computeRow(int[][] rows, int k, String term, String query, int maxEdits) {
+        int[] row = rows[k];
+        int[] above = rows[k - 1];
+        char c = term.charAt(k - 1);
+        row[0] = k;
+        int min = k;
+        for (int j = 1; j < row.length; j++) {
+            int cost = query.charAt(j - 1) == c ? 0 : 1;
+            int distance = Math.min(Math.min(above[j] + 1, row[j - 1] + 1), above[j - 1] + cost);
+            if (k > 1 && j > 1 && c == query.charAt(j - 2) && term.charAt(k - 2) == query.charAt(j - 1)) {
+                distance = Math.min(distance, rows[k - 2][j - 2] + 1);
+            }
+            row[j] = distance;
+            min = Math.min(min, distance);
+        }
+        return min <= maxEdits;
+    }
+
+    /**
+     * Premier rang après from dont le terme ne commence pas par le préfixe
+     * (recherche galopante : les sauts sont le plus souvent courts)
+     */
+    private static int skip(Segment segment, Segment.Field field, String prefix, int from, int count) {
+        int low = from;
+        int step = 1;
+        while (low < count && segment.term(field, low).startsWith(prefix)) {
+            low = from + step;
+            step <<= 1;
+        }
+        // Le premier terme hors préfixe est dans (from + step / 4, low]
+        int high = Math.min(low, count);
+        low = Math.max(from, from + (step >> 2));
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (segment.term(field, mid).startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,239 @@
+package org.emsi.search;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Répertoire de l'index sur disque
+ *
+ * - {nom}.seg           : segment (DiskSegment), jamais modifié
+ * - {nom}_{gen}.del     : documents supprimés d'un segment, génération gen
+ * - segments            : manifeste du dernier commit
+ *
+ * Le manifeste liste les segments et la génération de leurs suppressions ;
+ * il est écrit dans un fichier temporaire puis renommé atomiquement, de
+ * sorte qu'un arrêt brutal laisse toujours le commit précédent intact.
+ * Les fichiers qui ne sont plus référencés sont supprimés après chaque
+ * commit (ou au suivant s'ils sont encore projetés en mémoire, sous
+ * Windows).
+ *
+ * Répertoire : propriété système lom.index.dir (défaut ~/.lom-index).
+ * Utilisé par le seul thread d'écriture de SearchIndex.
+ */
+final class IndexDirectory {
+
+    private static final String MANIFEST = "segments";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String DELETES_SUFFIX = ".del";
+
+    /**
+     * Segment référencé par le manifeste
+     */
+    record Entry(String name, int deleteGeneration) {
+    }
+
+    /**
+     * Contenu du manifeste
+     */
+    record Commit(long generation, long timestamp, List<Entry> segments) {
+    }
+
+    private final Path root;
+    private long generation;
+    private int nextSegment;
+
+    // Noms alloués mais pas encore commités (protégés du nettoyage)
+    private final Set<String> inFlight = new HashSet<>();
+
+    private IndexDirectory(Path root) {
+        this.root = root;
+    }
+
+    static IndexDirectory open() throws IOException {
+        String dir = System.getProperty("lom.index.dir",
+                Paths.get(System.getProperty("user.home"), ".lom-index").toString());
+        Path root = Paths.get(dir);
+        Files.createDirectories(root);
+        return new IndexDirectory(root);
+    }
+
+    /**
+     * Lire le dernier commit (null si l'index n'a jamais été écrit)
+     */
+    Commit readCommit() throws IOException {
+        Path manifest = root.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return null;
+        }
+        long readGeneration = 0;
+        long timestamp = 0;
+        List<Entry> segments = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                switch (parts[0]) {
+                    case "generation" -> readGeneration = Long.parseLong(parts[1]);
+                    case "timestamp" -> timestamp = Long.parseLong(parts[1]);
+                    case "next" -> nextSegment = Integer.parseInt(parts[1]);
+                    case "segment" -> segments.add(new Entry(parts[1], Integer.parseInt(parts[2])));
+                    default -> {
+                        // ligne vide ou inconnue
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Manifeste de l'index illisible", e);
+        }
+        generation = readGeneration;
+        return new Commit(readGeneration, timestamp, segments);
+    }
+
+    /**
+     * Allouer le nom d'un nouveau segment
+     */
+    synchronized String newSegmentName() {
+        String name = "_" + Integer.toString(nextSegment++, Character.MAX_RADIX);
+        inFlight.add(name);
+        return name;
+    }
+
+    /**
+     * Abandonner un segment alloué (écriture échouée ou obsolète)
+     */
+    synchronized void discard(String name) {
+        inFlight.remove(name);
+        deleteQuietly(segmentFile(name));
+    }
+
+    Path segmentFile(String name) {
+        return root.resolve(name + SEGMENT_SUFFIX);
+    }
+
+    private Path deletesFile(String name, int deleteGeneration) {
+        return root.resolve(name + "_" + deleteGeneration + DELETES_SUFFIX);
+    }
+
+    /**
+     * Documents vivants d'un segment au commit lu (null : aucun supprimé)
+     */
+    BitSet readLive(Entry entry, int maxDoc) throws IOException {
+        if (entry.deleteGeneration() == 0) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(deletesFile(entry.name(), entry.deleteGeneration()));
+             DataInputStream data = new DataInputStream(in)) {
+            long[] words = new long[data.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = data.readLong();
+            }
+            BitSet live = BitSet.valueOf(words);
+            live.flip(0, maxDoc);
+            return live;
+        }
+    }
+
+    /**
+     * Écrire les suppressions d'un segment dans une nouvelle génération
+     *
+     * @param live instantané des documents vivants du segment
+     * @return numéro de la génération écrite
+     */
+    int writeDeletes(String name, BitSet live, int maxDoc, int previousGeneration) throws IOException {
+        BitSet deleted = (BitSet) live.clone();
+        deleted.flip(0, maxDoc);
+        long[] words = deleted.toLongArray();
+        int next = previousGeneration + 1;
+        try (OutputStream out = Files.newOutputStream(deletesFile(name, next));
+             DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(words.length);
+            for (long word : words) {
+                data.writeLong(word);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Publier un commit puis supprimer les fichiers qui n'en font plus
+     * partie
+     */
+    synchronized void commit(List<Entry> segments, long timestamp) throws IOException {
+        generation++;
+        Path tmp = root.resolve(MANIFEST + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write("generation " + generation + "\n");
+            writer.write("timestamp " + timestamp + "\n");
+            writer.write("next " + nextSegment + "\n");
+            for (Entry entry : segments) {
+                writer.write("segment " + entry.name() + " " + entry.deleteGeneration() + "\n");
+            }
+        }
+        Files.move(tmp, root.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Set<String> referenced = new HashSet<>();
+        for (Entry entry : segments) {
+            inFlight.remove(entry.name());
+            referenced.add(entry.name() + SEGMENT_SUFFIX);
+            if (entry.deleteGeneration() > 0) {
+                referenced.add(entry.name() + "_" + entry.deleteGeneration() + DELETES_SUFFIX);
+            }
+        }
+        removeUnreferenced(referenced);
+    }
+
+    private void removeUnreferenced(Set<String> referenced) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "_*")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (referenced.contains(fileName) || isInFlight(fileName)) {
+                    continue;
+                }
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Nettoyage de l'index impossible: " + e.getMessage());
+        }
+    }
+
+    private boolean isInFlight(String fileName) {
+        for (String name : inFlight) {
+            if (fileName.startsWith(name + ".") || fileName.startsWith(name + "_")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Encore projeté en mémoire : supprimé au prochain commit
+        }
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+}
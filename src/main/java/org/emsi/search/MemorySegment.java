@@ -0,0 +1,251 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Segment en mémoire des changements récents (segment delta)
+ *
+ * Reçoit les ressources créées ou modifiées depuis la dernière écriture
+ * sur disque ; SearchIndex l'écrit en DiskSegment quand il atteint sa
+ * taille limite ou à l'intervalle de rafraîchissement. Les documents sont
+ * numérotés dans l'ordre d'ajout ; une réindexation ajoute un nouveau
+ * document et marque l'ancien supprimé.
+ *
+ * Non thread-safe : SearchIndex sérialise les accès.
+ */
+final class MemorySegment extends Segment {
+
+    private record Doc(LomDocument document, Set<String> tags) {
+    }
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Integer> docIds = new HashMap<>();
+    private final Map<Field, Map<String, Postings>> postings = new EnumMap<>(Field.class);
+    private final Map<Facet, Map<String, BitSetDocs>> facets = new EnumMap<>(Facet.class);
+
+    // Longueur (en termes) de chaque champ par document
+    private final int[][] lengths = new int[Field.values().length][16];
+    private final long[] totalLengths = new long[Field.values().length];
+
+    // Termes triés de chaque champ, recalculés après un ajout
+    private final String[][] sortedTerms = new String[Field.values().length][];
+
+    MemorySegment() {
+        super(new BitSet());
+        for (Field field : Field.values()) {
+            postings.put(field, new HashMap<>());
+        }
+        for (Facet facet : Facet.values()) {
+            facets.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * Ajouter une ressource (la version précédente doit avoir été
+     * supprimée par l'appelant)
+     */
+    void add(LomDocument document, Set<String> tags) {
+        Integer previous = docIds.get(document.id());
+        if (previous != null) {
+            delete(previous);
+        }
+
+        int doc = docs.size();
+        Set<String> docTags = tags != null ? Set.copyOf(tags) : Set.of();
+        docs.add(new Doc(document, docTags));
+        live.set(doc);
+        docIds.put(document.id(), doc);
+
+        indexField(Field.TITLE, doc, document.title());
+        indexField(Field.KEYWORD, doc, document.keyword());
+        indexField(Field.DESCRIPTION, doc, document.description());
+        for (Facet facet : Facet.values()) {
+            if (facet.isMultiValued()) {
+                for (String tag : docTags) {
+                    indexFacet(facet, doc, tag);
+                }
+            } else {
+                indexFacet(facet, doc, facet.valueOf(document));
+            }
+        }
+    }
+
+    private void indexFacet(Facet facet, int doc, String value) {
+        if (value != null) {
+            facets.get(facet).computeIfAbsent(value, v -> new BitSetDocs()).bits.set(doc);
+        }
+    }
+
+    private void indexField(Field field, int doc, String text) {
+        List<String> analyzed = Analyzer.analyze(text);
+        int[] fieldLengths = lengths[field.ordinal()];
+        if (doc >= fieldLengths.length) {
+            fieldLengths = Arrays.copyOf(fieldLengths, Math.max(doc + 1, fieldLengths.length * 2));
+            lengths[field.ordinal()] = fieldLengths;
+        }
+        fieldLengths[doc] = analyzed.size();
+        totalLengths[field.ordinal()] += analyzed.size();
+
+        Map<String, Integer> freqs = new HashMap<>();
+        for (String term : analyzed) {
+            freqs.merge(term, 1, Integer::sum);
+        }
+        Map<String, Postings> terms = postings.get(field);
+        sortedTerms[field.ordinal()] = null;
+        freqs.forEach((term, freq) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, freq));
+    }
+
+    @Override
+    int maxDoc() {
+        return docs.size();
+    }
+
+    @Override
+    long resourceId(int doc) {
+        return docs.get(doc).document().id();
+    }
+
+    @Override
+    int findDoc(long resourceId) {
+        Integer doc = docIds.get(resourceId);
+        return doc != null ? doc : -1;
+    }
+
+    @Override
+    LomDocument document(int doc) {
+        return docs.get(doc).document();
+    }
+
+    @Override
+    String language(int doc) {
+        return document(doc).language();
+    }
+
+    @Override
+    Integer difficulty(int doc) {
+        return document(doc).difficulty();
+    }
+
+    @Override
+    String title(int doc) {
+        return document(doc).title();
+    }
+
+    @Override
+    Date createdAt(int doc) {
+        return document(doc).createdAt();
+    }
+
+    @Override
+    PostingsList postings(Field field, String term) {
+        return postings.get(field).get(term);
+    }
+
+    @Override
+    Iterable<String> terms(Field field) {
+        return Arrays.asList(sortedTerms(field));
+    }
+
+    @Override
+    int termCount(Field field) {
+        return postings.get(field).size();
+    }
+
+    @Override
+    String term(Field field, int ord) {
+        return sortedTerms(field)[ord];
+    }
+
+    private String[] sortedTerms(Field field) {
+        String[] terms = sortedTerms[field.ordinal()];
+        if (terms == null) {
+            terms = postings.get(field).keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            sortedTerms[field.ordinal()] = terms;
+        }
+        return terms;
+    }
+
+    @Override
+    int fieldLength(Field field, int doc) {
+        int[] fieldLengths = lengths[field.ordinal()];
+        return doc < fieldLengths.length ? fieldLengths[doc] : 0;
+    }
+
+    @Override
+    long totalFieldLength(Field field) {
+        return totalLengths[field.ordinal()];
+    }
+
+    @Override
+    DocSet facetDocs(Facet facet, String value) {
+        return facets.get(facet).get(value);
+    }
+
+    @Override
+    Iterable<String> facetValues(Facet facet) {
+        return new TreeSet<>(facets.get(facet).keySet());
+    }
+
+    @Override
+    Set<String> tags(int doc) {
+        return docs.get(doc).tags();
+    }
+
+    /**
+     * Nombre de termes distincts (tous champs)
+     */
+    int termCount() {
+        int count = 0;
+        for (Map<String, Postings> terms : postings.values()) {
+            count += terms.size();
+        }
+        return count;
+    }
+
+    /**
+     * Documents d'une valeur de facette : liste à bits (le segment en
+     * mémoire reste petit)
+     */
+    private static final class BitSetDocs implements DocSet {
+        private final BitSet bits = new BitSet();
+
+        @Override
+        public int cardinality() {
+            return bits.cardinality();
+        }
+
+        @Override
+        public boolean contains(int doc) {
+            return bits.get(doc);
+        }
+
+        @Override
+        public void addTo(BitSet target, int base) {
+            for (int doc = bits.nextSetBit(0); doc >= 0; doc = bits.nextSetBit(doc + 1)) {
+                target.set(base + doc);
+            }
+        }
+
+        @Override
+        public int intersectionCount(long[] words) {
+            long[] own = bits.toLongArray();
+            int count = 0;
+            for (int i = 0; i < Math.min(own.length, words.length); i++) {
+                count += Long.bitCount(own[i] & words[i]);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.emsi.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Choix des segments à fusionner
+ *
+ * - un segment dont plus de 30 % des documents sont supprimés est réécrit
+ *   seul (purge des documents morts)
+ * - les segments sont groupés par ordre de grandeur (log10 du nombre de
+ *   documents) ; dès qu'un niveau compte MERGE_FACTOR segments, ils sont
+ *   fusionnés en un segment du niveau supérieur
+ *
+ * Chaque document est ainsi recopié O(log n) fois et le nombre de segments
+ * reste de l'ordre de MERGE_FACTOR par niveau. Une fusion ne dépasse pas
+ * MAX_MERGED_BYTES (un segment doit rester projetable en mémoire).
+ */
+final class MergePolicy {
+
+    static final int MERGE_FACTOR = 10;
+    static final double MAX_DELETED_RATIO = 0.3;
+    static final long MAX_MERGED_BYTES = 1L << 30;
+
+    private MergePolicy() {
+    }
+
+    /**
+     * Segments à fusionner ensemble (vide : rien à faire)
+     */
+    static List<DiskSegment> findMerge(List<DiskSegment> segments) {
+        for (DiskSegment segment : segments) {
+            int maxDoc = segment.maxDoc();
+            if (maxDoc > 0 && (maxDoc - segment.liveCount()) > MAX_DELETED_RATIO * maxDoc) {
+                return List.of(segment);
+            }
+        }
+
+        List<DiskSegment> sorted = new ArrayList<>(segments);
+        sorted.sort(Comparator.comparingInt(DiskSegment::liveCount));
+        int start = 0;
+        while (start < sorted.size()) {
+            int level = level(sorted.get(start));
+            int end = start;
+            while (end < sorted.size() && level(sorted.get(end)) == level) {
+                end++;
+            }
+            if (end - start >= MERGE_FACTOR) {
+                List<DiskSegment> merge = new ArrayList<>();
+                long bytes = 0;
+                for (int i = start; i < start + MERGE_FACTOR; i++) {
+                    bytes += sorted.get(i).sizeInBytes();
+                    if (bytes > MAX_MERGED_BYTES) {
+                        break;
+                    }
+                    merge.add(sorted.get(i));
+                }
+                if (merge.size() > 1) {
+                    return merge;
+                }
+            }
+            start = end;
+        }
+        return List.of();
+    }
+
+    private static int level(DiskSegment segment) {
+        return (int) Math.log10(Math.max(1, segment.liveCount()));
+    }
+}
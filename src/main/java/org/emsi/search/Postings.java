@@ -0,0 +1,46 @@
+package org.emsi.search;
+
+import java.util.Arrays;
+
+/**
+ * Liste de postings en mémoire d'un terme : documents (croissants) et
+ * fréquence du terme dans chacun
+ *
+ * Tableaux primitifs extensibles : 8 octets par occurrence, sans objet par
+ * posting.
+ */
+final class Postings implements PostingsList {
+
+    private int[] docs = new int[4];
+    private int[] freqs = new int[4];
+    private int size;
+
+    /**
+     * Ajouter un document (identifiant supérieur aux précédents)
+     */
+    void add(int doc, int freq) {
+        if (size == docs.length) {
+            int capacity = size + (size >> 1) + 1;
+            docs = Arrays.copyOf(docs, capacity);
+            freqs = Arrays.copyOf(freqs, capacity);
+        }
+        docs[size] = doc;
+        freqs[size] = freq;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int doc(int index) {
+        return docs[index];
+    }
+
+    @Override
+    public int freq(int index) {
+        return freqs[index];
+    }
+}
@@ -0,0 +1,46 @@
+package org.emsi.search;
+
+import java.util.BitSet;
+
+/**
+ * Liste de postings en lecture : documents croissants et fréquences
+ *
+ * Implémentée en mémoire (Postings) et sur disque (DiskSegment).
+ */
+interface PostingsList {
+
+    int size();
+
+    int doc(int index);
+
+    int freq(int index);
+
+    /**
+     * Ajouter les documents à la liste à bits, décalés de base
+     */
+    default void addTo(BitSet bits, int base) {
+        for (int i = 0; i < size(); i++) {
+            bits.set(base + doc(i));
+        }
+    }
+
+    /**
+     * Indique si la liste contient le document (recherche dichotomique)
+     */
+    default boolean contains(int doc) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = doc(mid);
+            if (value < doc) {
+                low = mid + 1;
+            } else if (value > doc) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
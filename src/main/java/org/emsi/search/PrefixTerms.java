@@ -0,0 +1,67 @@
+package org.emsi.search;
+
+import java.util.Set;
+
+/**
+ * Recherche sur des mots commencés : termes d'un dictionnaire qui
+ * prolongent un terme de requête ("progr" -> "programmation")
+ *
+ * Le dictionnaire d'un segment étant trié, les termes d'un même préfixe
+ * sont contigus : une recherche dichotomique donne le premier, la lecture
+ * s'arrête au premier terme qui ne commence plus par le préfixe.
+ */
+final class PrefixTerms {
+
+    /**
+     * Longueur minimale d'un préfixe complété (les plus courts
+     * correspondraient à une grande partie du dictionnaire)
+     */
+    static final int MIN_LENGTH = 3;
+
+    /**
+     * Complétions retenues au plus par terme de requête (les plus courtes)
+     */
+    static final int MAX_EXPANSIONS = 32;
+
+    /**
+     * Poids d'une complétion dans le score (1 pour le terme exact)
+     */
+    static final float WEIGHT = 0.5f;
+
+    private PrefixTerms() {
+    }
+
+    /**
+     * Ajouter les termes du champ qui commencent par prefix (prefix
+     * lui-même exclu)
+     */
+    static void collect(Segment segment, Segment.Field field, String prefix, Set<String> completions) {
+        int count = segment.termCount(field);
+        for (int ord = lowerBound(segment, field, prefix, count); ord < count; ord++) {
+            String term = segment.term(field, ord);
+            if (!term.startsWith(prefix)) {
+                break;
+            }
+            if (term.length() > prefix.length()) {
+                completions.add(term);
+            }
+        }
+    }
+
+    /**
+     * Premier rang dont le terme est supérieur ou égal à prefix
+     */
+    private static int lowerBound(Segment segment, Segment.Field field, String prefix, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (segment.term(field, mid).compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,15 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomSummary;
+
+import java.util.List;
+
+/**
+ * Meilleurs résultats d'une recherche classée par pertinence
+ *
+ * @param top       les k meilleurs résultats, du plus pertinent au moins
+ *                  pertinent
+ * @param totalHits nombre total de ressources correspondant à la requête
+ */
+public record SearchHits(List<LomSummary> top, int totalHits) {
+}
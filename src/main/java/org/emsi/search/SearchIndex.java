@@ -0,0 +1,1260 @@
+package org.emsi.search;
+
+import org.emsi.dao.EntityChange;
+import org.emsi.dao.EntityChangeListener;
+import org.emsi.dao.LomDocument;
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+import org.emsi.dao.Page;
+import org.emsi.dao.ReadRouter;
+import org.emsi.dao.TagDao;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Index de recherche plein texte des ressources LOM
+ *
+ * L'index est persistant : des segments immuables sur disque, projetés en
+ * mémoire (DiskSegment), plus un segment en mémoire pour les changements
+ * récents (MemorySegment). Au démarrage (AppBootstrap), open() projette
+ * les segments du dernier commit, ce qui rend l'index utilisable presque
+ * immédiatement, puis le réconcilie en arrière-plan avec la base
+ * (ressources modifiées, retaguées, ajoutées ou supprimées pendant
+ * l'arrêt, datées ou non). Sans index sur
+ * disque (premier lancement, fichier illisible), l'index est reconstruit
+ * par un parcours en flux du catalogue.
+ *
+ * Tenu à jour sans réindexation complète : EntityChangeListener publie
+ * les modifications validées de LomSchema, General, Educational et Tag,
+ * mises en file par l'index. Un thread d'écriture unique (Index-Writer)
+ * vide cette file par micro-lots à chaque intervalle de rafraîchissement :
+ * les ressources concernées sont relues en base (une requête par lot) et
+ * leur version indexée, marquée supprimée dans son segment, est remplacée
+ * par la nouvelle dans le segment en mémoire, interrogeable aussitôt. Ce
+ * même thread écrit le segment en mémoire sur disque quand il atteint
+ * FLUSH_DOCS documents ou à chaque intervalle d'écriture, fusionne les
+ * segments selon MergePolicy, puis publie un commit (IndexDirectory).
+ *
+ * Les recherches sont résolues en mémoire sur l'ensemble des segments
+ * (SegmentedIndex), sans requête SQL : le texte par les postings, les
+ * filtres par unions et intersections des ensembles de documents de
+ * chaque valeur de facette (Facet), qui donnent aussi les compteurs de
+ * facets() ; rank() classe par pertinence (Bm25) et sorted() rend une
+ * page triée par clé (sélection bornée, reprise après un curseur). Une
+ * requête tolérante (SearchQuery.fuzzy) étend chaque terme aux termes
+ * indexés proches (FuzzyTerms), pondérés sous le terme exact. Tant que
+ * l'index n'est pas prêt (ou si la requête ne contient que des mots
+ * vides), SearchService interroge la base.
+ *
+ * Lectures concurrentes, modifications exclusives (ReadWriteLock), toutes
+ * faites par le thread d'écriture ; l'écriture des fichiers (segments,
+ * suppressions, manifeste) se fait hors verrou, à partir d'instantanés
+ * pris sous le verrou.
+ *
+ * Configuration (propriétés système) :
+ * - lom.index.dir          : répertoire de l'index (défaut ~/.lom-index)
+ * - lom.index.refresh_ms   : délai de visibilité des modifications (défaut 1000)
+ * - lom.index.flush_ms     : intervalle d'écriture sur disque (défaut 10000)
+ * - lom.index.flush_docs   : taille du segment en mémoire (défaut 1000)
+ */
+public class SearchIndex {
+
+    private static SearchIndex instance;
+
+    private static final Set<Segment.Field> ALL_FIELDS = EnumSet.allOf(Segment.Field.class);
+    private static final Set<Segment.Field> TITLE_ONLY = EnumSet.of(Segment.Field.TITLE);
+
+    private static final int FLUSH_DOCS = Integer.getInteger("lom.index.flush_docs", 1000);
+    private static final long REFRESH_MILLIS = Long.getLong("lom.index.refresh_ms", 1000L);
+    private static final long FLUSH_MILLIS = Long.getLong("lom.index.flush_ms", 10_000L);
+
+    // Changements appliqués par micro-lot (taille des listes IN)
+    private static final int CHANGE_BATCH = 500;
+
+    // Taille des segments écrits pendant une reconstruction
+    private static final int REBUILD_CHUNK_DOCS = 50_000;
+
+    private final LomSchemaDao lomSchemaDao;
+    private final TagDao tagDao;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Segments (gardés par le verrou)
+    private List<DiskSegment> disk = List.of();
+    private List<MemorySegment> flushing = List.of();
+    private MemorySegment memory = new MemorySegment();
+    private final Set<DiskSegment> dirty = new HashSet<>();
+    private volatile boolean ready;
+
+    // Incrémentée à chaque changement visible dans les résultats
+    private final AtomicLong generation = new AtomicLong();
+
+    // Modifications validées en attente d'application
+    private final Queue<EntityChange> changes = new ConcurrentLinkedQueue<>();
+
+    // Null si le répertoire est inaccessible : l'index reste alors en mémoire
+    private volatile IndexDirectory directory;
+    private volatile ScheduledExecutorService writer;
+    private long commitTimestamp;
+
+    private SearchIndex() {
+        this.lomSchemaDao = new LomSchemaDao(true);
+        this.tagDao = new TagDao();
+    }
+
+    public static synchronized SearchIndex getInstance() {
+        if (instance == null) {
+            instance = new SearchIndex();
+        }
+        return instance;
+    }
+
+    // ==================== CYCLE DE VIE ====================
+
+    /**
+     * Ouvrir l'index sur disque (ou le construire s'il n'existe pas)
+     *
+     * Les segments existants sont utilisables dès le retour de la méthode ;
+     * la réconciliation avec la base (modifications faites depuis le
+     * dernier commit) continue en arrière-plan.
+     */
+    public void open() {
+        long start = System.nanoTime();
+        EntityChangeListener.subscribe(changes::add);
+        startWriter();
+        IndexDirectory.Commit commit = null;
+        List<DiskSegment> loaded = new ArrayList<>();
+        try {
+            directory = IndexDirectory.open();
+            commit = directory.readCommit();
+            if (commit != null) {
+                for (IndexDirectory.Entry entry : commit.segments()) {
+                    DiskSegment segment = DiskSegment.open(entry.name(), directory.segmentFile(entry.name()), null);
+                    BitSet live = directory.readLive(entry, segment.maxDoc());
+                    if (live != null) {
+                        segment.live.and(live);
+                    }
+                    segment.setDeleteGeneration(entry.deleteGeneration());
+                    loaded.add(segment);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Index de recherche sur disque illisible: " + e.getMessage());
+            commit = null;
+        }
+
+        if (commit == null) {
+            rebuild();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            disk = List.copyOf(loaded);
+            commitTimestamp = commit.timestamp();
+            ready = true;
+            generation.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("🔎 Index de recherche ouvert: " + size() + " ressources, " + loaded.size()
+                + " segments en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        writer.execute(this::catchUp);
+    }
+
+    /**
+     * Reconstruire tout l'index depuis la base (attend la fin)
+     */
+    public void rebuild() {
+        startWriter();
+        CompletableFuture.runAsync(this::doRebuild, writer).join();
+    }
+
+    /**
+     * Écrire les changements en attente et arrêter le thread d'écriture
+     */
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = writer;
+            writer = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            // Une reconstruction en cours est abandonnée : le dernier commit reste valide
+            if (executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                applyChanges();
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Index-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::refresh, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(this::flushAndMerge, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Indique si l'index a été construit
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Génération de l'index : change à chaque modification appliquée
+     * (ouverture, reconstruction, micro-lot de changements), pas aux
+     * écritures sur disque ni aux fusions qui ne changent aucun résultat
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    // ==================== MISE À JOUR ====================
+
+    /**
+     * Appliquer les changements en file, par lots de CHANGE_BATCH
+     *
+     * Chaque lot relit en base (primaire : l'écriture vient d'être validée)
+     * le texte et les tags des ressources touchées, puis les remplace dans
+     * l'index sous un seul verrou d'écriture. Un lot en échec est remis en
+     * file pour le rafraîchissement suivant.
+     */
+    private void applyChanges() {
+        while (!changes.isEmpty()) {
+            Set<Long> resourceIds = new LinkedHashSet<>();
+            List<EntityChange> tagChanges = new ArrayList<>();
+            List<EntityChange> batch = new ArrayList<>();
+            EntityChange change;
+            while (batch.size() < CHANGE_BATCH && (change = changes.poll()) != null) {
+                batch.add(change);
+                if (change.type() == EntityChange.Type.RESOURCE) {
+                    resourceIds.add(change.id());
+                } else {
+                    tagChanges.add(change);
+                }
+            }
+            try {
+                ReadRouter.fromPrimary(() -> {
+                    applyBatch(resourceIds, tagChanges);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                System.err.println("❌ Mise à jour de l'index impossible: " + e.getMessage());
+                changes.addAll(batch);
+                return;
+            }
+        }
+    }
+
+    private void applyBatch(Set<Long> resourceIds, List<EntityChange> tagChanges) {
+        List<LomDocument> documents = lomSchemaDao.findDocuments(resourceIds);
+        Map<Long, Set<String>> tags = tagDao.findTagNamesByResources(resourceIds);
+        Map<EntityChange, Set<Long>> tagMembers = new HashMap<>();
+        for (EntityChange change : tagChanges) {
+            if (change.type() == EntityChange.Type.TAG) {
+                tagMembers.put(change, new HashSet<>(tagDao.findResourceIds(change.id())));
+            }
+        }
+
+        apply(() -> {
+            Set<Long> missing = new HashSet<>(resourceIds);
+            for (LomDocument document : documents) {
+                update(document, tags.getOrDefault(document.id(), Set.of()));
+                missing.remove(document.id());
+            }
+            // Ressources supprimées
+            missing.forEach(this::deleteLive);
+
+            for (EntityChange change : tagChanges) {
+                if (change.previousName() != null) {
+                    for (Long id : taggedResources(change.previousName())) {
+                        setTag(id, change.previousName(), false);
+                    }
+                }
+                Set<Long> indexed = taggedResources(change.name());
+                Set<Long> current = tagMembers.getOrDefault(change, Set.of());
+                for (Long id : current) {
+                    if (!indexed.contains(id)) {
+                        setTag(id, change.name(), true);
+                    }
+                }
+                for (Long id : indexed) {
+                    if (!current.contains(id)) {
+                        setTag(id, change.name(), false);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Appliquer une modification sous le verrou d'écriture, puis écrire le
+     * segment en mémoire s'il est plein (thread d'écriture)
+     */
+    private void apply(Runnable change) {
+        boolean full;
+        lock.writeLock().lock();
+        try {
+            change.run();
+            generation.incrementAndGet();
+            full = memory.maxDoc() >= FLUSH_DOCS;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Remplacer la version indexée d'une ressource (verrou d'écriture tenu)
+     *
+     * @param tags tags de la ressource (null : conserver ceux indexés)
+     */
+    private void update(LomDocument document, Set<String> tags) {
+        Set<String> docTags = tags;
+        for (Segment segment : segments()) {
+            int doc = segment.findDoc(document.id());
+            if (doc >= 0 && segment.isLive(doc)) {
+                if (docTags == null) {
+                    docTags = segment.tags(doc);
+                }
+                delete(segment, doc);
+            }
+        }
+        memory.add(document, docTags);
+    }
+
+    private void setTag(Long resourceId, String tagName, boolean tagged) {
+        for (Segment segment : segments()) {
+            int doc = segment.findDoc(resourceId);
+            if (doc < 0 || !segment.isLive(doc)) {
+                continue;
+            }
+            Set<String> tags = new HashSet<>(segment.tags(doc));
+            boolean changed = tagged ? tags.add(tagName) : tags.remove(tagName);
+            if (changed) {
+                LomDocument document = segment.document(doc);
+                delete(segment, doc);
+                memory.add(document, tags);
+            }
+            return;
+        }
+    }
+
+    private void deleteLive(Long resourceId) {
+        for (Segment segment : segments()) {
+            int doc = segment.findDoc(resourceId);
+            if (doc >= 0) {
+                delete(segment, doc);
+            }
+        }
+    }
+
+    /**
+     * Ressources indexées portant un tag (verrou tenu)
+     */
+    private Set<Long> taggedResources(String tagName) {
+        Set<Long> ids = new HashSet<>();
+        if (tagName == null) {
+            return ids;
+        }
+        for (Segment segment : segments()) {
+            DocSet docs = segment.facetDocs(Facet.TAG, tagName);
+            if (docs == null) {
+                continue;
+            }
+            BitSet tagged = new BitSet(segment.maxDoc());
+            docs.addTo(tagged, 0);
+            tagged.and(segment.live);
+            for (int doc = tagged.nextSetBit(0); doc >= 0; doc = tagged.nextSetBit(doc + 1)) {
+                ids.add(segment.resourceId(doc));
+            }
+        }
+        return ids;
+    }
+
+    private void delete(Segment segment, int doc) {
+        if (segment.delete(doc) && segment instanceof DiskSegment diskSegment) {
+            dirty.add(diskSegment);
+        }
+    }
+
+    /**
+     * Tous les segments, du plus ancien au segment en mémoire (verrou tenu)
+     */
+    private List<Segment> segments() {
+        List<Segment> segments = new ArrayList<>(disk.size() + flushing.size() + 1);
+        segments.addAll(disk);
+        segments.addAll(flushing);
+        segments.add(memory);
+        return segments;
+    }
+
+    // ==================== THREAD D'ÉCRITURE ====================
+
+    /**
+     * Reconstruire les segments depuis la base puis remplacer les anciens
+     *
+     * Les changements validés pendant la reconstruction restent en file et
+     * sont appliqués ensuite sur les nouveaux segments.
+     */
+    private void doRebuild() {
+        long start = System.nanoTime();
+        long timestamp = System.currentTimeMillis();
+        List<DiskSegment> fresh = new ArrayList<>();
+        MemorySegment chunk = new MemorySegment();
+        try {
+            Map<Long, Set<String>> tags = tagDao.findTagNamesByResource();
+            try (Stream<LomDocument> documents = lomSchemaDao.streamDocuments()) {
+                Iterator<LomDocument> iterator = documents.iterator();
+                while (iterator.hasNext()) {
+                    LomDocument document = iterator.next();
+                    chunk.add(document, tags.getOrDefault(document.id(), Set.of()));
+                    if (directory != null && chunk.maxDoc() >= REBUILD_CHUNK_DOCS) {
+                        fresh.add(write(List.of(chunk), List.of(chunk.liveDocs())));
+                        chunk = new MemorySegment();
+                    }
+                }
+            }
+            if (directory != null && chunk.maxDoc() > 0) {
+                fresh.add(write(List.of(chunk), List.of(chunk.liveDocs())));
+                chunk = new MemorySegment();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Construction de l'index de recherche impossible: " + e.getMessage());
+            e.printStackTrace();
+            for (DiskSegment segment : fresh) {
+                directory.discard(segment.name());
+            }
+            return;
+        }
+
+        CommitPoint pending;
+        lock.writeLock().lock();
+        try {
+            disk = List.copyOf(fresh);
+            flushing = List.of();
+            memory = chunk;
+            dirty.clear();
+            ready = true;
+            generation.incrementAndGet();
+            pending = prepareCommit(timestamp);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        publish(pending);
+        System.out.println("🔎 Index de recherche reconstruit: " + size() + " ressources, " + fresh.size()
+                + " segments en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Réconcilier l'index lu sur disque avec la base
+     *
+     * Les changements faits pendant l'arrêt (ou perdus par un arrêt
+     * brutal) ne laissent pas tous une date de modification : General ou
+     * Educational modifiés sans updated_at, tags ajoutés, renommés ou
+     * retirés, ressources supprimées. Le texte, les facettes et les tags de
+     * chaque ressource (parcours en flux trié par id) sont donc comparés à
+     * leur version indexée : les ressources modifiées ou absentes de
+     * l'index sont réindexées, celles disparues de la base retirées.
+     */
+    private void catchUp() {
+        long start = System.nanoTime();
+        try {
+            Map<Long, Set<String>> tags = tagDao.findTagNamesByResource();
+            Map<Long, Set<String>> indexedTags = indexedTags();
+            long[] indexed = liveIds();
+            BitSet stored = new BitSet(indexed.length);
+            List<LomDocument> batch = new ArrayList<>(CHANGE_BATCH);
+            int[] counts = {0, 0};
+            try (Stream<LomDocument> documents = lomSchemaDao.streamDocuments()) {
+                documents.forEach(document -> {
+                    int index = Arrays.binarySearch(indexed, document.id());
+                    if (index >= 0) {
+                        stored.set(index);
+                    } else {
+                        counts[1]++;
+                    }
+                    batch.add(document);
+                    if (batch.size() == CHANGE_BATCH) {
+                        counts[0] += reindexChanged(batch, tags, indexedTags);
+                        batch.clear();
+                    }
+                });
+            }
+            counts[0] += reindexChanged(batch, tags, indexedTags);
+
+            // Ressources absentes de la base : retirées
+            List<Long> removed = new ArrayList<>();
+            for (int i = stored.nextClearBit(0); i < indexed.length; i = stored.nextClearBit(i + 1)) {
+                removed.add(indexed[i]);
+            }
+            for (int from = 0; from < removed.size(); from += CHANGE_BATCH) {
+                List<Long> chunk = removed.subList(from, Math.min(removed.size(), from + CHANGE_BATCH));
+                apply(() -> chunk.forEach(this::deleteLive));
+            }
+            System.out.println("🔎 Rattrapage de l'index: " + counts[0] + " ressources réindexées dont "
+                    + counts[1] + " ajoutées, " + removed.size() + " retirées en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (RuntimeException e) {
+            System.err.println("❌ Rattrapage de l'index impossible: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Réindexer les documents absents de l'index ou différents de leur
+     * version indexée (texte, facettes ou tags)
+     *
+     * @return nombre de documents réindexés
+     */
+    private int reindexChanged(List<LomDocument> documents, Map<Long, Set<String>> tags,
+            Map<Long, Set<String>> indexedTags) {
+        List<LomDocument> changed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (LomDocument document : documents) {
+                LomDocument current = indexedDocument(document.id());
+                if (current == null || !sameDocument(current, document)
+                        || !tags.getOrDefault(document.id(), Set.of())
+                                .equals(indexedTags.getOrDefault(document.id(), Set.of()))) {
+                    changed.add(document);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!changed.isEmpty()) {
+            apply(() -> changed.forEach(document -> update(document, tags.getOrDefault(document.id(), Set.of()))));
+        }
+        return changed.size();
+    }
+
+    /**
+     * Même contenu indexé : les segments sur disque relisent un texte vide
+     * comme null et les dates comme Date (Timestamp en base)
+     */
+    static boolean sameDocument(LomDocument indexed, LomDocument stored) {
+        return Objects.equals(indexed.id(), stored.id())
+                && Objects.equals(text(indexed.title()), text(stored.title()))
+                && Objects.equals(text(indexed.keyword()), text(stored.keyword()))
+                && Objects.equals(text(indexed.description()), text(stored.description()))
+                && Objects.equals(indexed.language(), stored.language())
+                && Objects.equals(indexed.difficulty(), stored.difficulty())
+                && Objects.equals(indexed.interactivityType(), stored.interactivityType())
+                && Objects.equals(indexed.learningResourceType(), stored.learningResourceType())
+                && Objects.equals(millis(indexed.createdAt()), millis(stored.createdAt()));
+    }
+
+    private static String text(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+
+    private static Long millis(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    /**
+     * Version indexée d'une ressource, null si absente (verrou tenu)
+     */
+    private LomDocument indexedDocument(long resourceId) {
+        for (Segment segment : segments()) {
+            int doc = segment.findDoc(resourceId);
+            if (doc >= 0 && segment.isLive(doc)) {
+                return segment.document(doc);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tags indexés de chaque ressource (un parcours par valeur de tag)
+     */
+    private Map<Long, Set<String>> indexedTags() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Set<String>> tags = new HashMap<>();
+            for (Segment segment : segments()) {
+                for (String tag : segment.facetValues(Facet.TAG)) {
+                    BitSet tagged = new BitSet(segment.maxDoc());
+                    segment.facetDocs(Facet.TAG, tag).addTo(tagged, 0);
+                    tagged.and(segment.live);
+                    for (int doc = tagged.nextSetBit(0); doc >= 0; doc = tagged.nextSetBit(doc + 1)) {
+                        tags.computeIfAbsent(segment.resourceId(doc), id -> new HashSet<>()).add(tag);
+                    }
+                }
+            }
+            return tags;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Identifiants des ressources indexées, par ordre croissant
+     */
+    private long[] liveIds() {
+        lock.readLock().lock();
+        try {
+            List<Segment> segments = segments();
+            long[] ids = new long[new SegmentedIndex(segments).size()];
+            int count = 0;
+            for (Segment segment : segments) {
+                for (int doc = segment.live.nextSetBit(0); doc >= 0; doc = segment.live.nextSetBit(doc + 1)) {
+                    ids[count++] = segment.resourceId(doc);
+                }
+            }
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tâche périodique : rendre visibles les changements en file
+     */
+    private void refresh() {
+        try {
+            applyChanges();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Rafraîchissement de l'index impossible: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Tâche périodique : écrire le segment en mémoire puis fusionner
+     */
+    private void flushAndMerge() {
+        try {
+            flush();
+            maybeMerge();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Rafraîchissement de l'index impossible: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Écrire le segment en mémoire sur disque et publier un commit
+     *
+     * Le segment reste interrogeable (liste flushing) pendant l'écriture ;
+     * les suppressions qui le touchent entre-temps sont reportées sur le
+     * segment écrit.
+     */
+    private void flush() {
+        if (directory == null) {
+            return;
+        }
+        long timestamp;
+        List<MemorySegment> toFlush;
+        List<BitSet> snapshots = new ArrayList<>();
+        CommitPoint pending = null;
+        lock.writeLock().lock();
+        try {
+            timestamp = System.currentTimeMillis();
+            if (memory.maxDoc() > 0) {
+                List<MemorySegment> segments = new ArrayList<>(flushing);
+                segments.add(memory);
+                flushing = List.copyOf(segments);
+                memory = new MemorySegment();
+            }
+            toFlush = flushing;
+            for (MemorySegment segment : toFlush) {
+                snapshots.add(segment.liveDocs());
+            }
+            if (toFlush.isEmpty() && !dirty.isEmpty()) {
+                pending = prepareCommit(timestamp);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (toFlush.isEmpty()) {
+            publish(pending);
+            return;
+        }
+
+        for (int i = 0; i < toFlush.size(); i++) {
+            MemorySegment source = toFlush.get(i);
+            DiskSegment written;
+            int[] remap;
+            try {
+                String name = directory.newSegmentName();
+                Path file = directory.segmentFile(name);
+                try {
+                    remap = SegmentWriter.write(file, List.of(source), List.of(snapshots.get(i)))[0];
+                    written = DiskSegment.open(name, file, null);
+                } catch (IOException e) {
+                    directory.discard(name);
+                    throw e;
+                }
+            } catch (IOException e) {
+                // Le segment reste dans flushing : nouvel essai au prochain rafraîchissement
+                System.err.println("❌ Écriture de l'index impossible: " + e.getMessage());
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                carryDeletes(source, snapshots.get(i), remap, written);
+                List<MemorySegment> remaining = new ArrayList<>(flushing);
+                remaining.remove(source);
+                flushing = List.copyOf(remaining);
+                List<DiskSegment> segments = new ArrayList<>(disk);
+                segments.add(written);
+                disk = List.copyOf(segments);
+                if (flushing.isEmpty()) {
+                    pending = prepareCommit(timestamp);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            publish(pending);
+        }
+    }
+
+    /**
+     * Fusionner les segments choisis par MergePolicy
+     *
+     * Les sources sont lues hors verrou à partir d'un instantané de leurs
+     * documents vivants ; les suppressions faites pendant la fusion sont
+     * reportées sur le segment fusionné avant qu'il remplace les sources.
+     */
+    private void maybeMerge() {
+        if (directory == null) {
+            return;
+        }
+        List<DiskSegment> sources;
+        List<BitSet> snapshots = new ArrayList<>();
+        CommitPoint pending = null;
+        lock.writeLock().lock();
+        try {
+            // Segments entièrement supprimés : simplement retirés
+            List<DiskSegment> nonEmpty = new ArrayList<>();
+            for (DiskSegment segment : disk) {
+                if (segment.liveCount() > 0) {
+                    nonEmpty.add(segment);
+                } else {
+                    dirty.remove(segment);
+                }
+            }
+            if (nonEmpty.size() != disk.size()) {
+                disk = List.copyOf(nonEmpty);
+                pending = prepareCommit(commitTimestamp);
+            }
+            sources = MergePolicy.findMerge(disk);
+            for (DiskSegment segment : sources) {
+                snapshots.add(segment.liveDocs());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        publish(pending);
+        if (sources.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        String name = directory.newSegmentName();
+        DiskSegment merged;
+        int[][] remap;
+        try {
+            Path file = directory.segmentFile(name);
+            remap = SegmentWriter.write(file, sources, snapshots);
+            merged = DiskSegment.open(name, file, null);
+        } catch (IOException e) {
+            directory.discard(name);
+            System.err.println("❌ Fusion de l'index impossible: " + e.getMessage());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!disk.containsAll(sources)) {
+                // Index reconstruit entre-temps
+                directory.discard(name);
+                return;
+            }
+            for (int s = 0; s < sources.size(); s++) {
+                carryDeletes(sources.get(s), snapshots.get(s), remap[s], merged);
+            }
+            List<DiskSegment> segments = new ArrayList<>();
+            for (DiskSegment segment : disk) {
+                if (!sources.contains(segment)) {
+                    segments.add(segment);
+                }
+            }
+            segments.add(merged);
+            disk = List.copyOf(segments);
+            sources.forEach(dirty::remove);
+            pending = prepareCommit(commitTimestamp);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        publish(pending);
+        System.out.println("🔎 Fusion de " + sources.size() + " segments (" + merged.maxDoc() + " ressources) en "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Reporter sur le segment écrit les suppressions faites dans la source
+     * depuis l'instantané (verrou d'écriture tenu)
+     */
+    private void carryDeletes(Segment source, BitSet snapshot, int[] remap, DiskSegment target) {
+        for (int doc = snapshot.nextSetBit(0); doc >= 0; doc = snapshot.nextSetBit(doc + 1)) {
+            if (!source.isLive(doc) && remap[doc] >= 0) {
+                delete(target, remap[doc]);
+            }
+        }
+    }
+
+    /**
+     * Commit préparé sous le verrou : liste des segments et instantané des
+     * documents vivants des segments aux suppressions modifiées
+     */
+    private record CommitPoint(long timestamp, List<DiskSegment> segments, Map<DiskSegment, BitSet> deletes) {
+    }
+
+    /**
+     * Préparer un commit (verrou d'écriture tenu) : instantanés seulement,
+     * les fichiers sont écrits par publish() une fois le verrou rendu
+     *
+     * @param timestamp date jusqu'à laquelle les modifications sont sur
+     *                  disque
+     * @return null sans répertoire d'index
+     */
+    private CommitPoint prepareCommit(long timestamp) {
+        if (directory == null) {
+            return null;
+        }
+        Map<DiskSegment, BitSet> deletes = new HashMap<>();
+        for (DiskSegment segment : dirty) {
+            deletes.put(segment, segment.liveDocs());
+        }
+        dirty.clear();
+        return new CommitPoint(timestamp, disk, deletes);
+    }
+
+    /**
+     * Écrire les suppressions et publier la liste des segments d'un commit
+     * préparé (hors verrou, thread d'écriture)
+     *
+     * Les recherches continuent pendant l'écriture. En cas d'échec, les
+     * segments dont les suppressions n'ont pas été publiées sont remis à
+     * écrire au commit suivant ; le commit précédent reste valide.
+     */
+    private void publish(CommitPoint pending) {
+        if (pending == null) {
+            return;
+        }
+        try {
+            for (Map.Entry<DiskSegment, BitSet> entry : pending.deletes().entrySet()) {
+                DiskSegment segment = entry.getKey();
+                segment.setDeleteGeneration(directory.writeDeletes(segment.name(), entry.getValue(),
+                        segment.maxDoc(), segment.getDeleteGeneration()));
+            }
+            List<IndexDirectory.Entry> entries = new ArrayList<>(pending.segments().size());
+            for (DiskSegment segment : pending.segments()) {
+                entries.add(new IndexDirectory.Entry(segment.name(), segment.getDeleteGeneration()));
+            }
+            directory.commit(entries, pending.timestamp());
+            commitTimestamp = pending.timestamp();
+        } catch (IOException e) {
+            System.err.println("❌ Commit de l'index impossible: " + e.getMessage());
+            lock.writeLock().lock();
+            try {
+                for (DiskSegment segment : pending.deletes().keySet()) {
+                    if (disk.contains(segment)) {
+                        dirty.add(segment);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private DiskSegment write(List<? extends Segment> sources, List<BitSet> live) throws IOException {
+        String name = directory.newSegmentName();
+        Path file = directory.segmentFile(name);
+        try {
+            SegmentWriter.write(file, sources, live);
+            return DiskSegment.open(name, file, null);
+        } catch (IOException e) {
+            directory.discard(name);
+            throw e;
+        }
+    }
+
+    // ==================== RECHERCHE ====================
+
+    /**
+     * Indique si l'index peut répondre à la requête : il est prêt et le
+     * texte éventuel contient au moins un terme indexable
+     */
+    public boolean canAnswer(SearchQuery query) {
+        return ready && (!query.hasText() || !Analyzer.analyze(query.getText()).isEmpty());
+    }
+
+    /**
+     * Rechercher les ressources correspondant à la requête
+     *
+     * @return résumés des ressources trouvées (ordre des segments)
+     */
+    public List<LomSummary> search(SearchQuery query) {
+        List<String> terms = terms(query);
+        lock.readLock().lock();
+        try {
+            SegmentedIndex index = new SegmentedIndex(segments());
+            BitSet hits = matching(index, query, clauses(index, query, terms));
+            List<LomSummary> results = new ArrayList<>(hits.cardinality());
+            for (int doc = hits.nextSetBit(0); doc >= 0; doc = hits.nextSetBit(doc + 1)) {
+                results.add(index.summary(doc));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rechercher les k ressources les plus pertinentes (BM25)
+     *
+     * Sélection par tas de taille k : seuls les k meilleurs résultats sont
+     * triés, quel que soit le nombre de correspondances.
+     */
+    public SearchHits rank(SearchQuery query, int k) {
+        List<String> terms = terms(query);
+        int limit = Math.max(1, k);
+        lock.readLock().lock();
+        try {
+            SegmentedIndex index = new SegmentedIndex(segments());
+            List<Map<String, Float>> clauses = clauses(index, query, terms);
+            BitSet hits = matching(index, query, clauses);
+            float[] scores = Bm25.score(index, clauses, hits);
+
+            // Tas min : la racine est le moins bon des k retenus
+            Comparator<Integer> worstFirst = (a, b) -> scores[a] != scores[b]
+                    ? Float.compare(scores[a], scores[b])
+                    : Integer.compare(b, a);
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, hits.cardinality()) + 1, worstFirst);
+            int total = 0;
+            for (int doc = hits.nextSetBit(0); doc >= 0; doc = hits.nextSetBit(doc + 1)) {
+                total++;
+                if (heap.size() < limit) {
+                    heap.add(doc);
+                } else if (worstFirst.compare(doc, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(doc);
+                }
+            }
+
+            LomSummary[] top = new LomSummary[heap.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = index.summary(heap.poll());
+            }
+            return new SearchHits(List.of(top), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rechercher les limit premières ressources dans l'ordre d'une clé de
+     * tri (clé puis id, comme la pagination keyset de la base), après le
+     * curseur éventuel
+     *
+     * Sélection par tas de taille limit : seule la page demandée est
+     * triée ; une page suivante reprend après le curseur de la dernière
+     * ressource rendue, sans reclasser les précédentes.
+     *
+     * @param after curseur de la page précédente (null pour la première)
+     * @return la page et le nombre total de correspondances (curseur ignoré)
+     */
+    public SearchHits sorted(SearchQuery query, LomSchemaDao.SortKey sortKey, boolean descending,
+                             Page.Cursor after, int limit) {
+        List<String> terms = terms(query);
+        Comparator<Sorted> order = descending ? SORTED_ORDER.reversed() : SORTED_ORDER;
+        Sorted start = after != null ? new Sorted(after.getSortValue(), after.getId(), -1) : null;
+        int k = Math.max(1, limit);
+        lock.readLock().lock();
+        try {
+            SegmentedIndex index = new SegmentedIndex(segments());
+            BitSet hits = matching(index, query, clauses(index, query, terms));
+
+            // Tas max : la racine est la dernière des k retenues
+            PriorityQueue<Sorted> heap = new PriorityQueue<>(Math.min(k, hits.cardinality()) + 1, order.reversed());
+            int total = 0;
+            for (int doc = hits.nextSetBit(0); doc >= 0; doc = hits.nextSetBit(doc + 1)) {
+                total++;
+                Sorted entry = new Sorted(index.sortValue(sortKey, doc), index.resourceId(doc), doc);
+                if (start != null && order.compare(entry, start) <= 0) {
+                    continue;
+                }
+                if (heap.size() < k) {
+                    heap.add(entry);
+                } else if (order.compare(entry, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(entry);
+                }
+            }
+
+            LomSummary[] top = new LomSummary[heap.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = index.summary(heap.poll().doc());
+            }
+            return new SearchHits(List.of(top), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Document candidat d'un tri : valeur de la clé, id de la ressource
+     * (départage) et numéro global
+     */
+    private record Sorted(Object key, long id, int doc) {
+    }
+
+    /**
+     * Ordre croissant (clé, id) ; textes sans tenir compte de la casse,
+     * valeurs nulles en premier comme en base
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Sorted> SORTED_ORDER = (a, b) -> {
+        Object x = a.key();
+        Object y = b.key();
+        int cmp;
+        if (x == null || y == null) {
+            cmp = x == null ? (y == null ? 0 : -1) : 1;
+        } else if (x instanceof String left && y instanceof String right) {
+            cmp = String.CASE_INSENSITIVE_ORDER.compare(left, right);
+        } else {
+            cmp = ((Comparable) x).compareTo(y);
+        }
+        return cmp != 0 ? cmp : Long.compare(a.id(), b.id());
+    };
+
+    /**
+     * Compter les résultats par valeur de chaque facette
+     *
+     * Le compteur d'une valeur est le nombre de résultats de la requête si
+     * le filtre de sa facette était remplacé par cette seule valeur : les
+     * correspondances du texte croisées avec les filtres des autres
+     * facettes, puis avec l'ensemble de la valeur.
+     */
+    public FacetCounts facets(SearchQuery query) {
+        List<String> terms = terms(query);
+        lock.readLock().lock();
+        try {
+            SegmentedIndex index = new SegmentedIndex(segments());
+            BitSet text = textMatches(index, query, clauses(index, query, terms));
+            Map<Facet, BitSet> filters = facetFilters(index, query);
+            Map<Facet, Map<String, Integer>> counts = new EnumMap<>(Facet.class);
+            for (Facet facet : Facet.values()) {
+                BitSet docs = (BitSet) text.clone();
+                filters.forEach((other, allowed) -> {
+                    if (other != facet) {
+                        docs.and(allowed);
+                    }
+                });
+                counts.put(facet, index.facetCounts(facet, docs));
+            }
+            return new FacetCounts(counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> terms(SearchQuery query) {
+        return query.hasText() ? Analyzer.analyze(query.getText()) : List.of();
+    }
+
+    /**
+     * Clauses de la requête : chaque terme seul, ou avec ses variantes
+     * proches (recherche tolérante) et ses complétions (mots commencés)
+     * (verrou de lecture tenu)
+     */
+    private static List<Map<String, Float>> clauses(SegmentedIndex index, SearchQuery query, List<String> terms) {
+        boolean fuzzy = query.isFuzzy() && !query.isExactTitle();
+        boolean prefix = query.isPrefix() && !query.isExactTitle();
+        List<Map<String, Float>> clauses = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            clauses.add(fuzzy || prefix ? index.expand(term, ALL_FIELDS, fuzzy, prefix) : Map.of(term, 1f));
+        }
+        return clauses;
+    }
+
+    /**
+     * Documents correspondant au texte et à tous les filtres (verrou de
+     * lecture tenu)
+     */
+    private static BitSet matching(SegmentedIndex index, SearchQuery query, List<Map<String, Float>> clauses) {
+        BitSet hits = textMatches(index, query, clauses);
+        for (BitSet allowed : facetFilters(index, query).values()) {
+            hits.and(allowed);
+        }
+        return hits;
+    }
+
+    /**
+     * Documents vivants correspondant au texte (ou au titre exact)
+     */
+    private static BitSet textMatches(SegmentedIndex index, SearchQuery query, List<Map<String, Float>> clauses) {
+        String exactTitle = query.hasText() && query.isExactTitle() ? Analyzer.fold(query.getText()) : null;
+        BitSet hits = index.matchAll(clauses, exactTitle != null ? TITLE_ONLY : ALL_FIELDS);
+        if (exactTitle != null) {
+            for (int doc = hits.nextSetBit(0); doc >= 0; doc = hits.nextSetBit(doc + 1)) {
+                if (!exactTitle.equals(Analyzer.fold(index.title(doc)))) {
+                    hits.clear(doc);
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Documents acceptés par le filtre de chaque facette filtrée : union
+     * des ensembles des valeurs choisies (plus les documents sans valeur
+     * si le filtre les conserve)
+     */
+    private static Map<Facet, BitSet> facetFilters(SegmentedIndex index, SearchQuery query) {
+        Map<Facet, BitSet> filters = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            List<String> values = query.facetFilter(facet);
+            if (values == null) {
+                continue;
+            }
+            BitSet allowed = index.facetAny(facet, values);
+            if (query.acceptsMissing(facet)) {
+                allowed.or(index.facetMissing(facet));
+            }
+            filters.put(facet, allowed);
+        }
+        return filters;
+    }
+
+    /**
+     * Résumés de ressources indexées, dans l'ordre des identifiants
+     *
+     * @return null si l'une d'elles n'est plus indexée
+     */
+    public List<LomSummary> summaries(long[] resourceIds) {
+        lock.readLock().lock();
+        try {
+            List<Segment> segments = segments();
+            List<LomSummary> summaries = new ArrayList<>(resourceIds.length);
+            for (long resourceId : resourceIds) {
+                LomSummary summary = null;
+                for (Segment segment : segments) {
+                    int doc = segment.findDoc(resourceId);
+                    if (doc >= 0 && segment.isLive(doc)) {
+                        summary = segment.summary(doc);
+                        break;
+                    }
+                }
+                if (summary == null) {
+                    return null;
+                }
+                summaries.add(summary);
+            }
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Parcourir les ressources indexées, hors verrou
+     *
+     * Le verrou de lecture n'est tenu que pour prendre un instantané : les
+     * documents vivants de chaque segment sur disque (immuable) et les
+     * documents des segments en mémoire, copiés. Les modifications
+     * appliquées pendant le parcours n'y figurent pas.
+     */
+    void forEachDocument(Consumer<LomDocument> action) {
+        List<DiskSegment> diskSegments;
+        List<BitSet> diskLive = new ArrayList<>();
+        List<LomDocument> recent = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            diskSegments = disk;
+            for (DiskSegment segment : diskSegments) {
+                diskLive.add(segment.liveDocs());
+            }
+            List<MemorySegment> memorySegments = new ArrayList<>(flushing);
+            memorySegments.add(memory);
+            for (MemorySegment segment : memorySegments) {
+                for (int doc = segment.live.nextSetBit(0); doc >= 0; doc = segment.live.nextSetBit(doc + 1)) {
+                    recent.add(segment.document(doc));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int s = 0; s < diskSegments.size(); s++) {
+            DiskSegment segment = diskSegments.get(s);
+            BitSet live = diskLive.get(s);
+            for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+                action.accept(segment.document(doc));
+            }
+        }
+        recent.forEach(action);
+    }
+
+    /**
+     * Nombre de ressources indexées
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return new SegmentedIndex(segments()).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.emsi.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Requête sur l'index de recherche
+ *
+ * <pre>
+ * SearchQuery query = new SearchQuery()
+ *         .text("algèbre linéaire")
+ *         .language("fr")
+ *         .difficultyBetween(2, 4)
+ *         .interactivityTypes(List.of("active"))
+ *         .tags(List.of("maths"));
+ * </pre>
+ *
+ * Le texte est analysé (Analyzer) : tous ses termes doivent apparaître
+ * (ou, avec fuzzy(true), un terme proche ; avec prefix(true), un terme
+ * qui le prolonge), chacun dans le titre, les mots-clés ou la
+ * description. Les filtres sont des facettes (Facet) : au moins une des
+ * valeurs choisies pour chaque facette filtrée.
+ */
+public class SearchQuery {
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final String KEY_SEPARATOR = "\u001F";
+
+    private String text;
+    private boolean exactTitle;
+    private boolean fuzzy;
+    private boolean prefix;
+    private String language;
+    private Integer minDifficulty;
+    private Integer maxDifficulty;
+    private boolean includeUnrated;
+    private List<String> interactivityTypes = new ArrayList<>();
+    private List<String> learningResourceTypes = new ArrayList<>();
+    private List<String> tags = new ArrayList<>();
+
+    public SearchQuery text(String text) {
+        this.text = text != null ? text.trim() : null;
+        return this;
+    }
+
+    /**
+     * Exiger l'égalité du titre avec le texte (casse et accents ignorés)
+     */
+    public SearchQuery exactTitle(boolean exactTitle) {
+        this.exactTitle = exactTitle;
+        return this;
+    }
+
+    /**
+     * Tolérer les fautes de frappe : chaque terme correspond aussi aux
+     * termes indexés à une ou deux éditions près (FuzzyTerms), moins bien
+     * classés que le terme exact ; sans effet avec exactTitle
+     */
+    public SearchQuery fuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+        return this;
+    }
+
+    /**
+     * Accepter les mots commencés : chaque terme d'au moins
+     * PrefixTerms.MIN_LENGTH lettres correspond aussi aux termes indexés
+     * qui le prolongent ("progr" trouve "programmation"), moins bien
+     * classés que le terme exact ; sans effet avec exactTitle
+     */
+    public SearchQuery prefix(boolean prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
+    /**
+     * Filtrer sur une langue (null : toutes)
+     */
+    public SearchQuery language(String language) {
+        this.language = language != null && !language.isEmpty() ? language : null;
+        return this;
+    }
+
+    /**
+     * Filtrer sur une difficulté exacte (null : toutes)
+     */
+    public SearchQuery difficulty(Integer difficulty) {
+        this.minDifficulty = difficulty;
+        this.maxDifficulty = difficulty;
+        this.includeUnrated = difficulty == null;
+        return this;
+    }
+
+    /**
+     * Filtrer sur une plage de difficulté ; les ressources sans difficulté
+     * sont conservées (comme la recherche avancée en base)
+     */
+    public SearchQuery difficultyBetween(int min, int max) {
+        this.minDifficulty = min;
+        this.maxDifficulty = max;
+        this.includeUnrated = true;
+        return this;
+    }
+
+    /**
+     * Au moins un de ces types d'interactivité (vide : pas de filtre)
+     */
+    public SearchQuery interactivityTypes(Collection<String> interactivityTypes) {
+        this.interactivityTypes = interactivityTypes != null ? new ArrayList<>(interactivityTypes) : new ArrayList<>();
+        return this;
+    }
+
+    /**
+     * Au moins un de ces types de ressource (vide : pas de filtre)
+     */
+    public SearchQuery learningResourceTypes(Collection<String> learningResourceTypes) {
+        this.learningResourceTypes = learningResourceTypes != null
+                ? new ArrayList<>(learningResourceTypes) : new ArrayList<>();
+        return this;
+    }
+
+    /**
+     * Au moins un de ces tags (vide : pas de filtre)
+     */
+    public SearchQuery tags(Collection<String> tags) {
+        this.tags = tags != null ? new ArrayList<>(tags) : new ArrayList<>();
+        return this;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean hasText() {
+        return text != null && !text.isEmpty();
+    }
+
+    public boolean isExactTitle() {
+        return exactTitle;
+    }
+
+    public boolean isFuzzy() {
+        return fuzzy;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Difficulté minimum (null : pas de filtre)
+     */
+    public Integer getMinDifficulty() {
+        return minDifficulty;
+    }
+
+    public Integer getMaxDifficulty() {
+        return maxDifficulty;
+    }
+
+    public List<String> getInteractivityTypes() {
+        return interactivityTypes;
+    }
+
+    public List<String> getLearningResourceTypes() {
+        return learningResourceTypes;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Clé normalisée de la requête (cache de résultats) : deux requêtes
+     * équivalentes (casse, accents, espaces, ordre des valeurs choisies)
+     * ont la même clé
+     */
+    public String cacheKey() {
+        String normalizedText = hasText() ? SPACES.matcher(Analyzer.fold(text)).replaceAll(" ") : "";
+        return String.join(KEY_SEPARATOR,
+                normalizedText,
+                Boolean.toString(exactTitle),
+                Boolean.toString(fuzzy),
+                String.valueOf(language),
+                String.valueOf(minDifficulty),
+                String.valueOf(maxDifficulty),
+                Boolean.toString(includeUnrated),
+                String.join(",", new TreeSet<>(interactivityTypes)),
+                String.join(",", new TreeSet<>(learningResourceTypes)),
+                String.join(",", new TreeSet<>(tags)));
+    }
+
+    /**
+     * Valeurs acceptées pour une facette (null : pas de filtre) ; la plage
+     * de difficulté devient la liste de ses valeurs (vide si min > max)
+     */
+    List<String> facetFilter(Facet facet) {
+        return switch (facet) {
+            case LANGUAGE -> language != null ? List.of(language) : null;
+            case DIFFICULTY -> difficultyValues();
+            case INTERACTIVITY_TYPE -> nonEmpty(interactivityTypes);
+            case LEARNING_RESOURCE_TYPE -> nonEmpty(learningResourceTypes);
+            case TAG -> nonEmpty(tags);
+        };
+    }
+
+    /**
+     * Indique si le filtre de la facette conserve les ressources sans valeur
+     */
+    boolean acceptsMissing(Facet facet) {
+        return facet == Facet.DIFFICULTY && includeUnrated;
+    }
+
+    private List<String> difficultyValues() {
+        if (minDifficulty == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        for (int difficulty = minDifficulty; difficulty <= maxDifficulty; difficulty++) {
+            values.add(Integer.toString(difficulty));
+        }
+        return values;
+    }
+
+    private static List<String> nonEmpty(List<String> values) {
+        return values.isEmpty() ? null : values;
+    }
+}
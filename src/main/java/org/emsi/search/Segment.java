@@ -0,0 +1,146 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+import org.emsi.dao.LomSummary;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Segment de l'index de recherche : un ensemble de documents avec ses
+ * dictionnaires de termes, postings, colonnes (langue, difficulté),
+ * ensembles de documents par valeur de facette et champs stockés
+ *
+ * Les documents sont numérotés de 0 à maxDoc() - 1. Un document n'est
+ * jamais modifié : une mise à jour le marque supprimé (bits "live") et
+ * ajoute la nouvelle version dans le segment en mémoire.
+ *
+ * - MemorySegment : segment modifiable des changements récents
+ * - DiskSegment   : segment immuable projeté en mémoire (mmap)
+ */
+abstract class Segment {
+
+    /**
+     * Champs texte indexés
+     */
+    enum Field {
+        TITLE, KEYWORD, DESCRIPTION
+    }
+
+    protected final BitSet live;
+
+    protected Segment(BitSet live) {
+        this.live = live;
+    }
+
+    abstract int maxDoc();
+
+    /**
+     * Identifiant de la ressource d'un document
+     */
+    abstract long resourceId(int doc);
+
+    /**
+     * Numéro du document d'une ressource (vivant ou non), -1 si absente
+     */
+    abstract int findDoc(long resourceId);
+
+    /**
+     * Champs stockés d'un document (pour le réindexer ou l'afficher)
+     */
+    abstract LomDocument document(int doc);
+
+    abstract String language(int doc);
+
+    abstract Integer difficulty(int doc);
+
+    abstract String title(int doc);
+
+    /**
+     * Date de création (null si inconnue)
+     */
+    abstract Date createdAt(int doc);
+
+    /**
+     * Postings d'un terme dans un champ (null si absent)
+     */
+    abstract PostingsList postings(Field field, String term);
+
+    /**
+     * Termes d'un champ, par ordre croissant
+     */
+    abstract Iterable<String> terms(Field field);
+
+    /**
+     * Nombre de termes d'un champ
+     */
+    abstract int termCount(Field field);
+
+    /**
+     * Terme de rang ord (0 à termCount - 1) dans l'ordre croissant
+     */
+    abstract String term(Field field, int ord);
+
+    abstract int fieldLength(Field field, int doc);
+
+    /**
+     * Somme des longueurs du champ sur tous les documents du segment
+     */
+    abstract long totalFieldLength(Field field);
+
+    /**
+     * Documents portant une valeur de facette (null si aucun)
+     */
+    abstract DocSet facetDocs(Facet facet, String value);
+
+    /**
+     * Valeurs d'une facette dans le segment, par ordre croissant
+     */
+    abstract Iterable<String> facetValues(Facet facet);
+
+    LomSummary summary(int doc) {
+        LomDocument document = document(doc);
+        return document.summary();
+    }
+
+    /**
+     * Tags d'un document
+     */
+    Set<String> tags(int doc) {
+        Set<String> tags = new HashSet<>();
+        for (String tag : facetValues(Facet.TAG)) {
+            DocSet docs = facetDocs(Facet.TAG, tag);
+            if (docs != null && docs.contains(doc)) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    boolean isLive(int doc) {
+        return live.get(doc);
+    }
+
+    /**
+     * Marquer un document supprimé
+     *
+     * @return true s'il était vivant
+     */
+    boolean delete(int doc) {
+        if (!live.get(doc)) {
+            return false;
+        }
+        live.clear(doc);
+        return true;
+    }
+
+    int liveCount() {
+        return live.cardinality();
+    }
+
+    BitSet liveDocs() {
+        return (BitSet) live.clone();
+    }
+}
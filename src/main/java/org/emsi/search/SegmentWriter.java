@@ -0,0 +1,424 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Écriture d'un DiskSegment à partir d'un ou plusieurs segments
+ *
+ * Sert à la fois à vider le segment en mémoire sur disque et à fusionner
+ * des segments : seuls les documents vivants des sources sont recopiés,
+ * triés par identifiant de ressource, ce qui purge les suppressions.
+ * Les sections sont écrites à la suite en un seul passage puis leurs
+ * positions sont reportées dans l'en-tête (voir DiskSegment).
+ */
+final class SegmentWriter {
+
+    /**
+     * Ordre des octets UTF-8 (celui de la dichotomie de DiskSegment.ByteTable),
+     * qui diffère de String.compareTo pour les caractères hors plan de base
+     */
+    static final Comparator<String> UTF8_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    };
+
+    private SegmentWriter() {
+    }
+
+    /**
+     * Écrire un segment contenant les documents vivants des sources
+     *
+     * @param live documents à recopier de chaque source : instantané de ses
+     *             bits vivants pris sous le verrou de l'index (les
+     *             suppressions postérieures sont reportées par l'appelant)
+     * @return pour chaque source, le nouveau numéro de chacun de ses
+     *         documents (-1 si non recopié)
+     */
+    static int[][] write(Path file, List<? extends Segment> sources, List<BitSet> live) throws IOException {
+        int[][] remap = new int[sources.size()][];
+        List<int[]> order = mergeOrder(sources, live, remap);
+        int[] sourceOf = order.get(0);
+        int[] docOf = order.get(1);
+        int docCount = sourceOf.length;
+
+        long[] sections = new long[DiskSegment.SECTIONS];
+        try (CountingOutput out = new CountingOutput(Files.newOutputStream(file))) {
+            out.write(new byte[DiskSegment.HEADER_SIZE]);
+
+            // Colonnes et champs stockés, document par document
+            long[] ids = new long[docCount];
+            long[] created = new long[docCount];
+            byte[] difficulties = new byte[docCount];
+            int[] storedOffsets = new int[docCount * DiskSegment.STORED_FIELDS + 1];
+
+            sections[DiskSegment.STORED_DATA] = out.position();
+            long storedStart = out.position();
+            for (int doc = 0; doc < docCount; doc++) {
+                LomDocument document = sources.get(sourceOf[doc]).document(docOf[doc]);
+                ids[doc] = document.id();
+                created[doc] = document.createdAt() != null ? document.createdAt().getTime() : DiskSegment.NO_DATE;
+                difficulties[doc] = document.difficulty() != null
+                        ? document.difficulty().byteValue() : DiskSegment.NO_DIFFICULTY;
+
+                int index = doc * DiskSegment.STORED_FIELDS;
+                storedOffsets[index] = (int) (out.position() - storedStart);
+                writeStored(out, document.title());
+                storedOffsets[index + 1] = (int) (out.position() - storedStart);
+                writeStored(out, document.keyword());
+                storedOffsets[index + 2] = (int) (out.position() - storedStart);
+                writeStored(out, document.description());
+                out.checkSize();
+            }
+            storedOffsets[docCount * DiskSegment.STORED_FIELDS] = (int) (out.position() - storedStart);
+
+            sections[DiskSegment.STORED_OFFSETS] = out.position();
+            for (int offset : storedOffsets) {
+                out.writeInt(offset);
+            }
+            sections[DiskSegment.IDS] = out.position();
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            sections[DiskSegment.CREATED] = out.position();
+            for (long date : created) {
+                out.writeLong(date);
+            }
+            sections[DiskSegment.DIFFICULTY] = out.position();
+            out.write(difficulties);
+
+            // Champs texte : longueurs, dictionnaire, postings
+            long[] totalLengths = new long[Segment.Field.values().length];
+            for (Segment.Field field : Segment.Field.values()) {
+                int f = field.ordinal();
+                sections[DiskSegment.FIELD_LENGTHS + f] = out.position();
+                for (int doc = 0; doc < docCount; doc++) {
+                    int length = sources.get(sourceOf[doc]).fieldLength(field, docOf[doc]);
+                    totalLengths[f] += length;
+                    out.writeInt(length);
+                }
+
+                List<String> terms = union(sources, segment -> segment.terms(field));
+                sections[DiskSegment.TERMS + f] = out.position();
+                writeTable(out, terms);
+                sections[DiskSegment.POSTINGS + f] = out.position();
+                int[] starts = writePostings(out, sources, remap, terms, term -> postingsOf(sources, field, term));
+                sections[DiskSegment.POSTINGS_STARTS + f] = out.position();
+                for (int start : starts) {
+                    out.writeInt(start);
+                }
+            }
+
+            for (Facet facet : Facet.values()) {
+                writeFacet(out, sources, remap, docCount, facet, sections);
+            }
+
+            sections[DiskSegment.TOTAL_LENGTHS] = out.position();
+            for (long total : totalLengths) {
+                out.writeLong(total);
+            }
+            out.checkSize();
+        }
+
+        try (RandomAccessFile header = new RandomAccessFile(file.toFile(), "rw")) {
+            header.writeInt(DiskSegment.MAGIC);
+            header.writeInt(DiskSegment.VERSION);
+            header.writeInt(docCount);
+            header.writeInt(0);
+            for (long section : sections) {
+                header.writeLong(section);
+            }
+            header.getFD().sync();
+        }
+        return remap;
+    }
+
+    /**
+     * Ordre des documents du nouveau segment : fusion des documents vivants
+     * de chaque source par identifiant croissant. Si une ressource figure
+     * dans plusieurs sources, la plus récente (dernière source) l'emporte.
+     */
+    private static List<int[]> mergeOrder(List<? extends Segment> sources, List<BitSet> live, int[][] remap) {
+        int[][] sorted = new int[sources.size()][];
+        int total = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            Segment segment = sources.get(s);
+            remap[s] = new int[segment.maxDoc()];
+            Arrays.fill(remap[s], -1);
+            sorted[s] = live.get(s).stream()
+                    .boxed()
+                    .sorted(Comparator.comparingLong(segment::resourceId))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            total += sorted[s].length;
+        }
+
+        int[] sourceOf = new int[total];
+        int[] docOf = new int[total];
+        int[] heads = new int[sources.size()];
+        int count = 0;
+        while (true) {
+            int best = -1;
+            long bestId = 0;
+            for (int s = 0; s < sources.size(); s++) {
+                if (heads[s] >= sorted[s].length) {
+                    continue;
+                }
+                long id = sources.get(s).resourceId(sorted[s][heads[s]]);
+                if (best < 0 || id <= bestId) {
+                    if (best >= 0 && id == bestId) {
+                        heads[best]++; // version plus ancienne : ignorée
+                    }
+                    best = s;
+                    bestId = id;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            int doc = sorted[best][heads[best]++];
+            remap[best][doc] = count;
+            sourceOf[count] = best;
+            docOf[count] = doc;
+            count++;
+        }
+        return List.of(Arrays.copyOf(sourceOf, count), Arrays.copyOf(docOf, count));
+    }
+
+    private static List<String> union(List<? extends Segment> sources,
+                                      Function<Segment, Iterable<String>> names) {
+        TreeSet<String> all = new TreeSet<>(UTF8_ORDER);
+        for (Segment segment : sources) {
+            for (String name : names.apply(segment)) {
+                all.add(name);
+            }
+        }
+        return new ArrayList<>(all);
+    }
+
+    private static List<PostingsList> postingsOf(List<? extends Segment> sources, Segment.Field field, String term) {
+        List<PostingsList> lists = new ArrayList<>(sources.size());
+        for (Segment segment : sources) {
+            lists.add(segment.postings(field, term));
+        }
+        return lists;
+    }
+
+    /**
+     * Écrire une facette : dictionnaire des valeurs, ensemble renuméroté des
+     * documents de chaque valeur (liste triée ou liste à bits, la plus
+     * compacte), puis numéro de valeur de chaque document si la facette
+     * est mono-valuée
+     */
+    private static void writeFacet(CountingOutput out, List<? extends Segment> sources, int[][] remap,
+                                   int docCount, Facet facet, long[] sections) throws IOException {
+        List<String> values = union(sources, segment -> segment.facetValues(facet));
+        sections[DiskSegment.facetSection(DiskSegment.FACET_VALUES, facet)] = out.position();
+        writeTable(out, values);
+
+        int[] ords = facet.isMultiValued() ? null : new int[docCount];
+        if (ords != null) {
+            Arrays.fill(ords, -1);
+        }
+        int[] starts = new int[values.size() + 1];
+        long dataStart = out.position();
+        sections[DiskSegment.facetSection(DiskSegment.FACET_DOCS, facet)] = dataStart;
+        for (int v = 0; v < values.size(); v++) {
+            starts[v] = (int) (out.position() - dataStart);
+            BitSet docs = new BitSet(docCount);
+            for (int s = 0; s < sources.size(); s++) {
+                DocSet source = sources.get(s).facetDocs(facet, values.get(v));
+                if (source == null) {
+                    continue;
+                }
+                BitSet local = new BitSet();
+                source.addTo(local, 0);
+                for (int doc = local.nextSetBit(0); doc >= 0; doc = local.nextSetBit(doc + 1)) {
+                    if (remap[s][doc] >= 0) {
+                        docs.set(remap[s][doc]);
+                    }
+                }
+            }
+
+            int cardinality = docs.cardinality();
+            out.writeInt(cardinality);
+            if (cardinality > docCount / 32) {
+                // Dense : maxDoc / 8 octets au lieu de 4 par document
+                out.writeInt(DiskSegment.BITMAP);
+                long[] words = Arrays.copyOf(docs.toLongArray(), (docCount + 63) / 64);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            } else {
+                out.writeInt(DiskSegment.SORTED_DOCS);
+                for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+                    out.writeInt(doc);
+                }
+            }
+            if (ords != null) {
+                for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+                    ords[doc] = v;
+                }
+            }
+            out.checkSize();
+        }
+        starts[values.size()] = (int) (out.position() - dataStart);
+
+        sections[DiskSegment.facetSection(DiskSegment.FACET_STARTS, facet)] = out.position();
+        for (int start : starts) {
+            out.writeInt(start);
+        }
+        if (ords != null) {
+            sections[DiskSegment.facetSection(DiskSegment.FACET_ORDS, facet)] = out.position();
+            for (int ord : ords) {
+                out.writeInt(ord);
+            }
+        }
+    }
+
+    /**
+     * Écrire les postings renumérotées de chaque entrée du dictionnaire
+     *
+     * @return position de départ (en postings) de chaque entrée, plus la fin
+     */
+    private static int[] writePostings(CountingOutput out, List<? extends Segment> sources, int[][] remap,
+                                       List<String> keys,
+                                       Function<String, List<PostingsList>> lookup)
+            throws IOException {
+        int[] starts = new int[keys.size() + 1];
+        long[] buffer = new long[16];
+        int written = 0;
+        for (int k = 0; k < keys.size(); k++) {
+            starts[k] = written;
+            List<PostingsList> lists = lookup.apply(keys.get(k));
+            int size = 0;
+            for (int s = 0; s < sources.size(); s++) {
+                PostingsList list = lists.get(s);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size(); i++) {
+                    int doc = remap[s][list.doc(i)];
+                    if (doc < 0) {
+                        continue;
+                    }
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, size * 2);
+                    }
+                    buffer[size++] = ((long) doc << 32) | (list.freq(i) & 0xFFFFFFFFL);
+                }
+            }
+            Arrays.sort(buffer, 0, size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt((int) (buffer[i] >>> 32));
+                out.writeInt((int) buffer[i]);
+            }
+            written += size;
+            out.checkSize();
+        }
+        starts[keys.size()] = written;
+        return starts;
+    }
+
+    private static void writeStored(CountingOutput out, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Dictionnaire : nombre d'entrées, décalages, octets UTF-8
+     */
+    private static void writeTable(CountingOutput out, List<String> values) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            encoded.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        out.writeInt(values.size());
+        int offset = 0;
+        out.writeInt(0);
+        for (byte[] bytes : encoded) {
+            offset += bytes.length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Flux de sortie qui compte les octets écrits (DataOutputStream.size()
+     * plafonne à Integer.MAX_VALUE)
+     */
+    private static final class CountingOutput extends DataOutputStream {
+        private final Counter counter;
+
+        CountingOutput(OutputStream out) {
+            this(new Counter(new BufferedOutputStream(out, 1 << 16)));
+        }
+
+        private CountingOutput(Counter counter) {
+            super(counter);
+            this.counter = counter;
+        }
+
+        long position() {
+            return counter.count;
+        }
+
+        /**
+         * Un segment doit tenir dans un ByteBuffer pour être projeté
+         */
+        void checkSize() throws IOException {
+            if (counter.count > Integer.MAX_VALUE) {
+                throw new IOException("Segment supérieur à 2 Go");
+            }
+        }
+    }
+
+    private static final class Counter extends FilterOutputStream {
+        private long count;
+
+        Counter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Vue de recherche sur un ensemble de segments
+ *
+ * Chaque segment reçoit une base : le document d du segment i a le numéro
+ * global bases[i] + d. Les correspondances sont calculées segment par
+ * segment dans une seule liste à bits globale ; les statistiques BM25
+ * (nombre de documents, fréquence des termes, longueur moyenne) portent
+ * sur l'ensemble des segments pour que les scores restent comparables.
+ *
+ * Construite sous le verrou de SearchIndex et utilisée sous ce verrou.
+ */
+final class SegmentedIndex {
+
+    private final List<Segment> segments;
+    private final int[] bases;
+    private final int maxDoc;
+
+    SegmentedIndex(List<Segment> segments) {
+        this.segments = segments;
+        this.bases = new int[segments.size()];
+        int base = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            bases[i] = base;
+            base += segments.get(i).maxDoc();
+        }
+        this.maxDoc = base;
+    }
+
+    List<Segment> segments() {
+        return segments;
+    }
+
+    int base(int segment) {
+        return bases[segment];
+    }
+
+    int maxDoc() {
+        return maxDoc;
+    }
+
+    /**
+     * Nombre de documents vivants
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.liveCount();
+        }
+        return size;
+    }
+
+    /**
+     * Documents vivants contenant, pour chaque clause, au moins une de ses
+     * variantes dans au moins un des champs (tous les documents vivants si
+     * aucune clause)
+     */
+    BitSet matchAll(List<Map<String, Float>> clauses, Collection<Segment.Field> fields) {
+        BitSet result = new BitSet(maxDoc);
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            BitSet local = null;
+            for (Map<String, Float> clause : clauses) {
+                BitSet any = new BitSet(segment.maxDoc());
+                for (String term : clause.keySet()) {
+                    for (Segment.Field field : fields) {
+                        PostingsList list = segment.postings(field, term);
+                        if (list != null) {
+                            list.addTo(any, 0);
+                        }
+                    }
+                }
+                if (local == null) {
+                    local = any;
+                } else {
+                    local.and(any);
+                }
+                if (local.isEmpty()) {
+                    break;
+                }
+            }
+            if (local == null) {
+                local = segment.liveDocs();
+            } else {
+                local.and(segment.live);
+            }
+            int base = bases[s];
+            for (int doc = local.nextSetBit(0); doc >= 0; doc = local.nextSetBit(doc + 1)) {
+                result.set(base + doc);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Variantes d'un terme de requête avec leur poids : le terme lui-même,
+     * ses variantes proches (fuzzy) et ses complétions (prefix) indexées
+     * dans les champs donnés ; le meilleur poids si une variante est les
+     * deux
+     */
+    Map<String, Float> expand(String term, Collection<Segment.Field> fields, boolean fuzzy, boolean prefix) {
+        Map<String, Float> variants = new LinkedHashMap<>();
+        if (fuzzy) {
+            variants.putAll(fuzzyVariants(term, fields));
+        } else {
+            variants.put(term, 1f);
+        }
+        if (prefix) {
+            for (String completion : completions(term, fields)) {
+                variants.merge(completion, PrefixTerms.WEIGHT, Math::max);
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * Termes indexés (dans les champs donnés) proches d'un terme de
+     * requête, avec leur poids (FuzzyTerms) : le terme lui-même s'il est
+     * indexé, puis les MAX_EXPANSIONS variantes les plus proches
+     */
+    private Map<String, Float> fuzzyVariants(String term, Collection<Segment.Field> fields) {
+        int maxEdits = FuzzyTerms.maxEdits(term);
+        if (maxEdits == 0) {
+            return Map.of(term, 1f);
+        }
+        Map<String, Integer> matches = new HashMap<>();
+        for (Segment segment : segments) {
+            for (Segment.Field field : fields) {
+                FuzzyTerms.collect(segment, field, term, maxEdits, matches);
+            }
+        }
+        Map<String, Float> variants = new LinkedHashMap<>();
+        matches.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .limit(FuzzyTerms.MAX_EXPANSIONS)
+                .forEach(match -> variants.put(match.getKey(), FuzzyTerms.weight(match.getValue())));
+        return variants;
+    }
+
+    /**
+     * Termes indexés (dans les champs donnés) qui prolongent un terme de
+     * requête : les MAX_EXPANSIONS plus courts (aucun sous MIN_LENGTH)
+     */
+    private List<String> completions(String term, Collection<Segment.Field> fields) {
+        if (term.length() < PrefixTerms.MIN_LENGTH) {
+            return List.of();
+        }
+        Set<String> completions = new HashSet<>();
+        for (Segment segment : segments) {
+            for (Segment.Field field : fields) {
+                PrefixTerms.collect(segment, field, term, completions);
+            }
+        }
+        return completions.stream()
+                .sorted(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()))
+                .limit(PrefixTerms.MAX_EXPANSIONS)
+                .toList();
+    }
+
+    /**
+     * Documents portant au moins une des valeurs de la facette (union des
+     * ensembles ; documents supprimés compris, à croiser avec les vivants)
+     */
+    BitSet facetAny(Facet facet, Collection<String> values) {
+        BitSet result = new BitSet(maxDoc);
+        for (int s = 0; s < segments.size(); s++) {
+            for (String value : values) {
+                DocSet docs = segments.get(s).facetDocs(facet, value);
+                if (docs != null) {
+                    docs.addTo(result, bases[s]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Documents vivants sans valeur pour la facette
+     */
+    BitSet facetMissing(Facet facet) {
+        BitSet result = new BitSet(maxDoc);
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            BitSet local = segment.liveDocs();
+            for (String value : segment.facetValues(facet)) {
+                BitSet docs = new BitSet(segment.maxDoc());
+                segment.facetDocs(facet, value).addTo(docs, 0);
+                local.andNot(docs);
+            }
+            int base = bases[s];
+            for (int doc = local.nextSetBit(0); doc >= 0; doc = local.nextSetBit(doc + 1)) {
+                result.set(base + doc);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Nombre de documents de l'ensemble portant chaque valeur de la facette
+     * (valeurs sans document omises), par intersection des ensembles de
+     * chaque segment avec sa tranche de l'ensemble
+     */
+    Map<String, Integer> facetCounts(Facet facet, BitSet docs) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            long[] words = docs.get(bases[s], bases[s] + segment.maxDoc()).toLongArray();
+            if (words.length == 0) {
+                continue;
+            }
+            for (String value : segment.facetValues(facet)) {
+                int count = segment.facetDocs(facet, value).intersectionCount(words);
+                if (count > 0) {
+                    counts.merge(value, count, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Segment contenant un document global
+     */
+    int segmentOf(int doc) {
+        int index = Arrays.binarySearch(bases, doc);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // Segments vides : dernier segment ayant cette base
+        while (index + 1 < bases.length && bases[index + 1] == doc) {
+            index++;
+        }
+        return index;
+    }
+
+    LomSummary summary(int doc) {
+        int s = segmentOf(doc);
+        return segments.get(s).summary(doc - bases[s]);
+    }
+
+    String title(int doc) {
+        int s = segmentOf(doc);
+        return segments.get(s).title(doc - bases[s]);
+    }
+
+    long resourceId(int doc) {
+        int s = segmentOf(doc);
+        return segments.get(s).resourceId(doc - bases[s]);
+    }
+
+    /**
+     * Valeur de la clé de tri d'un document, avec les mêmes valeurs neutres
+     * que la base (COALESCE) pour que les curseurs soient interchangeables
+     */
+    Object sortValue(LomSchemaDao.SortKey sortKey, int doc) {
+        int s = segmentOf(doc);
+        Segment segment = segments.get(s);
+        int local = doc - bases[s];
+        return switch (sortKey) {
+            case TITLE -> Objects.requireNonNullElse(segment.title(local), "");
+            case CREATED_AT -> Objects.requireNonNullElse(segment.createdAt(local), LomSchemaDao.SortKey.NO_DATE);
+            case LANGUAGE -> Objects.requireNonNullElse(segment.language(local), "");
+            case DIFFICULTY -> Objects.requireNonNullElse(segment.difficulty(local), 0);
+        };
+    }
+
+    /**
+     * Nombre de documents contenant le terme dans le champ (documents
+     * supprimés compris, comme les longueurs)
+     */
+    int docFreq(Segment.Field field, String term) {
+        int df = 0;
+        for (Segment segment : segments) {
+            PostingsList list = segment.postings(field, term);
+            if (list != null) {
+                df += list.size();
+            }
+        }
+        return df;
+    }
+
+    double averageFieldLength(Segment.Field field) {
+        if (maxDoc == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.totalFieldLength(field);
+        }
+        return (double) total / maxDoc;
+    }
+}
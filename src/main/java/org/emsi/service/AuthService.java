@@ -1,5 +1,6 @@
 package org.emsi.service;
 
+import org.emsi.dao.ReadRouter;
 import org.emsi.dao.UserDao;
 import org.emsi.entities.User;
 
@@ -11,16 +12,21 @@ public class AuthService {
 
     private static AuthService instance;
     private final UserDao userDao;
-    private User currentUser;
+    private volatile User currentUser;
 
     private AuthService() {
         this.userDao = new UserDao();
+        // Lecture de ses propres écritures suivie par utilisateur connecté
+        ReadRouter.setSessionResolver(() -> {
+            User user = currentUser;
+            return user != null ? user.getId() : null;
+        });
     }
 
     /**
      * Obtenir l'instance unique (Singleton)
      */
-    public static AuthService getInstance() {
+    public static synchronized AuthService getInstance() {
         if (instance == null) {
             instance = new AuthService();
         }
@@ -1,5 +1,6 @@
 package org.emsi.service;
 
+import org.emsi.dao.DbExecutor;
 import org.emsi.dao.LomSchemaDao;
 import org.emsi.entities.LomSchema;
 
@@ -170,6 +171,60 @@ public class BatchImportService {
         return new ImportResult(imported, errors);
     }
 
+    /**
+     * BATCH JDBC: Import par lots dans une seule session par lot
+     *
+     * Chaque lot est inséré dans une transaction unique avec des INSERT
+     * groupés (hibernate.jdbc.batch_size), au lieu d'une transaction par
+     * ressource. Un lot en échec est annulé sans affecter les autres.
+     *
+     * @param resourcesData Liste de données à importer
+     * @param chunkSize     nombre de ressources par transaction
+     * @return ImportResult résultat de l'import
+     */
+    public ImportResult importResourcesBatched(List<ResourceData> resourcesData, int chunkSize) {
+        int total = resourcesData.size();
+        List<LomSchema> imported = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+
+        for (int start = 0; start < total; start += chunkSize) {
+            List<ResourceData> chunk = resourcesData.subList(start, Math.min(start + chunkSize, total));
+
+            List<LomSchema> toSave = chunk.stream()
+                    .map(data -> lomService.buildResource(data.title, data.url))
+                    .collect(Collectors.toList());
+
+            List<LomSchema> saved = lomService.saveResources(toSave);
+            if (saved.isEmpty()) {
+                chunk.forEach(data -> errors.add(data.title + " (échec du lot)"));
+            } else {
+                imported.addAll(saved);
+            }
+
+            if (progressListener != null) {
+                ResourceData last = chunk.get(chunk.size() - 1);
+                progressListener.onProgress(start + chunk.size(), total, last.title);
+            }
+        }
+
+        if (progressListener != null) {
+            progressListener.onComplete(imported.size(), errors.size());
+        }
+
+        return new ImportResult(imported, errors);
+    }
+
+    /**
+     * Import par lots sur l'executor BDD partagé
+     *
+     * Les lots étant séquentiels, une seule connexion est occupée pendant
+     * tout l'import.
+     */
+    public CompletableFuture<ImportResult> importResourcesBatchedAsync(List<ResourceData> resourcesData,
+            int chunkSize) {
+        return DbExecutor.submit(() -> importResourcesBatched(resourcesData, chunkSize));
+    }
+
     /**
      * COUNTDOWNLATCH: Import synchronisé avec barrière
      * 
@@ -1,7 +1,11 @@
 package org.emsi.service;
 
+import org.emsi.dao.ConnectionPoolMetrics;
+import org.emsi.dao.DbExecutor;
 import org.emsi.dao.GenericDao;
 import org.emsi.dao.HibernateUtil;
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.QueryMetrics;
 import org.emsi.entities.LomSchema;
 import org.emsi.exceptions.LomException;
 import org.hibernate.Session;
@@ -10,10 +14,9 @@ import org.hibernate.Transaction;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service démontrant Threads + Base de Données
@@ -21,7 +24,7 @@ import java.util.stream.Collectors;
  * Ce service implémente les concepts de l'Exercice 7:
  * - Accès concurrent à la base de données
  * - Synchronisation des transactions
- * - Thread-safety avec locks
+ * - Verrouillage optimiste (colonnes de version) au lieu de verrous JVM
  * - Gestion du pool de connexions Hibernate
  * 
  * @author Projet LOM - EMSI
@@ -30,43 +33,22 @@ public class DatabaseSyncService {
 
     private static DatabaseSyncService instance;
 
-    // LOCK: ReadWriteLock pour gérer les accès lecture/écriture
-    // Permet plusieurs lecteurs simultanés mais un seul écrivain
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-
-    // LOCK: ReentrantLock pour les opérations critiques
-    private final ReentrantLock criticalLock = new ReentrantLock();
+    // Tentatives d'une mise à jour en conflit de version
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
 
     // ATOMIC: Compteur thread-safe pour les statistiques
     private final AtomicInteger queryCount = new AtomicInteger(0);
     private final AtomicInteger updateCount = new AtomicInteger(0);
     private final AtomicInteger errorCount = new AtomicInteger(0);
 
-    // EXECUTORSERVICE: Pool de threads pour opérations BDD
-    private final ExecutorService dbExecutor;
-
     // CACHE: Cache thread-safe avec ConcurrentHashMap
     private final ConcurrentHashMap<Long, LomSchema> resourceCache;
 
-    private final GenericDao<LomSchema, Long> lomSchemaDao;
+    private final LomSchemaDao lomSchemaDao;
 
     private DatabaseSyncService() {
-        this.lomSchemaDao = new GenericDao<>(LomSchema.class);
+        this.lomSchemaDao = new LomSchemaDao();
         this.resourceCache = new ConcurrentHashMap<>();
-
-        // THREADPOOLEXECUTOR: Pool personnalisé pour les opérations BDD
-        // Limite le nombre de connexions simultanées à la BDD
-        this.dbExecutor = new ThreadPoolExecutor(
-                2, // corePoolSize - 2 threads minimum
-                5, // maxPoolSize - 5 threads maximum
-                30L, // keepAliveTime
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(50), // File d'attente de 50 tâches
-                r -> {
-                    Thread t = new Thread(r, "DB-Worker-" + Thread.currentThread().getId());
-                    t.setDaemon(true);
-                    return t;
-                });
     }
 
     public static synchronized DatabaseSyncService getInstance() {
@@ -77,113 +59,134 @@ public class DatabaseSyncService {
     }
 
     // =========================================================================
-    // MÉTHODES AVEC READWRITELOCK - Exercice 6: Synchronisation
+    // VERROUILLAGE OPTIMISTE - Exercice 6: Synchronisation
     // =========================================================================
 
     /**
-     * READLOCK: Lecture synchronisée - plusieurs threads peuvent lire
-     * 
-     * Démontre l'utilisation de ReadWriteLock.readLock()
-     * Permet des lectures concurrentes sans bloquer les autres lecteurs
+     * Lecture concurrente sans verrou
+     *
+     * Le cache (CONCURRENTHASHMAP) est thread-safe ; la cohérence des
+     * écritures est assurée par les colonnes de version en base.
      */
     public LomSchema readResourceSafe(Long id) {
-        // READLOCK.LOCK(): Acquérir le verrou de lecture
-        readWriteLock.readLock().lock();
-        try {
-            queryCount.incrementAndGet(); // Compteur atomique
-
-            // Vérifier le cache d'abord (CONCURRENTHASHMAP)
-            LomSchema cached = resourceCache.get(id);
-            if (cached != null) {
-                System.out.println("📖 [" + Thread.currentThread().getName() + "] Cache hit pour ID: " + id);
-                return cached;
-            }
+        queryCount.incrementAndGet(); // Compteur atomique
 
-            // Sinon, lire depuis la BDD
-            LomSchema resource = lomSchemaDao.findById(id);
-            if (resource != null) {
-                resourceCache.put(id, resource); // Mettre en cache
-            }
-
-            System.out.println("📖 [" + Thread.currentThread().getName() + "] Lecture BDD ID: " + id);
-            return resource;
+        // Vérifier le cache d'abord (CONCURRENTHASHMAP)
+        LomSchema cached = resourceCache.get(id);
+        if (cached != null) {
+            System.out.println("📖 [" + Thread.currentThread().getName() + "] Cache hit pour ID: " + id);
+            return cached;
+        }
 
-        } finally {
-            // READLOCK.UNLOCK(): Toujours libérer le verrou dans finally
-            readWriteLock.readLock().unlock();
+        // Sinon, lire depuis la BDD
+        LomSchema resource = lomSchemaDao.findById(id);
+        if (resource != null) {
+            resourceCache.put(id, resource); // Mettre en cache
         }
+
+        System.out.println("📖 [" + Thread.currentThread().getName() + "] Lecture BDD ID: " + id);
+        return resource;
     }
 
     /**
-     * WRITELOCK: Écriture synchronisée - un seul thread à la fois
-     * 
-     * Démontre l'utilisation de ReadWriteLock.writeLock()
-     * Bloque tous les autres threads (lecteurs et écrivains)
+     * Mise à jour d'une ressource détachée, contrôlée par sa version
+     *
+     * Les écrivains ne se bloquent plus entre eux : si la ressource a été
+     * modifiée depuis sa lecture (autre thread ou autre instance), l'UPDATE
+     * ne trouve plus la version attendue et rien n'est écrit. L'état
+     * détaché ne peut pas être rejoué sur la version à jour : le conflit
+     * est remonté à l'appelant (à relire et à présenter à l'utilisateur).
+     * Préférer updateResourceSafe(id, changes) qui rejoue la modification.
+     *
+     * @throws LomException RESOURCE_CONFLICT si la ressource a été modifiée
+     *                      depuis sa lecture, RESOURCE_UPDATE_FAILED en cas
+     *                      d'autre échec
      */
-    public void updateResourceSafe(LomSchema resource) {
-        // WRITELOCK.LOCK(): Acquérir le verrou d'écriture (exclusif)
-        readWriteLock.writeLock().lock();
+    public void updateResourceSafe(LomSchema resource) throws LomException {
+        boolean written;
         try {
-            updateCount.incrementAndGet();
-
-            // Mettre à jour en BDD
-            lomSchemaDao.update(resource);
-
+            // Mettre à jour en BDD (WHERE lock_version = ?)
+            written = lomSchemaDao.updateIfUnchanged(resource);
+        } catch (RuntimeException e) {
+            errorCount.incrementAndGet();
+            throw new LomException("Mise à jour impossible de la ressource " + resource.getId(),
+                    LomException.ErrorCode.RESOURCE_UPDATE_FAILED, e);
+        } finally {
             // Invalider le cache pour cette ressource
             resourceCache.remove(resource.getId());
-
-            System.out.println("✏️ [" + Thread.currentThread().getName() + "] Mise à jour ID: " + resource.getId());
-
-        } finally {
-            // WRITELOCK.UNLOCK(): Libérer le verrou d'écriture
-            readWriteLock.writeLock().unlock();
         }
+        if (!written) {
+            errorCount.incrementAndGet();
+            throw new LomException("La ressource " + resource.getId() + " a été modifiée depuis sa lecture",
+                    LomException.ErrorCode.RESOURCE_CONFLICT);
+        }
+        updateCount.incrementAndGet();
+        System.out.println("✏️ [" + Thread.currentThread().getName() + "] Mise à jour ID: " + resource.getId());
     }
 
-    // =========================================================================
-    // MÉTHODES AVEC REENTRANTLOCK - Exercice 6: Synchronisation
-    // =========================================================================
+    /**
+     * Mise à jour avec nouvelle tentative en cas de conflit de version
+     *
+     * changes est appliqué sur la ressource relue en base ; en cas de
+     * StaleObjectStateException il est rejoué sur la version à jour.
+     *
+     * @return la ressource modifiée
+     * @throws LomException si la ressource est introuvable ou si le conflit
+     *                      persiste
+     */
+    public LomSchema updateResourceSafe(Long id, Consumer<LomSchema> changes) throws LomException {
+        LomSchema updated = lomSchemaDao.modifyWithRetry(id, changes, MAX_UPDATE_ATTEMPTS);
+        resourceCache.remove(id);
+        if (updated == null) {
+            errorCount.incrementAndGet();
+            throw new LomException("Mise à jour impossible de la ressource " + id,
+                    LomException.ErrorCode.RESOURCE_UPDATE_FAILED);
+        }
+        updateCount.incrementAndGet();
+        System.out.println("✏️ [" + Thread.currentThread().getName() + "] Mise à jour ID: " + id);
+        return updated;
+    }
 
     /**
-     * REENTRANTLOCK: Section critique avec timeout
-     * 
-     * Démontre l'utilisation de tryLock() avec timeout
-     * Évite les deadlocks en limitant le temps d'attente
+     * Suppression contrôlée par version, avec délai maximal
+     *
+     * Plus de verrou global : deux suppressions de ressources différentes
+     * s'exécutent en parallèle. Si la ressource est modifiée entre sa
+     * lecture et sa suppression, la suppression est retentée sur la version
+     * à jour jusqu'à expiration du délai, après une attente croissante et
+     * aléatoire (GenericDao.backOff) pour ne pas relancer le conflit.
      */
     public boolean deleteResourceWithTimeout(Long id, long timeoutSeconds) {
-        boolean lockAcquired = false;
-
-        try {
-            // TRYLOCK: Tenter d'acquérir le verrou avec timeout
-            lockAcquired = criticalLock.tryLock(timeoutSeconds, TimeUnit.SECONDS);
-
-            if (lockAcquired) {
-                System.out.println("🗑️ [" + Thread.currentThread().getName() + "] Lock acquis, suppression ID: " + id);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        int attempt = 0;
 
-                // Supprimer de la BDD
-                LomSchema resource = lomSchemaDao.findById(id);
-                if (resource != null) {
-                    lomSchemaDao.delete(resource);
+        do {
+            attempt++;
+            LomSchema resource = lomSchemaDao.findById(id);
+            if (resource == null) {
+                return false;
+            }
+            try {
+                System.out.println("🗑️ [" + Thread.currentThread().getName() + "] Suppression ID: " + id);
+                if (lomSchemaDao.deleteIfUnchanged(resource)) {
                     resourceCache.remove(id);
                     updateCount.incrementAndGet();
                     return true;
                 }
-            } else {
-                System.out.println(
-                        "⏱️ [" + Thread.currentThread().getName() + "] Timeout: impossible d'acquérir le lock");
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                errorCount.incrementAndGet();
                 return false;
             }
-
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            errorCount.incrementAndGet();
-            return false;
-        } finally {
-            // Libérer le verrou seulement si on l'a acquis
-            if (lockAcquired) {
-                criticalLock.unlock();
+            System.out.println("🔁 [" + Thread.currentThread().getName()
+                    + "] Ressource modifiée pendant la suppression, tentative " + attempt);
+            if (System.nanoTime() >= deadline) {
+                break;
             }
-        }
+            GenericDao.backOff(attempt);
+        } while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted());
+
+        System.out.println("⏱️ [" + Thread.currentThread().getName() + "] Timeout: suppression abandonnée ID: " + id);
         return false;
     }
 
@@ -197,8 +200,8 @@ public class DatabaseSyncService {
      * Démontre l'exécution d'une requête BDD dans un thread séparé
      */
     public Future<List<LomSchema>> searchResourcesAsync(String keyword) {
-        // SUBMIT CALLABLE: Soumission d'une tâche qui retourne un résultat
-        return dbExecutor.submit(() -> {
+        // SUBMIT: Soumission à l'executor BDD partagé (une tâche par connexion)
+        return DbExecutor.submit(() -> {
             String threadName = Thread.currentThread().getName();
             System.out.println("🔍 [" + threadName + "] Recherche async: " + keyword);
 
@@ -221,20 +224,21 @@ public class DatabaseSyncService {
      * Démontre les opérations chaînées avec CompletableFuture
      */
     public CompletableFuture<Map<String, Long>> getStatisticsAsync() {
-        return CompletableFuture.supplyAsync(() -> {
+        return DbExecutor.submit(() -> {
             System.out.println("📊 [" + Thread.currentThread().getName() + "] Calcul statistiques...");
 
-            List<LomSchema> all = lomSchemaDao.findAll();
             queryCount.incrementAndGet();
 
-            // STREAM + GROUPINGBY: Statistiques par langue
-            return all.stream()
-                    .filter(r -> r.getGeneral() != null)
-                    .filter(r -> r.getGeneral().getLanguage() != null)
-                    .collect(Collectors.groupingBy(
-                            r -> r.getGeneral().getLanguage(),
-                            Collectors.counting()));
-        }, dbExecutor);
+            // STREAM + GROUPINGBY: Statistiques par langue (parcours en flux)
+            try (Stream<LomSchema> all = lomSchemaDao.streamAll()) {
+                return all
+                        .filter(r -> r.getGeneral() != null)
+                        .filter(r -> r.getGeneral().getLanguage() != null)
+                        .collect(Collectors.groupingBy(
+                                r -> r.getGeneral().getLanguage(),
+                                Collectors.counting()));
+            }
+        });
     }
 
     /**
@@ -253,16 +257,14 @@ public class DatabaseSyncService {
 
         // Soumettre une tâche par ID
         for (Long id : ids) {
-            dbExecutor.execute(() -> {
-                try {
-                    LomSchema resource = readResourceSafe(id);
-                    if (resource != null) {
-                        results.add(resource);
-                    }
-                } finally {
-                    // COUNTDOWN: Signal que cette tâche est terminée
-                    latch.countDown();
+            DbExecutor.run(() -> {
+                LomSchema resource = readResourceSafe(id);
+                if (resource != null) {
+                    results.add(resource);
                 }
+            }).whenComplete((ignored, error) -> {
+                // COUNTDOWN: Signal que cette tâche est terminée (ou refusée)
+                latch.countDown();
             });
         }
 
@@ -287,7 +289,7 @@ public class DatabaseSyncService {
      * avec commit/rollback approprié
      */
     public void batchUpdateInTransaction(List<LomSchema> resources) throws LomException {
-        Session session = HibernateUtil.getSessionFactory().openSession();
+        Session session = HibernateUtil.openSession();
         Transaction transaction = null;
 
         try {
@@ -344,6 +346,31 @@ public class DatabaseSyncService {
         stats.put("updates", updateCount.get());
         stats.put("errors", errorCount.get());
         stats.put("cacheSize", resourceCache.size());
+
+        // Pool de connexions partagé avec BatchImportService
+        ConnectionPoolMetrics.Snapshot pool = HibernateUtil.getPoolMetrics();
+        stats.put("poolActive", pool.active);
+        stats.put("poolIdle", pool.idle);
+        stats.put("poolWaiting", pool.waiting);
+        stats.put("poolTimeouts", (int) pool.timeouts);
+
+        // Executor BDD partagé (file bornée)
+        stats.put("dbActive", DbExecutor.getActiveCount());
+        stats.put("dbQueued", DbExecutor.getQueuedCount());
+        stats.put("dbRejected", (int) DbExecutor.getRejectedCount());
+
+        // Profilage SQL
+        QueryMetrics sql = HibernateUtil.getQueryMetrics();
+        stats.put("sqlStatements", (int) sql.getStatementCount());
+        stats.put("sqlSlowQueries", (int) sql.getSlowQueryCount());
+
+        // Cache des résultats de recherche
+        SearchResultCache searchCache = SearchResultCache.getInstance();
+        stats.put("searchCacheSize", searchCache.size());
+        stats.put("searchCacheHits", (int) searchCache.getHits());
+        stats.put("searchCacheMisses", (int) searchCache.getMisses());
+        stats.put("searchCacheInvalidated", (int) searchCache.getInvalidated());
+        stats.put("searchCacheEvictions", (int) searchCache.getEvictions());
         return stats;
     }
 
@@ -359,14 +386,7 @@ public class DatabaseSyncService {
      * Arrêter le service proprement
      */
     public void shutdown() {
-        dbExecutor.shutdown();
-        try {
-            if (!dbExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                dbExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            dbExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+        // L'executor BDD partagé est arrêté avec HibernateUtil.shutdown()
+        resourceCache.clear();
     }
 }
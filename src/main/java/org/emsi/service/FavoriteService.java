@@ -1,5 +1,6 @@
 package org.emsi.service;
 
+import org.emsi.dao.DbExecutor;
 import org.emsi.dao.GenericDao;
 import org.emsi.entities.Favorite;
 import org.emsi.entities.LomSchema;
@@ -9,6 +10,7 @@ import org.hibernate.query.Query;
 import org.emsi.dao.HibernateUtil;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -57,17 +59,10 @@ public class FavoriteService {
      * Retirer une ressource des favoris
      */
     public void removeFavorite(User user, LomSchema resource) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "FROM Favorite f WHERE f.user.id = :userId AND f.resource.id = :resourceId";
-            Query<Favorite> query = session.createQuery(hql, Favorite.class);
-            query.setParameter("userId", user.getId());
-            query.setParameter("resourceId", resource.getId());
-
-            Favorite favorite = query.uniqueResult();
-            if (favorite != null) {
-                favoriteDao.delete(favorite);
-                System.out.println("🗑️ Favori supprimé: " + resource.getResourceTitle());
-            }
+        int deleted = favoriteDao.deleteWhere("user.id = ?0 AND resource.id = ?1",
+                user.getId(), resource.getId());
+        if (deleted > 0) {
+            System.out.println("🗑️ Favori supprimé: " + resource.getResourceTitle());
         }
     }
 
@@ -75,15 +70,47 @@ public class FavoriteService {
      * Vérifier si une ressource est en favoris
      */
     public boolean isFavorite(User user, LomSchema resource) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        return isFavorite(user, resource.getId());
+    }
+
+    /**
+     * Vérifier si une ressource est en favoris (par identifiant)
+     */
+    public boolean isFavorite(User user, Long resourceId) {
+        try (Session session = HibernateUtil.openReadSession()) {
             String hql = "SELECT COUNT(f) FROM Favorite f WHERE f.user.id = :userId AND f.resource.id = :resourceId";
             Query<Long> query = session.createQuery(hql, Long.class);
             query.setParameter("userId", user.getId());
-            query.setParameter("resourceId", resource.getId());
+            query.setParameter("resourceId", resourceId);
             return query.uniqueResult() > 0;
         }
     }
 
+    /**
+     * Identifiants des ressources de resourceIds en favoris (une requête
+     * pour toute une page de liste, au lieu d'un isFavorite par ligne)
+     */
+    public Set<Long> getFavoriteIds(User user, Collection<Long> resourceIds) {
+        if (resourceIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        try (Session session = HibernateUtil.openReadSession()) {
+            String hql = "SELECT f.resource.id FROM Favorite f WHERE f.user.id = :userId AND f.resource.id IN (:ids)";
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("userId", user.getId());
+            query.setParameterList("ids", resourceIds);
+            return new HashSet<>(query.list());
+        }
+    }
+
+    /**
+     * Favoris parmi resourceIds, lus sur l'executor BDD (voir
+     * {@link #getFavoriteIds})
+     */
+    public CompletableFuture<Set<Long>> getFavoriteIdsAsync(User user, Collection<Long> resourceIds) {
+        return DbExecutor.submit(() -> getFavoriteIds(user, resourceIds));
+    }
+
     /**
      * STREAM: Obtenir tous les favoris d'un utilisateur
      * 
@@ -92,7 +119,7 @@ public class FavoriteService {
      * - stream() pour la transformation
      */
     public List<Favorite> getUserFavorites(User user) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession()) {
             String hql = "FROM Favorite f WHERE f.user.id = :userId ORDER BY f.addedAt DESC";
             Query<Favorite> query = session.createQuery(hql, Favorite.class);
             query.setParameter("userId", user.getId());
@@ -225,7 +252,7 @@ public class FavoriteService {
      * Compter le nombre de favoris d'un utilisateur
      */
     public long countUserFavorites(User user) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession()) {
             String hql = "SELECT COUNT(f) FROM Favorite f WHERE f.user.id = :userId";
             Query<Long> query = session.createQuery(hql, Long.class);
             query.setParameter("userId", user.getId());
@@ -238,7 +265,7 @@ public class FavoriteService {
      * (utile pour les recommandations)
      */
     public List<LomSchema> getMostFavoritedResources(int limit) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession()) {
             String hql = "SELECT f.resource, COUNT(f) as favCount " +
                     "FROM Favorite f " +
                     "GROUP BY f.resource " +
@@ -256,21 +283,14 @@ public class FavoriteService {
     }
 
     /**
-     * Mettre à jour la note personnelle d'un favori
+     * Mettre à jour la note personnelle d'un favori (une seule instruction
+     * UPDATE, sans charger le favori)
      */
     public void updateFavoriteNote(User user, LomSchema resource, String note) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "FROM Favorite f WHERE f.user.id = :userId AND f.resource.id = :resourceId";
-            Query<Favorite> query = session.createQuery(hql, Favorite.class);
-            query.setParameter("userId", user.getId());
-            query.setParameter("resourceId", resource.getId());
-
-            Favorite favorite = query.uniqueResult();
-            if (favorite != null) {
-                favorite.setNote(note);
-                favoriteDao.update(favorite);
-                System.out.println("📝 Note mise à jour pour: " + resource.getResourceTitle());
-            }
+        int updated = favoriteDao.updateWhere("note = ?0", "user.id = ?1 AND resource.id = ?2",
+                note, user.getId(), resource.getId());
+        if (updated > 0) {
+            System.out.println("📝 Note mise à jour pour: " + resource.getResourceTitle());
         }
     }
 }
@@ -49,7 +49,7 @@ public class FileStorageService {
     /**
      * Obtenir l'instance unique (Singleton Pattern)
      */
-    public static FileStorageService getInstance() {
+    public static synchronized FileStorageService getInstance() {
         if (instance == null) {
             instance = new FileStorageService();
         }
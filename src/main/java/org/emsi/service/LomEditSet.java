@@ -0,0 +1,141 @@
+package org.emsi.service;
+
+import org.emsi.entities.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Ensemble de modifications des catégories LOM d'une ressource
+ *
+ * Les modifications sont enregistrées puis appliquées en une seule fois sur
+ * l'entité gérée par la session (voir LomService.applyEdits) : une seule
+ * transaction, et grâce à dynamic-update seules les colonnes modifiées
+ * sont écrites.
+ */
+public class LomEditSet {
+
+    private final List<Consumer<LomSchema>> edits = new ArrayList<>();
+
+    /**
+     * Modifier la catégorie General (met aussi à jour le titre de la ressource)
+     */
+    public LomEditSet general(String title, String language, String description,
+            String keywords, String structure, Integer aggregationLevel) {
+        edits.add(lom -> {
+            General general = lom.getGeneral();
+            if (general == null) {
+                general = new General();
+                general.setLomSchema(lom);
+                lom.setGeneral(general);
+            }
+
+            general.setTitle(title);
+            general.setLanguage(language);
+            general.setDescription(description);
+            general.setKeyword(keywords);
+            general.setStructure(structure);
+            general.setAggregationLevel(aggregationLevel);
+
+            lom.setResourceTitle(title);
+        });
+        return this;
+    }
+
+    /**
+     * Modifier la catégorie Lifecycle
+     */
+    public LomEditSet lifecycle(String version, String status) {
+        edits.add(lom -> {
+            Lifecycle lifecycle = lom.getLifecycle();
+            if (lifecycle == null) {
+                lifecycle = new Lifecycle();
+                lifecycle.setLomSchema(lom);
+                lom.setLifecycle(lifecycle);
+            }
+
+            lifecycle.setVersion(version);
+            lifecycle.setStatus(status);
+        });
+        return this;
+    }
+
+    /**
+     * Modifier la catégorie Technical
+     */
+    public LomEditSet technical(String format, String size, String location, String duration) {
+        edits.add(lom -> {
+            Technical technical = lom.getTechnical();
+            if (technical == null) {
+                technical = new Technical();
+                technical.setLomSchema(lom);
+                lom.setTechnical(technical);
+            }
+
+            technical.setFormat(format);
+            technical.setSize(size);
+            technical.setLocation(location);
+            technical.setDuration(duration);
+        });
+        return this;
+    }
+
+    /**
+     * Modifier la catégorie Educational
+     */
+    public LomEditSet educational(String interactivityType, String learningResourceType,
+            Integer interactivityLevel, String intendedEndUserRole, String context,
+            Integer difficulty, String typicalLearningTime, String typicalAgeRange) {
+        edits.add(lom -> {
+            Educational educational = lom.getEducational();
+            if (educational == null) {
+                educational = new Educational();
+                educational.setLomSchema(lom);
+                lom.setEducational(educational);
+            }
+
+            educational.setInteractivityType(interactivityType);
+            educational.setLearningResourceType(learningResourceType);
+            educational.setInteractivityLevel(interactivityLevel);
+            educational.setIntendedEndUserRole(intendedEndUserRole);
+            educational.setContext(context);
+            educational.setDifficulty(difficulty);
+            educational.setTypicalLearningTime(typicalLearningTime);
+            educational.setTypicalAgeRange(typicalAgeRange);
+        });
+        return this;
+    }
+
+    /**
+     * Modifier la catégorie Rights
+     */
+    public LomEditSet rights(String cost, String copyright, String description) {
+        edits.add(lom -> {
+            Rights rights = lom.getRights();
+            if (rights == null) {
+                rights = new Rights();
+                rights.setLomSchema(lom);
+                lom.setRights(rights);
+            }
+
+            rights.setCost(cost);
+            rights.setCopyrightAndOtherRestrictions(copyright);
+            rights.setDescription(description);
+        });
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * Appliquer toutes les modifications sur une ressource
+     */
+    public void applyTo(LomSchema lom) {
+        for (Consumer<LomSchema> edit : edits) {
+            edit.accept(lom);
+        }
+    }
+}
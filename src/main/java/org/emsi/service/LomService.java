@@ -1,10 +1,19 @@
 package org.emsi.service;
 
+import org.emsi.dao.FetchPlan;
+import org.emsi.dao.GenericDao;
 import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+import org.emsi.dao.Page;
+import org.emsi.dao.UnitOfWork;
 import org.emsi.entities.*;
+import org.emsi.exceptions.LomException;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service de gestion des ressources pédagogiques LOM
@@ -13,10 +22,13 @@ import java.util.List;
 public class LomService {
 
     private static LomService instance;
+
     private final LomSchemaDao lomSchemaDao;
+    private final LomSchemaDao readOnlyDao;
 
     private LomService() {
         this.lomSchemaDao = new LomSchemaDao();
+        this.readOnlyDao = new LomSchemaDao(true);
     }
 
     /**
@@ -33,6 +45,32 @@ public class LomService {
      * Créer une nouvelle ressource LOM
      */
     public LomSchema createResource(String title, String url) {
+        LomSchema lom = buildResource(title, url);
+        lomSchemaDao.save(lom);
+        System.out.println("✅ Ressource LOM créée: " + title);
+
+        return lom;
+    }
+
+    /**
+     * Persister plusieurs ressources LOM en une seule transaction (batch JDBC)
+     *
+     * @param resources ressources construites avec {@link #buildResource}
+     * @return ressources persistées (vide si la transaction a échoué)
+     */
+    public List<LomSchema> saveResources(List<LomSchema> resources) {
+        List<Long> ids = lomSchemaDao.saveAll(resources);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        System.out.println("✅ " + ids.size() + " ressources LOM créées (batch)");
+        return resources;
+    }
+
+    /**
+     * Construire le graphe LOM d'une ressource (sans la persister)
+     */
+    public LomSchema buildResource(String title, String url) {
         LomSchema lom = new LomSchema(title);
         lom.setResourceUrl(url);
 
@@ -61,9 +99,6 @@ public class LomService {
         rights.setLomSchema(lom);
         lom.setRights(rights);
 
-        lomSchemaDao.save(lom);
-        System.out.println("✅ Ressource LOM créée: " + title);
-
         return lom;
     }
 
@@ -74,6 +109,34 @@ public class LomService {
         return lomSchemaDao.findAll();
     }
 
+    /**
+     * Obtenir une page de ressources (pagination keyset)
+     *
+     * @param after curseur renvoyé par la page précédente, null pour la
+     *              première page
+     */
+    public Page<LomSchema> getResourcesPage(LomSchemaDao.SortKey sortKey, boolean descending,
+            Page.Cursor after, int pageSize) {
+        return lomSchemaDao.findPage(sortKey, descending, after, pageSize);
+    }
+
+    /**
+     * Obtenir une page de résumés (projection légère pour les listes)
+     */
+    public Page<LomSummary> getSummaryPage(LomSchemaDao.SortKey sortKey, boolean descending,
+            Page.Cursor after, int pageSize) {
+        return readOnlyDao.findSummaryPage(sortKey, descending, after, pageSize);
+    }
+
+    /**
+     * Page de résumés lue sur l'executor BDD, pour ne pas bloquer le thread
+     * JavaFX (à compléter avec Platform.runLater)
+     */
+    public CompletableFuture<Page<LomSummary>> getSummaryPageAsync(LomSchemaDao.SortKey sortKey,
+            boolean descending, Page.Cursor after, int pageSize) {
+        return readOnlyDao.findSummaryPageAsync(sortKey, descending, after, pageSize);
+    }
+
     /**
      * Obtenir une ressource par ID
      */
@@ -81,6 +144,28 @@ public class LomService {
         return lomSchemaDao.findByIdWithRelations(id);
     }
 
+    /**
+     * Ouvrir une ressource pour consultation : chargement complet et
+     * enregistrement de la consultation dans une seule session
+     */
+    public LomSchema openResource(User user, Long id) {
+        return UnitOfWork.call(() -> {
+            LomSchema lom = getResourceById(id);
+            if (lom != null && user != null) {
+                ViewHistoryService.getInstance().recordView(user, lom);
+            }
+            return lom;
+        });
+    }
+
+    /**
+     * Obtenir une ressource en lecture seule pour l'export XML : seules les
+     * catégories à cardinalité 1 sont exportées (plan SUMMARY, une requête)
+     */
+    public LomSchema getResourceSnapshot(Long id) {
+        return readOnlyDao.findById(id, FetchPlan.SUMMARY);
+    }
+
     /**
      * Mettre à jour une ressource
      */
@@ -94,11 +179,49 @@ public class LomService {
      * Supprimer une ressource
      */
     public void deleteResource(Long id) {
-        LomSchema lom = lomSchemaDao.findById(id);
+        if (lomSchemaDao.deleteWithReferences(id)) {
+            System.out.println("✅ Ressource supprimée: " + id);
+        }
+    }
+
+    /**
+     * Appliquer un ensemble de modifications en une seule transaction
+     *
+     * La ressource est chargée dans la transaction, les modifications sont
+     * appliquées sur l'entité gérée et seules les colonnes modifiées sont
+     * écrites au commit (dynamic-update). Les modifications sont des
+     * valeurs saisies sur la version expectedVersion : si un autre
+     * utilisateur a modifié la ressource entretemps, elles ne sont pas
+     * rejouées sur sa version (elles écraseraient ses changements) et le
+     * conflit est remonté, comme pour DatabaseSyncService.updateResourceSafe.
+     *
+     * @param expectedVersion version (lockVersion) de la ressource lue par
+     *                        l'éditeur
+     * @return la ressource modifiée, ou null en cas d'échec
+     * @throws LomException RESOURCE_CONFLICT si la ressource a été modifiée
+     *                      depuis sa lecture
+     */
+    public LomSchema applyEdits(Long id, Integer expectedVersion, LomEditSet edits) throws LomException {
+        LomSchema lom;
+        try {
+            lom = lomSchemaDao.modifyIfUnchanged(id,
+                    managed -> Objects.equals(managed.getLockVersion(), expectedVersion),
+                    managed -> {
+                        edits.applyTo(managed);
+                        managed.setUpdatedAt(new Date());
+                    });
+        } catch (RuntimeException e) {
+            if (GenericDao.isOptimisticLockFailure(e)) {
+                throw new LomException("La ressource " + id + " a été modifiée depuis sa lecture",
+                        LomException.ErrorCode.RESOURCE_CONFLICT);
+            }
+            e.printStackTrace();
+            return null;
+        }
         if (lom != null) {
-            lomSchemaDao.delete(lom);
-            System.out.println("✅ Ressource supprimée: " + lom.getResourceTitle());
+            System.out.println("✅ Ressource mise à jour: " + lom.getResourceTitle());
         }
+        return lom;
     }
 
     /**
@@ -107,21 +230,9 @@ public class LomService {
     public void updateGeneral(LomSchema lom, String title, String language,
             String description, String keywords, String structure,
             Integer aggregationLevel) {
-        General general = lom.getGeneral();
-        if (general == null) {
-            general = new General();
-            general.setLomSchema(lom);
-            lom.setGeneral(general);
-        }
-
-        general.setTitle(title);
-        general.setLanguage(language);
-        general.setDescription(description);
-        general.setKeyword(keywords);
-        general.setStructure(structure);
-        general.setAggregationLevel(aggregationLevel);
-
-        lom.setResourceTitle(title);
+        new LomEditSet()
+                .general(title, language, description, keywords, structure, aggregationLevel)
+                .applyTo(lom);
         updateResource(lom);
     }
 
@@ -129,16 +240,7 @@ public class LomService {
      * Mettre à jour les métadonnées Lifecycle
      */
     public void updateLifecycle(LomSchema lom, String version, String status) {
-        Lifecycle lifecycle = lom.getLifecycle();
-        if (lifecycle == null) {
-            lifecycle = new Lifecycle();
-            lifecycle.setLomSchema(lom);
-            lom.setLifecycle(lifecycle);
-        }
-
-        lifecycle.setVersion(version);
-        lifecycle.setStatus(status);
-
+        new LomEditSet().lifecycle(version, status).applyTo(lom);
         updateResource(lom);
     }
 
@@ -159,18 +261,7 @@ public class LomService {
      */
     public void updateTechnical(LomSchema lom, String format, String size,
             String location, String duration) {
-        Technical technical = lom.getTechnical();
-        if (technical == null) {
-            technical = new Technical();
-            technical.setLomSchema(lom);
-            lom.setTechnical(technical);
-        }
-
-        technical.setFormat(format);
-        technical.setSize(size);
-        technical.setLocation(location);
-        technical.setDuration(duration);
-
+        new LomEditSet().technical(format, size, location, duration).applyTo(lom);
         updateResource(lom);
     }
 
@@ -182,22 +273,10 @@ public class LomService {
             String intendedEndUserRole, String context,
             Integer difficulty, String typicalLearningTime,
             String typicalAgeRange) {
-        Educational educational = lom.getEducational();
-        if (educational == null) {
-            educational = new Educational();
-            educational.setLomSchema(lom);
-            lom.setEducational(educational);
-        }
-
-        educational.setInteractivityType(interactivityType);
-        educational.setLearningResourceType(learningResourceType);
-        educational.setInteractivityLevel(interactivityLevel);
-        educational.setIntendedEndUserRole(intendedEndUserRole);
-        educational.setContext(context);
-        educational.setDifficulty(difficulty);
-        educational.setTypicalLearningTime(typicalLearningTime);
-        educational.setTypicalAgeRange(typicalAgeRange);
-
+        new LomEditSet()
+                .educational(interactivityType, learningResourceType, interactivityLevel,
+                        intendedEndUserRole, context, difficulty, typicalLearningTime, typicalAgeRange)
+                .applyTo(lom);
         updateResource(lom);
     }
 
@@ -205,17 +284,7 @@ public class LomService {
      * Mettre à jour les métadonnées Rights
      */
     public void updateRights(LomSchema lom, String cost, String copyright, String description) {
-        Rights rights = lom.getRights();
-        if (rights == null) {
-            rights = new Rights();
-            rights.setLomSchema(lom);
-            lom.setRights(rights);
-        }
-
-        rights.setCost(cost);
-        rights.setCopyrightAndOtherRestrictions(copyright);
-        rights.setDescription(description);
-
+        new LomEditSet().rights(cost, copyright, description).applyTo(lom);
         updateResource(lom);
     }
 
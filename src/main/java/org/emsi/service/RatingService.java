@@ -51,19 +51,20 @@ public class RatingService {
 
     /**
      * Ajouter ou mettre à jour une notation avec commentaire
+     *
+     * Une notation existante est modifiée en une instruction UPDATE ; elle
+     * n'est relue que pour être renvoyée.
      */
     public Rating rateResource(User user, LomSchema resource, int stars, String comment) {
-        Rating existing = findExisting(user, resource);
-
-        if (existing != null) {
-            existing.updateRating(stars, comment);
-            dao.update(existing);
-            return existing;
-        } else {
-            Rating rating = new Rating(user, resource, stars, comment);
-            dao.save(rating);
-            return rating;
+        Rating rating = new Rating(user, resource, stars, comment);
+        int updated = dao.updateWhere("stars = ?0, comment = ?1, updatedAt = ?2",
+                "user.id = ?3 AND resource.id = ?4",
+                rating.getStars(), comment, new Date(), user.getId(), resource.getId());
+        if (updated > 0) {
+            return findExisting(user, resource);
         }
+        dao.save(rating);
+        return rating;
     }
 
     /**
@@ -167,17 +168,14 @@ public class RatingService {
      * Supprimer la notation d'un utilisateur
      */
     public void removeRating(User user, LomSchema resource) {
-        Rating existing = findExisting(user, resource);
-        if (existing != null) {
-            dao.delete(existing);
-        }
+        dao.deleteWhere("user.id = ?0 AND resource.id = ?1", user.getId(), resource.getId());
     }
 
     /**
      * Chercher une notation existante
      */
     private Rating findExisting(User user, LomSchema resource) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             Query<Rating> query = session.createQuery(
                     "FROM Rating WHERE user.id = :userId AND resource.id = :resourceId",
                     Rating.class);
@@ -193,7 +191,7 @@ public class RatingService {
      * Obtenir toutes les notes d'une ressource
      */
     private List<Rating> getResourceRatings(LomSchema resource) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession()) {
             Query<Rating> query = session.createQuery(
                     "FROM Rating WHERE resource.id = :resourceId",
                     Rating.class);
@@ -208,7 +206,7 @@ public class RatingService {
      * Obtenir toutes les notes d'un utilisateur
      */
     public List<Rating> getUserRatings(User user) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession()) {
             Query<Rating> query = session.createQuery(
                     "FROM Rating WHERE user.id = :userId ORDER BY createdAt DESC",
                     Rating.class);
@@ -0,0 +1,102 @@
+package org.emsi.service;
+
+import org.emsi.dao.LomSummary;
+import org.emsi.search.SearchHits;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Curseur sur les résultats d'une recherche, page par page
+ *
+ * Seule la première page est calculée à l'ouverture (sélection des
+ * meilleurs résultats, le nombre total en plus) ; les suivantes sont
+ * chargées à la demande, chacune à partir de la dernière ressource de la
+ * précédente, puis gardées pour revenir en arrière sans requête. Obtenu
+ * par SearchService.sortedCursor ou rankedCursor.
+ */
+public class ResultCursor {
+
+    /**
+     * Chargement d'une page : ses résultats et, pour la première, le
+     * nombre total de résultats
+     */
+    @FunctionalInterface
+    interface PageLoader {
+        /**
+         * @param number numéro de la page (à partir de 0)
+         * @param last   dernière ressource de la page précédente (null pour
+         *               la première)
+         */
+        CompletableFuture<SearchHits> load(int number, LomSummary last);
+    }
+
+    private final int pageSize;
+    private final PageLoader loader;
+
+    // Pages déjà chargées (gardées par this)
+    private final List<List<LomSummary>> pages = new ArrayList<>();
+    private CompletableFuture<List<LomSummary>> loading;
+    private int total;
+
+    private ResultCursor(int pageSize, PageLoader loader) {
+        this.pageSize = pageSize;
+        this.loader = loader;
+    }
+
+    /**
+     * Ouvrir un curseur : terminé quand la première page est chargée
+     */
+    static CompletableFuture<ResultCursor> open(int pageSize, PageLoader loader) {
+        ResultCursor cursor = new ResultCursor(pageSize, loader);
+        return cursor.page(0).thenApply(first -> cursor);
+    }
+
+    /**
+     * Nombre total de résultats (calculé avec la première page)
+     */
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public synchronized int getPageCount() {
+        return (total + pageSize - 1) / pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Une page de résultats : immédiate si déjà chargée, sinon chargée
+     * (avec les pages manquantes qui la précèdent) ; vide au-delà de la
+     * dernière page
+     */
+    public synchronized CompletableFuture<List<LomSummary>> page(int number) {
+        if (number < pages.size()) {
+            return CompletableFuture.completedFuture(pages.get(number));
+        }
+        if (!pages.isEmpty() && (number >= getPageCount() || pages.get(pages.size() - 1).size() < pageSize)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        // Un seul chargement à la fois : les pages se suivent
+        if (loading == null || loading.isDone()) {
+            int next = pages.size();
+            LomSummary last = next > 0 ? pages.get(next - 1).get(pageSize - 1) : null;
+            loading = loader.load(next, last).thenApply(hits -> loaded(next, hits));
+        }
+        return loading.thenCompose(items -> page(number));
+    }
+
+    private synchronized List<LomSummary> loaded(int number, SearchHits hits) {
+        List<LomSummary> items = List.copyOf(hits.top());
+        if (number == pages.size()) {
+            if (number == 0) {
+                total = hits.totalHits();
+            }
+            pages.add(items);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,172 @@
+package org.emsi.service;
+
+import org.emsi.dao.EntityChangeListener;
+import org.emsi.search.SearchIndex;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache des résultats de recherche de SearchService
+ *
+ * Les mêmes recherches reviennent sans cesse (texte vide et filtre de
+ * langue, mots-clés populaires) : leurs résultats sont gardés sous forme
+ * de listes d'identifiants, dans l'ordre, avec le nombre total de
+ * résultats. Une clé réunit l'opération, le tri ou la page et la requête
+ * normalisée (SearchQuery.cacheKey). Les résumés ou entités sont relus à
+ * partir des identifiants, dans l'index ou en une requête par clé
+ * primaire.
+ *
+ * Invalidation par génération : un résultat n'est valide que pour la
+ * génération du catalogue à laquelle il a été calculé. La génération
+ * change à chaque modification validée de LomSchema, General, Educational
+ * ou Tag (EntityChangeListener) et chaque fois que l'index applique des
+ * changements (un résultat calculé entre la validation et l'application
+ * est donc aussi écarté). Un changement de génération vide le cache.
+ *
+ * Borné en nombre d'entrées et en identifiants stockés (moins récemment
+ * utilisés évincés) ; les résultats trop longs ne sont pas mis en cache.
+ *
+ * Configuration (propriétés système) :
+ * - lom.search.cache.entries       : entrées au plus (défaut 1000)
+ * - lom.search.cache.max_ids       : identifiants stockés au plus (défaut 200000)
+ * - lom.search.cache.max_entry_ids : résultats au plus par entrée (défaut 10000)
+ */
+public class SearchResultCache {
+
+    private static SearchResultCache instance;
+
+    private static final int MAX_ENTRIES = Integer.getInteger("lom.search.cache.entries", 1000);
+    private static final long MAX_IDS = Long.getLong("lom.search.cache.max_ids", 200_000L);
+    private static final int MAX_ENTRY_IDS = Integer.getInteger("lom.search.cache.max_entry_ids", 10_000);
+
+    /**
+     * Résultat en cache : identifiants dans l'ordre et nombre total de
+     * résultats (supérieur pour une page ou un top-k)
+     */
+    record Entry(long[] ids, int total) {
+    }
+
+    private final SearchIndex searchIndex;
+    private final AtomicLong catalogGeneration = new AtomicLong();
+
+    // Ordre d'accès : la première entrée est la moins récemment utilisée (gardé par this)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long storedIds;
+
+    private long hits;
+    private long misses;
+    private long invalidated;
+    private long evictions;
+
+    private SearchResultCache() {
+        this.searchIndex = SearchIndex.getInstance();
+        EntityChangeListener.subscribe(change -> catalogGeneration.incrementAndGet());
+    }
+
+    public static synchronized SearchResultCache getInstance() {
+        if (instance == null) {
+            instance = new SearchResultCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Génération courante, à lire avant de lancer la recherche dont le
+     * résultat sera mis en cache
+     */
+    long generation() {
+        return catalogGeneration.get() + searchIndex.generation();
+    }
+
+    /**
+     * Résultat en cache pour la clé, calculé à la génération donnée (null
+     * si absent ou périmé)
+     */
+    synchronized Entry get(String key, long currentGeneration) {
+        advance(currentGeneration);
+        Entry entry = currentGeneration == generation ? entries.get(key) : null;
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    /**
+     * Mettre en cache le résultat d'une recherche lancée à la génération
+     * donnée (ignoré si le catalogue a changé depuis ou s'il est trop long)
+     */
+    synchronized void put(String key, long searchGeneration, long[] ids, int total) {
+        if (ids.length > MAX_ENTRY_IDS || searchGeneration != generation() || searchGeneration < generation) {
+            return;
+        }
+        advance(searchGeneration);
+        Entry previous = entries.put(key, new Entry(ids, total));
+        storedIds += ids.length - (previous != null ? previous.ids().length : 0);
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > MAX_ENTRIES || storedIds > MAX_IDS) {
+            storedIds -= eldest.next().getValue().ids().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Vider le cache si le catalogue a changé (les générations ne font que
+     * croître : une génération plus ancienne est celle d'un appelant en
+     * retard)
+     */
+    private void advance(long currentGeneration) {
+        if (currentGeneration > generation) {
+            invalidated += entries.size();
+            entries.clear();
+            storedIds = 0;
+            generation = currentGeneration;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        storedIds = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Taux de succès (0 à 1)
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Entrées écartées par un changement de génération
+     */
+    public synchronized long getInvalidated() {
+        return invalidated;
+    }
+
+    /**
+     * Entrées évincées par les bornes de taille
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -1,21 +1,63 @@
 package org.emsi.service;
 
+import org.emsi.dao.DbExecutor;
+import org.emsi.dao.FetchPlan;
 import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+import org.emsi.dao.Page;
 import org.emsi.entities.LomSchema;
+import org.emsi.search.Autocomplete;
+import org.emsi.search.FacetCounts;
+import org.emsi.search.SearchHits;
+import org.emsi.search.SearchIndex;
+import org.emsi.search.SearchQuery;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Service de recherche des ressources pédagogiques
  * Recherche multicritères et filtrage
+ *
+ * Les recherches en résumés (LomSummary) sont résolues par l'index plein
+ * texte (SearchIndex) dès qu'il est construit, en base sinon. L'index
+ * compare des mots entiers ou commencés ("progr" trouve "programmation")
+ * : un fragment pris au milieu d'un mot, que trouvait le LIKE '%texte%'
+ * en base, ne correspond plus. Les résultats des recherches répétées
+ * sont servis par SearchResultCache. Les listes paginées passent par un
+ * ResultCursor : chaque page est sélectionnée à la demande (top-k,
+ * ORDER BY ... LIMIT) au lieu de trier toutes les correspondances. Les
+ * recherches classées non paginées rendent au plus MAX_RANKED_RESULTS
+ * résultats (propriété système lom.search.max_ranked, défaut 500).
  */
 public class SearchService {
 
     private static SearchService instance;
+
+    // Résultats classés rendus au plus par les recherches non paginées
+    // (les listes plus longues passent par rankedCursor)
+    private static final int MAX_RANKED_RESULTS = Integer.getInteger("lom.search.max_ranked", 500);
+
+    private static final Comparator<LomSummary> BY_TITLE = Comparator.comparing(
+            LomSummary::title, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
     private final LomSchemaDao lomSchemaDao;
+    private final SearchIndex searchIndex;
+    private final SearchResultCache resultCache;
 
     private SearchService() {
-        this.lomSchemaDao = new LomSchemaDao();
+        // Lectures seules: les résultats de recherche ne sont jamais modifiés
+        this.lomSchemaDao = new LomSchemaDao(true);
+        this.searchIndex = SearchIndex.getInstance();
+        this.resultCache = SearchResultCache.getInstance();
     }
 
     /**
@@ -62,6 +104,9 @@ public class SearchService {
      */
     /**
      * Recherche multicritères (Titre OU Mot-clé) ET filtres
+     *
+     * Avec un texte et l'index prêt : recherche tolérante aux fautes de
+     * frappe, résultats par pertinence (correspondances exactes d'abord).
      */
     public List<LomSchema> search(String query, String filterTitle, String filterLanguage, Integer filterDifficulty) {
         // Note: filterTitle parameter allows backward compatibility but we prioritize
@@ -69,31 +114,392 @@ public class SearchService {
         // Actually, let's redefine this method to match what UserDashboard needs, or
         // clean it up.
         // UserDashboard calls: search(query, query, language, difficulty)
+        SearchQuery indexQuery = new SearchQuery().text(query).language(filterLanguage)
+                .difficulty(filterDifficulty).fuzzy(true).prefix(true);
+        return cachedResources(cacheKey("search", indexQuery), () -> {
+            if (indexQuery.hasText() && searchIndex.canAnswer(indexQuery)) {
+                return loadRanked(indexQuery);
+            }
+
+            // Let's use the new DAO method
+            return lomSchemaDao.searchByCriteria(query, filterLanguage, filterDifficulty);
+        });
+    }
+
+    /**
+     * Recherche multicritères renvoyant des résumés (vues en liste) ; avec
+     * un texte, les MAX_RANKED_RESULTS plus pertinents
+     */
+    public List<LomSummary> searchSummaries(String query, String language, Integer difficulty) {
+        SearchQuery indexQuery = new SearchQuery().text(query).language(language).difficulty(difficulty)
+                .fuzzy(true).prefix(true);
+        return cachedSummaries(cacheKey("summaries", indexQuery), () -> {
+            if (searchIndex.canAnswer(indexQuery)) {
+                if (indexQuery.hasText()) {
+                    // Tolérance aux fautes de frappe : les meilleurs résultats par pertinence
+                    return new ArrayList<>(searchIndex.rank(indexQuery, MAX_RANKED_RESULTS).top());
+                }
+                List<LomSummary> results = searchIndex.search(indexQuery);
+                results.sort(BY_TITLE);
+                return results;
+            }
+            return lomSchemaDao.searchSummariesByCriteria(query, language, difficulty);
+        });
+    }
+
+    /**
+     * Recherche avancée renvoyant des résumés
+     * (texte, langue, plage de difficulté, types d'interactivité et de
+     * ressource, tags)
+     */
+    public List<LomSummary> advancedSearch(String text, boolean exactTitle, String language,
+            int minDifficulty, int maxDifficulty, Collection<String> interactivityTypes,
+            Collection<String> learningResourceTypes, Collection<String> tagNames) {
+        SearchQuery query = advancedQuery(text, exactTitle, language, minDifficulty, maxDifficulty,
+                interactivityTypes, learningResourceTypes, tagNames);
+        return cachedSummaries(cacheKey("advanced", query), () -> {
+            if (searchIndex.canAnswer(query)) {
+                return searchIndex.search(query);
+            }
+            return lomSchemaDao.searchSummaries(text, exactTitle, language, minDifficulty, maxDifficulty,
+                    interactivityTypes, learningResourceTypes, tagNames);
+        });
+    }
+
+    /**
+     * Recherche avancée asynchrone : résolue immédiatement par l'index,
+     * sinon exécutée en base sur l'executor BDD partagé
+     */
+    public CompletableFuture<List<LomSummary>> advancedSearchAsync(String text, boolean exactTitle,
+            String language, int minDifficulty, int maxDifficulty, Collection<String> interactivityTypes,
+            Collection<String> learningResourceTypes, Collection<String> tagNames) {
+        SearchQuery query = advancedQuery(text, exactTitle, language, minDifficulty, maxDifficulty,
+                interactivityTypes, learningResourceTypes, tagNames);
+        if (searchIndex.canAnswer(query)) {
+            return CompletableFuture.completedFuture(advancedSearch(text, exactTitle, language,
+                    minDifficulty, maxDifficulty, interactivityTypes, learningResourceTypes, tagNames));
+        }
+        return DbExecutor.submit(() -> advancedSearch(text, exactTitle, language,
+                minDifficulty, maxDifficulty, interactivityTypes, learningResourceTypes, tagNames));
+    }
+
+    /**
+     * Compteurs de facettes de la recherche (langue, difficulté, types,
+     * tags), calculés sur les ensembles de documents de l'index
+     *
+     * Vides tant que l'index n'est pas prêt : le dialogue affiche alors
+     * les valeurs sans compteur.
+     */
+    public FacetCounts facetCounts(SearchQuery query) {
+        if (searchIndex.canAnswer(query)) {
+            return searchIndex.facets(query);
+        }
+        return FacetCounts.empty();
+    }
+
+    /**
+     * Recherche classée par pertinence (BM25, titre > mots-clés >
+     * description) : les k meilleurs résultats et le nombre total
+     *
+     * Sans index prêt, les k résultats les plus récents sont lus en base
+     * (ORDER BY ... LIMIT k).
+     */
+    public SearchHits rankedSearch(SearchQuery query, int k) {
+        // Une entrée par page affichée (k = pages * taille de page)
+        String key = cacheKey("ranked:" + k, query);
+        long generation = resultCache.generation();
+        SearchResultCache.Entry cached = resultCache.get(key, generation);
+        if (cached != null) {
+            List<LomSummary> top = summaries(cached.ids());
+            if (top != null) {
+                return new SearchHits(top, cached.total());
+            }
+        }
+        SearchHits hits = searchRanked(query, k);
+        resultCache.put(key, generation, ids(hits.top()), hits.totalHits());
+        return hits;
+    }
+
+    private SearchHits searchRanked(SearchQuery query, int k) {
+        if (searchIndex.canAnswer(query)) {
+            return searchIndex.rank(query, k);
+        }
+        Page<LomSummary> page = searchPage(query, LomSchemaDao.SortKey.CREATED_AT, true, null, k);
+        return new SearchHits(page.getItems(), countMatches(query));
+    }
+
+    /**
+     * Recherche classée asynchrone : résolue immédiatement par l'index,
+     * sinon exécutée en base sur l'executor BDD partagé
+     */
+    public CompletableFuture<SearchHits> rankedSearchAsync(SearchQuery query, int k) {
+        if (searchIndex.canAnswer(query)) {
+            return CompletableFuture.completedFuture(rankedSearch(query, k));
+        }
+        return DbExecutor.submit(() -> rankedSearch(query, k));
+    }
+
+    /**
+     * Curseur sur les résultats triés par une clé (date, titre, langue,
+     * difficulté), page par page
+     *
+     * Chaque page est sélectionnée par l'index (tas borné à la taille de
+     * page) ou par la base (ORDER BY ... LIMIT, reprise keyset après la
+     * dernière ressource), sans trier l'ensemble des correspondances. Le
+     * curseur est rendu quand la première page est chargée.
+     */
+    public CompletableFuture<ResultCursor> sortedCursor(SearchQuery query, LomSchemaDao.SortKey sortKey,
+            boolean descending, int pageSize) {
+        return ResultCursor.open(pageSize, (number, last) -> {
+            Page.Cursor after = last != null ? sortKey.cursorOf(last) : null;
+            if (searchIndex.canAnswer(query)) {
+                return CompletableFuture.completedFuture(sortedPage(query, sortKey, descending, after, pageSize));
+            }
+            return DbExecutor.submit(() -> sortedPage(query, sortKey, descending, after, pageSize));
+        });
+    }
+
+    /**
+     * Curseur sur les résultats classés par pertinence, page par page : la
+     * page n est prise dans les (n + 1) * pageSize meilleurs (top-k élargi
+     * à la demande)
+     */
+    public CompletableFuture<ResultCursor> rankedCursor(SearchQuery query, int pageSize) {
+        return ResultCursor.open(pageSize, (number, last) -> rankedSearchAsync(query, (number + 1) * pageSize)
+                .thenApply(hits -> {
+                    List<LomSummary> top = hits.top();
+                    return new SearchHits(top.subList(Math.min(number * pageSize, top.size()), top.size()),
+                            hits.totalHits());
+                }));
+    }
+
+    /**
+     * Une page triée (pageSize résultats après le curseur) et le nombre
+     * total de résultats, servie par le cache s'il a le résultat de la
+     * génération courante
+     *
+     * Sans index prêt, le total n'est compté en base que pour la première
+     * page (-1 pour les suivantes).
+     */
+    private SearchHits sortedPage(SearchQuery query, LomSchemaDao.SortKey sortKey, boolean descending,
+            Page.Cursor after, int pageSize) {
+        String key = cacheKey("sorted:" + sortKey + (descending ? ":desc:" : ":asc:") + pageSize
+                + ":" + position(after), query);
+        long generation = resultCache.generation();
+        SearchResultCache.Entry cached = resultCache.get(key, generation);
+        if (cached != null) {
+            List<LomSummary> items = summaries(cached.ids());
+            if (items != null) {
+                return new SearchHits(items, cached.total());
+            }
+        }
+        SearchHits hits;
+        if (searchIndex.canAnswer(query)) {
+            hits = searchIndex.sorted(query, sortKey, descending, after, pageSize);
+        } else {
+            Page<LomSummary> page = searchPage(query, sortKey, descending, after, pageSize);
+            hits = new SearchHits(page.getItems(), after == null ? countMatches(query) : -1);
+        }
+        resultCache.put(key, generation, ids(hits.top()), hits.totalHits());
+        return hits;
+    }
+
+    /**
+     * Position d'un curseur dans une clé de cache (vide pour la première
+     * page)
+     */
+    private static String position(Page.Cursor after) {
+        if (after == null) {
+            return "";
+        }
+        Object value = after.getSortValue() instanceof Date date ? date.getTime() : after.getSortValue();
+        return value + "/" + after.getId();
+    }
+
+    /**
+     * Page de la recherche en base, triée et limitée par la base
+     */
+    private Page<LomSummary> searchPage(SearchQuery query, LomSchemaDao.SortKey sortKey, boolean descending,
+            Page.Cursor after, int pageSize) {
+        return lomSchemaDao.searchSummaryPage(query.getText(), query.isExactTitle(), query.getLanguage(),
+                minDifficulty(query), maxDifficulty(query), query.getInteractivityTypes(),
+                query.getLearningResourceTypes(), query.getTags(), sortKey, descending, after, pageSize);
+    }
+
+    /**
+     * Nombre de résultats de la recherche en base
+     */
+    private int countMatches(SearchQuery query) {
+        return (int) lomSchemaDao.countSearchSummaries(query.getText(), query.isExactTitle(), query.getLanguage(),
+                minDifficulty(query), maxDifficulty(query), query.getInteractivityTypes(),
+                query.getLearningResourceTypes(), query.getTags());
+    }
+
+    private static int minDifficulty(SearchQuery query) {
+        return query.getMinDifficulty() != null ? query.getMinDifficulty() : 1;
+    }
+
+    private static int maxDifficulty(SearchQuery query) {
+        return query.getMaxDifficulty() != null ? query.getMaxDifficulty() : 5;
+    }
 
-        // Let's use the new DAO method
-        return lomSchemaDao.searchByCriteria(query, filterLanguage, filterDifficulty);
+    private SearchQuery advancedQuery(String text, boolean exactTitle, String language,
+            int minDifficulty, int maxDifficulty, Collection<String> interactivityTypes,
+            Collection<String> learningResourceTypes, Collection<String> tagNames) {
+        return new SearchQuery()
+                .text(text)
+                .exactTitle(exactTitle)
+                .prefix(true)
+                .language(language)
+                .difficultyBetween(minDifficulty, maxDifficulty)
+                .interactivityTypes(interactivityTypes)
+                .learningResourceTypes(learningResourceTypes)
+                .tags(tagNames);
     }
 
     /**
      * Recherche rapide (titre ou mot-clé)
+     *
+     * Résolue par l'index dès qu'il est prêt, avec tolérance aux fautes
+     * de frappe ("algorithem" trouve "algorithme") et aux mots commencés
+     * ("progr" trouve "programmation") : résultats par pertinence,
+     * correspondances exactes d'abord.
      */
     public List<LomSchema> quickSearch(String query) {
         if (isEmpty(query)) {
             return lomSchemaDao.findAll();
         }
 
-        // Rechercher dans le titre et les mots-clés
-        List<LomSchema> byTitle = lomSchemaDao.findByTitle(query);
-        List<LomSchema> byKeyword = lomSchemaDao.findByKeyword(query);
+        SearchQuery indexQuery = new SearchQuery().text(query).fuzzy(true).prefix(true);
+        return cachedResources(cacheKey("quick", indexQuery), () -> {
+            if (searchIndex.canAnswer(indexQuery)) {
+                return loadRanked(indexQuery);
+            }
+
+            // Rechercher dans le titre et les mots-clés
+            List<LomSchema> byTitle = lomSchemaDao.findByTitle(query);
+            List<LomSchema> byKeyword = lomSchemaDao.findByKeyword(query);
+
+            // Fusionner les résultats sans doublons
+            for (LomSchema lom : byKeyword) {
+                if (!byTitle.contains(lom)) {
+                    byTitle.add(lom);
+                }
+            }
+
+            return byTitle;
+        });
+    }
+
+    /**
+     * Suggestions pour un champ de recherche : titres, mots-clés et tags
+     * commençant par le texte saisi, les plus populaires d'abord
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (isEmpty(prefix)) {
+            return List.of();
+        }
+        return Autocomplete.getInstance().suggest(prefix, limit).stream()
+                .map(Autocomplete.Suggestion::text)
+                .toList();
+    }
+
+    /**
+     * Les MAX_RANKED_RESULTS meilleures ressources d'une recherche classée
+     * (sélection bornée, sans trier toutes les correspondances), chargées
+     * en une requête et rendues dans l'ordre de pertinence
+     */
+    private List<LomSchema> loadRanked(SearchQuery query) {
+        return loadResources(ids(searchIndex.rank(query, MAX_RANKED_RESULTS).top()));
+    }
+
+    // ==================== CACHE DE RÉSULTATS ====================
+
+    private static String cacheKey(String operation, SearchQuery query) {
+        return operation + "\u001F" + query.cacheKey();
+    }
+
+    /**
+     * Résumés d'une recherche, servis par le cache s'il a le résultat de la
+     * génération courante
+     */
+    private List<LomSummary> cachedSummaries(String key, Supplier<List<LomSummary>> search) {
+        long generation = resultCache.generation();
+        SearchResultCache.Entry cached = resultCache.get(key, generation);
+        if (cached != null) {
+            List<LomSummary> summaries = summaries(cached.ids());
+            if (summaries != null) {
+                return summaries;
+            }
+        }
+        List<LomSummary> results = search.get();
+        resultCache.put(key, generation, ids(results), results.size());
+        return results;
+    }
+
+    /**
+     * Ressources d'une recherche, servies par le cache s'il a le résultat
+     * de la génération courante (rechargées par clé primaire)
+     */
+    private List<LomSchema> cachedResources(String key, Supplier<List<LomSchema>> search) {
+        long generation = resultCache.generation();
+        SearchResultCache.Entry cached = resultCache.get(key, generation);
+        if (cached != null) {
+            return loadResources(cached.ids());
+        }
+        List<LomSchema> results = search.get();
+        resultCache.put(key, generation, results.stream().mapToLong(LomSchema::getId).toArray(), results.size());
+        return results;
+    }
 
-        // Fusionner les résultats sans doublons
-        for (LomSchema lom : byKeyword) {
-            if (!byTitle.contains(lom)) {
-                byTitle.add(lom);
+    /**
+     * Résumés des ressources, dans l'ordre des identifiants : lus dans
+     * l'index s'il est prêt, sinon en une requête (null si l'une d'elles
+     * n'existe plus)
+     */
+    private List<LomSummary> summaries(long[] ids) {
+        if (searchIndex.isReady()) {
+            return searchIndex.summaries(ids);
+        }
+        Map<Long, LomSummary> byId = new HashMap<>();
+        for (LomSummary summary : lomSchemaDao.findSummaries(boxed(ids))) {
+            byId.put(summary.id(), summary);
+        }
+        List<LomSummary> summaries = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            LomSummary summary = byId.get(id);
+            if (summary == null) {
+                return null;
+            }
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Ressources chargées en une requête, dans l'ordre des identifiants
+     */
+    private List<LomSchema> loadResources(long[] ids) {
+        Map<Long, LomSchema> byId = new HashMap<>();
+        for (LomSchema lom : lomSchemaDao.findByIds(boxed(ids), FetchPlan.SUMMARY)) {
+            byId.put(lom.getId(), lom);
+        }
+        List<LomSchema> results = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            LomSchema lom = byId.get(id);
+            if (lom != null) {
+                results.add(lom);
             }
         }
+        return results;
+    }
+
+    private static long[] ids(List<LomSummary> summaries) {
+        return summaries.stream().mapToLong(LomSummary::id).toArray();
+    }
 
-        return byTitle;
+    private static List<Long> boxed(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
     }
 
     /**
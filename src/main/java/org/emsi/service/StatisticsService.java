@@ -1,6 +1,7 @@
 package org.emsi.service;
 
 import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
 import org.emsi.entities.LomSchema;
 
 import java.time.LocalDate;
@@ -9,6 +10,7 @@ import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service de statistiques utilisant intensivement les Streams et Collections
@@ -28,7 +30,8 @@ public class StatisticsService {
     private final LomSchemaDao lomSchemaDao;
 
     private StatisticsService() {
-        this.lomSchemaDao = new LomSchemaDao();
+        // Lectures seules: pas de snapshots de dirty-checking pour les agrégats
+        this.lomSchemaDao = new LomSchemaDao(true);
     }
 
     /**
@@ -41,6 +44,13 @@ public class StatisticsService {
         return instance;
     }
 
+    /**
+     * Compter le nombre total de ressources (COUNT SQL, sans chargement)
+     */
+    public long countResources() {
+        return lomSchemaDao.count();
+    }
+
     // =====================================================================
     // MÉTHODES UTILISANT LES STREAMS - GROUPEMENT ET AGRÉGATION
     // =====================================================================
@@ -57,16 +67,15 @@ public class StatisticsService {
      * @return Map<String, Long> clé=langue, valeur=nombre de ressources
      */
     public Map<String, Long> countResourcesByLanguage() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Regroupement par langue avec comptage
         // groupingBy() crée une Map où chaque clé est une langue
         // counting() compte le nombre d'éléments dans chaque groupe
         return resources.stream()
-                .filter(r -> r.getGeneral() != null) // Filtrer les ressources avec General
-                .filter(r -> r.getGeneral().getLanguage() != null) // Exclure les langues nulles
+                .filter(r -> r.language() != null) // Exclure les langues nulles
                 .collect(Collectors.groupingBy(
-                        r -> r.getGeneral().getLanguage(), // Fonction de regroupement
+                        r -> r.language(), // Fonction de regroupement
                         Collectors.counting() // Opération d'agrégation
                 ));
     }
@@ -83,15 +92,14 @@ public class StatisticsService {
      * @return Map<Integer, Long> clé=niveau (1-5), valeur=nombre de ressources
      */
     public Map<Integer, Long> countResourcesByDifficulty() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Regroupement par difficulté avec comptage
         // Utilisation de Optional pour gérer les valeurs nulles de manière sécurisée
         return resources.stream()
-                .filter(r -> r.getEducational() != null)
-                .filter(r -> r.getEducational().getDifficulty() != null)
+                .filter(r -> r.difficulty() != null)
                 .collect(Collectors.groupingBy(
-                        r -> r.getEducational().getDifficulty(),
+                        r -> r.difficulty(),
                         Collectors.counting()));
     }
 
@@ -106,14 +114,13 @@ public class StatisticsService {
      * @return double moyenne de difficulté (0.0 si aucune ressource)
      */
     public double getAverageDifficulty() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Calcul de moyenne avec mapToInt() et average()
         // mapToInt() convertit le Stream en IntStream pour les opérations numériques
         return resources.stream()
-                .filter(r -> r.getEducational() != null)
-                .filter(r -> r.getEducational().getDifficulty() != null)
-                .mapToInt(r -> r.getEducational().getDifficulty()) // Conversion en IntStream
+                .filter(r -> r.difficulty() != null)
+                .mapToInt(r -> r.difficulty()) // Conversion en IntStream
                 .average() // Calcul de la moyenne (retourne OptionalDouble)
                 .orElse(0.0); // Valeur par défaut si le stream est vide
     }
@@ -128,14 +135,13 @@ public class StatisticsService {
      * @return IntSummaryStatistics contenant toutes les statistiques
      */
     public IntSummaryStatistics getDifficultyStatistics() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Obtenir toutes les statistiques en une seule passe
         // IntSummaryStatistics contient: count, sum, min, max, average
         return resources.stream()
-                .filter(r -> r.getEducational() != null)
-                .filter(r -> r.getEducational().getDifficulty() != null)
-                .mapToInt(r -> r.getEducational().getDifficulty())
+                .filter(r -> r.difficulty() != null)
+                .mapToInt(r -> r.difficulty())
                 .summaryStatistics(); // Agrège toutes les stats
     }
 
@@ -252,19 +258,19 @@ public class StatisticsService {
      * @return Set<String> ensemble unique de mots-clés
      */
     public Set<String> getAllUniqueKeywords() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
-
         // STREAM API: Extraction et aplatissement
         // flatMap() est utilisé pour transformer chaque ressource en plusieurs
-        // mots-clés
-        return resources.stream()
-                .filter(r -> r.getGeneral() != null)
-                .filter(r -> r.getGeneral().getKeyword() != null)
-                .map(r -> r.getGeneral().getKeyword()) // Extraire le champ keyword
-                .flatMap(keywords -> Arrays.stream(keywords.split(",\\s*"))) // Éclater la chaîne
-                .map(String::trim) // Supprimer les espaces
-                .filter(k -> !k.isEmpty()) // Exclure les chaînes vides
-                .collect(Collectors.toCollection(TreeSet::new)); // Collecter en TreeSet (trié)
+        // mots-clés. Le catalogue est parcouru en flux (mémoire constante).
+        try (Stream<LomSchema> resources = lomSchemaDao.streamAll()) {
+            return resources
+                    .filter(r -> r.getGeneral() != null)
+                    .filter(r -> r.getGeneral().getKeyword() != null)
+                    .map(r -> r.getGeneral().getKeyword()) // Extraire le champ keyword
+                    .flatMap(keywords -> Arrays.stream(keywords.split(",\\s*"))) // Éclater la chaîne
+                    .map(String::trim) // Supprimer les espaces
+                    .filter(k -> !k.isEmpty()) // Exclure les chaînes vides
+                    .collect(Collectors.toCollection(TreeSet::new)); // Collecter en TreeSet (trié)
+        }
     }
 
     /**
@@ -278,13 +284,12 @@ public class StatisticsService {
      * @return List<String> liste des langues uniques
      */
     public List<String> getAvailableLanguages() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Extraction de valeurs uniques
         // distinct() élimine les doublons basé sur equals()
         return resources.stream()
-                .filter(r -> r.getGeneral() != null)
-                .map(r -> r.getGeneral().getLanguage()) // Extraire la langue
+                .map(LomSummary::language) // Extraire la langue
                 .filter(Objects::nonNull) // Exclure les valeurs null (référence de méthode)
                 .distinct() // Supprimer les doublons
                 .sorted() // Trier alphabétiquement
@@ -305,11 +310,11 @@ public class StatisticsService {
      * @return Map<String, Long> clé="YYYY-MM", valeur=nombre de ressources
      */
     public Map<String, Long> countResourcesByMonth() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // FUNCTION: Extraction année-mois depuis Date
-        Function<LomSchema, String> yearMonthExtractor = r -> {
-            LocalDate date = r.getCreatedAt().toInstant()
+        Function<LomSummary, String> yearMonthExtractor = r -> {
+            LocalDate date = r.createdAt().toInstant()
                     .atZone(ZoneId.systemDefault())
                     .toLocalDate();
             return String.format("%d-%02d", date.getYear(), date.getMonthValue());
@@ -318,7 +323,7 @@ public class StatisticsService {
         // STREAM API: Regroupement par année-mois
         // TreeMap maintient l'ordre chronologique
         return resources.stream()
-                .filter(r -> r.getCreatedAt() != null)
+                .filter(r -> r.createdAt() != null)
                 .collect(Collectors.groupingBy(
                         yearMonthExtractor,
                         TreeMap::new, // Factory pour TreeMap (ordre naturel)
@@ -335,14 +340,14 @@ public class StatisticsService {
      * @return long nombre de ressources créées aujourd'hui
      */
     public long countResourcesCreatedToday() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
         LocalDate today = LocalDate.now();
 
         // STREAM API: Filtrage et comptage
         return resources.stream()
-                .filter(r -> r.getCreatedAt() != null)
+                .filter(r -> r.createdAt() != null)
                 .filter(r -> {
-                    LocalDate resourceDate = r.getCreatedAt().toInstant()
+                    LocalDate resourceDate = r.createdAt().toInstant()
                             .atZone(ZoneId.systemDefault())
                             .toLocalDate();
                     return resourceDate.equals(today);
@@ -363,12 +368,12 @@ public class StatisticsService {
      * @return boolean true si toutes les ressources ont un General
      */
     public boolean allResourcesHaveGeneral() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
-
         // STREAM API: Vérification avec allMatch()
         // Retourne true si TOUS les éléments satisfont la condition
-        return resources.stream()
-                .allMatch(r -> r.getGeneral() != null);
+        // (court-circuit: le parcours s'arrête au premier échec)
+        try (Stream<LomSchema> resources = lomSchemaDao.streamAll()) {
+            return resources.allMatch(r -> r.getGeneral() != null);
+        }
     }
 
     /**
@@ -381,13 +386,12 @@ public class StatisticsService {
      * @return boolean true si au moins une ressource existe
      */
     public boolean hasResourcesForLanguage(String language) {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Vérification avec anyMatch()
         // Retourne true si AU MOINS UN élément satisfait la condition
         return resources.stream()
-                .filter(r -> r.getGeneral() != null)
-                .anyMatch(r -> language.equals(r.getGeneral().getLanguage()));
+                .anyMatch(r -> language.equals(r.language()));
     }
 
     /**
@@ -471,15 +475,15 @@ public class StatisticsService {
      * @return String résumé formaté de toutes les ressources
      */
     public String generateResourcesSummary() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // STREAM API: Transformation et jointure de chaînes
         // Collectors.joining() concatène les éléments avec un séparateur
         return resources.stream()
                 .map(r -> String.format("• %s (ID: %d) - Langue: %s",
-                        r.getResourceTitle(),
-                        r.getId(),
-                        r.getGeneral() != null ? r.getGeneral().getLanguage() : "N/A"))
+                        r.title(),
+                        r.id(),
+                        r.language() != null ? r.language() : "N/A"))
                 .collect(Collectors.joining("\n")); // Joindre avec retour à la ligne
     }
 
@@ -493,12 +497,11 @@ public class StatisticsService {
      * @return Map<String, Double> clé=langue, valeur=pourcentage
      */
     public Map<String, Double> getLanguageDistributionPercentage() {
-        List<LomSchema> resources = lomSchemaDao.findAll();
+        List<LomSummary> resources = lomSchemaDao.findAllSummaries();
 
         // Compter d'abord les ressources avec langue valide
         long total = resources.stream()
-                .filter(r -> r.getGeneral() != null)
-                .filter(r -> r.getGeneral().getLanguage() != null)
+                .filter(r -> r.language() != null)
                 .count();
 
         if (total == 0)
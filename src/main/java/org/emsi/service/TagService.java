@@ -3,6 +3,7 @@ package org.emsi.service;
 import org.emsi.dao.TagDao;
 import org.emsi.entities.Tag;
 import org.emsi.entities.LomSchema;
+import org.emsi.search.Autocomplete;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -62,10 +63,8 @@ public class TagService {
      * Supprimer un tag
      */
     public void deleteTag(Long tagId) {
-        Tag tag = tagDao.findById(tagId);
-        if (tag != null) {
-            tagDao.delete(tag);
-            System.out.println("🗑️ Tag supprimé: " + tag.getName());
+        if (tagDao.deleteWithLinks(tagId)) {
+            System.out.println("🗑️ Tag supprimé: " + tagId);
         }
     }
 
@@ -83,6 +82,19 @@ public class TagService {
         return tagDao.searchByName(keyword);
     }
 
+    /**
+     * Suggestions de noms de tags commençant par le texte saisi, les tags
+     * des ressources les plus populaires d'abord
+     */
+    public List<String> suggestTagNames(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return Autocomplete.getInstance().suggest(prefix, limit, EnumSet.of(Autocomplete.Source.TAG)).stream()
+                .map(Autocomplete.Suggestion::text)
+                .collect(Collectors.toList());
+    }
+
     /**
      * STREAM: Obtenir les tags les plus utilisés
      * 
@@ -161,7 +173,7 @@ public class TagService {
     public void removeTagFromResource(Tag tag, LomSchema resource) {
         resource.removeTag(tag);
         tag.removeResource(resource);
-        tagDao.update(tag);
+        tagDao.unlinkResource(tag.getId(), resource.getId());
         System.out.println("🗑️ Tag retiré de la ressource: " + tag.getName());
     }
 
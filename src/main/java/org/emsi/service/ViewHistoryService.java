@@ -46,14 +46,13 @@ public class ViewHistoryService {
      * Enregistrer une consultation de ressource
      * 
      * Si l'utilisateur a déjà consulté cette ressource, incrémente le compteur
+     * en une instruction (UPDATE ... SET view_count = view_count + 1) : pas de
+     * lecture préalable, et deux consultations simultanées comptent deux fois
      */
     public void recordView(User user, LomSchema resource) {
-        ViewHistory existing = findExisting(user, resource);
-
-        if (existing != null) {
-            existing.incrementViewCount();
-            dao.update(existing);
-        } else {
+        int updated = dao.updateWhere("viewCount = viewCount + 1, viewedAt = ?0",
+                "user.id = ?1 AND resource.id = ?2", new Date(), user.getId(), resource.getId());
+        if (updated == 0) {
             ViewHistory history = new ViewHistory(user, resource);
             dao.save(history);
         }
@@ -63,7 +62,7 @@ public class ViewHistoryService {
      * Chercher un historique existant pour user + resource
      */
     private ViewHistory findExisting(User user, LomSchema resource) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             Query<ViewHistory> query = session.createQuery(
                     "FROM ViewHistory WHERE user.id = :userId AND resource.id = :resourceId",
                     ViewHistory.class);
@@ -147,7 +146,7 @@ public class ViewHistoryService {
      * Obtenir tout l'historique d'un utilisateur
      */
     private List<ViewHistory> getUserHistory(User user) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession()) {
             Query<ViewHistory> query = session.createQuery(
                     "FROM ViewHistory WHERE user.id = :userId",
                     ViewHistory.class);
@@ -176,9 +175,12 @@ public class ViewHistoryService {
 
     /**
      * Effacer l'historique d'un utilisateur
+     *
+     * BULK DML: une seule instruction DELETE, sans charger l'historique
+     *
+     * @return nombre d'entrées supprimées
      */
-    public void clearHistory(User user) {
-        List<ViewHistory> all = getUserHistory(user);
-        all.forEach(dao::delete);
+    public int clearHistory(User user) {
+        return dao.deleteWhere("user.id = ?0", user.getId());
     }
 }
@@ -4,6 +4,9 @@ import org.emsi.entities.*;
 
 /**
  * Service d'export XML pour le standard LOM
+ *
+ * Exporte les catégories à cardinalité 1 (general, lifeCycle, technical,
+ * educational, rights) : une ressource chargée avec le plan SUMMARY suffit.
  */
 public class XmlExportService {
 
@@ -18,7 +18,7 @@ public class AdminDashboard {
     public AdminDashboard(Stage stage, Runnable onLogout) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/admin_dashboard.fxml"));
-            mainLayout = loader.load();
+            mainLayout = FxmlPreloader.load(loader);
             AdminDashboardController controller = loader.getController();
             controller.setContext(stage, onLogout);
         } catch (IOException e) {
@@ -0,0 +1,75 @@
+package org.emsi.ui;
+
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.CustomMenuItem;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Autocomplétion des champs de recherche
+ * Affiche sous le champ, à chaque frappe, les suggestions commençant par
+ * le texte saisi ; choisir une suggestion la place dans le champ
+ */
+public final class AutocompleteSupport {
+
+    /**
+     * Suggestions affichées
+     */
+    public static final int MAX_SUGGESTIONS = 8;
+
+    private AutocompleteSupport() {
+    }
+
+    /**
+     * Brancher l'autocomplétion sur un champ
+     *
+     * @param suggestions suggestions pour (préfixe, nombre maximum) ; appelé
+     *                    sur le thread JavaFX, doit répondre immédiatement
+     * @param onChosen    action après le choix d'une suggestion (peut être null)
+     */
+    public static void attach(TextField field, BiFunction<String, Integer, List<String>> suggestions,
+                              Consumer<String> onChosen) {
+        ContextMenu popup = new ContextMenu();
+        boolean[] choosing = {false};
+
+        field.textProperty().addListener((obs, oldText, newText) -> {
+            if (choosing[0] || !field.isFocused() || newText == null || newText.isBlank()) {
+                popup.hide();
+                return;
+            }
+            List<String> found = suggestions.apply(newText, MAX_SUGGESTIONS);
+            // Inutile de proposer exactement ce qui est déjà saisi
+            if (found.isEmpty() || (found.size() == 1 && found.get(0).equalsIgnoreCase(newText.trim()))) {
+                popup.hide();
+                return;
+            }
+            popup.getItems().clear();
+            for (String suggestion : found) {
+                CustomMenuItem item = new CustomMenuItem(new Label(suggestion), true);
+                item.setOnAction(e -> {
+                    choosing[0] = true;
+                    field.setText(suggestion);
+                    field.positionCaret(suggestion.length());
+                    choosing[0] = false;
+                    if (onChosen != null) {
+                        onChosen.accept(suggestion);
+                    }
+                });
+                popup.getItems().add(item);
+            }
+            if (!popup.isShowing()) {
+                popup.show(field, Side.BOTTOM, 0, 0);
+            }
+        });
+        field.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (!focused) {
+                popup.hide();
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package org.emsi.ui;
+
+import javafx.fxml.FXMLLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Préchargement des vues FXML en arrière-plan
+ *
+ * Lit les fichiers FXML en mémoire et charge (sans les initialiser) les
+ * classes JavaFX importées et le contrôleur, pendant que l'écran de
+ * connexion est affiché. Le premier affichage d'un tableau de bord n'a
+ * plus à payer la lecture du fichier ni le chargement de ces classes.
+ */
+public final class FxmlPreloader {
+
+    private static final Map<String, byte[]> documents = new ConcurrentHashMap<>();
+
+    private static final Pattern IMPORT = Pattern.compile("<\\?import\\s+([\\w.]+)\\s*\\?>");
+    private static final Pattern CONTROLLER = Pattern.compile("fx:controller=\"([\\w.]+)\"");
+
+    private FxmlPreloader() {
+    }
+
+    /**
+     * Précharger une liste de vues (ex: "/fxml/admin_dashboard.fxml")
+     */
+    public static void preload(String... paths) {
+        for (String path : paths) {
+            URL url = FxmlPreloader.class.getResource(path);
+            if (url == null) {
+                continue;
+            }
+            try (InputStream in = url.openStream()) {
+                byte[] bytes = in.readAllBytes();
+                documents.put(url.toExternalForm(), bytes);
+                loadClasses(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("⚠️ Préchargement impossible: " + path + " - " + e.getMessage());
+            }
+        }
+    }
+
+    private static void loadClasses(String fxml) {
+        ClassLoader loader = FxmlPreloader.class.getClassLoader();
+        Matcher imports = IMPORT.matcher(fxml);
+        while (imports.find()) {
+            loadClass(imports.group(1), loader);
+        }
+        Matcher controller = CONTROLLER.matcher(fxml);
+        if (controller.find()) {
+            loadClass(controller.group(1), loader);
+        }
+    }
+
+    private static void loadClass(String name, ClassLoader loader) {
+        try {
+            // Chargement sans initialisation statique (hors thread JavaFX)
+            Class.forName(name, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Import de paquet (*) ou classe absente : ignoré
+        }
+    }
+
+    /**
+     * Charger une vue en utilisant le document préchargé s'il existe
+     */
+    public static <T> T load(FXMLLoader loader) throws IOException {
+        byte[] bytes = documents.get(loader.getLocation().toExternalForm());
+        if (bytes == null) {
+            return loader.load();
+        }
+        return loader.load(new ByteArrayInputStream(bytes));
+    }
+}
@@ -25,7 +25,7 @@ public class LomEditorDialog extends Dialog<LomSchema> {
 
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/lom_editor_dialog.fxml"));
-            TabPane tabPane = loader.load();
+            TabPane tabPane = FxmlPreloader.load(loader);
             getDialogPane().setContent(tabPane);
 
             LomEditorController controller = loader.getController();
@@ -33,8 +33,7 @@ public class LomEditorDialog extends Dialog<LomSchema> {
 
             setResultConverter(dialogButton -> {
                 if (dialogButton == saveButtonType) {
-                    controller.saveValues(lom);
-                    return lom;
+                    return controller.saveValues(lom);
                 }
                 return null;
             });
@@ -25,7 +25,7 @@ public class LomViewDialog extends Dialog<Void> {
 
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/lom_view_dialog.fxml"));
-            TabPane tabPane = loader.load();
+            TabPane tabPane = FxmlPreloader.load(loader);
             getDialogPane().setContent(tabPane);
 
             LomViewController controller = loader.getController();
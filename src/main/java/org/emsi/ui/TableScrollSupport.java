@@ -0,0 +1,34 @@
+package org.emsi.ui;
+
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+/**
+ * Défilement infini pour les TableView paginées
+ * Déclenche le chargement de la page suivante lorsque l'utilisateur atteint
+ * le bas de la table
+ */
+public final class TableScrollSupport {
+
+    private TableScrollSupport() {
+    }
+
+    /**
+     * Exécuter une action quand la barre de défilement verticale atteint le bas
+     */
+    public static void onScrolledToBottom(TableView<?> table, Runnable action) {
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            for (Node node : table.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                    bar.valueProperty().addListener((o, oldValue, newValue) -> {
+                        if (newValue.doubleValue() >= bar.getMax()) {
+                            action.run();
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
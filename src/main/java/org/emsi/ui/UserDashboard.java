@@ -18,7 +18,7 @@ public class UserDashboard {
     public UserDashboard(Stage stage, Runnable onLogout) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/user_dashboard.fxml"));
-            mainLayout = loader.load();
+            mainLayout = FxmlPreloader.load(loader);
             UserDashboardController controller = loader.getController();
             controller.setContext(stage, onLogout);
         } catch (IOException e) {
@@ -1,5 +1,6 @@
 package org.emsi.ui.controllers;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -9,11 +10,15 @@ import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+import org.emsi.dao.Page;
 import org.emsi.entities.LomSchema;
 import org.emsi.service.AuthService;
 import org.emsi.service.LomService;
 import org.emsi.ui.LomEditorDialog;
 import org.emsi.ui.LomViewDialog;
+import org.emsi.ui.TableScrollSupport;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -26,19 +31,28 @@ public class AdminDashboardController {
     @FXML
     private Label countLabel;
     @FXML
-    private TableView<LomSchema> resourceTable;
+    private TableView<LomSummary> resourceTable;
     @FXML
-    private TableColumn<LomSchema, String> idCol;
+    private TableColumn<LomSummary, String> idCol;
     @FXML
-    private TableColumn<LomSchema, String> titleCol;
+    private TableColumn<LomSummary, String> titleCol;
     @FXML
-    private TableColumn<LomSchema, String> dateCol;
+    private TableColumn<LomSummary, String> dateCol;
     @FXML
-    private TableColumn<LomSchema, Void> actionsCol;
+    private TableColumn<LomSummary, Void> actionsCol;
 
     private final LomService lomService = LomService.getInstance();
     private final AuthService authService = AuthService.getInstance();
-    private final ObservableList<LomSchema> resourceList = FXCollections.observableArrayList();
+    private final ObservableList<LomSummary> resourceList = FXCollections.observableArrayList();
+
+    // Pagination keyset: taille de page et curseur de la page suivante
+    private static final int PAGE_SIZE = 50;
+    private Page.Cursor nextCursor;
+
+    // Chargement asynchrone : version de la liste (incrémentée à chaque
+    // rechargement) et page en cours de lecture
+    private int listVersion;
+    private boolean loadingPage;
 
     private Stage stage;
     private Runnable onLogout;
@@ -53,11 +67,11 @@ public class AdminDashboardController {
     public void initialize() {
         userLabel.setText("👤 " + authService.getCurrentUser().getFullName());
 
-        idCol.setCellValueFactory(data -> new SimpleStringProperty(String.valueOf(data.getValue().getId())));
-        titleCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getResourceTitle()));
+        idCol.setCellValueFactory(data -> new SimpleStringProperty(String.valueOf(data.getValue().id())));
+        titleCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().title()));
         dateCol.setCellValueFactory(data -> {
             SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-            return new SimpleStringProperty(sdf.format(data.getValue().getCreatedAt()));
+            return new SimpleStringProperty(sdf.format(data.getValue().createdAt()));
         });
 
         actionsCol.setCellFactory(col -> new TableCell<>() {
@@ -84,6 +98,7 @@ public class AdminDashboardController {
         });
 
         resourceTable.setItems(resourceList);
+        TableScrollSupport.onScrolledToBottom(resourceTable, this::loadNextPage);
     }
 
     private void initializeData() {
@@ -193,7 +208,7 @@ public class AdminDashboardController {
         try {
             javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(
                     getClass().getResource("/fxml/advanced_search_dialog.fxml"));
-            javafx.scene.Parent root = loader.load();
+            javafx.scene.Parent root = org.emsi.ui.FxmlPreloader.load(loader);
 
             Stage dialogStage = new Stage();
             dialogStage.setTitle("🔍 Recherche Avancée");
@@ -263,14 +278,19 @@ public class AdminDashboardController {
             Alert progressAlert = new Alert(Alert.AlertType.INFORMATION);
             progressAlert.setTitle("Import en cours");
             progressAlert.setHeaderText("Traitement de " + dataToImport.size() + " ressources...");
-            progressAlert.setContentText("Veuillez patienter pendant l'import parallèle.");
+            progressAlert.setContentText("Veuillez patienter pendant l'import par lots.");
             progressAlert.show(); // Non-bloquant pour l'instant
 
-            // Utilisation d'un thread séparé pour ne pas bloquer l'UI pendant l'attente des
+            // Import sur l'executor BDD pour ne pas bloquer l'UI pendant l'attente des
             // résultats
-            new Thread(() -> {
-                org.emsi.service.BatchImportService.ImportResult result = importService
-                        .importResourcesParallel(dataToImport);
+            importService.importResourcesBatchedAsync(dataToImport, 500).whenComplete((result, error) -> {
+                if (error != null) {
+                    javafx.application.Platform.runLater(() -> {
+                        progressAlert.close();
+                        showError("Erreur Import", "Import impossible:\n" + error.getMessage());
+                    });
+                    return;
+                }
 
                 // Mise à jour de l'UI sur le thread JavaFX
                 javafx.application.Platform.runLater(() -> {
@@ -298,7 +318,7 @@ public class AdminDashboardController {
                     // Rafraîchir la liste
                     loadResources();
                 });
-            }).start();
+            });
 
         } catch (Exception e) {
             showError("Erreur Import", "Erreur lors de la lecture du fichier:\n" + e.getMessage());
@@ -317,42 +337,89 @@ public class AdminDashboardController {
         alert.showAndWait();
     }
 
+    /**
+     * Charger la première page de ressources (tri par titre)
+     */
     private void loadResources() {
-        resourceList.clear();
-        List<LomSchema> resources = lomService.getAllResources();
-        resourceList.addAll(resources);
+        clearList();
+        appendPage(null);
         countLabel.setText("📚 Ressources: " + lomService.countResources());
     }
 
+    /**
+     * Charger la page suivante lorsque la table défile jusqu'en bas
+     */
+    private void loadNextPage() {
+        if (nextCursor != null && !loadingPage) {
+            appendPage(nextCursor);
+        }
+    }
+
+    /**
+     * Vider la liste ; les pages encore en cours de chargement seront
+     * ignorées
+     */
+    private void clearList() {
+        listVersion++;
+        loadingPage = false;
+        nextCursor = null;
+        resourceList.clear();
+    }
+
+    /**
+     * Lire une page sur l'executor BDD puis l'ajouter à la table sur le
+     * thread JavaFX
+     */
+    private void appendPage(Page.Cursor after) {
+        int version = listVersion;
+        loadingPage = true;
+        lomService.getSummaryPageAsync(LomSchemaDao.SortKey.TITLE, false, after, PAGE_SIZE)
+                .whenComplete((page, error) -> Platform.runLater(() -> {
+                    if (version != listVersion) {
+                        return;
+                    }
+                    loadingPage = false;
+                    if (error != null) {
+                        showError("Erreur Chargement", "Impossible de charger les ressources:\n" + error.getMessage());
+                        return;
+                    }
+                    resourceList.addAll(page.getItems());
+                    nextCursor = page.getNextCursor();
+                }));
+    }
+
+    private void editResource(LomSummary summary) {
+        if (summary == null)
+            return;
+        editResource(lomService.getResourceById(summary.id()));
+    }
+
     private void editResource(LomSchema lom) {
         if (lom == null)
             return;
         LomEditorDialog editor = new LomEditorDialog(lom);
-        editor.showAndWait().ifPresent(updated -> {
-            lomService.updateResource(updated);
-            loadResources();
-        });
+        editor.showAndWait().ifPresent(updated -> loadResources());
     }
 
-    private void viewResource(LomSchema lom) {
+    private void viewResource(LomSummary lom) {
         if (lom == null)
             return;
-        LomSchema fullLom = lomService.getResourceById(lom.getId());
+        LomSchema fullLom = lomService.getResourceById(lom.id());
         LomViewDialog viewer = new LomViewDialog(fullLom);
         viewer.showAndWait();
     }
 
-    private void deleteResource(LomSchema lom) {
+    private void deleteResource(LomSummary lom) {
         if (lom == null)
             return;
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Confirmation");
         confirm.setHeaderText("Supprimer la ressource?");
-        confirm.setContentText("Êtes-vous sûr de vouloir supprimer \"" + lom.getResourceTitle() + "\"?");
+        confirm.setContentText("Êtes-vous sûr de vouloir supprimer \"" + lom.title() + "\"?");
 
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                lomService.deleteResource(lom.getId());
+                lomService.deleteResource(lom.id());
                 loadResources();
             }
         });
@@ -1,27 +1,36 @@
 package org.emsi.ui.controllers;
 
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
 import org.emsi.entities.LomSchema;
 import org.emsi.entities.Tag;
 import org.emsi.entities.User;
+import org.emsi.search.Facet;
+import org.emsi.search.FacetCounts;
+import org.emsi.search.SearchQuery;
 import org.emsi.service.*;
+import org.emsi.ui.AutocompleteSupport;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Contrôleur pour la recherche avancée
  * 
  * Ce contrôleur démontre:
- * - Utilisation avancée des Streams avec Predicate combinés
+ * - Filtrage multicritères en base via projection LomSummary
  * - CompletableFuture pour recherche asynchrone
- * - Pagination avec Stream.skip() et limit()
- * - Tri dynamique avec Comparator
+ * - Pagination à la demande (ResultCursor) : seule la page affichée est
+ *   sélectionnée et triée, par l'index ou par la base (ORDER BY ... LIMIT)
+ * - Tri par date, titre, langue, difficulté, ou par pertinence (BM25, top-k)
+ * - Compteurs de facettes (langue, difficulté, types, tags) mis à jour à
+ *   chaque changement de filtre, calculés par l'index de recherche
  * 
  * @author Projet LOM - EMSI
  */
@@ -38,6 +47,12 @@ public class AdvancedSearchController {
     @FXML
     private Slider difficultyMaxSlider;
     @FXML
+    private Label difficultyCountsLabel;
+    @FXML
+    private ListView<String> interactivityFilterList;
+    @FXML
+    private ListView<String> resourceTypeFilterList;
+    @FXML
     private ListView<String> tagsFilterList;
     @FXML
     private ComboBox<String> sortByCombo;
@@ -65,6 +80,7 @@ public class AdvancedSearchController {
     private Button addFavoriteBtn;
 
     private final LomService lomService = LomService.getInstance();
+    private final SearchService searchService = SearchService.getInstance();
     private final StatisticsService statisticsService = StatisticsService.getInstance();
     private final TagService tagService = TagService.getInstance();
     private final FavoriteService favoriteService = FavoriteService.getInstance();
@@ -72,12 +88,18 @@ public class AdvancedSearchController {
     private Stage dialogStage;
     private User currentUser;
 
-    // Résultats et pagination
-    private List<LomSchema> allResults = new ArrayList<>();
-    private List<LomSchema> currentPageResults = new ArrayList<>();
+    // Résultats et pagination : curseur de la recherche en cours (seules
+    // les pages consultées sont chargées) et page affichée
+    private ResultCursor cursor;
+    private List<LomSummary> currentPageResults = new ArrayList<>();
     private int currentPage = 0;
     private static final int PAGE_SIZE = 20;
 
+    private static final String ALL_LANGUAGES = "Toutes les langues";
+
+    // Compteurs affichés à côté de chaque valeur de filtre
+    private FacetCounts facetCounts = FacetCounts.empty();
+
     public void setContext(Stage stage, User user) {
         this.dialogStage = stage;
         this.currentUser = user;
@@ -87,12 +109,21 @@ public class AdvancedSearchController {
     public void initialize() {
         // Initialiser les langues disponibles
         List<String> languages = statisticsService.getAvailableLanguages();
-        languageCombo.getItems().add("Toutes les langues");
+        languageCombo.getItems().add(ALL_LANGUAGES);
         languageCombo.getItems().addAll(languages);
-        languageCombo.setValue("Toutes les langues");
+        languageCombo.setValue(ALL_LANGUAGES);
+
+        // Types d'interactivité et de ressource (valeurs de l'éditeur LOM)
+        interactivityFilterList.getItems().setAll("active", "expositive", "mixed");
+        resourceTypeFilterList.getItems().setAll("exercise", "simulation", "questionnaire",
+                "diagram", "figure", "graph", "index", "slide", "table", "narrative text", "exam", "experiment",
+                "problem statement", "self assessment", "lecture");
+        interactivityFilterList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        resourceTypeFilterList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         // Initialiser les options de tri
         sortByCombo.getItems().addAll(
+                "Pertinence",
                 "Date de création",
                 "Titre",
                 "Langue",
@@ -102,6 +133,27 @@ public class AdvancedSearchController {
         // Charger les tags disponibles (multi-sélection)
         loadAvailableTags();
 
+        // Valeurs affichées avec leur nombre de résultats
+        languageCombo.setCellFactory(list -> facetCell(Facet.LANGUAGE));
+        languageCombo.setButtonCell(facetCell(Facet.LANGUAGE));
+        interactivityFilterList.setCellFactory(list -> facetCell(Facet.INTERACTIVITY_TYPE));
+        resourceTypeFilterList.setCellFactory(list -> facetCell(Facet.LEARNING_RESOURCE_TYPE));
+        tagsFilterList.setCellFactory(list -> facetCell(Facet.TAG));
+
+        // Compteurs recalculés à chaque changement de filtre
+        searchTextField.textProperty().addListener((obs, oldVal, newVal) -> refreshFacetCounts());
+        exactMatchCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> refreshFacetCounts());
+        languageCombo.valueProperty().addListener((obs, oldVal, newVal) -> refreshFacetCounts());
+        difficultyMinSlider.valueProperty().addListener((obs, oldVal, newVal) -> refreshFacetCounts());
+        difficultyMaxSlider.valueProperty().addListener((obs, oldVal, newVal) -> refreshFacetCounts());
+        for (ListView<String> list : List.of(interactivityFilterList, resourceTypeFilterList, tagsFilterList)) {
+            list.getSelectionModel().getSelectedItems()
+                    .addListener((ListChangeListener<String>) change -> refreshFacetCounts());
+        }
+
+        // Suggestions de titres, mots-clés et tags pendant la saisie
+        AutocompleteSupport.attach(searchTextField, searchService::suggest, null);
+
         // Listener pour activer les boutons
         resultsListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             boolean selected = newVal != null;
@@ -130,12 +182,18 @@ public class AdvancedSearchController {
     }
 
     /**
-     * COMPLETABLEFUTURE + STREAM: Recherche asynchrone avec filtres combinés
+     * COMPLETABLEFUTURE: Recherche asynchrone avec filtres combinés
      * 
      * Démontre:
-     * - CompletableFuture.supplyAsync() pour recherche asynchrone
+     * - CompletableFuture pour recherche asynchrone
      * - Platform.runLater() pour mise à jour UI depuis thread secondaire
-     * - Combinaison de Predicates avec and()
+     * - Tri et pagination délégués à l'index ou à la base
+     *
+     * PROJECTION: les filtres (texte, langue, difficulté, types, tags)
+     * sont appliqués par l'index (ensembles de documents par valeur) ou en
+     * base, et seuls les LomSummary de la première page sont chargés : les
+     * 20 premiers dans l'ordre demandé sont sélectionnés sans trier toutes
+     * les correspondances, les pages suivantes à la demande.
      */
     @FXML
     private void handleSearch() {
@@ -143,120 +201,115 @@ public class AdvancedSearchController {
         long startTime = System.currentTimeMillis();
 
         // Récupérer les valeurs des filtres
-        String searchText = searchTextField.getText().trim();
-        boolean exactMatch = exactMatchCheckBox.isSelected();
-        String language = languageCombo.getValue();
-        int minDifficulty = (int) difficultyMinSlider.getValue();
-        int maxDifficulty = (int) difficultyMaxSlider.getValue();
-        List<String> selectedTags = new ArrayList<>(tagsFilterList.getSelectionModel().getSelectedItems());
+        SearchQuery query = currentQuery();
         String sortBy = sortByCombo.getValue();
         boolean descending = descendingCheckBox.isSelected();
 
-        // COMPLETABLEFUTURE: Exécution asynchrone de la recherche
-        CompletableFuture.supplyAsync(() -> {
-            // Récupérer toutes les ressources
-            List<LomSchema> resources = lomService.getAllResources();
-
-            // ============================================================
-            // STREAM API: Construction des Predicates de filtrage
-            // ============================================================
-
-            // Predicate 1: Recherche textuelle
-            Predicate<LomSchema> textPredicate;
-            if (searchText.isEmpty()) {
-                textPredicate = r -> true; // Pas de filtre texte
-            } else if (exactMatch) {
-                // Correspondance exacte
-                textPredicate = r -> {
-                    if (r.getResourceTitle() == null)
-                        return false;
-                    return r.getResourceTitle().equalsIgnoreCase(searchText);
-                };
-            } else {
-                // Recherche partielle (contains)
-                String lowerSearch = searchText.toLowerCase();
-                textPredicate = r -> {
-                    // Chercher dans le titre
-                    if (r.getResourceTitle() != null &&
-                            r.getResourceTitle().toLowerCase().contains(lowerSearch)) {
-                        return true;
-                    }
-                    // Chercher dans les mots-clés
-                    if (r.getGeneral() != null && r.getGeneral().getKeyword() != null &&
-                            r.getGeneral().getKeyword().toLowerCase().contains(lowerSearch)) {
-                        return true;
-                    }
-                    // Chercher dans la description
-                    if (r.getGeneral() != null && r.getGeneral().getDescription() != null &&
-                            r.getGeneral().getDescription().toLowerCase().contains(lowerSearch)) {
-                        return true;
-                    }
-                    return false;
-                };
-            }
+        refreshFacetCounts();
 
-            // Predicate 2: Filtre par langue
-            Predicate<LomSchema> languagePredicate;
-            if (language == null || "Toutes les langues".equals(language)) {
-                languagePredicate = r -> true;
-            } else {
-                languagePredicate = r -> r.getGeneral() != null &&
-                        language.equals(r.getGeneral().getLanguage());
-            }
+        // COMPLETABLEFUTURE: Première page (types et tags: logique OR) par l'index ou sur l'executor BDD
+        CompletableFuture<ResultCursor> search = "Pertinence".equals(sortBy) && query.hasText()
+                ? searchService.rankedCursor(query, PAGE_SIZE)
+                : searchService.sortedCursor(query, getSortKey(sortBy), descending, PAGE_SIZE);
 
-            // Predicate 3: Filtre par difficulté (plage)
-            Predicate<LomSchema> difficultyPredicate = r -> {
-                if (r.getEducational() == null || r.getEducational().getDifficulty() == null) {
-                    return true; // Inclure si pas de difficulté
-                }
-                int diff = r.getEducational().getDifficulty();
-                return diff >= minDifficulty && diff <= maxDifficulty;
-            };
-
-            // Predicate 4: Filtre par tags (OR logic)
-            Predicate<LomSchema> tagsPredicate;
-            if (selectedTags.isEmpty()) {
-                tagsPredicate = r -> true;
-            } else {
-                tagsPredicate = r -> {
-                    Set<String> resourceTagNames = r.getTags().stream()
-                            .map(Tag::getName)
-                            .collect(Collectors.toSet());
-                    // STREAM: anyMatch pour vérifier si au moins un tag correspond
-                    return selectedTags.stream()
-                            .anyMatch(resourceTagNames::contains);
-                };
-            }
+        search.thenAccept(opened -> {
+            // PLATFORM.RUNLATER: Mise à jour UI depuis thread JavaFX
+            Platform.runLater(() -> {
+                cursor = opened;
+                showPage(0, startTime);
+            });
 
-            // ============================================================
-            // STREAM: Combiner les predicates et appliquer le tri
-            // ============================================================
+        }).exceptionally(ex -> {
+            Platform.runLater(() -> {
+                statusLabel.setText("Erreur: " + ex.getMessage());
+            });
+            return null;
+        });
+    }
 
-            // Combiner tous les predicates avec and()
-            Predicate<LomSchema> combinedPredicate = textPredicate
-                    .and(languagePredicate)
-                    .and(difficultyPredicate)
-                    .and(tagsPredicate);
+    /**
+     * Requête correspondant aux filtres du dialogue
+     */
+    private SearchQuery currentQuery() {
+        String language = languageCombo.getValue();
+        return new SearchQuery()
+                .text(searchTextField.getText().trim())
+                .exactTitle(exactMatchCheckBox.isSelected())
+                .prefix(true)
+                .language(ALL_LANGUAGES.equals(language) ? null : language)
+                .difficultyBetween((int) difficultyMinSlider.getValue(), (int) difficultyMaxSlider.getValue())
+                .interactivityTypes(interactivityFilterList.getSelectionModel().getSelectedItems())
+                .learningResourceTypes(resourceTypeFilterList.getSelectionModel().getSelectedItems())
+                .tags(tagsFilterList.getSelectionModel().getSelectedItems());
+    }
+
+    /**
+     * Recalculer les compteurs de facettes pour les filtres courants
+     *
+     * Calcul en mémoire sur l'index (intersections d'ensembles), sans
+     * requête SQL ; sans index prêt, les valeurs s'affichent sans compteur.
+     */
+    private void refreshFacetCounts() {
+        facetCounts = searchService.facetCounts(currentQuery());
+
+        // Valeurs présentes dans le catalogue mais absentes des listes
+        addMissingValues(interactivityFilterList, Facet.INTERACTIVITY_TYPE);
+        addMissingValues(resourceTypeFilterList, Facet.LEARNING_RESOURCE_TYPE);
+
+        // Recréer les cellules pour afficher les nouveaux compteurs
+        languageCombo.setCellFactory(list -> facetCell(Facet.LANGUAGE));
+        languageCombo.setButtonCell(facetCell(Facet.LANGUAGE));
+        interactivityFilterList.refresh();
+        resourceTypeFilterList.refresh();
+        tagsFilterList.refresh();
+
+        if (facetCounts.isEmpty()) {
+            difficultyCountsLabel.setText("");
+        } else {
+            difficultyCountsLabel.setText(facetCounts.get(Facet.DIFFICULTY).entrySet().stream()
+                    .map(e -> e.getKey() + "⭐ (" + e.getValue() + ")")
+                    .collect(Collectors.joining("  ")));
+        }
+    }
 
-            // Créer le Comparator selon le tri sélectionné
-            Comparator<LomSchema> comparator = getComparator(sortBy);
-            if (descending) {
-                comparator = comparator.reversed();
+    private void addMissingValues(ListView<String> list, Facet facet) {
+        for (String value : facetCounts.get(facet).keySet()) {
+            if (!list.getItems().contains(value)) {
+                list.getItems().add(value);
             }
+        }
+    }
 
-            // STREAM: Filtrer, trier et collecter
-            return resources.stream()
-                    .filter(combinedPredicate)
-                    .sorted(comparator)
-                    .collect(Collectors.toList());
+    /**
+     * Cellule affichant une valeur de filtre et son nombre de résultats
+     */
+    private ListCell<String> facetCell(Facet facet) {
+        return new ListCell<>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else if (facetCounts.isEmpty() || ALL_LANGUAGES.equals(item)) {
+                    setText(item);
+                } else {
+                    setText(item + " (" + facetCounts.count(facet, item) + ")");
+                }
+            }
+        };
+    }
 
-        }).thenAccept(results -> {
+    /**
+     * Afficher une page du curseur (chargée à la demande si elle ne l'a
+     * pas encore été)
+     */
+    private void showPage(int page, long startTime) {
+        cursor.page(page).thenAccept(results -> {
             long endTime = System.currentTimeMillis();
 
-            // PLATFORM.RUNLATER: Mise à jour UI depuis thread JavaFX
             Platform.runLater(() -> {
-                allResults = results;
-                currentPage = 0;
+                currentPageResults = results;
+                currentPage = page;
 
                 updateResultsDisplay();
 
@@ -273,50 +326,33 @@ public class AdvancedSearchController {
     }
 
     /**
-     * STREAM: Créer un Comparator selon le critère de tri
+     * Clé de tri selon le critère choisi
+     * (Pertinence sans texte : ordre par date)
      */
-    private Comparator<LomSchema> getComparator(String sortBy) {
+    private LomSchemaDao.SortKey getSortKey(String sortBy) {
         return switch (sortBy) {
-            case "Titre" -> Comparator.comparing(
-                    LomSchema::getResourceTitle,
-                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
-            case "Langue" -> Comparator.comparing(
-                    r -> r.getGeneral() != null ? r.getGeneral().getLanguage() : null,
-                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
-            case "Difficulté" -> Comparator.comparing(
-                    r -> r.getEducational() != null ? r.getEducational().getDifficulty() : null,
-                    Comparator.nullsFirst(Integer::compareTo));
-            default -> Comparator.comparing(
-                    LomSchema::getCreatedAt,
-                    Comparator.nullsLast(Date::compareTo));
+            case "Titre" -> LomSchemaDao.SortKey.TITLE;
+            case "Langue" -> LomSchemaDao.SortKey.LANGUAGE;
+            case "Difficulté" -> LomSchemaDao.SortKey.DIFFICULTY;
+            default -> LomSchemaDao.SortKey.CREATED_AT;
         };
     }
 
     /**
-     * STREAM: Mettre à jour l'affichage avec pagination
-     * 
-     * Utilise:
-     * - stream().skip() pour sauter les éléments des pages précédentes
-     * - stream().limit() pour limiter à PAGE_SIZE éléments
+     * STREAM: Mettre à jour l'affichage de la page courante
      */
     private void updateResultsDisplay() {
-        int totalResults = allResults.size();
-        int totalPages = (int) Math.ceil((double) totalResults / PAGE_SIZE);
-
-        // STREAM API: Pagination avec skip() et limit()
-        currentPageResults = allResults.stream()
-                .skip((long) currentPage * PAGE_SIZE) // Sauter les éléments précédents
-                .limit(PAGE_SIZE) // Limiter au nombre par page
-                .collect(Collectors.toList());
+        int totalResults = cursor.getTotal();
+        int totalPages = cursor.getPageCount();
 
         // STREAM: Transformer pour affichage
         List<String> displayItems = currentPageResults.stream()
                 .map(r -> {
-                    String lang = r.getGeneral() != null ? r.getGeneral().getLanguage() : "-";
-                    Integer diff = r.getEducational() != null ? r.getEducational().getDifficulty() : null;
+                    String lang = r.language() != null ? r.language() : "-";
+                    Integer diff = r.difficulty();
                     String diffStr = diff != null ? "⭐".repeat(diff) : "-";
                     return String.format("📘 %s | 🌍 %s | %s",
-                            r.getResourceTitle(), lang, diffStr);
+                            r.title(), lang, diffStr);
                 })
                 .collect(Collectors.toList());
 
@@ -336,9 +372,8 @@ public class AdvancedSearchController {
      */
     @FXML
     private void handlePreviousPage() {
-        if (currentPage > 0) {
-            currentPage--;
-            updateResultsDisplay();
+        if (cursor != null && currentPage > 0) {
+            showPage(currentPage - 1, System.currentTimeMillis());
         }
     }
 
@@ -347,10 +382,9 @@ public class AdvancedSearchController {
      */
     @FXML
     private void handleNextPage() {
-        int totalPages = (int) Math.ceil((double) allResults.size() / PAGE_SIZE);
-        if (currentPage < totalPages - 1) {
-            currentPage++;
-            updateResultsDisplay();
+        // Page suivante chargée à partir de la dernière ressource affichée
+        if (cursor != null && currentPage < cursor.getPageCount() - 1) {
+            showPage(currentPage + 1, System.currentTimeMillis());
         }
     }
 
@@ -361,9 +395,11 @@ public class AdvancedSearchController {
     private void handleClearFilters() {
         searchTextField.clear();
         exactMatchCheckBox.setSelected(false);
-        languageCombo.setValue("Toutes les langues");
+        languageCombo.setValue(ALL_LANGUAGES);
         difficultyMinSlider.setValue(1);
         difficultyMaxSlider.setValue(5);
+        interactivityFilterList.getSelectionModel().clearSelection();
+        resourceTypeFilterList.getSelectionModel().clearSelection();
         tagsFilterList.getSelectionModel().clearSelection();
         sortByCombo.setValue("Date de création");
         descendingCheckBox.setSelected(true);
@@ -378,9 +414,9 @@ public class AdvancedSearchController {
     private void handleViewDetail() {
         int selectedIndex = resultsListView.getSelectionModel().getSelectedIndex();
         if (selectedIndex >= 0 && selectedIndex < currentPageResults.size()) {
-            LomSchema resource = currentPageResults.get(selectedIndex);
+            LomSummary resource = currentPageResults.get(selectedIndex);
             // Ouvrir le dialogue de visualisation
-            statusLabel.setText("Détails: " + resource.getResourceTitle());
+            statusLabel.setText("Détails: " + resource.title());
         }
     }
 
@@ -391,9 +427,10 @@ public class AdvancedSearchController {
     private void handleAddFavorite() {
         int selectedIndex = resultsListView.getSelectionModel().getSelectedIndex();
         if (selectedIndex >= 0 && selectedIndex < currentPageResults.size() && currentUser != null) {
-            LomSchema resource = currentPageResults.get(selectedIndex);
+            LomSummary summary = currentPageResults.get(selectedIndex);
+            LomSchema resource = lomService.getResourceById(summary.id());
             favoriteService.addFavorite(currentUser, resource);
-            statusLabel.setText("⭐ Ajouté aux favoris: " + resource.getResourceTitle());
+            statusLabel.setText("⭐ Ajouté aux favoris: " + summary.title());
         }
     }
 
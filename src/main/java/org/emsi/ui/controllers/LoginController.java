@@ -1,5 +1,6 @@
 package org.emsi.ui.controllers;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
@@ -33,6 +34,18 @@ public class LoginController {
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
         this.authService = AuthService.getInstance();
+
+        // Connexion possible une fois la base initialisée en arrière-plan
+        loginButton.setDisable(true);
+        errorLabel.setText("Connexion à la base de données...");
+        mainApp.whenBackendReady().whenComplete((v, e) -> Platform.runLater(() -> {
+            if (e == null) {
+                loginButton.setDisable(false);
+                errorLabel.setText("");
+            } else {
+                errorLabel.setText("Base de données indisponible");
+            }
+        }));
     }
 
     @FXML
@@ -2,10 +2,13 @@ package org.emsi.ui.controllers;
 
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import org.emsi.entities.*;
+import org.emsi.exceptions.LomException;
+import org.emsi.service.LomEditSet;
 import org.emsi.service.LomService;
 
 public class LomEditorController {
@@ -138,43 +141,55 @@ public class LomEditorController {
         }
     }
 
-    public void saveValues(LomSchema lom) {
-        // General
-        lomService.updateGeneral(lom,
-                titleField.getText(),
-                languageField.getText(),
-                descriptionArea.getText(),
-                keywordField.getText(),
-                structureCombo.getValue(),
-                aggregationLevelCombo.getValue());
-
-        // Lifecycle
-        lomService.updateLifecycle(lom,
-                versionField.getText(),
-                statusCombo.getValue());
-
-        // Technical
-        lomService.updateTechnical(lom,
-                formatField.getText(),
-                sizeField.getText(),
-                locationField.getText(),
-                durationField.getText());
-
-        // Educational
-        lomService.updateEducational(lom,
-                interactivityTypeCombo.getValue(),
-                learningResourceTypeCombo.getValue(),
-                interactivityLevelCombo.getValue(),
-                intendedEndUserRoleCombo.getValue(),
-                contextCombo.getValue(),
-                difficultyCombo.getValue(),
-                typicalLearningTimeField.getText(),
-                typicalAgeRangeField.getText());
-
-        // Rights
-        lomService.updateRights(lom,
-                costCombo.getValue(),
-                copyrightCombo.getValue(),
-                rightsDescriptionArea.getText());
+    /**
+     * Enregistrer toutes les catégories en une seule transaction
+     *
+     * L'enregistrement est refusé si la ressource a été modifiée par un
+     * autre utilisateur depuis son ouverture dans l'éditeur.
+     *
+     * @return la ressource mise à jour, ou null en cas d'échec ou de conflit
+     */
+    public LomSchema saveValues(LomSchema lom) {
+        LomEditSet edits = new LomEditSet()
+                // General
+                .general(titleField.getText(),
+                        languageField.getText(),
+                        descriptionArea.getText(),
+                        keywordField.getText(),
+                        structureCombo.getValue(),
+                        aggregationLevelCombo.getValue())
+                // Lifecycle
+                .lifecycle(versionField.getText(),
+                        statusCombo.getValue())
+                // Technical
+                .technical(formatField.getText(),
+                        sizeField.getText(),
+                        locationField.getText(),
+                        durationField.getText())
+                // Educational
+                .educational(interactivityTypeCombo.getValue(),
+                        learningResourceTypeCombo.getValue(),
+                        interactivityLevelCombo.getValue(),
+                        intendedEndUserRoleCombo.getValue(),
+                        contextCombo.getValue(),
+                        difficultyCombo.getValue(),
+                        typicalLearningTimeField.getText(),
+                        typicalAgeRangeField.getText())
+                // Rights
+                .rights(costCombo.getValue(),
+                        copyrightCombo.getValue(),
+                        rightsDescriptionArea.getText());
+
+        try {
+            return lomService.applyEdits(lom.getId(), lom.getLockVersion(), edits);
+        } catch (LomException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Conflit de modification");
+            alert.setHeaderText(null);
+            alert.setContentText("La ressource a été modifiée par un autre utilisateur depuis son ouverture. "
+                    + "Rouvrez-la pour éditer sa dernière version.");
+            alert.showAndWait();
+            return null;
+        }
     }
 }
@@ -8,8 +8,10 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.stage.Stage;
+import org.emsi.dao.ReadRouter;
 import org.emsi.service.StatisticsService;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -66,8 +68,8 @@ public class StatisticsDashboardController {
         periodCombo.getItems().addAll("Tout", "Cette semaine", "Ce mois", "Cette année");
         periodCombo.setValue("Tout");
 
-        // Charger les statistiques
-        loadStatistics();
+        // Charger les statistiques (quelques secondes de retard du réplica acceptées)
+        ReadRouter.withStaleness(Duration.ofSeconds(30), this::loadStatistics);
     }
 
     /**
@@ -84,7 +86,7 @@ public class StatisticsDashboardController {
         // ========================================================
 
         // Total des ressources
-        long totalResources = statisticsService.getMostRecentResources(Integer.MAX_VALUE).size();
+        long totalResources = statisticsService.countResources();
         totalResourcesLabel.setText(String.valueOf(totalResources));
 
         // STREAM: Compter les langues uniques
@@ -5,6 +5,7 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 import org.emsi.entities.Tag;
 import org.emsi.service.TagService;
+import org.emsi.ui.AutocompleteSupport;
 
 import java.util.List;
 import java.util.Optional;
@@ -69,6 +70,9 @@ public class TagManagerController {
             }
         });
 
+        // Suggestions de noms de tags pendant la saisie
+        AutocompleteSupport.attach(searchTagField, tagService::suggestTagNames, null);
+
         loadTags();
         updateStatistics();
     }
@@ -1,5 +1,6 @@
 package org.emsi.ui.controllers;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -13,16 +14,25 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+import org.emsi.dao.Page;
+import org.emsi.dao.UnitOfWork;
 import org.emsi.entities.LomSchema;
+import org.emsi.entities.User;
 import org.emsi.service.AuthService;
 import org.emsi.service.LomService;
 import org.emsi.service.SearchService;
 import org.emsi.service.XmlExportService;
 import org.emsi.service.FavoriteService;
+import org.emsi.ui.AutocompleteSupport;
 import org.emsi.ui.LomViewDialog;
+import org.emsi.ui.TableScrollSupport;
 
 import java.text.SimpleDateFormat;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class UserDashboardController {
 
@@ -35,22 +45,36 @@ public class UserDashboardController {
     @FXML
     private ComboBox<Integer> difficultyCombo;
     @FXML
-    private TableView<LomSchema> resourceTable;
+    private TableView<LomSummary> resourceTable;
     @FXML
-    private TableColumn<LomSchema, String> titleCol;
+    private TableColumn<LomSummary, String> titleCol;
     @FXML
-    private TableColumn<LomSchema, String> langCol;
+    private TableColumn<LomSummary, String> langCol;
     @FXML
-    private TableColumn<LomSchema, String> diffCol;
+    private TableColumn<LomSummary, String> diffCol;
     @FXML
-    private TableColumn<LomSchema, String> dateCol;
+    private TableColumn<LomSummary, String> dateCol;
     @FXML
-    private TableColumn<LomSchema, Void> actionsCol;
+    private TableColumn<LomSummary, Void> actionsCol;
 
     private final LomService lomService = LomService.getInstance();
     private final SearchService searchService = SearchService.getInstance();
     private final AuthService authService = AuthService.getInstance();
-    private final ObservableList<LomSchema> resourceList = FXCollections.observableArrayList();
+    private final FavoriteService favoriteService = FavoriteService.getInstance();
+    private final ObservableList<LomSummary> resourceList = FXCollections.observableArrayList();
+
+    // Ressources affichées en favoris (lues par page, pas par cellule)
+    private final Set<Long> favoriteIds = new HashSet<>();
+
+    // Pagination keyset: taille de page et curseur de la page suivante
+    // (null quand la liste affiche une recherche ou les favoris)
+    private static final int PAGE_SIZE = 50;
+    private Page.Cursor nextCursor;
+
+    // Chargement asynchrone : version de la liste (incrémentée à chaque
+    // rechargement) et page en cours de lecture
+    private int listVersion;
+    private boolean loadingPage;
 
     private Stage stage;
     private Runnable onLogout;
@@ -71,25 +95,25 @@ public class UserDashboardController {
         languageCombo.setValue("Toutes");
 
         // Columns
-        titleCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getResourceTitle()));
+        titleCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().title()));
 
         langCol.setCellValueFactory(data -> {
-            if (data.getValue().getGeneral() != null) {
-                return new SimpleStringProperty(data.getValue().getGeneral().getLanguage());
+            if (data.getValue().language() != null) {
+                return new SimpleStringProperty(data.getValue().language());
             }
             return new SimpleStringProperty("-");
         });
 
         diffCol.setCellValueFactory(data -> {
-            if (data.getValue().getEducational() != null && data.getValue().getEducational().getDifficulty() != null) {
-                return new SimpleStringProperty(data.getValue().getEducational().getDifficultyLabel());
+            if (data.getValue().difficulty() != null) {
+                return new SimpleStringProperty(data.getValue().difficultyLabel());
             }
             return new SimpleStringProperty("-");
         });
 
         dateCol.setCellValueFactory(data -> {
             SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-            return new SimpleStringProperty(sdf.format(data.getValue().getCreatedAt()));
+            return new SimpleStringProperty(sdf.format(data.getValue().createdAt()));
         });
 
         actionsCol.setCellFactory(col -> new TableCell<>() {
@@ -118,8 +142,8 @@ public class UserDashboardController {
                     setGraphic(null);
                 } else {
                     // Mettre à jour le bouton favori selon l'état
-                    LomSchema resource = getTableRow().getItem();
-                    boolean isFav = FavoriteService.getInstance().isFavorite(authService.getCurrentUser(), resource);
+                    LomSummary resource = getTableRow().getItem();
+                    boolean isFav = favoriteIds.contains(resource.id());
                     favoriteBtn.setText(isFav ? "★" : "☆");
                     favoriteBtn
                             .setStyle(isFav ? "-fx-background-color: #f1c40f; -fx-text-fill: white; -fx-cursor: hand;"
@@ -130,10 +154,14 @@ public class UserDashboardController {
         });
 
         resourceTable.setItems(resourceList);
+        TableScrollSupport.onScrolledToBottom(resourceTable, this::loadNextPage);
+
+        // Suggestions de titres, mots-clés et tags pendant la saisie
+        AutocompleteSupport.attach(searchField, searchService::suggest, text -> performSearch());
 
         // Double-click
         resourceTable.setRowFactory(tv -> {
-            TableRow<LomSchema> row = new TableRow<>();
+            TableRow<LomSummary> row = new TableRow<>();
             row.setOnMouseClicked(event -> {
                 if (event.getClickCount() == 2 && !row.isEmpty()) {
                     viewResource(row.getItem());
@@ -161,9 +189,10 @@ public class UserDashboardController {
         String language = "Toutes".equals(languageCombo.getValue()) ? null : languageCombo.getValue();
         Integer difficulty = difficultyCombo.getValue();
 
-        resourceList.clear();
-        List<LomSchema> results = searchService.search(query, query, language, difficulty);
+        clearList();
+        List<LomSummary> results = searchService.searchSummaries(query, language, difficulty);
         resourceList.addAll(results);
+        loadFavorites(results);
     }
 
     @FXML
@@ -182,7 +211,7 @@ public class UserDashboardController {
         try {
             javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(
                     getClass().getResource("/fxml/advanced_search_dialog.fxml"));
-            javafx.scene.Parent root = loader.load();
+            javafx.scene.Parent root = org.emsi.ui.FxmlPreloader.load(loader);
 
             Stage dialogStage = new Stage();
             dialogStage.setTitle("🔍 Recherche Avancée");
@@ -219,8 +248,9 @@ public class UserDashboardController {
             alert.showAndWait();
         } else {
             // Afficher les favoris dans la liste principale
-            resourceList.clear();
-            resourceList.addAll(favorites);
+            clearList();
+            favorites.stream().map(LomSummary::of).forEach(resourceList::add);
+            favorites.forEach(lom -> favoriteIds.add(lom.getId()));
 
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Favoris");
@@ -242,25 +272,102 @@ public class UserDashboardController {
         alert.showAndWait();
     }
 
+    /**
+     * Charger la première page de ressources (tri par titre)
+     */
     private void loadResources() {
+        clearList();
+        appendPage(null);
+    }
+
+    /**
+     * Charger la page suivante lorsque la table défile jusqu'en bas
+     */
+    private void loadNextPage() {
+        if (nextCursor != null && !loadingPage) {
+            appendPage(nextCursor);
+        }
+    }
+
+    /**
+     * Lire sur l'executor BDD lesquelles des ressources affichées sont en
+     * favoris, puis mettre à jour les boutons ⭐
+     */
+    private void loadFavorites(List<LomSummary> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        int version = listVersion;
+        List<Long> ids = items.stream().map(LomSummary::id).toList();
+        favoriteService.getFavoriteIdsAsync(authService.getCurrentUser(), ids).whenComplete((found, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                return;
+            }
+            Platform.runLater(() -> {
+                if (version == listVersion) {
+                    favoriteIds.addAll(found);
+                    resourceTable.refresh();
+                }
+            });
+        });
+    }
+
+    /**
+     * Vider la liste ; les pages encore en cours de chargement seront
+     * ignorées
+     */
+    private void clearList() {
+        listVersion++;
+        loadingPage = false;
+        nextCursor = null;
         resourceList.clear();
-        List<LomSchema> resources = lomService.getAllResources();
-        resourceList.addAll(resources);
+        favoriteIds.clear();
+    }
+
+    /**
+     * Lire une page sur l'executor BDD puis l'ajouter à la table sur le
+     * thread JavaFX
+     */
+    private void appendPage(Page.Cursor after) {
+        int version = listVersion;
+        loadingPage = true;
+        lomService.getSummaryPageAsync(LomSchemaDao.SortKey.TITLE, false, after, PAGE_SIZE)
+                .whenComplete((page, error) -> Platform.runLater(() -> {
+                    if (version != listVersion) {
+                        return;
+                    }
+                    loadingPage = false;
+                    if (error != null) {
+                        showError("Erreur Chargement", "Impossible de charger les ressources:\n" + error.getMessage());
+                        return;
+                    }
+                    resourceList.addAll(page.getItems());
+                    nextCursor = page.getNextCursor();
+                    loadFavorites(page.getItems());
+                }));
     }
 
-    private void viewResource(LomSchema lom) {
+    private void viewResource(LomSummary lom) {
         if (lom == null)
             return;
-        LomSchema fullLom = lomService.getResourceById(lom.getId());
+        LomSchema fullLom;
+        try {
+            fullLom = lomService.openResource(authService.getCurrentUser(), lom.id());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            showError("Erreur Consultation", "Impossible d'ouvrir la ressource:\n" + e.getMessage());
+            return;
+        }
         LomViewDialog viewer = new LomViewDialog(fullLom);
         viewer.showAndWait();
     }
 
-    private void exportResource(LomSchema lom) {
+    private void exportResource(LomSummary lom) {
         if (lom == null)
             return;
 
-        LomSchema fullLom = lomService.getResourceById(lom.getId());
+        LomSchema fullLom = lomService.getResourceSnapshot(lom.id());
         XmlExportService exportService = new XmlExportService();
         String xml = exportService.exportToXml(fullLom);
 
@@ -290,7 +397,7 @@ public class UserDashboardController {
      * Ouvre le dialogue de téléchargement pour permettre à l'utilisateur
      * de télécharger les PDFs et autres fichiers associés
      */
-    private void downloadResource(LomSchema lom) {
+    private void downloadResource(LomSummary lom) {
         if (lom == null)
             return;
 
@@ -299,13 +406,13 @@ public class UserDashboardController {
             Parent root = loader.load();
 
             Stage dialogStage = new Stage();
-            dialogStage.setTitle("📥 Télécharger - " + lom.getResourceTitle());
+            dialogStage.setTitle("📥 Télécharger - " + lom.title());
             dialogStage.initModality(Modality.WINDOW_MODAL);
             dialogStage.initOwner(stage);
             dialogStage.setScene(new Scene(root));
 
             DownloadController controller = loader.getController();
-            LomSchema fullLom = lomService.getResourceById(lom.getId());
+            LomSchema fullLom = lomService.getResourceById(lom.id());
             controller.setContext(dialogStage, fullLom);
 
             dialogStage.showAndWait();
@@ -320,19 +427,37 @@ public class UserDashboardController {
      * Utilise FavoriteService pour ajouter/retirer des favoris
      * Démontre l'utilisation des services et de la logique métier
      */
-    private void toggleFavorite(LomSchema lom) {
-        if (lom == null)
+    private void toggleFavorite(LomSummary summary) {
+        if (summary == null)
             return;
 
-        FavoriteService favoriteService = FavoriteService.getInstance();
-        boolean isFavorite = favoriteService.isFavorite(authService.getCurrentUser(), lom);
+        User user = authService.getCurrentUser();
+
+        // Lecture de l'état et bascule dans une seule session
+        boolean added;
+        try {
+            added = UnitOfWork.call(() -> {
+                LomSchema lom = lomService.getResourceById(summary.id());
+                if (favoriteService.isFavorite(user, summary.id())) {
+                    favoriteService.removeFavorite(user, lom);
+                    return false;
+                }
+                favoriteService.addFavorite(user, lom);
+                return true;
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            showError("Erreur Favoris", "Impossible de modifier les favoris pour \"" + summary.title() + "\":\n"
+                    + e.getMessage());
+            return;
+        }
 
-        if (isFavorite) {
-            favoriteService.removeFavorite(authService.getCurrentUser(), lom);
-            showInfo("Favori retiré", "La ressource \"" + lom.getResourceTitle() + "\" a été retirée de vos favoris.");
+        if (added) {
+            favoriteIds.add(summary.id());
+            showInfo("Favori ajouté", "La ressource \"" + summary.title() + "\" a été ajoutée à vos favoris ⭐");
         } else {
-            favoriteService.addFavorite(authService.getCurrentUser(), lom);
-            showInfo("Favori ajouté", "La ressource \"" + lom.getResourceTitle() + "\" a été ajoutée à vos favoris ⭐");
+            favoriteIds.remove(summary.id());
+            showInfo("Favori retiré", "La ressource \"" + summary.title() + "\" a été retirée de vos favoris.");
         }
 
         // Rafraîchir la table pour mettre à jour l'icône
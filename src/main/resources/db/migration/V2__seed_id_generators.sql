@@ -0,0 +1,42 @@
+-- V2 : initialisation du générateur d'identifiants
+--
+-- Les entités à générateur enhanced-table (pooled-lo) lisent leur prochain
+-- bloc d'identifiants dans lom_id_generator. Chaque segment est placé
+-- au-dessus du plus grand id existant pour éviter les collisions avec les
+-- lignes créées auparavant en AUTO_INCREMENT.
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_schema', COALESCE(MAX(id), 0) + 1 FROM lom_schema
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_general', COALESCE(MAX(id), 0) + 1 FROM lom_general
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_lifecycle', COALESCE(MAX(id), 0) + 1 FROM lom_lifecycle
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_meta_metadata', COALESCE(MAX(id), 0) + 1 FROM lom_meta_metadata
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_technical', COALESCE(MAX(id), 0) + 1 FROM lom_technical
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_educational', COALESCE(MAX(id), 0) + 1 FROM lom_educational
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_rights', COALESCE(MAX(id), 0) + 1 FROM lom_rights
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_view_history', COALESCE(MAX(id), 0) + 1 FROM lom_view_history
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO lom_id_generator (sequence_name, next_val)
+SELECT 'lom_rating', COALESCE(MAX(id), 0) + 1 FROM lom_rating
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
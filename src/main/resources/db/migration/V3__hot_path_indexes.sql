@@ -0,0 +1,38 @@
+-- V3 : index des chemins critiques et contraintes d'unicité
+--
+-- Colonnes filtrées par la recherche, les statistiques et la pagination,
+-- et unicité (utilisateur, ressource) supposée par ViewHistoryService,
+-- FavoriteService et RatingService (findExisting, isFavorite).
+
+-- Filtres de recherche
+CREATE INDEX idx_general_language ON lom_general (language);
+CREATE INDEX idx_educational_difficulty ON lom_educational (difficulty);
+
+-- Tri keyset par date de création : LomSchemaDao.SortKey.CREATED_AT trie sur
+-- COALESCE(created_at, '1970-01-01 00:00:00') pour que les ressources sans
+-- date gardent un ordre total (clé, id). Index fonctionnel (MySQL 8.0.13+)
+-- sur la même expression, puis l'id.
+CREATE INDEX idx_schema_created_at_sort
+    ON lom_schema ((COALESCE(created_at, CAST('1970-01-01 00:00:00' AS DATETIME))), id);
+
+-- Les notes d'une ressource (moyenne, nombre de votes) sont servies par
+-- l'index que MySQL crée pour la clé étrangère fk_rating_schema (resource_id)
+
+-- Suppression des doublons éventuels avant les contraintes d'unicité
+-- (on conserve la ligne la plus ancienne)
+DELETE h1 FROM lom_view_history h1
+    JOIN lom_view_history h2
+    ON h1.user_id = h2.user_id AND h1.resource_id = h2.resource_id AND h1.id > h2.id;
+
+DELETE f1 FROM lom_favorite f1
+    JOIN lom_favorite f2
+    ON f1.user_id = f2.user_id AND f1.resource_id = f2.resource_id AND f1.id > f2.id;
+
+DELETE r1 FROM lom_rating r1
+    JOIN lom_rating r2
+    ON r1.user_id = r2.user_id AND r1.resource_id = r2.resource_id AND r1.id > r2.id;
+
+-- Un historique, un favori et une note par utilisateur et par ressource
+ALTER TABLE lom_view_history ADD CONSTRAINT uk_view_history_user_resource UNIQUE (user_id, resource_id);
+ALTER TABLE lom_favorite ADD CONSTRAINT uk_favorite_user_resource UNIQUE (user_id, resource_id);
+ALTER TABLE lom_rating ADD CONSTRAINT uk_rating_user_resource UNIQUE (user_id, resource_id);
@@ -0,0 +1,17 @@
+-- V4 : colonnes de version pour le verrouillage optimiste
+--
+-- Hibernate vérifie lock_version à chaque UPDATE/DELETE de LomSchema et de
+-- ses catégories (<version> des mappings) : une écriture concurrente sur la
+-- même ligne échoue (StaleObjectStateException) au lieu d'écraser l'autre,
+-- y compris entre plusieurs instances de l'application.
+
+ALTER TABLE lom_schema ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_general ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_lifecycle ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_meta_metadata ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_technical ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_educational ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_rights ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_relation ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_annotation ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
+ALTER TABLE lom_classification ADD COLUMN lock_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,18 @@
+-- V5 : index des tris keyset par titre, langue et difficulté
+--
+-- Comme idx_schema_created_at_sort (V3), un index fonctionnel (MySQL
+-- 8.0.13+) par clé de LomSchemaDao.SortKey, sur la même expression
+-- COALESCE puis le départage : ORDER BY ... LIMIT et la reprise après le
+-- curseur parcourent l'index au lieu de trier toutes les ressources.
+--
+-- La langue et la difficulté sont départagées par l'id de leur catégorie
+-- (égal à celui de la ressource) pour que l'ordre tienne dans leur table.
+
+CREATE INDEX idx_schema_title_sort
+    ON lom_schema ((COALESCE(resource_title, '')), id);
+
+CREATE INDEX idx_general_language_sort
+    ON lom_general ((COALESCE(language, '')), id);
+
+CREATE INDEX idx_educational_difficulty_sort
+    ON lom_educational ((COALESCE(difficulty, 0)), id);
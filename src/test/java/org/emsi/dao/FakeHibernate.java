@@ -0,0 +1,141 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Annotation;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.Transaction;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SessionFactory factice installée dans HibernateUtil : une seule
+ * annotation versionnée, des écrivains concurrents simulés et les
+ * transactions comptées
+ */
+class FakeHibernate {
+
+    // État "en base" de l'annotation
+    String description = "initiale";
+    int version = 0;
+
+    // Écritures concurrentes à faire passer avant les prochains commits
+    int concurrentWrites;
+    // Erreur (hors conflit) levée au prochain commit
+    RuntimeException failure;
+
+    int sessions;
+    int commits;
+    int rollbacks;
+
+    void install() throws ReflectiveOperationException {
+        setSessionFactory(proxy(SessionFactory.class, (method, args) -> method.equals("openSession")
+                ? openSession()
+                : null));
+    }
+
+    static void uninstall() throws ReflectiveOperationException {
+        setSessionFactory(null);
+    }
+
+    private static void setSessionFactory(SessionFactory factory) throws ReflectiveOperationException {
+        Field field = HibernateUtil.class.getDeclaredField("sessionFactory");
+        field.setAccessible(true);
+        field.set(null, factory);
+    }
+
+    /**
+     * Copie détachée de l'annotation telle qu'en base
+     */
+    Annotation read() {
+        Annotation annotation = new Annotation("auteur", description);
+        annotation.setId(1L);
+        annotation.setLockVersion(version);
+        return annotation;
+    }
+
+    private Session openSession() {
+        sessions++;
+        List<Annotation> managed = new ArrayList<>();
+        boolean[] active = { false };
+        Transaction transaction = proxy(Transaction.class, (method, args) -> {
+            switch (method) {
+                case "isActive":
+                    return active[0];
+                case "rollback":
+                    active[0] = false;
+                    rollbacks++;
+                    return null;
+                case "commit":
+                    // Comme Hibernate : un commit en échec annule la transaction
+                    active[0] = false;
+                    try {
+                        flush(managed);
+                    } catch (RuntimeException e) {
+                        rollbacks++;
+                        throw e;
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        return proxy(Session.class, (method, args) -> {
+            switch (method) {
+                case "beginTransaction":
+                    active[0] = true;
+                    return transaction;
+                case "get":
+                    Annotation annotation = read();
+                    managed.add(annotation);
+                    return annotation;
+                case "update":
+                    managed.add((Annotation) args[0]);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private void flush(List<Annotation> managed) {
+        if (failure != null) {
+            RuntimeException e = failure;
+            failure = null;
+            throw e;
+        }
+        if (concurrentWrites > 0) {
+            concurrentWrites--;
+            version++;
+        }
+        for (Annotation annotation : managed) {
+            if (annotation.getLockVersion() != version) {
+                throw new StaleObjectStateException(Annotation.class.getName(), annotation.getId());
+            }
+            description = annotation.getDescription();
+            version++;
+            annotation.setLockVersion(version);
+        }
+        commits++;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(FakeHibernate.class.getClassLoader(), new Class<?>[] { type },
+                (self, method, args) -> {
+                    Object result = handler.handle(method.getName(), args);
+                    if (result == null && method.getReturnType() == boolean.class) {
+                        return false;
+                    }
+                    return result;
+                });
+        return type.cast(proxy);
+    }
+}
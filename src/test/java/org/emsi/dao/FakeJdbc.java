@@ -0,0 +1,129 @@
+package org.emsi.dao;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+/**
+ * Base de données factice pour les tests JDBC : chaque instruction est
+ * enregistrée, les requêtes sont répondues par une fonction fournie par
+ * le test (SQL, paramètres) -> lignes
+ */
+class FakeJdbc {
+
+    /**
+     * Instruction exécutée, avec ses paramètres (index JDBC -> valeur)
+     */
+    record Executed(String sql, Map<Integer, Object> params) {
+    }
+
+    final List<Executed> executed = new ArrayList<>();
+    private final BiFunction<String, Map<Integer, Object>, List<Object[]>> queries;
+
+    FakeJdbc(BiFunction<String, Map<Integer, Object>, List<Object[]>> queries) {
+        this.queries = queries;
+    }
+
+    DataSource dataSource() {
+        return proxy(DataSource.class, (method, args) -> switch (method) {
+            case "getConnection" -> connection();
+            default -> null;
+        });
+    }
+
+    private Connection connection() {
+        return proxy(Connection.class, (method, args) -> switch (method) {
+            case "createStatement" -> statement(null);
+            case "prepareStatement" -> statement((String) args[0]);
+            default -> null;
+        });
+    }
+
+    private PreparedStatement statement(String preparedSql) {
+        Map<Integer, Object> params = new TreeMap<>();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            if (method.startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+                params.put((Integer) args[0], args[1]);
+                return null;
+            }
+            String sql = preparedSql != null ? preparedSql : args != null ? (String) args[0] : null;
+            switch (method) {
+                case "executeQuery":
+                    executed.add(new Executed(sql, Map.copyOf(params)));
+                    return resultSet(queries.apply(sql, params));
+                case "execute":
+                    executed.add(new Executed(sql, Map.copyOf(params)));
+                    return false;
+                case "executeUpdate":
+                    executed.add(new Executed(sql, Map.copyOf(params)));
+                    List<Object[]> rows = queries.apply(sql, params);
+                    return rows != null ? rows.size() : 0;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private ResultSet resultSet(List<Object[]> rows) {
+        int[] row = { -1 };
+        return proxy(ResultSet.class, (method, args) -> switch (method) {
+            case "next" -> rows != null && ++row[0] < rows.size();
+            case "getInt" -> ((Number) rows.get(row[0])[(Integer) args[0] - 1]).intValue();
+            case "getLong" -> ((Number) rows.get(row[0])[(Integer) args[0] - 1]).longValue();
+            case "getString" -> (String) rows.get(row[0])[(Integer) args[0] - 1];
+            default -> null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[] { type },
+                (self, method, args) -> {
+                    Object result = handler.handle(method.getName(), args);
+                    if (result == null && method.getReturnType().isPrimitive()) {
+                        return defaultValue(method.getReturnType());
+                    }
+                    return result;
+                });
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == void.class) {
+            return null;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,130 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Annotation;
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Écritures sous verrouillage optimiste (modifyWithRetry,
+ * modifyIfUnchanged, updateIfUnchanged)
+ */
+class OptimisticWriteTest {
+
+    private final FakeHibernate db = new FakeHibernate();
+    private final GenericDao<Annotation, Long> dao = new GenericDao<>(Annotation.class);
+
+    @BeforeEach
+    void install() throws ReflectiveOperationException {
+        db.install();
+    }
+
+    @AfterEach
+    void uninstall() throws ReflectiveOperationException {
+        FakeHibernate.uninstall();
+    }
+
+    @Test
+    void modifyWithRetryReplaysChangesOnTheCurrentVersion() {
+        db.concurrentWrites = 2;
+
+        Annotation result = dao.modifyWithRetry(1L, a -> a.setDescription(a.getDescription() + " + modifiée"), 3);
+
+        assertNotNull(result);
+        assertEquals("initiale + modifiée", db.description);
+        assertEquals(3, db.sessions);
+        assertEquals(2, db.rollbacks);
+        assertEquals(1, db.commits);
+    }
+
+    @Test
+    void modifyWithRetryGivesUpAfterMaxAttempts() {
+        db.concurrentWrites = 5;
+
+        assertNull(dao.modifyWithRetry(1L, a -> a.setDescription("perdue"), 2));
+        assertEquals(2, db.sessions);
+        assertEquals("initiale", db.description);
+    }
+
+    @Test
+    void modifyWithRetryDoesNotRetryOtherFailures() {
+        db.failure = new IllegalStateException("connexion perdue");
+
+        assertNull(dao.modifyWithRetry(1L, a -> a.setDescription("perdue"), 3));
+        assertEquals(1, db.sessions);
+        assertEquals(1, db.rollbacks);
+    }
+
+    @Test
+    void modifyIfUnchangedWritesOnTheLoadedVersion() {
+        Annotation loaded = db.read();
+
+        Annotation result = dao.modifyIfUnchanged(1L,
+                a -> a.getLockVersion().equals(loaded.getLockVersion()),
+                a -> a.setDescription("éditée"));
+
+        assertNotNull(result);
+        assertEquals("éditée", db.description);
+        assertEquals(1, db.commits);
+    }
+
+    @Test
+    void modifyIfUnchangedRefusesChangesMadeOnAnOlderVersion() {
+        Annotation loaded = db.read();
+        dao.modifyIfUnchanged(1L, a -> true, a -> a.setDescription("autre utilisateur"));
+
+        assertThrows(StaleObjectStateException.class, () -> dao.modifyIfUnchanged(1L,
+                a -> a.getLockVersion().equals(loaded.getLockVersion()),
+                a -> a.setDescription("éditée")));
+        assertEquals("autre utilisateur", db.description);
+        assertEquals(1, db.commits);
+    }
+
+    @Test
+    void modifyIfUnchangedDoesNotReplayAfterAConcurrentCommit() {
+        db.concurrentWrites = 1;
+
+        assertThrows(StaleObjectStateException.class,
+                () -> dao.modifyIfUnchanged(1L, a -> true, a -> a.setDescription("éditée")));
+        assertEquals("initiale", db.description);
+        assertEquals(1, db.sessions);
+        assertEquals(1, db.rollbacks);
+    }
+
+    @Test
+    void updateIfUnchangedWritesTheLoadedVersion() {
+        Annotation loaded = db.read();
+        loaded.setDescription("éditée");
+
+        assertTrue(dao.updateIfUnchanged(loaded));
+        assertEquals("éditée", db.description);
+    }
+
+    @Test
+    void updateIfUnchangedRefusesAStaleVersion() {
+        Annotation loaded = db.read();
+        db.concurrentWrites = 1;
+        loaded.setDescription("éditée");
+
+        assertFalse(dao.updateIfUnchanged(loaded));
+        assertEquals("initiale", db.description);
+        assertEquals(1, db.rollbacks);
+    }
+
+    @Test
+    void updateIfUnchangedPropagatesOtherFailures() {
+        IllegalStateException failure = new IllegalStateException("connexion perdue");
+        db.failure = failure;
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> dao.updateIfUnchanged(db.read())));
+    }
+}
@@ -0,0 +1,63 @@
+package org.emsi.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Formes d'instructions et mesure via ProfilingDataSource
+ */
+class QueryMetricsTest {
+
+    @Test
+    void shapeOfCompactsWhitespaceAndInLists() {
+        assertEquals("select * from lom_schema where id in (?) and title = ?",
+                QueryMetrics.shapeOf("  select *\n  from lom_schema\twhere id in ( ?, ?,? )  and title = ?"));
+        assertEquals(QueryMetrics.shapeOf("select 1 from t where id in (?, ?)"),
+                QueryMetrics.shapeOf("select 1 from t where id in (?, ?, ?, ?, ?)"));
+    }
+
+    @Test
+    void shapeOfKeepsSingleParameterAndNullStatements() {
+        assertEquals("select 1 from t where id in (?)", QueryMetrics.shapeOf("select 1 from t where id in (?)"));
+        assertEquals("(inconnue)", QueryMetrics.shapeOf(null));
+    }
+
+    @Test
+    void recordGroupsExecutionsByShape() {
+        QueryMetrics metrics = new QueryMetrics(Long.MAX_VALUE);
+        metrics.record("select * from t where id in (?, ?)", "A.find", TimeUnit.MILLISECONDS.toNanos(3), 2);
+        metrics.record("select *  from t where id in (?, ?, ?)", "B.find", TimeUnit.MILLISECONDS.toNanos(30), 3);
+
+        List<QueryMetrics.StatementStats> top = metrics.getTopStatements(10);
+        assertEquals(1, top.size());
+        QueryMetrics.StatementStats stats = top.get(0);
+        assertEquals(2, stats.getCount());
+        assertEquals(5, stats.getRows());
+        assertEquals(50, stats.getPercentileMillis(1.0));
+        assertEquals(0, metrics.getSlowQueryCount());
+    }
+
+    @Test
+    void queryIsRecordedOnceWhenItsResultSetClosesWithTheStatement() throws Exception {
+        FakeJdbc db = new FakeJdbc((sql, params) -> List.of(new Object[] { 1 }, new Object[] { 2 }));
+        QueryMetrics metrics = new QueryMetrics(Long.MAX_VALUE);
+
+        try (Connection connection = new ProfilingDataSource(db.dataSource(), metrics).getConnection();
+                PreparedStatement ps = connection.prepareStatement("select id from t")) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rs.getInt(1);
+            }
+        }
+
+        assertEquals(1, metrics.getStatementCount());
+        assertEquals(2, metrics.getTopStatements(1).get(0).getRows());
+    }
+}
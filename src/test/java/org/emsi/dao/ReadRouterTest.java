@@ -0,0 +1,75 @@
+package org.emsi.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routage réplica / primaire et lecture de ses propres écritures
+ */
+class ReadRouterTest {
+
+    private final ReadRouter.WriteTracker tracker = new ReadRouter.WriteTracker();
+
+    @BeforeEach
+    void configure() {
+        ReadRouter.configure(60_000, 250);
+    }
+
+    @AfterEach
+    void restore() {
+        ReadRouter.configure(1_000, 250);
+        ReadRouter.setSessionResolver(null);
+    }
+
+    @Test
+    void sessionReadsItsOwnWritesFromThePrimary() {
+        Object alice = new Object();
+        ReadRouter.withSession(alice, () -> tracker.inspect("insert into lom_favorite (id) values (?)"));
+
+        assertFalse(ReadRouter.withSession(alice, ReadRouter::routeToReplica));
+    }
+
+    @Test
+    void otherSessionsKeepReadingFromTheReplica() {
+        Object alice = new Object();
+        Object bob = new Object();
+        ReadRouter.withSession(alice, () -> tracker.inspect("  UPDATE lom_schema set title = ?"));
+
+        assertTrue(ReadRouter.withSession(bob, ReadRouter::routeToReplica));
+    }
+
+    @Test
+    void selectsDoNotCountAsWrites() {
+        Object alice = new Object();
+        ReadRouter.withSession(alice, () -> tracker.inspect("select * from lom_schema"));
+
+        assertTrue(ReadRouter.withSession(alice, ReadRouter::routeToReplica));
+    }
+
+    @Test
+    void toleranceAboveMaxLagIgnoresRecentWrites() {
+        Object alice = new Object();
+        ReadRouter.withSession(alice, () -> tracker.inspect("delete from lom_favorite where id = ?"));
+
+        assertTrue(ReadRouter.withSession(alice,
+                () -> ReadRouter.withStaleness(Duration.ofMinutes(5), ReadRouter::routeToReplica)));
+        assertFalse(ReadRouter.withSession(new Object(),
+                () -> ReadRouter.fromPrimary(ReadRouter::routeToReplica)));
+    }
+
+    @Test
+    void resolverProvidesTheDefaultSession() {
+        Object alice = new Object();
+        ReadRouter.setSessionResolver(() -> alice);
+        tracker.inspect("insert into lom_rating (id) values (?)");
+
+        assertFalse(ReadRouter.routeToReplica());
+        assertTrue(ReadRouter.withSession(new Object(), ReadRouter::routeToReplica));
+    }
+}
@@ -0,0 +1,88 @@
+package org.emsi.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Application des migrations et contrôle des checksums
+ */
+class SchemaMigratorTest {
+
+    // Table lom_schema_version simulée : {version, checksum}
+    private final List<Object[]> history = new ArrayList<>();
+
+    private final FakeJdbc db = new FakeJdbc((sql, params) -> {
+        if (sql.startsWith("SELECT GET_LOCK")) {
+            return List.<Object[]>of(new Object[] { 1 });
+        }
+        if (sql.startsWith("SELECT version, checksum")) {
+            return history;
+        }
+        if (sql.startsWith("INSERT INTO lom_schema_version")) {
+            Object[] row = { params.get(1), params.get(4) };
+            history.add(row);
+            return List.<Object[]>of(row);
+        }
+        return null;
+    });
+
+    @Test
+    void appliesPendingMigrationsOnceInOrder() throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(db.dataSource());
+
+        assertEquals(5, migrator.migrate());
+        assertEquals(List.of(1, 2, 3, 4, 5), history.stream().map(row -> row[0]).toList());
+
+        int executed = db.executed.size();
+        assertEquals(0, migrator.migrate());
+        assertTrue(db.executed.subList(executed, db.executed.size()).stream()
+                .noneMatch(e -> e.sql().startsWith("INSERT INTO lom_schema_version")));
+    }
+
+    @Test
+    void refusesScriptChangedAfterApplication() throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(db.dataSource());
+        migrator.migrate();
+
+        history.get(1)[1] = (Long) history.get(1)[1] + 1;
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, migrator::migrate);
+        assertTrue(e.getMessage().contains("V2"));
+        // Le verrou est relâché même en cas d'échec
+        assertTrue(db.executed.get(db.executed.size() - 1).sql().startsWith("SELECT RELEASE_LOCK"));
+    }
+
+    @Test
+    void refusesToMigrateWithoutTheLock() {
+        FakeJdbc locked = new FakeJdbc((sql, params) -> sql.startsWith("SELECT GET_LOCK")
+                ? List.<Object[]>of(new Object[] { 0 })
+                : null);
+
+        assertThrows(java.sql.SQLException.class, () -> new SchemaMigrator(locked.dataSource()).migrate());
+        assertEquals(1, locked.executed.size());
+    }
+
+    @Test
+    void splitStatementsSkipsCommentsAndKeepsMultiLineStatements() {
+        String sql = "-- commentaire\n"
+                + "CREATE TABLE t (\n"
+                + "  id BIGINT\n"
+                + ");\n"
+                + "\n"
+                + "INSERT INTO t VALUES (1);\n"
+                + "UPDATE t SET id = 2";
+
+        List<String> statements = SchemaMigrator.splitStatements(sql);
+
+        assertEquals(3, statements.size());
+        assertEquals("CREATE TABLE t (\n  id BIGINT\n)", statements.get(0));
+        assertEquals("INSERT INTO t VALUES (1)", statements.get(1));
+        assertEquals("UPDATE t SET id = 2", statements.get(2));
+    }
+}
@@ -0,0 +1,88 @@
+package org.emsi.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Curseurs et clauses de la pagination keyset
+ */
+class SortKeyTest {
+
+    private static LomSummary summary(long id, String title, Date createdAt) {
+        return new LomSummary(id, title, null, null, createdAt);
+    }
+
+    @Test
+    void cursorOfUsesNeutralValuesForNulls() {
+        Page.Cursor date = LomSchemaDao.SortKey.CREATED_AT.cursorOf(summary(7, null, null));
+        assertEquals(LomSchemaDao.SortKey.NO_DATE, date.getSortValue());
+        assertEquals(7L, date.getId());
+
+        assertEquals("", LomSchemaDao.SortKey.TITLE.cursorOf(summary(7, null, null)).getSortValue());
+        assertEquals("", LomSchemaDao.SortKey.LANGUAGE.cursorOf(summary(7, null, null)).getSortValue());
+        assertEquals(0, LomSchemaDao.SortKey.DIFFICULTY.cursorOf(summary(7, null, null)).getSortValue());
+    }
+
+    @Test
+    void cursorOfConvertsTimestampsToDates() {
+        Timestamp createdAt = new Timestamp(1_700_000_000_123L);
+        Object value = LomSchemaDao.SortKey.CREATED_AT.cursorOf(summary(1, "Titre", createdAt)).getSortValue();
+        assertSame(Date.class, value.getClass());
+        assertEquals(createdAt.getTime(), ((Date) value).getTime());
+    }
+
+    @Test
+    void noDateIsTheDatabaseNeutralDateReadInTheConnectionTimeZone() throws IOException {
+        // Littéral de l'index fonctionnel V3, lu par le driver dans le fuseau serverTimezone
+        String literal = find("db/migration/V3__hot_path_indexes.sql", "CAST\\('([^']+)' AS DATETIME\\)");
+        String zone = find("hibernate.cfg.xml", "serverTimezone=([^&<]+)");
+
+        long expected = LocalDateTime.parse(literal.replace(' ', 'T')).atZone(ZoneId.of(zone))
+                .toInstant().toEpochMilli();
+        assertEquals(expected, LomSchemaDao.SortKey.NO_DATE.getTime());
+    }
+
+    @Test
+    void seekClauseComparesKeyThenId() {
+        String title = "COALESCE(ls.resourceTitle, '')";
+        assertEquals("WHERE (" + title + " > :sortValue OR (" + title + " = :sortValue AND ls.id > :lastId)) "
+                + "ORDER BY " + title + " ASC, ls.id ASC",
+                LomSchemaDao.SortKey.TITLE.seekClause(false, true, false));
+        assertEquals("ORDER BY " + title + " DESC, ls.id DESC",
+                LomSchemaDao.SortKey.TITLE.seekClause(true, false, true));
+        assertTrue(LomSchemaDao.SortKey.CREATED_AT.seekClause(true, true, true).startsWith("AND ("));
+    }
+
+    @Test
+    void categoryKeysAreOrderedWithinTheirTable() {
+        assertEquals("ORDER BY COALESCE(g.language, '') ASC, g.id ASC",
+                LomSchemaDao.SortKey.LANGUAGE.seekClause(false, false, false));
+        assertEquals("JOIN ls.general g LEFT JOIN ls.educational e ",
+                LomSchemaDao.SortKey.LANGUAGE.categoryJoins(false));
+        assertEquals("LEFT JOIN FETCH ls.general g JOIN FETCH ls.educational e ",
+                LomSchemaDao.SortKey.DIFFICULTY.categoryJoins(true));
+        assertEquals("LEFT JOIN ls.general g LEFT JOIN ls.educational e ",
+                LomSchemaDao.SortKey.TITLE.categoryJoins(false));
+    }
+
+    private static String find(String resource, String regex) throws IOException {
+        try (InputStream in = SortKeyTest.class.getClassLoader().getResourceAsStream(resource)) {
+            Matcher matcher = Pattern.compile(regex).matcher(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            assertTrue(matcher.find(), resource);
+            return matcher.group(1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.emsi.dao;
+
+import org.emsi.entities.Annotation;
+import org.hibernate.TransactionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Session et transaction partagées d'une unité de travail
+ */
+class UnitOfWorkTest {
+
+    private final FakeHibernate db = new FakeHibernate();
+    private final GenericDao<Annotation, Long> dao = new GenericDao<>(Annotation.class);
+
+    @BeforeEach
+    void install() throws ReflectiveOperationException {
+        db.install();
+    }
+
+    @AfterEach
+    void uninstall() throws ReflectiveOperationException {
+        FakeHibernate.uninstall();
+    }
+
+    @Test
+    void daoCallsShareOneSessionAndCommitAtTheEnd() {
+        String result = UnitOfWork.call(() -> {
+            Annotation loaded = db.read();
+            loaded.setDescription("éditée");
+            assertTrue(dao.updateIfUnchanged(loaded));
+            assertTrue(UnitOfWork.isActive());
+            // Validée seulement à la fin de l'unité de travail
+            assertEquals("initiale", db.description);
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals("éditée", db.description);
+        assertEquals(1, db.sessions);
+        assertEquals(1, db.commits);
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void nestedUnitsJoinTheOuterOne() {
+        UnitOfWork.run(() -> {
+            UnitOfWork.run(() -> dao.modifyWithRetry(1L, a -> a.setDescription("imbriquée"), 3));
+            assertEquals(0, db.commits);
+        });
+
+        assertEquals("imbriquée", db.description);
+        assertEquals(1, db.sessions);
+        assertEquals(1, db.commits);
+    }
+
+    @Test
+    void daoRollbackMakesTheWholeUnitFail() {
+        assertThrows(TransactionException.class, () -> UnitOfWork.call(() -> {
+            Annotation loaded = db.read();
+            loaded.setDescription("éditée");
+            dao.updateIfUnchanged(loaded);
+            assertNull(dao.modifyWithRetry(1L, a -> {
+                throw new IllegalArgumentException("modification invalide");
+            }, 3));
+            return "perdu";
+        }));
+
+        assertEquals("initiale", db.description);
+        assertEquals(0, db.commits);
+        assertEquals(1, db.rollbacks);
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void exceptionFromWorkRollsBackAndPropagates() {
+        IllegalStateException failure = new IllegalStateException("échec");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> UnitOfWork.run(() -> {
+            dao.modifyWithRetry(1L, a -> a.setDescription("éditée"), 3);
+            throw failure;
+        }));
+
+        assertEquals(failure, thrown);
+        assertEquals("initiale", db.description);
+        assertEquals(1, db.rollbacks);
+    }
+}
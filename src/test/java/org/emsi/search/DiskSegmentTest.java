@@ -0,0 +1,177 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Écriture d'un segment sur disque (SegmentWriter) puis relecture
+ * (DiskSegment) : vidage du segment en mémoire et fusion de segments
+ */
+class DiskSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    static LomDocument doc(long id, String title, String language, Integer difficulty, Date createdAt) {
+        return new LomDocument(id, title, "mot clé " + id, "Description de la ressource " + id,
+                language, difficulty, "active", "exercise", createdAt);
+    }
+
+    private DiskSegment write(String name, List<? extends Segment> sources) throws IOException {
+        List<BitSet> live = new ArrayList<>();
+        for (Segment source : sources) {
+            live.add(source.liveDocs());
+        }
+        Path file = dir.resolve(name + ".seg");
+        SegmentWriter.write(file, sources, live);
+        return DiskSegment.open(name, file, null);
+    }
+
+    @Test
+    void roundTripKeepsStoredFieldsPostingsAndFacets() throws IOException {
+        MemorySegment memory = new MemorySegment();
+        memory.add(doc(30, "Réseaux informatiques", "fr", 2, new Date(1_700_000_000_000L)), Set.of("réseau"));
+        memory.add(doc(10, "Programmation Java", "en", null, null), Set.of("java", "objet"));
+        memory.add(doc(20, "Algèbre linéaire", null, 4, new Date(1_600_000_000_000L)), null);
+
+        DiskSegment disk = write("_0", List.of(memory));
+
+        assertEquals(3, disk.maxDoc());
+        assertEquals(3, disk.liveCount());
+        // Documents recopiés par identifiant croissant
+        assertEquals(10, disk.resourceId(0));
+        assertEquals(20, disk.resourceId(1));
+        assertEquals(30, disk.resourceId(2));
+        for (int doc = 0; doc < memory.maxDoc(); doc++) {
+            LomDocument expected = memory.document(doc);
+            int copy = disk.findDoc(expected.id());
+            assertEquals(expected, disk.document(copy));
+            assertEquals(memory.tags(doc), disk.tags(copy));
+        }
+        assertNull(disk.document(disk.findDoc(10)).createdAt());
+        assertEquals(-1, disk.findDoc(99));
+
+        // Dictionnaire trié et postings identiques
+        for (Segment.Field field : Segment.Field.values()) {
+            assertEquals(memory.termCount(field), disk.termCount(field));
+            assertEquals(memory.totalFieldLength(field), disk.totalFieldLength(field));
+            for (int ord = 0; ord < memory.termCount(field); ord++) {
+                String term = memory.term(field, ord);
+                assertEquals(term, disk.term(field, ord));
+                PostingsList postings = disk.postings(field, term);
+                assertNotNull(postings);
+                for (int i = 0; i < postings.size(); i++) {
+                    long id = disk.resourceId(postings.doc(i));
+                    assertTrue(memory.postings(field, term).contains(memory.findDoc(id)));
+                }
+            }
+        }
+        assertNull(disk.postings(Segment.Field.TITLE, "inconnu"));
+
+        DocSet french = disk.facetDocs(Facet.LANGUAGE, "fr");
+        assertEquals(1, french.cardinality());
+        assertTrue(french.contains(disk.findDoc(30)));
+        assertTrue(disk.facetDocs(Facet.TAG, "java").contains(disk.findDoc(10)));
+        assertNull(disk.facetDocs(Facet.LANGUAGE, "de"));
+    }
+
+    @Test
+    void mergeCopiesOnlyLiveDocumentsInIdOrder() throws IOException {
+        MemorySegment first = new MemorySegment();
+        for (long id = 1; id <= 40; id += 2) {
+            first.add(doc(id, "Cours " + id, id % 4 == 1 ? "fr" : "en", (int) (id % 5), null), Set.of());
+        }
+        DiskSegment older = write("_0", List.of(first));
+
+        MemorySegment second = new MemorySegment();
+        for (long id = 2; id <= 40; id += 2) {
+            second.add(doc(id, "Exercice " + id, "fr", null, new Date(id * 1000)), Set.of("tag" + (id % 3)));
+        }
+        // Suppressions dans les deux sources, dont une mise à jour (id 7)
+        older.delete(older.findDoc(7));
+        older.delete(older.findDoc(15));
+        second.delete(second.findDoc(20));
+        second.add(doc(7, "Cours 7 (révisé)", "fr", 1, null), Set.of());
+
+        List<Segment> sources = List.of(older, second);
+        List<BitSet> live = List.of(older.liveDocs(), second.liveDocs());
+        Path file = dir.resolve("_1.seg");
+        int[][] remap = SegmentWriter.write(file, sources, live);
+        DiskSegment merged = DiskSegment.open("_1", file, null);
+
+        assertEquals(38, merged.maxDoc());
+        for (int doc = 1; doc < merged.maxDoc(); doc++) {
+            assertTrue(merged.resourceId(doc - 1) < merged.resourceId(doc));
+        }
+        assertEquals(-1, merged.findDoc(15));
+        assertEquals(-1, merged.findDoc(20));
+        assertEquals("Cours 7 (révisé)", merged.title(merged.findDoc(7)));
+
+        // Nouveau numéro de chaque document source, -1 si supprimé
+        for (int s = 0; s < sources.size(); s++) {
+            Segment source = sources.get(s);
+            assertEquals(source.maxDoc(), remap[s].length);
+            for (int doc = 0; doc < source.maxDoc(); doc++) {
+                if (source.isLive(doc)) {
+                    assertEquals(source.document(doc), merged.document(remap[s][doc]));
+                } else {
+                    assertEquals(-1, remap[s][doc]);
+                }
+            }
+        }
+
+        // Les facettes et postings ne portent plus les documents supprimés
+        int french = 0;
+        for (int doc = 0; doc < merged.maxDoc(); doc++) {
+            if ("fr".equals(merged.language(doc))) {
+                french++;
+            }
+        }
+        assertEquals(french, merged.facetDocs(Facet.LANGUAGE, "fr").cardinality());
+        assertArrayEquals(new long[0], ids(merged, merged.postings(Segment.Field.TITLE, "15")));
+        assertArrayEquals(new long[] { 7 }, ids(merged, merged.postings(Segment.Field.TITLE, "revise")));
+    }
+
+    @Test
+    void reopenedDocumentsMatchTheirDatabaseProjection() throws IOException {
+        // Projection telle que lue en base : texte vide, date en Timestamp
+        LomDocument stored = new LomDocument(5L, "Chimie", "", "Réactions", "fr", 3, "active", "exercise",
+                new Timestamp(1_700_000_000_123L));
+        MemorySegment memory = new MemorySegment();
+        memory.add(stored, Set.of());
+
+        DiskSegment disk = write("_0", List.of(memory));
+        LomDocument indexed = disk.document(0);
+
+        assertTrue(SearchIndex.sameDocument(indexed, stored));
+        assertFalse(SearchIndex.sameDocument(indexed, new LomDocument(5L, "Chimie", "", "Réactions", "en", 3,
+                "active", "exercise", stored.createdAt())));
+        assertFalse(SearchIndex.sameDocument(indexed, new LomDocument(5L, "Chimie", "", "Réactions organiques",
+                "fr", 3, "active", "exercise", stored.createdAt())));
+    }
+
+    private static long[] ids(Segment segment, PostingsList postings) {
+        long[] ids = new long[postings.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = segment.resourceId(postings.doc(i));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,97 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Variantes proches d'un terme : parcours du dictionnaire trié comparé à
+ * un calcul de distance terme par terme
+ */
+class FuzzyTermsTest {
+
+    // Petit alphabet : beaucoup de termes proches les uns des autres
+    private static final String LETTERS = "abcde";
+
+    private static String word(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+
+    /**
+     * Distance de Damerau-Levenshtein restreinte, calculée naïvement
+     */
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    @Test
+    void collectMatchesBruteForce() {
+        Random random = new Random(42);
+        MemorySegment segment = new MemorySegment();
+        for (long id = 1; id <= 300; id++) {
+            String title = word(random, 2, 9) + " " + word(random, 2, 9) + " " + word(random, 2, 9);
+            segment.add(new LomDocument(id, title, null, null, null, null, null, null, null), Set.of());
+        }
+
+        for (int round = 0; round < 200; round++) {
+            String query = word(random, 3, 10);
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                Map<String, Integer> expected = new HashMap<>();
+                for (String term : segment.terms(Segment.Field.TITLE)) {
+                    int distance = distance(term, query);
+                    if (distance <= maxEdits) {
+                        expected.put(term, distance);
+                    }
+                }
+                Map<String, Integer> actual = new HashMap<>();
+                FuzzyTerms.collect(segment, Segment.Field.TITLE, query, maxEdits, actual);
+                assertEquals(expected, actual, "requête " + query + ", " + maxEdits + " édition(s)");
+            }
+        }
+    }
+
+    @Test
+    void transpositionCountsAsOneEdit() {
+        MemorySegment segment = new MemorySegment();
+        segment.add(new LomDocument(1L, "Algorithme de tri", null, null, null, null, null, null, null), Set.of());
+
+        Map<String, Integer> matches = new HashMap<>();
+        FuzzyTerms.collect(segment, Segment.Field.TITLE, "algorithem", 1, matches);
+        assertEquals(Map.of("algorithme", 1), matches);
+    }
+
+    @Test
+    void maxEditsDependsOnLength() {
+        assertEquals(0, FuzzyTerms.maxEdits("tri"));
+        assertEquals(0, FuzzyTerms.maxEdits("java21"));
+        assertEquals(1, FuzzyTerms.maxEdits("reseau"));
+        assertEquals(2, FuzzyTerms.maxEdits("algorithme"));
+    }
+}
@@ -0,0 +1,99 @@
+package org.emsi.search;
+
+import org.emsi.dao.LomSchemaDao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.emsi.search.DiskSegmentTest.doc;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vue globale sur un segment disque et le segment en mémoire : numéros
+ * globaux, suppressions, expansion des termes et valeurs de tri
+ */
+class SegmentedIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private SegmentedIndex index() throws IOException {
+        MemorySegment flushed = new MemorySegment();
+        flushed.add(doc(1, "Programmation Java", "fr", 1, new Date(3_000)), Set.of());
+        flushed.add(doc(2, "Programmes scolaires", "fr", 2, null), Set.of());
+        flushed.add(doc(3, "Réseaux", "en", null, new Date(1_000)), Set.of());
+        Path file = dir.resolve("_0.seg");
+        SegmentWriter.write(file, List.of(flushed), List.of(flushed.liveDocs()));
+        DiskSegment disk = DiskSegment.open("_0", file, null);
+        disk.delete(disk.findDoc(3));
+
+        MemorySegment memory = new MemorySegment();
+        memory.add(doc(4, "Programmation Python", "en", 3, null), Set.of());
+        memory.add(doc(5, "Algèbre", null, null, new Date(2_000)), Set.of());
+        return new SegmentedIndex(List.of(disk, memory));
+    }
+
+    private static Set<Long> ids(SegmentedIndex index, BitSet docs) {
+        Set<Long> ids = new TreeSet<>();
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            ids.add(index.resourceId(doc));
+        }
+        return ids;
+    }
+
+    @Test
+    void matchAllSpansSegmentsAndSkipsDeletedDocuments() throws IOException {
+        SegmentedIndex index = index();
+        Set<Segment.Field> fields = EnumSet.of(Segment.Field.TITLE);
+
+        assertEquals(5, index.maxDoc());
+        assertEquals(4, index.size());
+        assertEquals(Set.of(1L, 2L, 4L, 5L), ids(index, index.matchAll(List.of(), fields)));
+        assertEquals(Set.of(1L, 4L), ids(index, index.matchAll(List.of(Map.of("programmation", 1f)), fields)));
+        assertEquals(Set.of(), ids(index, index.matchAll(List.of(Map.of("reseau", 1f)), fields)));
+        assertEquals(Set.of(4L), ids(index, index.matchAll(
+                List.of(Map.of("programmation", 1f), Map.of("python", 1f)), fields)));
+    }
+
+    @Test
+    void expandAddsFuzzyVariantsAndCompletions() throws IOException {
+        SegmentedIndex index = index();
+        Set<Segment.Field> fields = EnumSet.of(Segment.Field.TITLE);
+
+        Map<String, Float> fuzzy = index.expand("programation", fields, true, false);
+        assertEquals(FuzzyTerms.weight(1), fuzzy.get("programmation"));
+
+        Map<String, Float> completions = index.expand("progr", fields, false, true);
+        assertTrue(completions.containsKey("programmation"));
+        assertTrue(completions.containsKey("programme"));
+        assertEquals(Map.of("progr", 1f), index.expand("progr", fields, false, false));
+    }
+
+    @Test
+    void sortValueUsesTheDatabaseNeutralValues() throws IOException {
+        SegmentedIndex index = index();
+        for (int doc = 0; doc < index.maxDoc(); doc++) {
+            long id = index.resourceId(doc);
+            Object createdAt = index.sortValue(LomSchemaDao.SortKey.CREATED_AT, doc);
+            if (id == 2 || id == 4) {
+                assertEquals(LomSchemaDao.SortKey.NO_DATE, createdAt);
+            } else {
+                assertTrue(createdAt instanceof Date);
+            }
+            if (id == 5) {
+                assertEquals("", index.sortValue(LomSchemaDao.SortKey.LANGUAGE, doc));
+                assertEquals(0, index.sortValue(LomSchemaDao.SortKey.DIFFICULTY, doc));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.emsi.service;
+
+import org.emsi.dao.LomSchemaDao;
+import org.emsi.dao.LomSummary;
+import org.emsi.dao.Page;
+import org.emsi.search.SearchHits;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Parcours page par page d'un tri keyset : chaque page repart du curseur
+ * (clé, id) de la dernière ressource de la précédente, comme
+ * SearchService.sortedCursor
+ */
+class ResultCursorTest {
+
+    private static final int PAGE_SIZE = 4;
+
+    /**
+     * Catalogue dont plus d'une page de ressources n'a pas de date de
+     * création
+     */
+    private static List<LomSummary> catalog() {
+        List<LomSummary> catalog = new ArrayList<>();
+        for (long id = 1; id <= 23; id++) {
+            Date createdAt = id % 3 == 0 ? null : new Date(1_600_000_000_000L + (id % 5) * 86_400_000L);
+            catalog.add(new LomSummary(id, "Ressource " + id, "fr", null, createdAt));
+        }
+        return catalog;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<LomSummary> order(LomSchemaDao.SortKey sortKey, boolean descending) {
+        Comparator<Page.Cursor> ascending = (a, b) -> {
+            int cmp = ((Comparable) a.getSortValue()).compareTo(b.getSortValue());
+            return cmp != 0 ? cmp : a.getId().compareTo(b.getId());
+        };
+        Comparator<Page.Cursor> cursors = descending ? ascending.reversed() : ascending;
+        return (a, b) -> cursors.compare(sortKey.cursorOf(a), sortKey.cursorOf(b));
+    }
+
+    /**
+     * Chargement d'une page après le curseur de la dernière ressource,
+     * avec le nombre total de résultats
+     */
+    private static ResultCursor.PageLoader seek(List<LomSummary> catalog, LomSchemaDao.SortKey sortKey,
+                                                boolean descending, AtomicInteger loads) {
+        Comparator<LomSummary> order = order(sortKey, descending);
+        return (number, last) -> {
+            loads.incrementAndGet();
+            List<LomSummary> page = catalog.stream()
+                    .filter(s -> last == null || order.compare(s, last) > 0)
+                    .sorted(order)
+                    .limit(PAGE_SIZE)
+                    .toList();
+            return CompletableFuture.completedFuture(new SearchHits(page, catalog.size()));
+        };
+    }
+
+    private static List<LomSummary> readAll(ResultCursor cursor) {
+        List<LomSummary> all = new ArrayList<>();
+        for (int page = 0; page < cursor.getPageCount(); page++) {
+            all.addAll(cursor.page(page).join());
+        }
+        return all;
+    }
+
+    @Test
+    void pagesFollowTheKeysetOrderAcrossNullDates() {
+        List<LomSummary> catalog = catalog();
+        for (boolean descending : new boolean[] { false, true }) {
+            ResultCursor cursor = ResultCursor.open(PAGE_SIZE,
+                    seek(catalog, LomSchemaDao.SortKey.CREATED_AT, descending, new AtomicInteger())).join();
+
+            assertEquals(23, cursor.getTotal());
+            assertEquals(6, cursor.getPageCount());
+            List<LomSummary> all = readAll(cursor);
+            List<LomSummary> expected = catalog.stream()
+                    .sorted(order(LomSchemaDao.SortKey.CREATED_AT, descending))
+                    .toList();
+            assertEquals(expected, all);
+
+            Set<Long> ids = new HashSet<>();
+            all.forEach(s -> ids.add(s.id()));
+            assertEquals(23, ids.size());
+        }
+    }
+
+    @Test
+    void nullDatesComeFirstInAscendingOrder() {
+        List<LomSummary> catalog = catalog();
+        ResultCursor cursor = ResultCursor.open(PAGE_SIZE,
+                seek(catalog, LomSchemaDao.SortKey.CREATED_AT, false, new AtomicInteger())).join();
+
+        List<LomSummary> all = readAll(cursor);
+        // 7 ressources sans date (ids multiples de 3), par id croissant
+        for (int i = 0; i < 7; i++) {
+            assertNull(all.get(i).createdAt());
+            assertEquals(3L * (i + 1), all.get(i).id());
+        }
+        assertNotNull(all.get(7).createdAt());
+    }
+
+    @Test
+    void loadedPagesAreKeptAndMissingPagesLoadedInOrder() {
+        AtomicInteger loads = new AtomicInteger();
+        ResultCursor cursor = ResultCursor.open(PAGE_SIZE,
+                seek(catalog(), LomSchemaDao.SortKey.TITLE, false, loads)).join();
+        assertEquals(1, loads.get());
+
+        // La page 3 charge d'abord les pages 1 et 2
+        List<LomSummary> third = cursor.page(3).join();
+        assertEquals(4, loads.get());
+        assertEquals(PAGE_SIZE, third.size());
+
+        assertEquals(third, cursor.page(3).join());
+        cursor.page(0).join();
+        assertEquals(4, loads.get());
+
+        // Dernière page incomplète, puis rien au-delà
+        assertEquals(3, cursor.page(5).join().size());
+        assertEquals(List.of(), cursor.page(6).join());
+        assertEquals(6, loads.get());
+    }
+}